@@ -21,6 +21,7 @@ package im.vector.push.fcm
 
 import android.os.Handler
 import android.os.Looper
+import android.os.SystemClock
 import android.text.TextUtils
 import com.google.firebase.messaging.FirebaseMessagingService
 import com.google.firebase.messaging.RemoteMessage
@@ -31,6 +32,8 @@ import im.vector.R
 import im.vector.VectorApp
 import im.vector.notifications.NotifiableEventResolver
 import im.vector.notifications.NotifiableMessageEvent
+import im.vector.notifications.PushNotifiableEventFactory
+import im.vector.notifications.RoomNotificationMetadataIndex
 import im.vector.notifications.SimpleNotifiableEvent
 import im.vector.push.PushManager
 import im.vector.services.EventStreamServiceX
@@ -73,8 +76,76 @@ class VectorFirebaseMessagingService : FirebaseMessagingService() {
             return
         }
 
+        // when the app is in background, the store may not be loaded yet:
+        // display the notification from the push data first, then catch up
+        val isDisplayed = VectorApp.isAppInBackground() && handlePushFastPath(message.data)
+
+        val handOffTs = SystemClock.elapsedRealtime()
+
         //TODO if the app is in foreground, we could just ignore this. The sync loop is already going?
-        mUIHandler.post { onMessageReceivedInternal(message.data, pushManager) }
+        mUIHandler.post {
+            Log.d(LOG_TAG, "## onMessageReceived() : handed off to the full pipeline in ${SystemClock.elapsedRealtime() - handOffTs} ms")
+            onMessageReceivedInternal(message.data, pushManager, isDisplayed)
+        }
+    }
+
+    /**
+     * Display a message notification from the push data and the rooms metadata index, without the matrix store.
+     * It is done on the calling thread, within FAST_PATH_BUDGET_MS.
+     * The notification is updated afterwards by the full pipeline.
+     *
+     * @param data the push data
+     * @return true if the notification has been displayed
+     */
+    private fun handlePushFastPath(data: Map<String, String>): Boolean {
+        val startTs = SystemClock.elapsedRealtime()
+
+        try {
+            // the event type and content must be known, the other pushes are managed by the full pipeline
+            if (!PushNotifiableEventFactory.isDisplayable(data)) {
+                return false
+            }
+
+            // the session is created without loading its store
+            val session = Matrix.getInstance(applicationContext)?.defaultSession ?: return false
+
+            // the full pipeline does not need to wait for the store
+            if (session.dataHandler?.store?.isReady == true) {
+                return false
+            }
+
+            val parseTs = SystemClock.elapsedRealtime()
+
+            val room = RoomNotificationMetadataIndex.getInstance(applicationContext)
+                    .getRoom(data["room_id"]!!, Math.max(0, FAST_PATH_BUDGET_MS - (parseTs - startTs)))
+
+            val indexTs = SystemClock.elapsedRealtime()
+
+            val notifiableEvent = PushNotifiableEventFactory.create(data,
+                    room,
+                    session.myUserId,
+                    getString(R.string.notification_unknown_new_event),
+                    getString(R.string.notification_unknown_room_name)) ?: return false
+
+            val notificationDrawerManager = VectorApp.getInstance().notificationDrawerManager
+            notificationDrawerManager.onNotifiableEventReceived(notifiableEvent)
+            notificationDrawerManager.refreshNotificationDrawer(null)
+
+            val displayTs = SystemClock.elapsedRealtime()
+
+            Log.d(LOG_TAG, "## handlePushFastPath() : displayed in ${displayTs - startTs} ms (parse ${parseTs - startTs} ms, "
+                    + "index ${indexTs - parseTs} ms, display ${displayTs - indexTs} ms)")
+
+            if (displayTs - startTs > FAST_PATH_BUDGET_MS) {
+                Log.w(LOG_TAG, "## handlePushFastPath() : the latency budget of $FAST_PATH_BUDGET_MS ms is exceeded")
+            }
+
+            return true
+        } catch (e: Exception) {
+            Log.e(LOG_TAG, "## handlePushFastPath() failed after ${SystemClock.elapsedRealtime() - startTs} ms : " + e.message, e)
+        }
+
+        return false
     }
 
     /**
@@ -98,8 +169,11 @@ class VectorFirebaseMessagingService : FirebaseMessagingService() {
      *
      * @param data Data map containing message data as key/value pairs.
      * For Set of keys use data.keySet().
+     * @param isDisplayed true if the notification has already been displayed by the fast path.
      */
-    private fun onMessageReceivedInternal(data: Map<String, String>, pushManager: PushManager) {
+    private fun onMessageReceivedInternal(data: Map<String, String>, pushManager: PushManager, isDisplayed: Boolean) {
+        val startTs = SystemClock.elapsedRealtime()
+
         try {
             if (BuildConfig.LOW_PRIVACY_LOG_ENABLE) {
                 Log.i(LOG_TAG, "## onMessageReceivedInternal() : $data")
@@ -111,6 +185,8 @@ class VectorFirebaseMessagingService : FirebaseMessagingService() {
             val session = Matrix.getInstance(applicationContext)?.defaultSession
 
             if (VectorApp.isAppInBackground() && !pushManager.isBackgroundSyncAllowed) {
+                // without the store, the resolved event would be built from the same push data as the displayed one
+                if (isDisplayed && session?.dataHandler?.store?.isReady != true) return
                 //Notification contains metadata and maybe data information
                 handleNotificationWithoutSyncingMode(data, session)
             } else {
@@ -119,6 +195,8 @@ class VectorFirebaseMessagingService : FirebaseMessagingService() {
                 //Catch up!!
                 EventStreamServiceX.onPushReceived(this)
             }
+
+            Log.d(LOG_TAG, "## onMessageReceivedInternal() : done in ${SystemClock.elapsedRealtime() - startTs} ms")
         } catch (e: Exception) {
             Log.e(LOG_TAG, "## onMessageReceivedInternal() failed : " + e.message, e)
         }
@@ -199,6 +277,10 @@ class VectorFirebaseMessagingService : FirebaseMessagingService() {
                     if (BuildConfig.LOW_PRIVACY_LOG_ENABLE) {
                         Log.e(LOG_TAG, "--> ${event}")
                     }
+
+                    // the fast path may have displayed it
+                    notificationDrawerManager.clearPushGatewayEvent(eventId)
+                    notificationDrawerManager.refreshNotificationDrawer(null)
                 } else {
 
 
@@ -267,5 +349,8 @@ class VectorFirebaseMessagingService : FirebaseMessagingService() {
 
     companion object {
         private val LOG_TAG = VectorFirebaseMessagingService::class.java.simpleName
+
+        // the maximum time to display a notification from the push data, in milliseconds
+        private const val FAST_PATH_BUDGET_MS = 300L
     }
 }
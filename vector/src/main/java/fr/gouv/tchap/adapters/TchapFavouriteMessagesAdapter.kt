@@ -24,14 +24,12 @@ import android.view.ViewGroup
 import android.widget.RelativeLayout
 import android.widget.TextView
 import im.vector.R
-import im.vector.adapters.AdapterUtils
 import im.vector.adapters.VectorMessagesAdapter
 import org.matrix.androidsdk.MXSession
 import org.matrix.androidsdk.adapters.MessageRow
 import org.matrix.androidsdk.core.Log
 import org.matrix.androidsdk.db.MXMediaCache
 import org.matrix.androidsdk.rest.model.Event
-import java.util.*
 
 
 class TchapFavouriteMessagesAdapter(session: MXSession, context: Context, mediaCache: MXMediaCache) :
@@ -146,18 +144,6 @@ class TchapFavouriteMessagesAdapter(session: MXSession, context: Context, mediaC
     }
 
     private fun date(position: Int): String? {
-        var messageDate: Date? = null
-
-        synchronized(this) {
-            if (position < mMessagesDateList.size) {
-                messageDate = mMessagesDateList[position]
-            }
-        }
-
-        // sanity check
-        return if (null == messageDate) {
-            null
-        } else dateDiff(messageDate, (mReferenceDate.time - messageDate!!.getTime()) / AdapterUtils.MS_IN_DAY)
-
+        return dayMessage(position)
     }
 }
@@ -18,6 +18,8 @@
 package fr.gouv.tchap.adapters;
 
 import android.content.Context;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -30,6 +32,7 @@ import org.matrix.androidsdk.data.Room;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
@@ -145,6 +148,76 @@ public class TchapRoomAdapter extends AbsAdapter {
         updateSections();
     }
 
+    /**
+     * Update the rooms list by notifying only the changed rows.
+     *
+     * @param rooms          the new rooms list
+     * @param updatedRoomIds the ids of the rooms which have to be rebound
+     */
+    public void updateRooms(final List<Room> rooms, final Set<String> updatedRoomIds) {
+        if (!TextUtils.isEmpty(mCurrentFilterPattern)) {
+            // the filtered list has to be recomputed
+            setRooms(rooms);
+            return;
+        }
+
+        final List<Room> oldRooms = new ArrayList<>(mRoomsSection.getFilteredItems());
+        mRoomsSection.setItems(rooms, null);
+        final List<Room> newRooms = mRoomsSection.getFilteredItems();
+        updateSectionsPositions();
+
+        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldRooms.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newRooms.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return TextUtils.equals(oldRooms.get(oldItemPosition).getRoomId(), newRooms.get(newItemPosition).getRoomId());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return !updatedRoomIds.contains(newRooms.get(newItemPosition).getRoomId());
+            }
+        });
+
+        // the rooms rows are displayed after the section header
+        final int headerPosition = getSectionHeaderPosition(mRoomsSection);
+        final int offset = headerPosition + 1;
+
+        diffResult.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position + offset, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position + offset, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition + offset, toPosition + offset);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(position + offset, count, payload);
+            }
+        });
+
+        // the header displays the rooms count
+        notifyItemChanged(headerPosition);
+    }
+
 
     /*
      * *********************************************************************************************
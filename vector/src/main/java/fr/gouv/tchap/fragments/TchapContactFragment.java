@@ -46,7 +46,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import butterknife.BindView;
 import fr.gouv.tchap.util.DinumUtilsKt;
@@ -55,6 +57,7 @@ import im.vector.activity.VectorAppCompatActivity;
 import im.vector.activity.VectorRoomInviteMembersActivity;
 import im.vector.activity.ReviewTermsActivity;
 import im.vector.activity.util.RequestCodesKt;
+import im.vector.adapters.KnownUsersSearchIndex;
 import im.vector.adapters.ParticipantAdapterItem;
 import fr.gouv.tchap.adapters.TchapContactAdapter;
 import im.vector.contacts.Contact;
@@ -355,7 +358,12 @@ public class TchapContactFragment extends AbsHomeFragment implements ContactsMan
                 // sort requires about 2 seconds
                 // sort a 1000 items subset during a search requires about 75ms
                 mKnownContacts.clear();
-                mKnownContacts.addAll(new ArrayList<>(VectorUtils.listKnownParticipants(mSession).values()));
+                KnownUsersSearchIndex knownUsersIndex = KnownUsersSearchIndex.getInstance(mSession);
+                if (knownUsersIndex.isBuilt()) {
+                    mKnownContacts.addAll(knownUsersIndex.getParticipants().values());
+                } else {
+                    mKnownContacts.addAll(new ArrayList<>(VectorUtils.listKnownParticipants(mSession).values()));
+                }
                 return null;
             }
 
@@ -478,42 +486,52 @@ public class TchapContactFragment extends AbsHomeFragment implements ContactsMan
 
         if (null != contacts) {
             for (Contact contact : contacts) {
-                    // In case of several emails, we create a contact for each email linked to a Tchap account.
-                    for (String email : contact.getEmails()) {
-                        if (!TextUtils.isEmpty(email) && !ParticipantAdapterItem.isBlackedListed(email)) {
-                            // Check whether a Tchap account is linked to this email.
-                            Contact.MXID mxid = PIDsRetriever.getInstance().getMXID(email);
-
-                            if (null != mxid) {
-                                // Ignore the current user if he belongs to the local phone book.
-                                if (mxid.mMatrixId.equals(mSession.getMyUserId())) {
-                                    continue;
-                                }
-
-                                // Create a contact for this Tchap user
-                                // TODO check whether there is an issue to use the same id for several dummy contacts
-                                Contact dummyContact = new Contact(contact.getContactId());
-                                // Use the email as display name for external users
-                                if (DinsicUtils.isExternalTchapUser(mxid.mMatrixId)) {
-                                    dummyContact.setDisplayName(email);
-                                } else {
-                                    // Use the local contact display name
-                                    dummyContact.setDisplayName(contact.getDisplayName());
-                                }
-                                dummyContact.addEmailAdress(email);
-                                dummyContact.setThumbnailUri(contact.getThumbnailUri());
-                                ParticipantAdapterItem participant = new ParticipantAdapterItem(dummyContact);
-                                participant.mUserId = mxid.mMatrixId;
-                                participants.add(participant);
-                            }
-                        }
-                    }
-                }
+                addTchapUserParticipants(contact, participants);
             }
+        }
 
         return participants;
     }
 
+    /**
+     * Create a participant for each email of a local contact which is linked to a Tchap account.
+     *
+     * @param contact      the local contact
+     * @param participants the list to fill
+     */
+    private void addTchapUserParticipants(Contact contact, List<ParticipantAdapterItem> participants) {
+        // In case of several emails, we create a contact for each email linked to a Tchap account.
+        for (String email : contact.getEmails()) {
+            if (!TextUtils.isEmpty(email) && !ParticipantAdapterItem.isBlackedListed(email)) {
+                // Check whether a Tchap account is linked to this email.
+                Contact.MXID mxid = PIDsRetriever.getInstance().getMXID(email);
+
+                if (null != mxid) {
+                    // Ignore the current user if he belongs to the local phone book.
+                    if (mxid.mMatrixId.equals(mSession.getMyUserId())) {
+                        continue;
+                    }
+
+                    // Create a contact for this Tchap user
+                    // TODO check whether there is an issue to use the same id for several dummy contacts
+                    Contact dummyContact = new Contact(contact.getContactId());
+                    // Use the email as display name for external users
+                    if (DinsicUtils.isExternalTchapUser(mxid.mMatrixId)) {
+                        dummyContact.setDisplayName(email);
+                    } else {
+                        // Use the local contact display name
+                        dummyContact.setDisplayName(contact.getDisplayName());
+                    }
+                    dummyContact.addEmailAdress(email);
+                    dummyContact.setThumbnailUri(contact.getThumbnailUri());
+                    ParticipantAdapterItem participant = new ParticipantAdapterItem(dummyContact);
+                    participant.mUserId = mxid.mMatrixId;
+                    participants.add(participant);
+                }
+            }
+        }
+    }
+
     /*private List<ParticipantAdapterItem> getMatrixUsers() {
         List<ParticipantAdapterItem> matrixUsers = new ArrayList<>();
         for (ParticipantAdapterItem item : mLocalContacts) {
@@ -550,6 +568,50 @@ public class TchapContactFragment extends AbsHomeFragment implements ContactsMan
         initContactsViews();
     }
 
+    @Override
+    public void onContactsUpdate(Collection<Contact> updatedContacts, Collection<String> deletedContactIds) {
+        if (mContactsSnapshotSession == -1) {
+            // the contacts have not been displayed yet
+            onRefresh();
+            return;
+        }
+
+        mContactsSnapshotSession = ContactsManager.getInstance().getLocalContactsSnapshotSession();
+
+        // The dummy contacts have the id of their local contact.
+        Set<String> contactIds = new HashSet<>(deletedContactIds);
+        for (Contact contact : updatedContacts) {
+            contactIds.add(contact.getContactId());
+        }
+
+        Iterator<ParticipantAdapterItem> iterator = mLocalContacts.iterator();
+        while (iterator.hasNext()) {
+            ParticipantAdapterItem item = iterator.next();
+            if ((null != item.mContact) && contactIds.contains(item.mContact.getContactId())) {
+                iterator.remove();
+            }
+        }
+
+        List<ParticipantAdapterItem> updatedParticipants = new ArrayList<>();
+        for (Contact contact : updatedContacts) {
+            addTchapUserParticipants(contact, updatedParticipants);
+        }
+
+        // Keep the items built from the direct chats, they have the right avatar.
+        Set<String> userIds = new HashSet<>();
+        for (ParticipantAdapterItem item : mLocalContacts) {
+            userIds.add(item.mUserId);
+        }
+
+        for (ParticipantAdapterItem participant : updatedParticipants) {
+            if (userIds.add(participant.mUserId)) {
+                mLocalContacts.add(participant);
+            }
+        }
+
+        initContactsViews();
+    }
+
     @Override
     public void onPIDsUpdate() {
         // Retrieve only Tchap user contacts
@@ -25,7 +25,6 @@ import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.widget.ArrayAdapter;
 import android.widget.Filter;
-import android.widget.Toast;
 
 import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.data.Room;
@@ -45,7 +44,7 @@ import java.util.Map;
 import butterknife.BindView;
 import fr.gouv.tchap.util.DinsicUtils;
 import im.vector.Matrix;
-import im.vector.PublicRoomsManager;
+import im.vector.PublicRoomsDirectory;
 import im.vector.R;
 import im.vector.activity.CommonActivityUtils;
 import im.vector.activity.VectorAppCompatActivity;
@@ -68,7 +67,6 @@ public class TchapPublicRoomsFragment extends VectorBaseFragment {
 
     protected MXSession mSession;
 
-    private boolean mMorePublicRooms = false;
     @BindView(R.id.recyclerview)
     RecyclerView mRecycler;
 
@@ -76,7 +74,8 @@ public class TchapPublicRoomsFragment extends VectorBaseFragment {
     private TchapPublicRoomAdapter mAdapter;
 
     private  List<String> mCurrentHosts = null;
-    private List<PublicRoomsManager> mPublicRoomsManagers = null;
+    // the public rooms search on all the directory servers
+    private PublicRoomsDirectory.Search mPublicRoomsSearch = null;
     // rooms list
     private final List<Room> mRooms = new ArrayList<>();
 
@@ -149,6 +148,11 @@ public class TchapPublicRoomsFragment extends VectorBaseFragment {
     public void onDestroyView() {
         super.onDestroyView();
         mCurrentFilter = null;
+
+        if (null != mPublicRoomsSearch) {
+            mPublicRoomsSearch.cancel();
+            mPublicRoomsSearch = null;
+        }
     }
 
     @Override
@@ -352,200 +356,111 @@ public class TchapPublicRoomsFragment extends VectorBaseFragment {
 
     /**
      * Init the public rooms.
+     * All the directory servers are requested at the same time, their rooms are displayed as soon as they are received.
      *
      * @param displayOnTop true to display the public rooms in full screen
      */
     private void initPublicRooms(final boolean displayOnTop) {
         mAdapter.setNoMorePublicRooms(false);
         mAdapter.setPublicRooms(null);
-        mMorePublicRooms = false;
         if (null != mActivity) {
             mActivity.showWaitingView();
         }
 
-        initPublicRoomsCascade(displayOnTop, 0);
-    }
-
-    private void initPublicRoomsCascade(final boolean displayOnTop, final int hostIndex) {
-        if (mPublicRoomsManagers == null) {
-            mPublicRoomsManagers = new ArrayList<>();
-            initPublicRoomsManagers();
+        if (null != mPublicRoomsSearch) {
+            mPublicRoomsSearch.cancel();
         }
 
-        PublicRoomsManager myPRM = mPublicRoomsManagers.get(hostIndex);
-        myPRM.startPublicRoomsSearch(mCurrentHosts.get(hostIndex),
-                null,
-                false,
-                mCurrentFilter, new ApiCallback<List<PublicRoom>>() {
-                    @Override
-                    public void onSuccess(List<PublicRoom> publicRooms) {
-                        if (null != getActivity()) {
-                            mMorePublicRooms = mMorePublicRooms || (publicRooms.size() >= PublicRoomsManager.PUBLIC_ROOMS_LIMIT);
-                            mAdapter.addPublicRooms(publicRooms);
-                            if (hostIndex == mCurrentHosts.size()-1) {
-                                mAdapter.setNoMorePublicRooms(!mMorePublicRooms);
-                                addPublicRoomsListener();
-
-                                // trick to display the full public rooms list
-                                if (displayOnTop) {
-                                    // wait that the list is refreshed
-                                    mRecycler.post(new Runnable() {
-                                        @Override
-                                        public void run() {
-                                            SectionView publicSectionView = mAdapter.getSectionViewForSectionIndex(mAdapter.getSectionsCount() - 1);
-
-                                            // simulate a click on the header is to display the full list
-                                            if ((null != publicSectionView) && !publicSectionView.isStickyHeader()) {
-                                                publicSectionView.callOnClick();
-                                            }
-                                        }
-                                    });
-                                }
-
-                                if (null != mActivity) {
-                                    mActivity.hideWaitingView();
-                                }
-                            }
-                            else {
-                                initPublicRoomsCascade(displayOnTop, hostIndex+1);
-                            }
-                        }
-                    }
-
-                    private void onError(String message) {
-                        if (isAdded()) {
-                            Log.e(LOG_TAG, "## startPublicRoomsSearch() failed " + message);
-                            // Pb here when a lot of federation doesn't work, a lot of messages make a crash
-                            //    Toast.makeText(getActivity(), message, Toast.LENGTH_SHORT).show();
-                            if (hostIndex == mCurrentHosts.size()-1) {
-                                mAdapter.setNoMorePublicRooms(!mMorePublicRooms);
-                                addPublicRoomsListener();
-                                if (null != mActivity) {
-                                    mActivity.hideWaitingView();
-                                }
-                            }
-                            else {
-                                initPublicRoomsCascade(displayOnTop, hostIndex+1);
-                            }
-                        }
-                    }
-
-                    @Override
-                    public void onNetworkError(Exception e) {
-                        onError(e.getLocalizedMessage());
-                    }
-
-                    @Override
-                    public void onMatrixError(MatrixError e) {
-                        if (MatrixError.M_CONSENT_NOT_GIVEN.equals(e.errcode) && isAdded() && null != mActivity) {
-                            mActivity.hideWaitingView();
-                            mActivity.getConsentNotGivenHelper().displayDialog(e);
-                        } else {
-                            onError(e.getLocalizedMessage());
-                        }
-                    }
-
-                    @Override
-                    public void onUnexpectedError(Exception e) {
-                        onError(e.getLocalizedMessage());
-                    }
-                });
-    }
-    /**
-     * Initialize Public rooms managers
-     */
-    private void initPublicRoomsManagers() {
-        for (int i=0;i<mCurrentHosts.size();i++) {
-            PublicRoomsManager myPRM = new PublicRoomsManager();
-            myPRM.setSession(mSession);
-            mPublicRoomsManagers.add(myPRM);
-        }
-    }
-
-    /**
-     * Trigger a forward room pagination
-     */
-    private void forwardPaginate() {
-        for (int i = 0; i < mPublicRoomsManagers.size(); i++)
-            if (mPublicRoomsManagers.get(i).isRequestInProgress()) {
-                return;
-            }
-        mMorePublicRooms = false;
-        if (null != mActivity) {
-            mActivity.showWaitingView();
-        }
-        cascadeForwardPaginate(0);
-    }
+        PublicRoomsDirectory directory = PublicRoomsDirectory.getInstance();
+        directory.setSession(mSession);
 
-    private void cascadeForwardPaginate(final int hostIndex) {
+        mPublicRoomsSearch = directory.createSearch(mCurrentHosts, mCurrentFilter, new PublicRoomsDirectory.SearchListener() {
+            // the first search done is the initial search, the next ones are the forward paginations
+            private boolean mIsInitialSearch = true;
 
-        boolean isForwarding = mPublicRoomsManagers.get(hostIndex).forwardPaginate(new ApiCallback<List<PublicRoom>>() {
             @Override
-            public void onSuccess(final List<PublicRoom> publicRooms) {
-                if (isAdded()) {
-                    // unplug the scroll listener if there is no more data to find
-                    if (PublicRoomsManager.getInstance().hasMoreResults()) {
-                        mMorePublicRooms = true;
-                    }
+            public void onPublicRoomsAdded(List<PublicRoom> publicRooms) {
+                if (null != getActivity()) {
                     mAdapter.addPublicRooms(publicRooms);
                 }
-                if (hostIndex == mCurrentHosts.size()-1) {
-                    if (null != mActivity) {
-                        mActivity.hideWaitingView();
-                    }
-                    if (!mMorePublicRooms) {
-                        mAdapter.setNoMorePublicRooms(true);
-                        removePublicRoomsListener();
-                    }
-                }
-                else {
-                    cascadeForwardPaginate(hostIndex+1);
-                }
             }
 
-            private void onError(String message) {
+            @Override
+            public void onServerError(String server, MatrixError matrixError, String message) {
                 if (isAdded()) {
-                    Log.e(LOG_TAG, "## forwardPaginate() failed " + message);
-                    Toast.makeText(getActivity(), message, Toast.LENGTH_SHORT).show();
-                }
-                if (hostIndex == mCurrentHosts.size()) {
-                    if (null != mActivity) {
+                    Log.e(LOG_TAG, "## initPublicRooms() : " + server + " failed " + message);
+
+                    if ((null != matrixError) && MatrixError.M_CONSENT_NOT_GIVEN.equals(matrixError.errcode) && null != mActivity) {
                         mActivity.hideWaitingView();
+                        mActivity.getConsentNotGivenHelper().displayDialog(matrixError);
                     }
-                }
-                else {
-                    cascadeForwardPaginate(hostIndex+1);
+                    // Pb here when a lot of federation doesn't work, a lot of messages make a crash
+                    // so no toast is displayed
                 }
             }
 
             @Override
-            public void onNetworkError(Exception e) {
-                onError(e.getLocalizedMessage());
-            }
+            public void onSearchDone(boolean hasMoreResults) {
+                if (!isAdded()) {
+                    return;
+                }
 
-            @Override
-            public void onMatrixError(MatrixError e) {
-                onError(e.getLocalizedMessage());
-            }
+                mAdapter.setNoMorePublicRooms(!hasMoreResults);
 
-            @Override
-            public void onUnexpectedError(Exception e) {
-                onError(e.getLocalizedMessage());
+                if (hasMoreResults) {
+                    addPublicRoomsListener();
+                } else {
+                    removePublicRoomsListener();
+                }
+
+                // trick to display the full public rooms list
+                if (mIsInitialSearch && displayOnTop) {
+                    // wait that the list is refreshed
+                    mRecycler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            SectionView publicSectionView = mAdapter.getSectionViewForSectionIndex(mAdapter.getSectionsCount() - 1);
+
+                            // simulate a click on the header is to display the full list
+                            if ((null != publicSectionView) && !publicSectionView.isStickyHeader()) {
+                                publicSectionView.callOnClick();
+                            }
+                        }
+                    });
+                }
+
+                mIsInitialSearch = false;
+
+                if (null != mActivity) {
+                    mActivity.hideWaitingView();
+                }
             }
         });
 
-        if (!isForwarding) {
+        mPublicRoomsSearch.start();
+    }
+
+    /**
+     * Trigger a forward room pagination
+     */
+    private void forwardPaginate() {
+        if ((null == mPublicRoomsSearch) || mPublicRoomsSearch.isRequestInProgress()) {
+            return;
+        }
+
+        if (mPublicRoomsSearch.forwardPaginate()) {
             if (null != mActivity) {
-                mActivity.hideWaitingView();
+                mActivity.showWaitingView();
             }
         }
-
     }
 
     /**
      * Add the public rooms listener
      */
     private void addPublicRoomsListener() {
+        // avoid registering the listener several times
+        mRecycler.removeOnScrollListener(mPublicRoomScrollListener);
         mRecycler.addOnScrollListener(mPublicRoomScrollListener);
     }
 
@@ -18,6 +18,7 @@
 package fr.gouv.tchap.fragments;
 
 import android.os.Bundle;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -33,7 +34,10 @@ import org.matrix.androidsdk.core.Log;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import butterknife.BindView;
 import im.vector.R;
@@ -55,6 +59,9 @@ public class TchapRoomsFragment extends AbsHomeFragment implements AbsHomeFragme
     // rooms list
     private final List<Room> mRooms = new ArrayList<>();
 
+    // true when a rooms update has been received while the fragment was paused
+    private boolean mIsRoomsRefreshPending = false;
+
     /*
      * *********************************************************************************************
      * Static methods
@@ -100,6 +107,11 @@ public class TchapRoomsFragment extends AbsHomeFragment implements AbsHomeFragme
         super.onResume();
 
         if (null != mActivity) {
+            // the updates received while the fragment was paused are replaced by the current result
+            if (mIsRoomsRefreshPending) {
+                mIsRoomsRefreshPending = false;
+                refreshRooms(mActivity.getRoomsViewModel().getResult().getJoinedRooms());
+            }
             mAdapter.setInvitation(mActivity.getRoomInvitations());
         }
         mRecycler.addOnScrollListener(mScrollListener);
@@ -156,8 +168,26 @@ public class TchapRoomsFragment extends AbsHomeFragment implements AbsHomeFragme
     @Override
     public void onRoomResultUpdated(final HomeRoomsViewModel.Result result) {
         if (isResumed()) {
+            mIsRoomsRefreshPending = false;
             refreshRooms(result.getJoinedRooms());
             mAdapter.setInvitation(mActivity.getRoomInvitations());
+        } else {
+            mIsRoomsRefreshPending = true;
+        }
+    }
+
+    @Override
+    public void onRoomResultUpdated(final HomeRoomsViewModel.Result result, @Nullable final HomeRoomsViewModel.Diff diff) {
+        if (null == diff) {
+            onRoomResultUpdated(result);
+        } else if (mIsRoomsRefreshPending) {
+            // the diff cannot be applied on a stale list
+            onRoomResultUpdated(result);
+        } else if (isResumed()) {
+            applyRoomsDiff(diff.getJoinedRoomsDiff());
+            mAdapter.setInvitation(mActivity.getRoomInvitations());
+        } else {
+            mIsRoomsRefreshPending = true;
         }
     }
 
@@ -198,30 +228,82 @@ public class TchapRoomsFragment extends AbsHomeFragment implements AbsHomeFragme
         mRooms.clear();
 
         for (Room room : allJoinedRooms) {
-            // Hide the rooms created to invite some non-tchap contact by email.
-            if (room.isDirect() && room.getState().thirdPartyInvites().size() != 0) {
-                // TODO handle the potential lazy loading option by handling asynchronously the room members.
-                Collection<RoomMember> members = room.getState().getDisplayableLoadedMembers();
-                for (RoomMember member : members) {
-                    if (member.getUserId().equals(mSession.getMyUserId())) {
-                        continue;
-                    }
-
-                    // Check whether there is no pending 3PID invite for this member.
-                    if (null == member.getThirdPartyInviteToken()) {
-                        mRooms.add(room);
-                        // Break here the loop on members in case of a wrong direct chat
-                        // (with several members)
-                        break;
-                    }
-                }
-            } else {
+            if (isDisplayedRoom(room)) {
                 mRooms.add(room);
             }
         }
         mAdapter.setRooms(mRooms);
     }
 
+    /**
+     * Update the rooms display with the changes only
+     *
+     * @param diff the joined rooms changes
+     */
+    private void applyRoomsDiff(HomeRoomsViewModel.SectionDiff diff) {
+        if (diff.isEmpty()) {
+            return;
+        }
+
+        Set<String> updatedRoomIds = new HashSet<>();
+        for (Room room : diff.getRemoved()) {
+            updatedRoomIds.add(room.getRoomId());
+        }
+        for (Room room : diff.getAdded()) {
+            updatedRoomIds.add(room.getRoomId());
+        }
+        for (Room room : diff.getMoved()) {
+            updatedRoomIds.add(room.getRoomId());
+        }
+
+        for (Iterator<Room> iterator = mRooms.iterator(); iterator.hasNext(); ) {
+            if (updatedRoomIds.contains(iterator.next().getRoomId())) {
+                iterator.remove();
+            }
+        }
+
+        for (Room room : diff.getAdded()) {
+            if (isDisplayedRoom(room)) {
+                mRooms.add(room);
+            }
+        }
+        for (Room room : diff.getMoved()) {
+            if (isDisplayedRoom(room)) {
+                mRooms.add(room);
+            }
+        }
+
+        mAdapter.updateRooms(new ArrayList<>(mRooms), updatedRoomIds);
+    }
+
+    /**
+     * Tell whether a joined room is displayed.
+     * The rooms created to invite some non-tchap contact by email are hidden.
+     *
+     * @param room the room
+     * @return true if the room is displayed
+     */
+    private boolean isDisplayedRoom(Room room) {
+        if (room.isDirect() && room.getState().thirdPartyInvites().size() != 0) {
+            // TODO handle the potential lazy loading option by handling asynchronously the room members.
+            Collection<RoomMember> members = room.getState().getDisplayableLoadedMembers();
+            for (RoomMember member : members) {
+                if (member.getUserId().equals(mSession.getMyUserId())) {
+                    continue;
+                }
+
+                // Check whether there is no pending 3PID invite for this member.
+                if (null == member.getThirdPartyInviteToken()) {
+                    // Break here the loop on members in case of a wrong direct chat
+                    // (with several members)
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
     /*
      * *********************************************************************************************
      * Listeners
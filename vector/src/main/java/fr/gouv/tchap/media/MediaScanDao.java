@@ -16,40 +16,174 @@
 
 package fr.gouv.tchap.media;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
 import androidx.annotation.NonNull;
 
+import org.matrix.androidsdk.core.Log;
 import org.matrix.androidsdk.rest.model.MediaScanResult;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import fr.gouv.tchap.model.MediaScan;
 import io.realm.Realm;
 
-
+/**
+ * The media scan results are cached in memory (LRU), in front of the Realm database.
+ * The cache misses are loaded from the database on a background thread.
+ * The status updates are applied to the cache immediately, then they are coalesced and written
+ * in batched transactions on the same thread.
+ * The DAO must be used from the UI thread.
+ */
 public class MediaScanDao {
 
     private static final String LOG_TAG = MediaScanDao.class.getSimpleName();
 
-    private Realm mRealm;
+    // the max number of media scan results kept in memory
+    private static final int MEDIA_SCAN_CACHE_SIZE = 500;
+
+    // the delay used to batch the pending status updates
+    private static final long MEDIA_SCAN_WRITE_DELAY_MS = 500;
+
+    // the media scan results by url, shared by all the DAO instances
+    // the cached objects are unmanaged Realm objects, they are never modified once cached
+    private static final LruCache<String, MediaScan> sMediaScanCache = new LruCache<>(MEDIA_SCAN_CACHE_SIZE);
+
+    // the media scan results to write in the database, by url
+    private static final Map<String, MediaScan> sPendingWrites = new LinkedHashMap<>();
+
+    // the listeners of the media scan results being loaded, by url
+    private static final Map<String, List<MediaScanLoadListener>> sPendingLoads = new HashMap<>();
+
+    // the database accesses are serialized on this thread
+    private static final ExecutorService sDatabaseExecutor = Executors.newSingleThreadExecutor();
+
+    private static final Handler sUIHandler = new Handler(Looper.getMainLooper());
+
+    private static boolean sIsFlushScheduled = false;
 
     /**
-     * Constructor
-     *
-     * @param realm instance of realm.
+     * Listener of a media scan object loaded from the database.
      */
-    public MediaScanDao(Realm realm) {
-        mRealm = realm;
+    /* package */ interface MediaScanLoadListener {
+        /**
+         * Called on the UI thread when the media scan object has been loaded.
+         *
+         * @param mediaScan the media scan object (an unknown status is provided if the url has never been scanned).
+         */
+        void onMediaScanLoaded(MediaScan mediaScan);
     }
 
     /**
      * Get the media scan object for a dedicated url.
+     * When it is not cached, it is loaded in background and the listener is called when it is available.
      *
-     * @param url   the media url, must not be null.
-     * @return the media scan object for this url from the database (will be created if necessary).
+     * @param url      the media url, must not be null.
+     * @param listener the listener to call when the media scan object is loaded.
+     * @return the media scan object for this url (an unknown status is returned if the url has never been scanned),
+     * null if it is being loaded.
      */
-    /* package */ MediaScan getMediaScan(@NonNull String url) {
+    /* package */ MediaScan getMediaScan(@NonNull final String url, @NonNull MediaScanLoadListener listener) {
+        MediaScan mediaScan = sMediaScanCache.get(url);
+
+        if (null != mediaScan) {
+            return mediaScan;
+        }
+
+        List<MediaScanLoadListener> listeners = sPendingLoads.get(url);
+
+        if (null != listeners) {
+            // the media scan object is already being loaded
+            if (!listeners.contains(listener)) {
+                listeners.add(listener);
+            }
+            return null;
+        }
+
+        listeners = new ArrayList<>();
+        listeners.add(listener);
+        sPendingLoads.put(url, listeners);
+
+        // after the pending writes
+        sDatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final MediaScan loadedMediaScan = loadMediaScan(url);
+
+                sUIHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // the cache is more recent when the status has been updated in the meantime
+                        MediaScan cachedMediaScan = sMediaScanCache.get(url);
 
-        return getMediaScan(mRealm, url);
+                        if (null == cachedMediaScan) {
+                            cachedMediaScan = loadedMediaScan;
+                            sMediaScanCache.put(url, cachedMediaScan);
+                        }
+
+                        List<MediaScanLoadListener> listeners = sPendingLoads.remove(url);
+
+                        if (null != listeners) {
+                            for (MediaScanLoadListener listener : listeners) {
+                                listener.onMediaScanLoaded(cachedMediaScan);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+
+        return null;
+    }
+
+    /**
+     * Read a media scan object from the database, on the database thread.
+     *
+     * @param url the media url.
+     * @return an unmanaged media scan object (an unknown status is returned if the url has never been scanned).
+     */
+    private static MediaScan loadMediaScan(String url) {
+        // the status updates which have not been flushed yet
+        synchronized (sPendingWrites) {
+            MediaScan pendingMediaScan = sPendingWrites.get(url);
+
+            if (null != pendingMediaScan) {
+                return pendingMediaScan;
+            }
+        }
+
+        MediaScan mediaScan = null;
+        Realm realm = Realm.getDefaultInstance();
+
+        try {
+            MediaScan storedMediaScan = realm.where(MediaScan.class)
+                    .equalTo("url", url)
+                    .findFirst();
+
+            if (null != storedMediaScan) {
+                mediaScan = realm.copyFromRealm(storedMediaScan);
+            }
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## loadMediaScan() failed " + e.getMessage(), e);
+        } finally {
+            realm.close();
+        }
+
+        if (null == mediaScan) {
+            mediaScan = new MediaScan();
+            mediaScan.setUrl(url);
+        }
+
+        return mediaScan;
     }
 
     /**
@@ -58,17 +192,15 @@ public class MediaScanDao {
      *
      * @param url                 the media url, must not be null.
      * @param antiVirusScanStatus the current antivirus scan status.
+     * @return the updated media scan object.
      */
-    /* package */ void updateMediaAntiVirusScanStatus(@NonNull final String url, final AntiVirusScanStatus antiVirusScanStatus) {
+    /* package */ MediaScan updateMediaAntiVirusScanStatus(@NonNull final String url, final AntiVirusScanStatus antiVirusScanStatus) {
+        MediaScan mediaScan = copyCachedMediaScan(url);
+        mediaScan.setAntiVirusScanStatus(antiVirusScanStatus);
+        mediaScan.setAntiVirusScanDate(new Date());
 
-        mRealm.executeTransaction(new Realm.Transaction() {
-            @Override
-            public void execute(Realm realm) {
-                MediaScan mediaScan = getMediaScan(realm, url);
-                mediaScan.setAntiVirusScanStatus(antiVirusScanStatus);
-                mediaScan.setAntiVirusScanDate(new Date());
-            }
-        });
+        storeMediaScan(mediaScan);
+        return mediaScan;
     }
 
     /**
@@ -77,26 +209,24 @@ public class MediaScanDao {
      *
      * @param url                 the media url, must not be null.
      * @param mediaScanResult     the antivirus scan result.
+     * @return the updated media scan object.
      */
-    /* package */ void updateMediaAntiVirusScanStatus(@NonNull final String url, final MediaScanResult mediaScanResult) {
+    /* package */ MediaScan updateMediaAntiVirusScanStatus(@NonNull final String url, final MediaScanResult mediaScanResult) {
+        MediaScan mediaScan = copyCachedMediaScan(url);
+        AntiVirusScanStatus status;
+        if (mediaScanResult.clean) {
+            // Trusted
+            status = AntiVirusScanStatus.TRUSTED;
+        } else {
+            // Infected
+            status = AntiVirusScanStatus.INFECTED;
+        }
+        mediaScan.setAntiVirusScanStatus(status);
+        mediaScan.setAntiVirusScanInfo(mediaScanResult.info);
+        mediaScan.setAntiVirusScanDate(new Date());
 
-        mRealm.executeTransaction(new Realm.Transaction() {
-            @Override
-            public void execute(Realm realm) {
-                MediaScan mediaScan = getMediaScan(realm, url);
-                AntiVirusScanStatus status;
-                if (mediaScanResult.clean) {
-                    // Trusted
-                    status = AntiVirusScanStatus.TRUSTED;
-                } else {
-                    // Infected
-                    status = AntiVirusScanStatus.INFECTED;
-                }
-                mediaScan.setAntiVirusScanStatus(status);
-                mediaScan.setAntiVirusScanInfo(mediaScanResult.info);
-                mediaScan.setAntiVirusScanDate(new Date());
-            }
-        });
+        storeMediaScan(mediaScan);
+        return mediaScan;
     }
 
     /**
@@ -104,42 +234,113 @@ public class MediaScanDao {
      * This action will delete the table MediaScan in the Realm database.
      */
     /* package */ void clearAntiVirusScanResults() {
+        synchronized (sPendingWrites) {
+            sPendingWrites.clear();
+        }
 
-        mRealm.executeTransaction(new Realm.Transaction() {
+        sMediaScanCache.evictAll();
+
+        // after the pending writes
+        sDatabaseExecutor.execute(new Runnable() {
             @Override
-            public void execute(Realm realm) {
-                realm.delete(MediaScan.class);
+            public void run() {
+                Realm realm = Realm.getDefaultInstance();
+
+                try {
+                    realm.executeTransaction(new Realm.Transaction() {
+                        @Override
+                        public void execute(Realm realm) {
+                            realm.delete(MediaScan.class);
+                        }
+                    });
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## clearAntiVirusScanResults() failed " + e.getMessage(), e);
+                } finally {
+                    realm.close();
+                }
             }
         });
     }
 
     /**
-     * Get the media scan object for a dedicated url from the provided realm instance.
+     * Update the cache and schedule the database update.
      *
-     * @param realm instance of realm.
-     * @param url   the media url, must not be null.
-     * @return the current media scan object (will be created if necessary).
+     * @param mediaScan the updated media scan object.
      */
-    private MediaScan getMediaScan(Realm realm, @NonNull String url) {
+    private void storeMediaScan(final MediaScan mediaScan) {
+        sMediaScanCache.put(mediaScan.getUrl(), mediaScan);
 
-        MediaScan mediaScan = null;
+        synchronized (sPendingWrites) {
+            // only the last status of an url is written
+            sPendingWrites.put(mediaScan.getUrl(), mediaScan);
 
-        mediaScan = realm.where(MediaScan.class)
-                .equalTo("url", url)
-                .findFirst();
+            if (!sIsFlushScheduled) {
+                sIsFlushScheduled = true;
+                sUIHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        flushPendingWrites();
+                    }
+                }, MEDIA_SCAN_WRITE_DELAY_MS);
+            }
+        }
+    }
 
-        if (null == mediaScan) {
-            // Create the realm object MediaScan
-            if (realm.isInTransaction()) {
-                mediaScan = realm.createObject(MediaScan.class, url);
-            } else {
-                realm.beginTransaction();
-                mediaScan = realm.createObject(MediaScan.class, url);
-                realm.commitTransaction();
+    /**
+     * Write the pending media scan objects in one transaction, on the background thread.
+     */
+    private static void flushPendingWrites() {
+        final List<MediaScan> mediaScans;
+
+        synchronized (sPendingWrites) {
+            sIsFlushScheduled = false;
+            mediaScans = new ArrayList<>(sPendingWrites.values());
+            sPendingWrites.clear();
+        }
+
+        if (mediaScans.isEmpty()) {
+            return;
+        }
+
+        sDatabaseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Realm realm = Realm.getDefaultInstance();
+
+                try {
+                    realm.executeTransaction(new Realm.Transaction() {
+                        @Override
+                        public void execute(Realm realm) {
+                            realm.copyToRealmOrUpdate(mediaScans);
+                        }
+                    });
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## flushPendingWrites() failed " + e.getMessage(), e);
+                } finally {
+                    realm.close();
+                }
             }
+        });
+    }
+
+    /**
+     * Create an unmanaged copy of the cached media scan object of an url, the cached objects are never modified.
+     * The status updates replace the stored object, so the database is not read when the url is not cached.
+     *
+     * @param url the media url.
+     * @return the copy, a new media scan object when the url is not cached.
+     */
+    private static MediaScan copyCachedMediaScan(String url) {
+        MediaScan mediaScan = sMediaScanCache.get(url);
+        MediaScan copy = new MediaScan();
+        copy.setUrl(url);
+
+        if (null != mediaScan) {
+            copy.setAntiVirusScanStatus(mediaScan.getAntiVirusScanStatus());
+            copy.setAntiVirusScanInfo(mediaScan.getAntiVirusScanInfo());
+            copy.setAntiVirusScanDate(mediaScan.getAntiVirusScanDate());
         }
 
-        return mediaScan;
+        return copy;
     }
 }
-
@@ -16,28 +16,28 @@
 
 package fr.gouv.tchap.media;
 
-import org.matrix.androidsdk.core.callback.ApiCallback;
+import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.rest.client.MediaScanRestClient;
-import org.matrix.androidsdk.rest.model.EncryptedMediaScanBody;
 import org.matrix.androidsdk.rest.model.Event;
-import org.matrix.androidsdk.core.model.MatrixError;
 import org.matrix.androidsdk.rest.model.MediaScanResult;
 import org.matrix.androidsdk.crypto.model.crypto.EncryptedFileInfo;
 import org.matrix.androidsdk.core.ContentManager;
 import org.matrix.androidsdk.core.Log;
 
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import fr.gouv.tchap.model.MediaScan;
 import im.vector.util.SlidableMediaInfo;
-import io.realm.Realm;
 
 public class MediaScanManager {
 
     private static final String LOG_TAG = MediaScanManager.class.getSimpleName();
 
-    private final int MEDIA_SCAN_MANAGER_RETRY_DELAY = 600000;
+    // the scan schedulers by user id, shared by the managers of a session
+    private static final Map<String, MediaScanScheduler> sSchedulers = new HashMap<>();
 
     // Media scan listener
     public interface MediaScanManagerListener {
@@ -49,19 +49,93 @@ public class MediaScanManager {
 
     private MediaScanManagerListener mListener;
 
-    private MediaScanRestClient mMediaScanRestClient;
+    private final MediaScanScheduler mScheduler;
     // The Data Access Object (DAO)
     MediaScanDao mMediaScanDao;
 
+    // Notify the listener of this manager when a media scan has been updated
+    private final MediaScanScheduler.ScanListener mScanListener = new MediaScanScheduler.ScanListener() {
+        @Override
+        public void onScanSucceeded(String url, MediaScanResult mediaScanResult) {
+            notifyMediaScanChange(url);
+        }
+
+        @Override
+        public void onScanFailed(String url, String errorMessage) {
+            notifyMediaScanChange(url);
+        }
+
+        @Override
+        public void onScanCancelled(String url) {
+            // the scan will be triggered again on the next display
+            mMediaScanDao.updateMediaAntiVirusScanStatus(url, AntiVirusScanStatus.UNKNOWN);
+        }
+    };
+
     /**
      * Constructor
+     * The media scan results are read from the database in background.
+     *
+     * @param session the session
+     */
+    public MediaScanManager(MXSession session) {
+        mMediaScanDao = new MediaScanDao();
+        mScheduler = getScheduler(session);
+    }
+
+    /**
+     * Provide the scheduler of a session.
+     * The scan results are stored in the database by the scheduler, even if their requesters have been cancelled.
+     *
+     * @param session the session
+     * @return the scheduler
+     */
+    private static MediaScanScheduler getScheduler(MXSession session) {
+        final MediaScanRestClient mediaScanRestClient = session.getMediaScanRestClient();
+
+        synchronized (sSchedulers) {
+            MediaScanScheduler scheduler = sSchedulers.get(session.getMyUserId());
+
+            // the rest client is recreated when the session is reloaded
+            if ((null == scheduler) || !scheduler.isUsing(mediaScanRestClient)) {
+                // the results are stored even if the requester has been closed
+                final MediaScanDao mediaScanDao = new MediaScanDao();
+
+                scheduler = new MediaScanScheduler(mediaScanRestClient, new MediaScanScheduler.ScanListener() {
+                    @Override
+                    public void onScanSucceeded(String url, MediaScanResult mediaScanResult) {
+                        Log.d(LOG_TAG, "## scan succeeded " + mediaScanResult.info);
+                        mediaScanDao.updateMediaAntiVirusScanStatus(url, mediaScanResult);
+                    }
+
+                    @Override
+                    public void onScanFailed(String url, String errorMessage) {
+                        Log.e(LOG_TAG, "## scan failed " + errorMessage);
+                        mediaScanDao.updateMediaAntiVirusScanStatus(url, AntiVirusScanStatus.UNKNOWN);
+                    }
+
+                    @Override
+                    public void onScanCancelled(String url) {
+                        // the result listener is never cancelled
+                    }
+                }, MediaScanScheduler.DEFAULT_MAX_CONCURRENT_SCANS);
+
+                sSchedulers.put(session.getMyUserId(), scheduler);
+            }
+
+            return scheduler;
+        }
+    }
+
+    /**
+     * Release the scheduler of a session (on logout).
      *
-     * @param mediaScanRestClient the media scan rest client
-     * @param realm               the Realm instance to use.
+     * @param session the session
      */
-    public MediaScanManager(MediaScanRestClient mediaScanRestClient, Realm realm) {
-        mMediaScanRestClient = mediaScanRestClient;
-        mMediaScanDao = new MediaScanDao(realm);
+    public static void releaseScheduler(MXSession session) {
+        synchronized (sSchedulers) {
+            sSchedulers.remove(session.getMyUserId());
+        }
     }
 
     /**
@@ -73,6 +147,15 @@ public class MediaScanManager {
         mListener = listener;
     }
 
+    /**
+     * Cancel the pending scans requested by this manager (the room is closed for example).
+     * The running scans are completed but the listener is no more notified.
+     */
+    public void cancelPendingScans() {
+        mListener = null;
+        mScheduler.cancel(this);
+    }
+
     /**
      * Get the current scan result of an unencrypted media (including antivirus status).
      * Trigger an antivirus scan if it is not already done.
@@ -81,6 +164,18 @@ public class MediaScanManager {
      * @return the current scan result of the media.
      */
     public MediaScan scanUnencryptedMedia(final String url) {
+        return scanUnencryptedMedia(url, MediaScanScheduler.PRIORITY_NORMAL);
+    }
+
+    /**
+     * Get the current scan result of an unencrypted media (including antivirus status).
+     * Trigger an antivirus scan if it is not already done.
+     *
+     * @param url      the matrix content url.
+     * @param priority the scan priority (see MediaScanScheduler.PRIORITY_XX)
+     * @return the current scan result of the media.
+     */
+    public MediaScan scanUnencryptedMedia(final String url, final int priority) {
 
         // Sanity check
         if (!ContentManager.isValidMatrixContentUrl(url)) {
@@ -88,14 +183,19 @@ public class MediaScanManager {
         }
 
         // Retrieve the existing result if any
-        MediaScan mediaScan = mMediaScanDao.getMediaScan(url);
+        MediaScan mediaScan = mMediaScanDao.getMediaScan(url, new MediaScanDao.MediaScanLoadListener() {
+            @Override
+            public void onMediaScanLoaded(MediaScan mediaScan) {
+                notifyMediaScanLoaded(scanUnencryptedMedia(url, priority));
+            }
+        });
+
+        if (null == mediaScan) {
+            return createLoadingMediaScan(url);
+        }
 
         // Check whether a new request is required
         if (isUpdateRequired(mediaScan)) {
-            // Trigger the antivirus scan, update the current scan status in the database
-            mMediaScanDao.updateMediaAntiVirusScanStatus(url, AntiVirusScanStatus.IN_PROGRESS);
-            mediaScan = mMediaScanDao.getMediaScan(url);
-
             String mediaServerAndId = url.substring(ContentManager.MATRIX_CONTENT_URI_SCHEME.length());
             int index = mediaServerAndId.indexOf("/");
             if (index < 0 || index > mediaServerAndId.length() - 2) {
@@ -107,43 +207,9 @@ public class MediaScanManager {
             String domain = mediaServerAndId.substring(0, index);
             String mediaId = mediaServerAndId.substring(index + 1);
 
-            mMediaScanRestClient.scanUnencryptedFile(domain, mediaId, new ApiCallback<MediaScanResult>() {
-                @Override
-                public void onSuccess(MediaScanResult mediaScanResult) {
-                    Log.d(LOG_TAG, "## scanUnencryptedFile succeeded" + mediaScanResult.info);
-                    mMediaScanDao.updateMediaAntiVirusScanStatus(url, mediaScanResult);
-
-                    // Call the listener if any
-                    if (null != mListener) {
-                        mListener.onMediaScanChange(mMediaScanDao.getMediaScan(url));
-                    }
-                }
-
-                private void onError(final String message) {
-                    Log.e(LOG_TAG, "## scanUnencryptedFile failed " + message);
-                    mMediaScanDao.updateMediaAntiVirusScanStatus(url, AntiVirusScanStatus.UNKNOWN);
-
-                    // Call the listener if any
-                    if (null != mListener) {
-                        mListener.onMediaScanChange(mMediaScanDao.getMediaScan(url));
-                    }
-                }
-
-                @Override
-                public void onNetworkError(Exception e) {
-                    onError(e.getLocalizedMessage());
-                }
-
-                @Override
-                public void onMatrixError(MatrixError matrixError) {
-                    onError(matrixError.getLocalizedMessage());
-                }
-
-                @Override
-                public void onUnexpectedError(Exception e) {
-                    onError(e.getLocalizedMessage());
-                }
-            });
+            // Trigger the antivirus scan, update the current scan status in the database
+            mediaScan = mMediaScanDao.updateMediaAntiVirusScanStatus(url, AntiVirusScanStatus.IN_PROGRESS);
+            mScheduler.scanUnencryptedMedia(url, domain, mediaId, priority, this, mScanListener);
         }
 
         return mediaScan;
@@ -157,57 +223,75 @@ public class MediaScanManager {
      * @return the current scan result of the encrypted media..
      */
     public MediaScan scanEncryptedMedia(final EncryptedFileInfo mediaInfo) {
+        return scanEncryptedMedia(mediaInfo, MediaScanScheduler.PRIORITY_NORMAL);
+    }
 
-        MediaScan mediaScan = mMediaScanDao.getMediaScan(mediaInfo.url);
+    /**
+     * Get the current scan result of an encrypted media (including antivirus status).
+     * Trigger an antivirus scan if it is not already done.
+     *
+     * @param mediaInfo the encrypted media information.
+     * @param priority  the scan priority (see MediaScanScheduler.PRIORITY_XX)
+     * @return the current scan result of the encrypted media..
+     */
+    public MediaScan scanEncryptedMedia(final EncryptedFileInfo mediaInfo, final int priority) {
+
+        MediaScan mediaScan = mMediaScanDao.getMediaScan(mediaInfo.url, new MediaScanDao.MediaScanLoadListener() {
+            @Override
+            public void onMediaScanLoaded(MediaScan mediaScan) {
+                notifyMediaScanLoaded(scanEncryptedMedia(mediaInfo, priority));
+            }
+        });
+
+        if (null == mediaScan) {
+            return createLoadingMediaScan(mediaInfo.url);
+        }
 
         // Check whether a new request is required
         if (isUpdateRequired(mediaScan)) {
             // Trigger the antivirus scan, update the current scan status in the database
-            mMediaScanDao.updateMediaAntiVirusScanStatus(mediaInfo.url, AntiVirusScanStatus.IN_PROGRESS);
-            mediaScan = mMediaScanDao.getMediaScan(mediaInfo.url);
-
-            EncryptedMediaScanBody encryptedMediaScanBody = new EncryptedMediaScanBody();
-            encryptedMediaScanBody.encryptedFileInfo = mediaInfo;
-
-            mMediaScanRestClient.scanEncryptedFile(encryptedMediaScanBody, new ApiCallback<MediaScanResult>() {
-                @Override
-                public void onSuccess(MediaScanResult mediaScanResult) {
-                    Log.d(LOG_TAG, "## scanEncryptedFile succeeded" + mediaScanResult.info);
-                    mMediaScanDao.updateMediaAntiVirusScanStatus(mediaInfo.url, mediaScanResult);
-
-                    // Call the listener if any
-                    if (null != mListener) {
-                        mListener.onMediaScanChange(mMediaScanDao.getMediaScan(mediaInfo.url));
-                    }
-                }
-
-                private void onError(final String message) {
-                    Log.e(LOG_TAG, "## scanEncryptedFile failed " + message);
-                    mMediaScanDao.updateMediaAntiVirusScanStatus(mediaInfo.url, AntiVirusScanStatus.UNKNOWN);
+            mediaScan = mMediaScanDao.updateMediaAntiVirusScanStatus(mediaInfo.url, AntiVirusScanStatus.IN_PROGRESS);
+            mScheduler.scanEncryptedMedia(mediaInfo, priority, this, mScanListener);
+        }
 
-                    // Call the listener if any
-                    if (null != mListener) {
-                        mListener.onMediaScanChange(mMediaScanDao.getMediaScan(mediaInfo.url));
-                    }
-                }
+        return mediaScan;
+    }
 
+    private void notifyMediaScanChange(String url) {
+        // Call the listener if any
+        if (null != mListener) {
+            MediaScan mediaScan = mMediaScanDao.getMediaScan(url, new MediaScanDao.MediaScanLoadListener() {
                 @Override
-                public void onNetworkError(Exception e) {
-                    onError(e.getLocalizedMessage());
+                public void onMediaScanLoaded(MediaScan mediaScan) {
+                    notifyMediaScanLoaded(mediaScan);
                 }
+            });
 
-                @Override
-                public void onMatrixError(MatrixError matrixError) {
-                    onError(matrixError.getLocalizedMessage());
-                }
+            // else the listener is called when the result is loaded
+            if (null != mediaScan) {
+                mListener.onMediaScanChange(mediaScan);
+            }
+        }
+    }
 
-                @Override
-                public void onUnexpectedError(Exception e) {
-                    onError(e.getLocalizedMessage());
-                }
-            });
+    private void notifyMediaScanLoaded(MediaScan mediaScan) {
+        // the loading media scan objects have been provided to the listener
+        if (null != mListener) {
+            mListener.onMediaScanChange(mediaScan);
         }
+    }
 
+    /**
+     * Create the media scan object provided while the stored result is loaded.
+     * It is not trusted, the listener is notified when the result is available.
+     *
+     * @param url the media url.
+     * @return the media scan object.
+     */
+    private static MediaScan createLoadingMediaScan(String url) {
+        MediaScan mediaScan = new MediaScan();
+        mediaScan.setUrl(url);
+        mediaScan.setAntiVirusScanStatus(AntiVirusScanStatus.IN_PROGRESS);
         return mediaScan;
     }
 
@@ -220,16 +304,15 @@ public class MediaScanManager {
             // Check the date of the last update before triggering a new request.
             Date lastUpdateDate = mediaScan.getAntiVirusScanDate();
             if (null != lastUpdateDate) {
-                long lastUpdateDateTime = lastUpdateDate.getTime();
-                long nowTime = System.currentTimeMillis();
-
-                if (lastUpdateDateTime > nowTime || (nowTime - lastUpdateDateTime) > MEDIA_SCAN_MANAGER_RETRY_DELAY) {
-                    isUpdateRequired = true;
-                }
+                // Apply an exponential backoff after a failure
+                isUpdateRequired = mScheduler.isRetryAllowed(mediaScan.getUrl(), lastUpdateDate.getTime(), System.currentTimeMillis());
             } else {
                 isUpdateRequired = true;
             }
 
+        } else if (AntiVirusScanStatus.IN_PROGRESS == mediaScan.getAntiVirusScanStatus()) {
+            // The scan may have been interrupted (application killed)
+            isUpdateRequired = !mScheduler.isScheduled(mediaScan.getUrl());
         }
         return isUpdateRequired;
     }
@@ -293,17 +376,17 @@ public class MediaScanManager {
             // Check whether the media is trusted
             MediaScan mediaScan;
             if (null != mediaInfo.mEncryptedFileInfo) {
-                mediaScan = scanEncryptedMedia(mediaInfo.mEncryptedFileInfo);
+                mediaScan = scanEncryptedMedia(mediaInfo.mEncryptedFileInfo, MediaScanScheduler.PRIORITY_HIGH);
             } else {
-                mediaScan = scanUnencryptedMedia(mediaInfo.mMediaUrl);
+                mediaScan = scanUnencryptedMedia(mediaInfo.mMediaUrl, MediaScanScheduler.PRIORITY_HIGH);
             }
             if (mediaScan.getAntiVirusScanStatus() == AntiVirusScanStatus.TRUSTED) {
                 // Check the thumbnail url (if any)
                 if (null != mediaInfo.mThumbnailUrl) {
                     if (null != mediaInfo.mEncryptedThumbnailFileInfo) {
-                        mediaScan = scanEncryptedMedia(mediaInfo.mEncryptedThumbnailFileInfo);
+                        mediaScan = scanEncryptedMedia(mediaInfo.mEncryptedThumbnailFileInfo, MediaScanScheduler.PRIORITY_HIGH);
                     } else {
-                        mediaScan = scanUnencryptedMedia(mediaInfo.mThumbnailUrl);
+                        mediaScan = scanUnencryptedMedia(mediaInfo.mThumbnailUrl, MediaScanScheduler.PRIORITY_HIGH);
                     }
 
                     isTrusted = (mediaScan.getAntiVirusScanStatus() == AntiVirusScanStatus.TRUSTED);
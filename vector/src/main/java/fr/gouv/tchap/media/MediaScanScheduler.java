@@ -0,0 +1,396 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.gouv.tchap.media;
+
+import androidx.annotation.NonNull;
+
+import org.matrix.androidsdk.core.callback.ApiCallback;
+import org.matrix.androidsdk.core.model.MatrixError;
+import org.matrix.androidsdk.crypto.model.crypto.EncryptedFileInfo;
+import org.matrix.androidsdk.rest.client.MediaScanRestClient;
+import org.matrix.androidsdk.rest.model.EncryptedMediaScanBody;
+import org.matrix.androidsdk.rest.model.MediaScanResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Schedule the antivirus scan requests of a media scan rest client.
+ * <ul>
+ * <li>a media url is scanned only once at a time, the requesters of an url in progress share its result.</li>
+ * <li>the number of concurrent requests is bounded, the pending requests are sorted by priority
+ * then by recency (the last requested media are the ones currently displayed).</li>
+ * <li>the pending requests of an owner (a room screen) can be cancelled.</li>
+ * <li>the failed scans are retried with an exponential backoff.</li>
+ * </ul>
+ */
+public class MediaScanScheduler {
+
+    // the scan has been requested by a screen which is not displaying the media
+    public static final int PRIORITY_LOW = 0;
+    // the scan has been requested to display the media in a list
+    public static final int PRIORITY_NORMAL = 1;
+    // the scan has been requested to open the media
+    public static final int PRIORITY_HIGH = 2;
+
+    static final int DEFAULT_MAX_CONCURRENT_SCANS = 3;
+
+    // the retry delay after the first failure, it is doubled after each new failure
+    static final long RETRY_BASE_DELAY_MS = 30 * 1000;
+    static final long RETRY_MAX_DELAY_MS = 60 * 60 * 1000;
+
+    // the max number of failed urls whose backoff is tracked, the least recently used ones are forgotten
+    static final int MAX_TRACKED_FAILURES = 256;
+
+    /**
+     * The scan events listener
+     */
+    public interface ScanListener {
+        /**
+         * The media has been scanned.
+         */
+        void onScanSucceeded(String url, MediaScanResult mediaScanResult);
+
+        /**
+         * The scan has failed.
+         */
+        void onScanFailed(String url, String errorMessage);
+
+        /**
+         * The scan has been cancelled before being sent.
+         */
+        void onScanCancelled(String url);
+    }
+
+    /**
+     * A scan request
+     */
+    private static abstract class ScanTask {
+        final String mUrl;
+
+        int mPriority;
+        long mSequence;
+        boolean mIsRunning;
+
+        // the listeners by owner
+        final Map<Object, List<ScanListener>> mListeners = new LinkedHashMap<>();
+
+        ScanTask(String url) {
+            mUrl = url;
+        }
+
+        abstract void execute(MediaScanRestClient client, ApiCallback<MediaScanResult> callback);
+    }
+
+    private final MediaScanRestClient mMediaScanRestClient;
+
+    // the listener notified before the requesters, for every result
+    private final ScanListener mResultListener;
+
+    private final int mMaxConcurrentScans;
+
+    // the pending and running tasks by url
+    private final Map<String, ScanTask> mTasksByUrl = new HashMap<>();
+
+    // the pending tasks: highest priority first, then the most recent one
+    private final PriorityQueue<ScanTask> mPendingTasks = new PriorityQueue<>(16, new Comparator<ScanTask>() {
+        @Override
+        public int compare(ScanTask task1, ScanTask task2) {
+            if (task1.mPriority != task2.mPriority) {
+                return (task1.mPriority > task2.mPriority) ? -1 : 1;
+            }
+            return Long.compare(task2.mSequence, task1.mSequence);
+        }
+    });
+
+    // the consecutive failures count by url, in access order
+    private final Map<String, Integer> mFailuresCountByUrl = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > MAX_TRACKED_FAILURES;
+        }
+    };
+
+    private int mRunningScansCount = 0;
+    private long mSequence = 0;
+
+    /**
+     * Constructor
+     *
+     * @param mediaScanRestClient the media scan rest client
+     * @param resultListener      the listener notified of every scan result, whatever the requesters.
+     * @param maxConcurrentScans  the max number of scan requests sent at the same time.
+     */
+    public MediaScanScheduler(MediaScanRestClient mediaScanRestClient, ScanListener resultListener, int maxConcurrentScans) {
+        mMediaScanRestClient = mediaScanRestClient;
+        mResultListener = resultListener;
+        mMaxConcurrentScans = maxConcurrentScans;
+    }
+
+    /**
+     * @param mediaScanRestClient a media scan rest client
+     * @return true if the scans are sent with this rest client
+     */
+    boolean isUsing(MediaScanRestClient mediaScanRestClient) {
+        return mMediaScanRestClient == mediaScanRestClient;
+    }
+
+    /**
+     * Schedule the scan of an unencrypted media.
+     *
+     * @param url      the matrix content url
+     * @param domain   the media server
+     * @param mediaId  the media id
+     * @param priority the request priority
+     * @param owner    the requester, used to cancel the request
+     * @param listener the listener to notify
+     */
+    public void scanUnencryptedMedia(@NonNull String url,
+                                     final String domain,
+                                     final String mediaId,
+                                     int priority,
+                                     Object owner,
+                                     ScanListener listener) {
+        schedule(new ScanTask(url) {
+            @Override
+            void execute(MediaScanRestClient client, ApiCallback<MediaScanResult> callback) {
+                client.scanUnencryptedFile(domain, mediaId, callback);
+            }
+        }, priority, owner, listener);
+    }
+
+    /**
+     * Schedule the scan of an encrypted media.
+     *
+     * @param mediaInfo the encrypted media information
+     * @param priority  the request priority
+     * @param owner     the requester, used to cancel the request
+     * @param listener  the listener to notify
+     */
+    public void scanEncryptedMedia(@NonNull final EncryptedFileInfo mediaInfo,
+                                   int priority,
+                                   Object owner,
+                                   ScanListener listener) {
+        schedule(new ScanTask(mediaInfo.url) {
+            @Override
+            void execute(MediaScanRestClient client, ApiCallback<MediaScanResult> callback) {
+                EncryptedMediaScanBody encryptedMediaScanBody = new EncryptedMediaScanBody();
+                encryptedMediaScanBody.encryptedFileInfo = mediaInfo;
+                client.scanEncryptedFile(encryptedMediaScanBody, callback);
+            }
+        }, priority, owner, listener);
+    }
+
+    /**
+     * Tell whether a scan is pending or running for an url.
+     *
+     * @param url the media url
+     * @return true if the url is being scanned
+     */
+    public synchronized boolean isScheduled(String url) {
+        return mTasksByUrl.containsKey(url);
+    }
+
+    /**
+     * Tell whether a new scan can be triggered for a media after a failure.
+     *
+     * @param url            the media url
+     * @param lastUpdateTime the time of the last scan result
+     * @param now            the current time
+     * @return true if the backoff delay has expired
+     */
+    public synchronized boolean isRetryAllowed(String url, long lastUpdateTime, long now) {
+        if (lastUpdateTime > now) {
+            return true;
+        }
+        return (now - lastUpdateTime) >= getRetryDelay(url);
+    }
+
+    /**
+     * Provide the delay before retrying the scan of an url
+     *
+     * @param url the media url
+     * @return the delay in ms, 0 if the last scan did not fail
+     */
+    synchronized long getRetryDelay(String url) {
+        Integer failuresCount = mFailuresCountByUrl.get(url);
+
+        if (null == failuresCount || failuresCount == 0) {
+            return 0;
+        }
+
+        long delay = RETRY_BASE_DELAY_MS;
+        for (int i = 1; (i < failuresCount) && (delay < RETRY_MAX_DELAY_MS); i++) {
+            delay *= 2;
+        }
+
+        return Math.min(delay, RETRY_MAX_DELAY_MS);
+    }
+
+    /**
+     * Cancel the pending requests of an owner.
+     * The running requests are not interrupted, but the owner is no more notified.
+     *
+     * @param owner the requester
+     */
+    public void cancel(Object owner) {
+        List<ScanListener> cancelledListeners = new ArrayList<>();
+        List<String> cancelledUrls = new ArrayList<>();
+
+        synchronized (this) {
+            for (Iterator<ScanTask> iterator = mTasksByUrl.values().iterator(); iterator.hasNext(); ) {
+                ScanTask task = iterator.next();
+                List<ScanListener> listeners = task.mListeners.remove(owner);
+
+                if (null != listeners && task.mListeners.isEmpty() && !task.mIsRunning) {
+                    // nobody waits for this scan anymore
+                    iterator.remove();
+                    mPendingTasks.remove(task);
+
+                    for (ScanListener listener : listeners) {
+                        cancelledListeners.add(listener);
+                        cancelledUrls.add(task.mUrl);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < cancelledListeners.size(); i++) {
+            cancelledListeners.get(i).onScanCancelled(cancelledUrls.get(i));
+        }
+    }
+
+    /**
+     * Add a task, or join the task in progress for the same url.
+     */
+    private void schedule(ScanTask newTask, int priority, Object owner, ScanListener listener) {
+        synchronized (this) {
+            ScanTask task = mTasksByUrl.get(newTask.mUrl);
+
+            if (null == task) {
+                task = newTask;
+                task.mPriority = priority;
+                mTasksByUrl.put(task.mUrl, task);
+            } else if (!task.mIsRunning) {
+                // update its rank
+                mPendingTasks.remove(task);
+                task.mPriority = Math.max(task.mPriority, priority);
+            }
+
+            if (!task.mIsRunning) {
+                task.mSequence = mSequence++;
+                mPendingTasks.add(task);
+            }
+
+            List<ScanListener> listeners = task.mListeners.get(owner);
+            if (null == listeners) {
+                listeners = new ArrayList<>();
+                task.mListeners.put(owner, listeners);
+            }
+            listeners.add(listener);
+        }
+
+        startPendingTasks();
+    }
+
+    /**
+     * Send the pending requests while the concurrency limit is not reached.
+     */
+    private void startPendingTasks() {
+        List<ScanTask> tasksToStart = new ArrayList<>();
+
+        synchronized (this) {
+            while ((mRunningScansCount < mMaxConcurrentScans) && !mPendingTasks.isEmpty()) {
+                ScanTask task = mPendingTasks.poll();
+                task.mIsRunning = true;
+                mRunningScansCount++;
+                tasksToStart.add(task);
+            }
+        }
+
+        for (final ScanTask task : tasksToStart) {
+            task.execute(mMediaScanRestClient, new ApiCallback<MediaScanResult>() {
+                @Override
+                public void onSuccess(MediaScanResult mediaScanResult) {
+                    onTaskDone(task, mediaScanResult, null);
+                }
+
+                @Override
+                public void onNetworkError(Exception e) {
+                    onTaskDone(task, null, e.getLocalizedMessage());
+                }
+
+                @Override
+                public void onMatrixError(MatrixError matrixError) {
+                    onTaskDone(task, null, matrixError.getLocalizedMessage());
+                }
+
+                @Override
+                public void onUnexpectedError(Exception e) {
+                    onTaskDone(task, null, e.getLocalizedMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * Dispatch a task result.
+     *
+     * @param task            the done task
+     * @param mediaScanResult the result, null on failure
+     * @param errorMessage    the error message on failure
+     */
+    private void onTaskDone(ScanTask task, MediaScanResult mediaScanResult, String errorMessage) {
+        List<ScanListener> listeners = new ArrayList<>();
+
+        synchronized (this) {
+            mRunningScansCount--;
+            mTasksByUrl.remove(task.mUrl);
+
+            if (null != mediaScanResult) {
+                mFailuresCountByUrl.remove(task.mUrl);
+            } else {
+                Integer failuresCount = mFailuresCountByUrl.get(task.mUrl);
+                mFailuresCountByUrl.put(task.mUrl, (null == failuresCount) ? 1 : failuresCount + 1);
+            }
+
+            for (List<ScanListener> ownerListeners : task.mListeners.values()) {
+                listeners.addAll(ownerListeners);
+            }
+        }
+
+        if (null != mResultListener) {
+            listeners.add(0, mResultListener);
+        }
+
+        for (ScanListener listener : listeners) {
+            if (null != mediaScanResult) {
+                listener.onScanSucceeded(task.mUrl, mediaScanResult);
+            } else {
+                listener.onScanFailed(task.mUrl, errorMessage);
+            }
+        }
+
+        startPendingTasks();
+    }
+}
@@ -17,6 +17,8 @@
 package fr.gouv.tchap.util
 
 import android.content.Context
+import android.os.Handler
+import android.os.Looper
 import fr.gouv.tchap.sdk.session.room.model.*
 import im.vector.BuildConfig
 import im.vector.R
@@ -26,7 +28,6 @@ import org.matrix.androidsdk.core.callback.ApiCallback
 import org.matrix.androidsdk.data.Room
 import org.matrix.androidsdk.data.RoomState
 import org.matrix.androidsdk.data.RoomTag
-import org.matrix.androidsdk.data.store.IMXStore
 import java.util.*
 import java.util.concurrent.TimeUnit
 
@@ -150,67 +151,38 @@ fun getRetentionPeriodFromPreferenceValue(value: String): Int {
 
 /**
  * Clean the storage of a session by removing the expired contents.
+ * The rooms are swept in background, only the rooms which may have expired contents are read (see [RoomRetentionPurger]).
  *
  * @param session the current session
+ * @param force   false to ignore the request when the storage has been cleaned recently
  */
-fun clearSessionExpiredContents(session: MXSession) {
-    session.dataHandler.store
-            .takeIf { it?.isReady?: false }
-            ?.let { store ->
-                store.rooms
-                        .filter { !it.isInvited }
-                        .map { room -> clearExpiredRoomContentsFromStore(store, room) }
-                        .any { it }
-                        .let { doCommit -> if (doCommit) store.commit() }
-            }
+@JvmOverloads
+fun clearSessionExpiredContents(session: MXSession, force: Boolean = true) {
+    RoomRetentionPurger.getInstance(session)
+            ?.schedulePurge(force)
 }
 
 /**
- * Clean the storage of a room by removing the expired contents.
+ * Clean the storage of a room by removing the expired contents, in background.
  *
- * @param session the current session
- * @param room    the room
- * @return true if the store has been updated.
+ * @param session  the current session
+ * @param room     the room
+ * @param callback called from the UI thread with true if the store has been updated.
  */
-fun clearExpiredRoomContents(session: MXSession, room: Room): Boolean {
-    return session.dataHandler.store
-            .takeIf { it?.isReady?: false }
-            ?.let { store ->
-                clearExpiredRoomContentsFromStore(store, room)
-                        .also { hasStoreChanged -> if (hasStoreChanged) store.commit() }
-            }
-            ?: false
-}
-
-private fun clearExpiredRoomContentsFromStore(store: IMXStore, room: Room): Boolean {
-    var shouldCommitStore = false
-    val retentionInDays = getRoomRetention(room)
+@JvmOverloads
+fun clearExpiredRoomContents(session: MXSession, room: Room, callback: ApiCallback<Boolean>? = null) {
+    val purger = session.dataHandler.store
+            .takeIf { it?.isReady ?: false }
+            ?.let { RoomRetentionPurger.getInstance(session) }
 
-    if (retentionInDays != UNDEFINED_RETENTION_VALUE) {
-        val limitEventTs = System.currentTimeMillis() - convertDaysToMs(retentionInDays)
+    if (purger == null) {
+        callback?.onSuccess(false)
+        return
+    }
 
-        // This is a bit more optimized than using a filter, even if the algorithm is not very nice to read
-        store.getRoomMessages(room.roomId)
-                .orEmpty()
-                .firstOrNull { event ->
-                    when {
-                        event.stateKey != null                   ->
-                            // Ignore state event
-                            false
-                        event.getOriginServerTs() < limitEventTs -> {
-                            store.deleteEvent(event)
-                            shouldCommitStore = true
-                            // Go on
-                            false
-                        }
-                        else                                     ->
-                            // Break the loop, we've reached the first non-state event in the timeline which is not expired
-                            true
-                    }
-                }
+    purger.purgeRoom(room) { isStoreUpdated ->
+        callback?.let { Handler(Looper.getMainLooper()).post { it.onSuccess(isStoreUpdated) } }
     }
-    
-    return shouldCommitStore
 }
 
 //=============================================================================================
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.gouv.tchap.util
+
+import androidx.annotation.VisibleForTesting
+import fr.gouv.tchap.sdk.session.room.model.UNDEFINED_RETENTION_VALUE
+import org.matrix.androidsdk.MXSession
+import org.matrix.androidsdk.core.Log
+import org.matrix.androidsdk.data.Room
+import org.matrix.androidsdk.data.store.IMXStore
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+
+/**
+ * Purge the expired messages of the rooms which have a retention period.
+ *
+ * A watermark is kept for each room: the timestamp of its oldest non-state event in the store.
+ * A sweep only reads the rooms whose watermark has crossed their retention limit, the other rooms are skipped.
+ * The sweeps run in background, the store is committed by batches of deleted events.
+ *
+ * The watermarks are kept in memory: each room is read once after the application start,
+ * and again each time it is opened (see [purgeRoom]), which covers the events retrieved by back pagination.
+ * The direct room purges run on the sweeps executor too, so that the UI thread never waits for a sweep.
+ */
+class RoomRetentionPurger @VisibleForTesting constructor(private val store: IMXStore,
+                                                         private val executor: Executor,
+                                                         private val retentionProvider: (Room) -> Int,
+                                                         private val clock: () -> Long,
+                                                         private val commitBatchSize: Int) {
+
+    /**
+     * The purge metrics
+     */
+    data class Metrics(val passesCount: Int,
+                       val visitedRoomsCount: Int,
+                       val skippedRoomsCount: Int,
+                       val purgedEventsCount: Long,
+                       val totalDurationMs: Long,
+                       val lastPassDurationMs: Long)
+
+    // the oldest non-state event timestamp by room id, the purge time when the room has no message left
+    // (the messages received later are more recent)
+    private val watermarks = HashMap<String, Long>()
+
+    // the rooms are purged one at a time, by the sweeps or by the direct purges
+    private val lock = Any()
+
+    private var isPassScheduled = false
+    private var lastPassTs = 0L
+
+    private var passesCount = 0
+    private var visitedRoomsCount = 0
+    private var skippedRoomsCount = 0
+    private var purgedEventsCount = 0L
+    private var totalDurationMs = 0L
+    private var lastPassDurationMs = 0L
+
+    /**
+     * Schedule a sweep of all the rooms.
+     *
+     * @param force false to ignore the request when a sweep has been done recently
+     */
+    fun schedulePurge(force: Boolean) {
+        synchronized(this) {
+            if (isPassScheduled || (!force && clock() - lastPassTs < MIN_PASS_INTERVAL_MS)) {
+                return
+            }
+            isPassScheduled = true
+        }
+
+        executor.execute {
+            try {
+                if (store.isReady) {
+                    val purgedEvents = purgeExpiredContents()
+                    Log.d(LOG_TAG, "## schedulePurge() : $purgedEvents events purged - ${getMetrics()}")
+                }
+            } catch (e: Exception) {
+                Log.e(LOG_TAG, "## schedulePurge() : failed " + e.message, e)
+            } finally {
+                synchronized(this) {
+                    isPassScheduled = false
+                }
+            }
+        }
+    }
+
+    /**
+     * Sweep all the rooms, and delete their expired messages.
+     * Only the rooms whose watermark has crossed their retention limit are read.
+     *
+     * @return the number of deleted events.
+     */
+    @VisibleForTesting
+    fun purgeExpiredContents(): Int {
+        val startTs = clock()
+        var purgedEvents = 0
+        var pendingEventsToCommit = 0
+        var visitedRooms = 0
+        var skippedRooms = 0
+
+        for (room in store.rooms.filter { !it.isInvited }) {
+            val limitTs = getRetentionLimitTs(room, startTs)
+
+            if (limitTs == null || !isPurgeRequired(room.roomId, limitTs)) {
+                skippedRooms++
+                continue
+            }
+
+            visitedRooms++
+
+            val deletedEvents = deleteExpiredEvents(room.roomId, limitTs, startTs)
+            purgedEvents += deletedEvents
+            pendingEventsToCommit += deletedEvents
+
+            if (pendingEventsToCommit >= commitBatchSize) {
+                store.commit()
+                pendingEventsToCommit = 0
+            }
+        }
+
+        if (pendingEventsToCommit > 0) {
+            store.commit()
+        }
+
+        val duration = clock() - startTs
+
+        synchronized(this) {
+            lastPassTs = startTs
+            passesCount++
+            visitedRoomsCount += visitedRooms
+            skippedRoomsCount += skippedRooms
+            purgedEventsCount += purgedEvents
+            totalDurationMs += duration
+            lastPassDurationMs = duration
+        }
+
+        return purgedEvents
+    }
+
+    /**
+     * Delete the expired messages of a room in background, whatever its watermark.
+     *
+     * @param room     the room
+     * @param callback called from the purge thread, with true if the store has been updated.
+     */
+    fun purgeRoom(room: Room, callback: ((Boolean) -> Unit)? = null) {
+        executor.execute {
+            var isStoreUpdated = false
+
+            try {
+                isStoreUpdated = purgeRoomNow(room)
+            } catch (e: Exception) {
+                Log.e(LOG_TAG, "## purgeRoom() : failed " + e.message, e)
+            }
+
+            callback?.invoke(isStoreUpdated)
+        }
+    }
+
+    private fun purgeRoomNow(room: Room): Boolean {
+        val now = clock()
+        val limitTs = getRetentionLimitTs(room, now)
+                ?: return false
+
+        val deletedEvents = deleteExpiredEvents(room.roomId, limitTs, now)
+
+        if (deletedEvents > 0) {
+            store.commit()
+
+            synchronized(this) {
+                purgedEventsCount += deletedEvents
+            }
+        }
+
+        return deletedEvents > 0
+    }
+
+    /**
+     * @return the current metrics
+     */
+    @Synchronized
+    fun getMetrics(): Metrics {
+        return Metrics(passesCount, visitedRoomsCount, skippedRoomsCount, purgedEventsCount, totalDurationMs, lastPassDurationMs)
+    }
+
+    /**
+     * @return the timestamp before which the room messages are expired, null if the room has no retention period.
+     */
+    private fun getRetentionLimitTs(room: Room, now: Long): Long? {
+        val retentionInDays = retentionProvider(room)
+
+        return if (retentionInDays == UNDEFINED_RETENTION_VALUE) null else now - convertDaysToMs(retentionInDays)
+    }
+
+    private fun isPurgeRequired(roomId: String, limitTs: Long): Boolean {
+        synchronized(lock) {
+            // the room has not been read yet
+            val watermark = watermarks[roomId] ?: return true
+
+            return watermark < limitTs
+        }
+    }
+
+    /**
+     * Delete the expired messages of a room, and update its watermark.
+     *
+     * @param now the purge time, used as watermark when no message is left
+     * @return the number of deleted events.
+     */
+    private fun deleteExpiredEvents(roomId: String, limitTs: Long, now: Long): Int {
+        synchronized(lock) {
+            var deletedEvents = 0
+            var oldestEventTs = now
+
+            // The messages are sorted from the oldest, stop on the first non-state event which is not expired
+            for (event in store.getRoomMessages(roomId).orEmpty()) {
+                if (event.stateKey != null) {
+                    // Ignore state event
+                    continue
+                }
+
+                if (event.getOriginServerTs() < limitTs) {
+                    store.deleteEvent(event)
+                    deletedEvents++
+                } else {
+                    oldestEventTs = event.getOriginServerTs()
+                    break
+                }
+            }
+
+            watermarks[roomId] = oldestEventTs
+
+            return deletedEvents
+        }
+    }
+
+    companion object {
+        private const val LOG_TAG = "RoomRetentionPurger"
+
+        // the sweeps triggered by the sync are limited to one by hour
+        private const val MIN_PASS_INTERVAL_MS = 60 * 60 * 1000L
+
+        private const val DEFAULT_COMMIT_BATCH_SIZE = 500
+
+        // the sweeps of all the sessions are done one after the other
+        private val sweepExecutor = Executors.newSingleThreadExecutor()
+
+        private val instances = HashMap<MXSession, RoomRetentionPurger>()
+
+        /**
+         * Get the purger of a session.
+         *
+         * @param session the session
+         * @return the purger, null if the session has no store
+         */
+        @JvmStatic
+        @Synchronized
+        fun getInstance(session: MXSession): RoomRetentionPurger? {
+            return instances[session]
+                    ?: session.dataHandler.store
+                            ?.let { store ->
+                                RoomRetentionPurger(store, sweepExecutor, ::getRoomRetention, System::currentTimeMillis, DEFAULT_COMMIT_BATCH_SIZE)
+                            }
+                            ?.also { instances[session] = it }
+        }
+
+        /**
+         * Remove the purger of a session (on logout).
+         *
+         * @param session the session
+         */
+        @JvmStatic
+        @Synchronized
+        fun remove(session: MXSession) {
+            instances.remove(session)
+        }
+    }
+}
@@ -38,7 +38,6 @@ import org.matrix.androidsdk.core.JsonUtils;
 import org.matrix.androidsdk.crypto.IncomingRoomKeyRequest;
 import org.matrix.androidsdk.crypto.IncomingRoomKeyRequestCancellation;
 import org.matrix.androidsdk.crypto.RoomKeysRequestListener;
-import org.matrix.androidsdk.core.BingRulesManager;
 import org.matrix.androidsdk.core.Log;
 import org.matrix.androidsdk.core.callback.ApiCallback;
 import org.matrix.androidsdk.core.callback.SimpleApiCallback;
@@ -46,7 +45,6 @@ import org.matrix.androidsdk.core.listeners.IMXNetworkEventListener;
 import org.matrix.androidsdk.core.model.MatrixError;
 import org.matrix.androidsdk.crypto.keysbackup.KeysBackup;
 import org.matrix.androidsdk.crypto.keysbackup.KeysBackupStateManager;
-import org.matrix.androidsdk.data.Room;
 import org.matrix.androidsdk.data.RoomState;
 import org.matrix.androidsdk.data.RoomSummary;
 import org.matrix.androidsdk.data.metrics.MetricsListener;
@@ -83,14 +81,15 @@ import im.vector.activity.KeysBackupManageActivity;
 import im.vector.activity.SplashActivity;
 import im.vector.activity.VectorUniversalLinkActivity;
 import im.vector.analytics.MetricsListenerProxy;
+import im.vector.contacts.PIDsRetriever;
 import im.vector.push.PushManager;
 import im.vector.store.LoginStorage;
 import im.vector.tools.VectorUncaughtExceptionHandler;
 import im.vector.ui.badge.BadgeProxy;
 import im.vector.util.PreferencesManager;
+import im.vector.util.UnreadStateAggregator;
 import im.vector.widgets.WidgetManagerProvider;
 import im.vector.widgets.WidgetsManager;
-import io.realm.Realm;
 
 /**
  * Singleton to control access to the Matrix SDK and providing point of control for MXSessions.
@@ -178,24 +177,7 @@ public class Matrix {
 
                         for (MXSession session : instance.mMXSessions) {
                             if (session.isAlive()) {
-                                BingRulesManager bingRulesManager = session.getDataHandler().getBingRulesManager();
-                                Collection<Room> rooms = session.getDataHandler().getStore().getRooms();
-
-                                for (Room room : rooms) {
-                                    if (room.isInvited()) {
-                                        roomCount++;
-                                    } else {
-                                        int notificationCount = room.getNotificationCount();
-
-                                        if (bingRulesManager.isRoomMentionOnly(room.getRoomId())) {
-                                            notificationCount = room.getHighlightCount();
-                                        }
-
-                                        if (notificationCount > 0) {
-                                            roomCount++;
-                                        }
-                                    }
-                                }
+                                roomCount += UnreadStateAggregator.getInstance(session).refresh().unreadRoomsCount;
                             }
                         }
 
@@ -252,7 +234,7 @@ public class Matrix {
 
                     // If the event is seen as supported by the default implementation,
                     // Check whether the user wants to hide the join and leave events
-                    if (isSupported && !PreferencesManager.showJoinLeaveMessages(appContext)) {
+                    if (isSupported && !PreferencesManager.getSettings(appContext).showJoinLeaveMessages) {
                         String type = event.getType();
                         if (TextUtils.equals(Event.EVENT_TYPE_STATE_ROOM_MEMBER, type)) {
                             RoomMember roomMember = JsonUtils.toRoomMember(event.getContent());
@@ -572,6 +554,7 @@ public class Matrix {
                 mLoginStorage.removeCredentials(session.getHomeServerConfig());
 
                 session.getDataHandler().removeListener(mLiveEventListener);
+                UnreadStateAggregator.release(session);
                 if (keyBackupStateListeners.get(session.getMyUserId()) != null) {
                     if (session.getCrypto() != null) {
                         session.getCrypto().getKeysBackup().removeListener(keyBackupStateListeners.get(session.getMyUserId()));
@@ -613,6 +596,7 @@ public class Matrix {
         }
 
         session.getDataHandler().removeListener(mLiveEventListener);
+        UnreadStateAggregator.release(session);
         if (keyBackupStateListeners.get(session.getMyUserId()) != null) {
             if (session.getCrypto() != null) {
                 session.getCrypto().getKeysBackup().removeListener(keyBackupStateListeners.get(session.getMyUserId()));
@@ -622,10 +606,14 @@ public class Matrix {
 
         // Clear media scan database
         // TODO The media scan database clear should be handled during the media cache clear when the MediaScanManager will be moved into the sdk.
-        Realm realm = Realm.getDefaultInstance();
-        MediaScanManager mediaScanManager = new MediaScanManager(session.getMediaScanRestClient(), realm);
+        MediaScanManager mediaScanManager = new MediaScanManager(session);
         mediaScanManager.clearAntiVirusScanResults();
-        realm.close();
+        MediaScanManager.releaseScheduler(session);
+
+        WidgetsManager widgetsManager = WidgetManagerProvider.INSTANCE.getWidgetManager(context.getApplicationContext());
+        if (null != widgetsManager) {
+            widgetsManager.clearSession(session);
+        }
 
         ApiCallback<Void> callback = new SimpleApiCallback<Void>() {
             @Override
@@ -800,6 +788,11 @@ public class Matrix {
             session.enableCryptoWhenStarting();
         }
 
+        // the 3PIDs lookups cache is read in background before the contacts are displayed
+        PIDsRetriever.getInstance().loadLookupCache();
+
+        // the unread counters are refreshed before being used by the live events listener
+        UnreadStateAggregator.getInstance(session);
         dataHandler.addListener(mLiveEventListener);
         dataHandler.addListener(VectorApp.getInstance().getDecryptionFailureTracker());
 
@@ -839,6 +832,12 @@ public class Matrix {
             public void onStoreReady() {
                 DinumUtilsKt.clearSessionExpiredContents(session);
             }
+
+            @Override
+            public void onLiveEventsChunkProcessed(String fromToken, String toToken) {
+                // the sweeps are cheap, the rooms without expired contents are not read
+                DinumUtilsKt.clearSessionExpiredContents(session, false);
+            }
         });
 
 
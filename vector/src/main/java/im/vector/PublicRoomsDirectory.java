@@ -0,0 +1,407 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import org.matrix.androidsdk.MXSession;
+import org.matrix.androidsdk.core.Log;
+import org.matrix.androidsdk.core.callback.ApiCallback;
+import org.matrix.androidsdk.core.model.MatrixError;
+import org.matrix.androidsdk.rest.model.publicroom.PublicRoom;
+import org.matrix.androidsdk.rest.model.publicroom.PublicRoomsResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Public rooms directory aggregated from several servers.
+ * <ul>
+ * <li>the servers are queried at the same time, the rooms are delivered as soon as a server answers.</li>
+ * <li>the rooms are deduplicated across the servers.</li>
+ * <li>the received pages are cached by server with a TTL, so that the directory is displayed instantly when it is reopened.</li>
+ * </ul>
+ * It is expected to be used from the UI thread.
+ */
+public class PublicRoomsDirectory {
+    private static final String LOG_TAG = PublicRoomsDirectory.class.getSimpleName();
+
+    // the cached pages lifetime
+    static final long PAGE_CACHE_TTL_MS = 5 * 60 * 1000L;
+
+    /**
+     * The directory search listener
+     */
+    public interface SearchListener {
+        /**
+         * Some public rooms have been received.
+         *
+         * @param publicRooms the rooms which have not been yet delivered by this search.
+         */
+        void onPublicRoomsAdded(List<PublicRoom> publicRooms);
+
+        /**
+         * A server request has failed, the other servers are not impacted.
+         *
+         * @param server      the server, null for the user home server
+         * @param matrixError the matrix error if any
+         * @param message     the error message
+         */
+        void onServerError(@Nullable String server, @Nullable MatrixError matrixError, String message);
+
+        /**
+         * All the servers have answered.
+         *
+         * @param hasMoreResults true if a forward pagination can be done
+         */
+        void onSearchDone(boolean hasMoreResults);
+    }
+
+    /**
+     * A cached page
+     */
+    static class CachedPage {
+        final List<PublicRoom> mPublicRooms;
+        final String mNextBatch;
+        final long mTimestamp;
+
+        CachedPage(List<PublicRoom> publicRooms, String nextBatch, long timestamp) {
+            mPublicRooms = publicRooms;
+            mNextBatch = nextBatch;
+            mTimestamp = timestamp;
+        }
+    }
+
+    // session
+    private MXSession mSession;
+
+    // the cached pages by key
+    private final Map<String, CachedPage> mPagesCache = new HashMap<>();
+
+    // the singleton
+    private static PublicRoomsDirectory sPublicRoomsDirectory = null;
+
+    /**
+     * Retrieve the current instance
+     *
+     * @return the instance
+     */
+    public static PublicRoomsDirectory getInstance() {
+        if (null == sPublicRoomsDirectory) {
+            sPublicRoomsDirectory = new PublicRoomsDirectory();
+        }
+
+        return sPublicRoomsDirectory;
+    }
+
+    /**
+     * Set the current session, the cache is cleared when the session changes.
+     *
+     * @param session the session
+     */
+    public void setSession(MXSession session) {
+        if (session != mSession) {
+            mSession = session;
+            clearCache();
+        }
+    }
+
+    /**
+     * Clear the cached pages
+     */
+    public void clearCache() {
+        mPagesCache.clear();
+    }
+
+    /**
+     * Provide a cached page if it has not expired.
+     *
+     * @param server  the server, null for the user home server
+     * @param pattern the searched pattern, null if any
+     * @param since   the pagination token, null for the first page
+     * @return the cached page, null if there is none
+     */
+    @Nullable
+    CachedPage getCachedPage(@Nullable String server, @Nullable String pattern, @Nullable String since) {
+        String key = getPageKey(server, pattern, since);
+        CachedPage page = mPagesCache.get(key);
+
+        if ((null != page) && (System.currentTimeMillis() - page.mTimestamp > PAGE_CACHE_TTL_MS)) {
+            mPagesCache.remove(key);
+            page = null;
+        }
+
+        return page;
+    }
+
+    private static String getPageKey(@Nullable String server, @Nullable String pattern, @Nullable String since) {
+        return server + "|" + (TextUtils.isEmpty(pattern) ? "" : pattern) + "|" + since;
+    }
+
+    /**
+     * Load a page, from the cache if possible.
+     *
+     * @param server   the server, null for the user home server
+     * @param pattern  the searched pattern, null if any
+     * @param since    the pagination token, null for the first page
+     * @param callback the asynchronous callback
+     */
+    void loadPage(@Nullable final String server, @Nullable final String pattern, @Nullable final String since, final ApiCallback<CachedPage> callback) {
+        CachedPage cachedPage = getCachedPage(server, pattern, since);
+
+        if (null != cachedPage) {
+            callback.onSuccess(cachedPage);
+            return;
+        }
+
+        if (null == mSession) {
+            callback.onUnexpectedError(new IllegalStateException("no session"));
+            return;
+        }
+
+        launchPageRequest(mSession, server, server, pattern, since, callback);
+    }
+
+    /**
+     * Request a page to the server.
+     *
+     * @param session       the session
+     * @param server        the server used as cache key
+     * @param requestServer the server to request
+     */
+    private void launchPageRequest(final MXSession session,
+                                   @Nullable final String server,
+                                   @Nullable final String requestServer,
+                                   @Nullable final String pattern,
+                                   @Nullable final String since,
+                                   final ApiCallback<CachedPage> callback) {
+        session.getEventsApiClient()
+                .loadPublicRooms(requestServer, null, false, pattern, since, PublicRoomsManager.PUBLIC_ROOMS_LIMIT,
+                        new ApiCallback<PublicRoomsResponse>() {
+                            @Override
+                            public void onSuccess(PublicRoomsResponse publicRoomsResponse) {
+                                List<PublicRoom> list = publicRoomsResponse.chunk;
+
+                                // avoid the null case
+                                if (null == list) {
+                                    list = new ArrayList<>();
+                                }
+
+                                Log.d(LOG_TAG, "## launchPageRequest() : retrieves " + list.size() + " rooms from " + requestServer);
+
+                                CachedPage page = new CachedPage(Collections.unmodifiableList(list), publicRoomsResponse.next_batch, System.currentTimeMillis());
+
+                                // ignore the responses received for a previous session
+                                if (session == mSession) {
+                                    mPagesCache.put(getPageKey(server, pattern, since), page);
+                                }
+
+                                callback.onSuccess(page);
+                            }
+
+                            @Override
+                            public void onNetworkError(Exception e) {
+                                callback.onNetworkError(e);
+                            }
+
+                            @Override
+                            public void onMatrixError(MatrixError e) {
+                                // requestServer == null means to search on its own home server
+                                // on some servers, it triggers an "internal server error"
+                                // so try with the server url
+                                if (MatrixError.UNKNOWN.equals(e.errcode) && (null == requestServer)) {
+                                    String host = session.getHomeServerConfig().getHomeserverUri().getHost();
+                                    Log.e(LOG_TAG, "## launchPageRequest() : requestServer == null fails -> try " + host);
+                                    launchPageRequest(session, server, host, pattern, since, callback);
+                                } else {
+                                    callback.onMatrixError(e);
+                                }
+                            }
+
+                            @Override
+                            public void onUnexpectedError(Exception e) {
+                                callback.onUnexpectedError(e);
+                            }
+                        });
+    }
+
+    /**
+     * Create a search on several servers.
+     *
+     * @param servers  the servers, null for the user home server
+     * @param pattern  the searched pattern, null if any
+     * @param listener the listener
+     * @return the search, it must be started
+     */
+    public Search createSearch(List<String> servers, @Nullable String pattern, SearchListener listener) {
+        return new Search(servers, pattern, listener);
+    }
+
+    /**
+     * A public rooms search on several servers
+     */
+    public class Search {
+        private final String mPattern;
+        private final SearchListener mListener;
+
+        // the next pagination token by server, null when the server has no more results
+        private final Map<String, String> mNextBatchByServer = new HashMap<>();
+        private final List<String> mServers;
+
+        // the delivered room ids
+        private final Set<String> mRoomIds = new HashSet<>();
+
+        private int mPendingRequestsCount = 0;
+        private boolean mIsCancelled = false;
+
+        private Search(List<String> servers, @Nullable String pattern, SearchListener listener) {
+            mServers = new ArrayList<>(servers);
+            mPattern = pattern;
+            mListener = listener;
+        }
+
+        /**
+         * Start the search: the first page of each server is requested.
+         */
+        public void start() {
+            Map<String, String> firstPages = new HashMap<>();
+
+            for (String server : mServers) {
+                firstPages.put(server, null);
+            }
+
+            loadPages(firstPages);
+        }
+
+        /**
+         * Forward paginate the servers which have more results.
+         *
+         * @return true if the pagination starts
+         */
+        public boolean forwardPaginate() {
+            if (isRequestInProgress() || !hasMoreResults()) {
+                return false;
+            }
+
+            Map<String, String> nextPages = new HashMap<>(mNextBatchByServer);
+            mNextBatchByServer.clear();
+            loadPages(nextPages);
+
+            return true;
+        }
+
+        /**
+         * @return true if some servers have not answered yet
+         */
+        public boolean isRequestInProgress() {
+            return mPendingRequestsCount > 0;
+        }
+
+        /**
+         * @return true if some servers have more results
+         */
+        public boolean hasMoreResults() {
+            return !mNextBatchByServer.isEmpty();
+        }
+
+        /**
+         * Cancel the search: the pending responses will be ignored.
+         */
+        public void cancel() {
+            mIsCancelled = true;
+        }
+
+        private void loadPages(Map<String, String> sinceByServer) {
+            mPendingRequestsCount += sinceByServer.size();
+
+            if (0 == mPendingRequestsCount) {
+                mListener.onSearchDone(false);
+                return;
+            }
+
+            for (final Map.Entry<String, String> entry : sinceByServer.entrySet()) {
+                final String server = entry.getKey();
+
+                loadPage(server, mPattern, entry.getValue(), new ApiCallback<CachedPage>() {
+                    @Override
+                    public void onSuccess(CachedPage page) {
+                        if (mIsCancelled) {
+                            return;
+                        }
+
+                        if (!TextUtils.isEmpty(page.mNextBatch)) {
+                            mNextBatchByServer.put(server, page.mNextBatch);
+                        }
+
+                        List<PublicRoom> newRooms = new ArrayList<>();
+
+                        for (PublicRoom publicRoom : page.mPublicRooms) {
+                            if ((null == publicRoom.roomId) || mRoomIds.add(publicRoom.roomId)) {
+                                newRooms.add(publicRoom);
+                            }
+                        }
+
+                        if (!newRooms.isEmpty()) {
+                            mListener.onPublicRoomsAdded(newRooms);
+                        }
+
+                        onRequestDone();
+                    }
+
+                    private void onError(@Nullable MatrixError matrixError, String message) {
+                        if (mIsCancelled) {
+                            return;
+                        }
+
+                        mListener.onServerError(server, matrixError, message);
+                        onRequestDone();
+                    }
+
+                    @Override
+                    public void onNetworkError(Exception e) {
+                        onError(null, e.getLocalizedMessage());
+                    }
+
+                    @Override
+                    public void onMatrixError(MatrixError e) {
+                        onError(e, e.getLocalizedMessage());
+                    }
+
+                    @Override
+                    public void onUnexpectedError(Exception e) {
+                        onError(null, e.getLocalizedMessage());
+                    }
+                });
+            }
+        }
+
+        private void onRequestDone() {
+            mPendingRequestsCount--;
+
+            if (0 == mPendingRequestsCount) {
+                mListener.onSearchDone(hasMoreResults());
+            }
+        }
+    }
+}
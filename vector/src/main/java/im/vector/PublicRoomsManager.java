@@ -283,7 +283,8 @@ public class PublicRoomsManager {
     }
 
     /**
-     * Refresh the public rooms count
+     * Refresh the public rooms count.
+     * The count is provided by the public rooms directory cache when the home server directory has been fully retrieved.
      *
      * @param listener the update listener
      */
@@ -300,43 +301,86 @@ public class PublicRoomsManager {
                     mListeners.add(listener);
                 }
 
-                // use any session to get the public rooms list
-                mSession.getEventsApiClient().getPublicRoomsCount(new SimpleApiCallback<Integer>() {
-                    @Override
-                    public void onSuccess(final Integer publicRoomsCount) {
-                        Log.d(LOG_TAG, "## refreshPublicRoomsCount() : Got the rooms public list count : " + publicRoomsCount);
-                        mPublicRoomsCount = publicRoomsCount;
+                PublicRoomsDirectory directory = PublicRoomsDirectory.getInstance();
+                directory.setSession(mSession);
 
-                        for (PublicRoomsManagerListener listener : mListeners) {
-                            listener.onPublicRoomsCountRefresh(mPublicRoomsCount);
+                // the home server directory first page
+                directory.loadPage(null, null, null, new ApiCallback<PublicRoomsDirectory.CachedPage>() {
+                    @Override
+                    public void onSuccess(PublicRoomsDirectory.CachedPage page) {
+                        if (TextUtils.isEmpty(page.mNextBatch)) {
+                            onPublicRoomsCountRetrieved(page.mPublicRooms.size());
+                        } else {
+                            requestPublicRoomsCount();
                         }
-                        mListeners.clear();
-                        mCountRefreshInProgress = false;
                     }
 
                     @Override
                     public void onNetworkError(Exception e) {
-                        super.onNetworkError(e);
-                        mCountRefreshInProgress = false;
-                        Log.e(LOG_TAG, "## refreshPublicRoomsCount() : fails to retrieve the public room list " + e.getLocalizedMessage(), e);
+                        requestPublicRoomsCount();
                     }
 
                     @Override
                     public void onMatrixError(MatrixError e) {
-                        super.onMatrixError(e);
-                        mCountRefreshInProgress = false;
-                        Log.e(LOG_TAG, "## refreshPublicRoomsCount() : fails to retrieve the public room list " + e.getLocalizedMessage());
+                        requestPublicRoomsCount();
                     }
 
                     @Override
                     public void onUnexpectedError(Exception e) {
-                        super.onUnexpectedError(e);
-                        mCountRefreshInProgress = false;
-                        Log.e(LOG_TAG, "## refreshPublicRoomsCount() : fails to retrieve the public room list " + e.getLocalizedMessage(), e);
+                        requestPublicRoomsCount();
                     }
                 });
             }
         }
     }
-}
 
+    /**
+     * Dispatch the retrieved public rooms count
+     *
+     * @param publicRoomsCount the public rooms count
+     */
+    private void onPublicRoomsCountRetrieved(Integer publicRoomsCount) {
+        Log.d(LOG_TAG, "## refreshPublicRoomsCount() : Got the rooms public list count : " + publicRoomsCount);
+        mPublicRoomsCount = publicRoomsCount;
+
+        for (PublicRoomsManagerListener listener : mListeners) {
+            listener.onPublicRoomsCountRefresh(mPublicRoomsCount);
+        }
+        mListeners.clear();
+        mCountRefreshInProgress = false;
+    }
+
+    /**
+     * Request the public rooms count when the directory is paginated
+     */
+    private void requestPublicRoomsCount() {
+        // use any session to get the public rooms list
+        mSession.getEventsApiClient().getPublicRoomsCount(new SimpleApiCallback<Integer>() {
+            @Override
+            public void onSuccess(final Integer publicRoomsCount) {
+                onPublicRoomsCountRetrieved(publicRoomsCount);
+            }
+
+            @Override
+            public void onNetworkError(Exception e) {
+                super.onNetworkError(e);
+                mCountRefreshInProgress = false;
+                Log.e(LOG_TAG, "## refreshPublicRoomsCount() : fails to retrieve the public room list " + e.getLocalizedMessage(), e);
+            }
+
+            @Override
+            public void onMatrixError(MatrixError e) {
+                super.onMatrixError(e);
+                mCountRefreshInProgress = false;
+                Log.e(LOG_TAG, "## refreshPublicRoomsCount() : fails to retrieve the public room list " + e.getLocalizedMessage());
+            }
+
+            @Override
+            public void onUnexpectedError(Exception e) {
+                super.onUnexpectedError(e);
+                mCountRefreshInProgress = false;
+                Log.e(LOG_TAG, "## refreshPublicRoomsCount() : fails to retrieve the public room list " + e.getLocalizedMessage(), e);
+            }
+        });
+    }
+}
@@ -79,11 +79,14 @@ import im.vector.settings.FontScale;
 import im.vector.settings.VectorLocale;
 import im.vector.tools.VectorUncaughtExceptionHandler;
 import im.vector.ui.themes.ThemeUtils;
+import im.vector.util.AvatarBitmapCache;
 import im.vector.util.CallsManager;
+import im.vector.util.InlineImageLoader;
 import im.vector.util.PermissionsToolsKt;
 import im.vector.util.PhoneNumberUtils;
 import im.vector.util.PreferencesManager;
 import im.vector.util.RageShake;
+import im.vector.util.RenderCache;
 import im.vector.util.VectorMarkdownParser;
 import io.realm.Realm;
 import io.realm.RealmConfiguration;
@@ -509,6 +512,30 @@ public class VectorApp extends MultiDexApplication {
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        AvatarBitmapCache.getInstance(this).trimMemory(level);
+        RenderCache.trimAll(level);
+        InlineImageLoader.getInstance().trimMemory(level);
+
+        if (null != mNotificationDrawerManager) {
+            mNotificationDrawerManager.trimMemory(level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        AvatarBitmapCache.getInstance(this).trimMemory(TRIM_MEMORY_COMPLETE);
+        RenderCache.trimAll(TRIM_MEMORY_COMPLETE);
+        InlineImageLoader.getInstance().trimMemory(TRIM_MEMORY_COMPLETE);
+
+        if (null != mNotificationDrawerManager) {
+            mNotificationDrawerManager.trimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    }
+
     /**
      * Parse a markdown text
      *
@@ -658,7 +685,7 @@ public class VectorApp extends MultiDexApplication {
             }
 
             // get the contact update at application launch
-            ContactsManager.getInstance().clearSnapshot();
+            // the snapshot is synced incrementally
             ContactsManager.getInstance().refreshLocalContactsSnapshot();
 
             List<MXSession> sessions = Matrix.getInstance(this).getSessions();
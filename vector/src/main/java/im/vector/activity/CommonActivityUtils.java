@@ -75,16 +75,19 @@ import java.util.Map;
 import fr.gouv.tchap.activity.TchapLoginActivity;
 import fr.gouv.tchap.util.DinsicUtils;
 import fr.gouv.tchap.util.DinumUtilsKt;
+import fr.gouv.tchap.util.RoomRetentionPurger;
 import im.vector.Matrix;
 import im.vector.MyPresenceManager;
 import im.vector.R;
 import im.vector.VectorApp;
+import im.vector.adapters.KnownUsersSearchIndex;
 import im.vector.adapters.VectorRoomsSelectionAdapter;
 import im.vector.contacts.ContactsManager;
 import im.vector.contacts.PIDsRetriever;
 import im.vector.extensions.MatrixSdkExtensionsKt;
 import im.vector.fragments.VectorUnknownDevicesFragment;
 import im.vector.listeners.YesNoListener;
+import im.vector.notifications.RoomNotificationMetadataIndex;
 import im.vector.services.EventStreamServiceX;
 import im.vector.ui.badge.BadgeProxy;
 import im.vector.util.PreferencesManager;
@@ -163,9 +166,12 @@ public class CommonActivityUtils {
             // Publish to the server that we're now offline
             MyPresenceManager.getInstance(context, session).advertiseOffline();
             MyPresenceManager.remove(session);
+            KnownUsersSearchIndex.remove(session);
+            RoomRetentionPurger.remove(session);
 
             // clear notification
             VectorApp.getInstance().getNotificationDrawerManager().clearAllEvents();
+            RoomNotificationMetadataIndex.Companion.getInstance(context).clear();
 
             // unregister from the push server.
             Matrix.getInstance(context).getPushManager().unregister(session, null);
@@ -325,6 +331,7 @@ public class CommonActivityUtils {
 
         try {
             VectorApp.getInstance().getNotificationDrawerManager().clearAllEvents();
+            RoomNotificationMetadataIndex.Companion.getInstance(context).clear();
             EventStreamServiceX.Companion.onLogout(context);
             // stopEventStream(context);
 
@@ -335,6 +342,8 @@ public class CommonActivityUtils {
             // Publish to the server that we're now offline
             MyPresenceManager.getInstance(context, session).advertiseOffline();
             MyPresenceManager.remove(session);
+            KnownUsersSearchIndex.remove(session);
+            RoomRetentionPurger.remove(session);
 
             // clear the preferences
             PreferencesManager.clearPreferences(context);
@@ -387,6 +396,7 @@ public class CommonActivityUtils {
         final Context context = (null == activity) ? VectorApp.getInstance().getApplicationContext() : activity;
 
         VectorApp.getInstance().getNotificationDrawerManager().clearAllEvents();
+        RoomNotificationMetadataIndex.Companion.getInstance(context).clear();
         EventStreamServiceX.Companion.onLogout(activity);
         // stopEventStream(context);
 
@@ -398,6 +408,8 @@ public class CommonActivityUtils {
             // Publish to the server that we're now offline
             MyPresenceManager.getInstance(context, session).advertiseOffline();
             MyPresenceManager.remove(session);
+            KnownUsersSearchIndex.remove(session);
+            RoomRetentionPurger.remove(session);
         }
 
         // clear the preferences
@@ -468,6 +480,7 @@ public class CommonActivityUtils {
             @Override
             public void onSuccess(Void info) {
                 VectorApp.getInstance().getNotificationDrawerManager().clearAllEvents();
+                RoomNotificationMetadataIndex.Companion.getInstance(context).clear();
                 EventStreamServiceX.Companion.onLogout(context);
                 // stopEventStream(context);
 
@@ -476,6 +489,8 @@ public class CommonActivityUtils {
                 // Publish to the server that we're now offline
                 MyPresenceManager.getInstance(context, mxSession).advertiseOffline();
                 MyPresenceManager.remove(mxSession);
+                KnownUsersSearchIndex.remove(mxSession);
+                RoomRetentionPurger.remove(mxSession);
 
                 // clear the preferences
                 PreferencesManager.clearPreferences(context);
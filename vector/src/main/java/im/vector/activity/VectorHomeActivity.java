@@ -60,6 +60,7 @@ import android.widget.Toast;
 
 import androidx.annotation.ColorRes;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.ActionBarDrawerToggle;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.widget.SearchView;
@@ -81,10 +82,8 @@ import com.google.android.material.tabs.TabLayout;
 import com.google.android.material.textfield.TextInputEditText;
 
 import org.jetbrains.annotations.NotNull;
-import org.matrix.androidsdk.MXDataHandler;
 import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.call.IMXCall;
-import org.matrix.androidsdk.core.BingRulesManager;
 import org.matrix.androidsdk.core.Log;
 import org.matrix.androidsdk.core.MXPatterns;
 import org.matrix.androidsdk.core.PermalinkUtils;
@@ -99,7 +98,6 @@ import org.matrix.androidsdk.data.Room;
 import org.matrix.androidsdk.data.RoomPreviewData;
 import org.matrix.androidsdk.data.RoomState;
 import org.matrix.androidsdk.data.RoomSummary;
-import org.matrix.androidsdk.data.store.IMXStore;
 import org.matrix.androidsdk.listeners.MXEventListener;
 import org.matrix.androidsdk.rest.model.Event;
 
@@ -110,10 +108,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import butterknife.BindView;
 import butterknife.OnClick;
@@ -149,6 +145,7 @@ import im.vector.util.HomeRoomsViewModel;
 import im.vector.util.PreferencesManager;
 import im.vector.util.RoomUtils;
 import im.vector.util.SystemUtilsKt;
+import im.vector.util.UnreadStateAggregator;
 import im.vector.util.VectorUtils;
 import im.vector.view.KeysBackupBanner;
 import im.vector.view.UnreadCounterBadgeView;
@@ -244,6 +241,9 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
 
     private MXEventListener mEventsListener;
 
+    // track the rooms updated while the screen is paused, only these rooms are reclassified when it is resumed
+    private MXEventListener mPausedRoomsListener;
+
     // sliding menu management
     private int mSlidingMenuIndex = -1;
 
@@ -654,7 +654,11 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
         }
 
         if (mSession.isAlive()) {
+            removePausedRoomsListener();
             addEventsListener();
+
+            // reclassify the rooms updated while the screen was paused
+            onRoomDataUpdated();
         }
 
         showFloatingActionMenuIfRequired();
@@ -899,6 +903,7 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
 
         if (mSession.isAlive()) {
             removeEventsListener();
+            addPausedRoomsListener();
         }
 
         if (mShowFloatingActionButtonRunnable != null && mFloatingActionsMenu != null) {
@@ -921,6 +926,7 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
         }
 
         resetFilter();
+        removePausedRoomsListener();
     }
 
     @Override
@@ -2049,60 +2055,15 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
     // menu entry id -> Badge view
     private final Map<Integer, UnreadCounterBadgeView> mBadgeViewByIndex = new HashMap<>();
 
-    // events listener to track required refresh
-    private final MXEventListener mBadgeEventsListener = new MXEventListener() {
-        private boolean mRefreshBadgeOnChunkEnd = false;
-
-        @Override
-        public void onLiveEventsChunkProcessed(String fromToken, String toToken) {
-            if (mRefreshBadgeOnChunkEnd) {
-                refreshUnreadBadges();
-                mRefreshBadgeOnChunkEnd = false;
-            }
-        }
-
-        @Override
-        public void onLiveEvent(final Event event, final RoomState roomState) {
-            String eventType = event.getType();
-
-            // refresh the UI at the end of the next events chunk
-            mRefreshBadgeOnChunkEnd |= ((event.roomId != null) && RoomSummary.isSupportedEvent(event))
-                    || Event.EVENT_TYPE_STATE_ROOM_MEMBER.equals(eventType)
-                    || Event.EVENT_TYPE_REDACTION.equals(eventType)
-                    || Event.EVENT_TYPE_TAGS.equals(eventType)
-                    || Event.EVENT_TYPE_STATE_ROOM_THIRD_PARTY_INVITE.equals(eventType);
-
-        }
-
-        @Override
-        public void onReceiptEvent(String roomId, List<String> senderIds) {
-            // refresh only if the current user read some messages (to update the unread messages counters)
-            mRefreshBadgeOnChunkEnd |= (senderIds.indexOf(mSession.getCredentials().userId) >= 0);
-        }
+    // the unread counters of the session
+    private UnreadStateAggregator mUnreadStateAggregator;
 
+    // refresh the badges when the unread counters change
+    private final UnreadStateAggregator.OnUnreadStateChangeListener mUnreadStateChangeListener
+            = new UnreadStateAggregator.OnUnreadStateChangeListener() {
         @Override
-        public void onLeaveRoom(final String roomId) {
-            mRefreshBadgeOnChunkEnd = true;
-        }
-
-        @Override
-        public void onNewRoom(String roomId) {
-            mRefreshBadgeOnChunkEnd = true;
-        }
-
-        @Override
-        public void onJoinRoom(String roomId) {
-            mRefreshBadgeOnChunkEnd = true;
-        }
-
-        @Override
-        public void onDirectMessageChatRoomsListUpdate() {
-            mRefreshBadgeOnChunkEnd = true;
-        }
-
-        @Override
-        public void onRoomTagEvent(String roomId) {
-            mRefreshBadgeOnChunkEnd = true;
+        public void onUnreadStateChange(UnreadStateAggregator.Snapshot snapshot) {
+            updateUnreadBadges(snapshot);
         }
     };
 
@@ -2110,7 +2071,8 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
      * Add the badge events listener
      */
     private void addBadgeEventsListener() {
-        mSession.getDataHandler().addListener(mBadgeEventsListener);
+        mUnreadStateAggregator = UnreadStateAggregator.getInstance(mSession);
+        mUnreadStateAggregator.addListener(mUnreadStateChangeListener);
         refreshUnreadBadges();
     }
 
@@ -2118,7 +2080,10 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
      * Remove the badge events listener
      */
     private void removeBadgeEventsListener() {
-        mSession.getDataHandler().removeListener(mBadgeEventsListener);
+        if (null != mUnreadStateAggregator) {
+            mUnreadStateAggregator.removeListener(mUnreadStateChangeListener);
+            mUnreadStateAggregator = null;
+        }
     }
 
     /**
@@ -2150,75 +2115,26 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
      * Refresh the badges
      */
     public void refreshUnreadBadges() {
-        MXDataHandler dataHandler = mSession.getDataHandler();
-        // fix a crash reported by GA
-        if (null == dataHandler) {
-            return;
-        }
-
-        IMXStore store = dataHandler.getStore();
         // fix a crash reported by GA
-        if (null == store) {
+        if ((null == mSession.getDataHandler()) || (null == mSession.getDataHandler().getStore())) {
             return;
         }
 
-        BingRulesManager bingRulesManager = dataHandler.getBingRulesManager();
-        Collection<RoomSummary> summaries2 = store.getSummaries();
-        Map<Room, RoomSummary> roomSummaryByRoom = new HashMap<>();
-        Set<String> directChatInvitations = new HashSet<>();
-
-        for (RoomSummary summary : summaries2) {
-            Room room = store.getRoom(summary.getRoomId());
-
-            if (null != room) {
-                roomSummaryByRoom.put(room, summary);
-
-                if (!room.isConferenceUserRoom() && room.isInvited() && room.isDirectChatInvitation()) {
-                    directChatInvitations.add(room.getRoomId());
-                }
-            }
-        }
-
-        Set<Integer> menuIndexes = new HashSet<>(mBadgeViewByIndex.keySet());
-        for (Integer id : menuIndexes) {
-            // Only the Conversation tab has an unread badge.
-            if (id == TAB_POSITION_CONVERSATION) {
-                // use a map because contains is faster
-                HashSet<String> filteredRoomIdsSet = new HashSet<>();
-
-                for (Room room : roomSummaryByRoom.keySet()) {
-                    // not a VOIP conference room
-                    if (!room.isConferenceUserRoom()) {
-                        filteredRoomIdsSet.add(room.getRoomId());
-                    }
-                }
-
-                // compute the badge value and its displays
-                int roomCount = 0;
-
-                for (String roomId : filteredRoomIdsSet) {
-                    Room room = store.getRoom(roomId);
-
-                    if (null != room) {
-                        if (room.isInvited()) {
-                            roomCount++;
-                        } else {
-                            int notificationCount = room.getNotificationCount();
-
-                            if (bingRulesManager.isRoomMentionOnly(roomId)) {
-                                notificationCount = room.getHighlightCount();
-                            }
+        updateUnreadBadges(UnreadStateAggregator.getInstance(mSession).refresh());
+    }
 
-                            if (notificationCount > 0) {
-                                roomCount++;
-                            }
-                        }
-                    }
-                }
+    /**
+     * Display the unread counters in the badges.
+     *
+     * @param snapshot the unread counters
+     */
+    private void updateUnreadBadges(UnreadStateAggregator.Snapshot snapshot) {
+        // Only the Conversation tab has an unread badge.
+        UnreadCounterBadgeView badgeView = mBadgeViewByIndex.get(TAB_POSITION_CONVERSATION);
 
-                //always highligted
-                mBadgeViewByIndex.get(id).updateCounter(roomCount, UnreadCounterBadgeView.HIGHLIGHTED);
-            }
+        if (null != badgeView) {
+            //always highligted
+            badgeView.updateCounter(snapshot.unreadRoomsCount, UnreadCounterBadgeView.HIGHLIGHTED);
         }
     }
 
@@ -2297,11 +2213,15 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
      * Warn the displayed fragment about room data updates.
      */
     public void onRoomDataUpdated() {
-        final HomeRoomsViewModel.Result result = mRoomsViewModel.update();
-        final Fragment fragment = getSelectedFragment();
-        if ((null != fragment) && (fragment instanceof AbsHomeFragment)) {
-            ((AbsHomeFragment) fragment).onRoomResultUpdated(result);
-        }
+        mRoomsViewModel.update(new HomeRoomsViewModel.UpdateListener() {
+            @Override
+            public void onResultUpdated(@NonNull HomeRoomsViewModel.Result result, @Nullable HomeRoomsViewModel.Diff diff) {
+                final Fragment fragment = getSelectedFragment();
+                if ((null != fragment) && (fragment instanceof AbsHomeFragment)) {
+                    ((AbsHomeFragment) fragment).onRoomResultUpdated(result, diff);
+                }
+            }
+        });
     }
 
     /**
@@ -2326,6 +2246,7 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
             @Override
             public void onInitialSyncComplete(String toToken) {
                 Log.d(LOG_TAG, "## onInitialSyncComplete()");
+                mRoomsViewModel.invalidateAll();
                 onRoomDataUpdated();
             }
 
@@ -2347,28 +2268,39 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
                 String eventType = event.getType();
 
                 // refresh the UI at the end of the next events chunk
-                mRefreshOnChunkEnd |= ((event.roomId != null) && RoomSummary.isSupportedEvent(event))
+                boolean refresh = ((event.roomId != null) && RoomSummary.isSupportedEvent(event))
                         || Event.EVENT_TYPE_STATE_ROOM_MEMBER.equals(eventType)
                         || Event.EVENT_TYPE_TAGS.equals(eventType)
                         || Event.EVENT_TYPE_REDACTION.equals(eventType)
                         || Event.EVENT_TYPE_RECEIPT.equals(eventType)
                         || Event.EVENT_TYPE_STATE_ROOM_AVATAR.equals(eventType)
                         || Event.EVENT_TYPE_STATE_ROOM_THIRD_PARTY_INVITE.equals(eventType);
+
+                if (refresh) {
+                    // only this room has to be reclassified
+                    mRoomsViewModel.invalidateRoom(event.roomId);
+                    mRefreshOnChunkEnd = true;
+                }
             }
 
             @Override
             public void onReceiptEvent(String roomId, List<String> senderIds) {
                 // refresh only if the current user read some messages (to update the unread messages counters)
-                mRefreshOnChunkEnd |= (senderIds.indexOf(mSession.getCredentials().userId) >= 0);
+                if (senderIds.indexOf(mSession.getCredentials().userId) >= 0) {
+                    mRoomsViewModel.invalidateRoom(roomId);
+                    mRefreshOnChunkEnd = true;
+                }
             }
 
             @Override
             public void onRoomTagEvent(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
                 mRefreshOnChunkEnd = true;
             }
 
             @Override
             public void onStoreReady() {
+                mRoomsViewModel.invalidateAll();
                 onForceRefresh();
 
                 if (null != mSharedFilesIntent) {
@@ -2382,21 +2314,26 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
             public void onLeaveRoom(final String roomId) {
                 // clear any pending notification for this room
                 VectorApp.getInstance().getNotificationDrawerManager().clearMessageEventOfRoom(roomId);
+                mRoomsViewModel.invalidateRoom(roomId);
                 onForceRefresh();
             }
 
             @Override
             public void onNewRoom(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
                 onForceRefresh();
             }
 
             @Override
             public void onJoinRoom(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
                 onForceRefresh();
             }
 
             @Override
             public void onDirectMessageChatRoomsListUpdate() {
+                // any room may have been converted
+                mRoomsViewModel.invalidateAll();
                 mRefreshOnChunkEnd = true;
             }
 
@@ -2408,6 +2345,7 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
                     // test if the latest event is refreshed
                     Event latestReceivedEvent = summary.getLatestReceivedEvent();
                     if ((null != latestReceivedEvent) && TextUtils.equals(latestReceivedEvent.eventId, eventId)) {
+                        mRoomsViewModel.invalidateRoom(roomId);
                         onRoomDataUpdated();
                     }
                 }
@@ -2444,6 +2382,76 @@ public class VectorHomeActivity extends VectorAppCompatActivity implements Searc
         }
     }
 
+    /**
+     * Add a MXEventListener which only invalidates the updated rooms, while the screen is paused.
+     */
+    private void addPausedRoomsListener() {
+        mPausedRoomsListener = new MXEventListener() {
+            @Override
+            public void onInitialSyncComplete(String toToken) {
+                mRoomsViewModel.invalidateAll();
+            }
+
+            @Override
+            public void onStoreReady() {
+                mRoomsViewModel.invalidateAll();
+            }
+
+            @Override
+            public void onDirectMessageChatRoomsListUpdate() {
+                mRoomsViewModel.invalidateAll();
+            }
+
+            @Override
+            public void onLiveEvent(final Event event, final RoomState roomState) {
+                mRoomsViewModel.invalidateRoom(event.roomId);
+            }
+
+            @Override
+            public void onReceiptEvent(String roomId, List<String> senderIds) {
+                mRoomsViewModel.invalidateRoom(roomId);
+            }
+
+            @Override
+            public void onRoomTagEvent(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
+            }
+
+            @Override
+            public void onLeaveRoom(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
+            }
+
+            @Override
+            public void onNewRoom(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
+            }
+
+            @Override
+            public void onJoinRoom(String roomId) {
+                mRoomsViewModel.invalidateRoom(roomId);
+            }
+
+            @Override
+            public void onEventDecrypted(String roomId, String eventId) {
+                mRoomsViewModel.invalidateRoom(roomId);
+            }
+        };
+
+        mSession.getDataHandler().addListener(mPausedRoomsListener);
+    }
+
+    /**
+     * Remove the paused screen MXEventListener from the session listeners.
+     */
+    private void removePausedRoomsListener() {
+        if ((null != mPausedRoomsListener) && mSession.isAlive()) {
+            mSession.getDataHandler().removeListener(mPausedRoomsListener);
+        }
+
+        mPausedRoomsListener = null;
+    }
+
     /* ==========================================================================================
      * KeysBackupBanner Listener
      * ========================================================================================== */
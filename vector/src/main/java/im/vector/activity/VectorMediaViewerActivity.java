@@ -163,7 +163,7 @@ public class VectorMediaViewerActivity extends MXCActionBarActivity {
         }
 
         // Prepare a media scan manager even if all the provided media are supposed to be already trusted.
-        mMediaScanManager = new MediaScanManager(mSession.getMediaScanRestClient(), realm);
+        mMediaScanManager = new MediaScanManager(mSession);
         mMediaScanManager.setListener(new MediaScanManager.MediaScanManagerListener() {
             @Override
             public void onMediaScanChange(MediaScan mediaScan) {
@@ -221,6 +221,15 @@ public class VectorMediaViewerActivity extends MXCActionBarActivity {
         mAdapter.stopPlayingVideo();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (null != mMediaScanManager) {
+            mMediaScanManager.cancelPendingScans();
+        }
+
+        super.onDestroy();
+    }
+
     @Override
     public int getMenuRes() {
         return R.menu.vector_medias_viewer;
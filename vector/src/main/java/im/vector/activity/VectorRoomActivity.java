@@ -123,6 +123,7 @@ import im.vector.listeners.IMessagesAdapterActionsListener;
 import im.vector.util.CallsManager;
 import im.vector.util.PreferencesManager;
 import im.vector.util.ReadMarkerManager;
+import im.vector.util.SettingsSnapshot;
 import im.vector.util.ExternalApplicationsUtilKt;
 import im.vector.util.PermissionsToolsKt;
 import im.vector.util.SlashCommandsParser;
@@ -608,6 +609,17 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
         }
     };
 
+    /**
+     * The composer follows the settings updates
+     */
+    private final PreferencesManager.OnSettingsChangeListener mSettingsChangeListener = new PreferencesManager.OnSettingsChangeListener() {
+        @Override
+        public void onSettingsChange(SettingsSnapshot settings) {
+            applySendMessageWithEnter(settings.sendMessageWithEnter);
+            refreshCallButtons(false);
+        }
+    };
+
     //================================================================================
     // Activity classes
     //================================================================================
@@ -737,11 +749,8 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
             Log.d(LOG_TAG, "Displaying " + roomId);
         }
 
-        if (PreferencesManager.sendMessageWithEnter(this)) {
-            // imeOptions="actionSend" only works with single line, so we remove multiline inputType
-            mEditText.setInputType(mEditText.getInputType() & ~EditorInfo.TYPE_TEXT_FLAG_MULTI_LINE);
-            mEditText.setImeOptions(EditorInfo.IME_ACTION_SEND);
-        }
+        applySendMessageWithEnter(PreferencesManager.getSettings(this).sendMessageWithEnter);
+        PreferencesManager.addOnSettingsChangeListener(mSettingsChangeListener);
 
         // IME's DONE and SEND button is treated as a send action
         mEditText.setOnEditorActionListener(new TextView.OnEditorActionListener() {
@@ -1112,6 +1121,8 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
 
         securityChecks.activityStopped();
 
+        PreferencesManager.removeOnSettingsChangeListener(mSettingsChangeListener);
+
         if (null != mVectorMessageListFragment) {
             mVectorMessageListFragment.onDestroy();
         }
@@ -1946,7 +1957,7 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
         boolean hasItemToShare = !sharedDataItems.isEmpty();
         boolean isTextOnly = sharedDataItems.size() == 1
                 && "text/plain".equals(sharedDataItems.get(0).getMimeType(this));
-        boolean shouldPreviewMedia = PreferencesManager.previewMediaWhenSending(this);
+        boolean shouldPreviewMedia = PreferencesManager.getSettings(this).previewMediaWhenSending;
 
         if (hasItemToShare && !isTextOnly && shouldPreviewMedia) {
             if (null != intent) {
@@ -2191,7 +2202,7 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
      */
     private void handleTypingNotification(boolean isTyping) {
         // the typing notifications are disabled ?
-        if (!PreferencesManager.sendTypingNotifs(this)) {
+        if (!PreferencesManager.getSettings(this).sendTypingNotifs) {
             Log.d(LOG_TAG, "##handleTypingNotification() : the typing notifications are disabled");
             return;
         }
@@ -2734,6 +2745,22 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
         mNotificationsArea.render(state);
     }
 
+    /**
+     * Configure the composer to send the message with the enter key of the soft keyboard, or to insert a new line.
+     *
+     * @param sendMessageWithEnter true to send the message with the enter key
+     */
+    private void applySendMessageWithEnter(boolean sendMessageWithEnter) {
+        if (sendMessageWithEnter) {
+            // imeOptions="actionSend" only works with single line, so we remove multiline inputType
+            mEditText.setInputType(mEditText.getInputType() & ~EditorInfo.TYPE_TEXT_FLAG_MULTI_LINE);
+            mEditText.setImeOptions(EditorInfo.IME_ACTION_SEND);
+        } else {
+            mEditText.setInputType(mEditText.getInputType() | EditorInfo.TYPE_TEXT_FLAG_MULTI_LINE);
+            mEditText.setImeOptions(EditorInfo.IME_ACTION_UNSPECIFIED);
+        }
+    }
+
     /**
      * Refresh the call buttons display.
      */
@@ -2745,7 +2772,7 @@ public class VectorRoomActivity extends MXCActionBarActivity implements
 
             if ((null == call) && (null == activeWidget)) {
                 mStartCallLayout.setVisibility((isCallSupported && (mEditText.getText().length() == 0
-                        || PreferencesManager.sendMessageWithEnter(this))) ? View.VISIBLE : View.GONE);
+                        || PreferencesManager.getSettings(this).sendMessageWithEnter)) ? View.VISIBLE : View.GONE);
                 mStopCallLayout.setVisibility(View.GONE);
             } else if (null != activeWidget) {
                 mStartCallLayout.setVisibility(View.GONE);
@@ -57,6 +57,7 @@ import org.matrix.androidsdk.rest.model.pid.ThreePid;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -204,6 +205,11 @@ public class VectorRoomInviteMembersActivity extends MXCActionBarActivity implem
             });
         }
 
+        @Override
+        public void onContactsUpdate(Collection<Contact> updatedContacts, Collection<String> deletedContactIds) {
+            onRefresh();
+        }
+
         @Override
         public void onContactPresenceUpdate(final Contact contact, final String matrixId) {
         }
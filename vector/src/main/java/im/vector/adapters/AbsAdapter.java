@@ -231,6 +231,15 @@ public abstract class AbsAdapter extends AbsFilterableAdapter {
      */
     public void setInvitation(final List<Room> rooms) {
         if (null != mInviteSection) {
+            if (TextUtils.isEmpty(mCurrentFilterPattern) && RoomUtils.haveSameRoomIds(mInviteSection.getItems(), rooms)) {
+                // same invitations, only refresh their rows
+                int headerPosition = getSectionHeaderPosition(mInviteSection);
+                if ((headerPosition >= 0) && (mInviteSection.getNbItems() > 0)) {
+                    notifyItemRangeChanged(headerPosition + 1, mInviteSection.getNbItems());
+                }
+                return;
+            }
+
             mInviteSection.setItems(rooms, mCurrentFilterPattern);
             if (!TextUtils.isEmpty(mCurrentFilterPattern)) {
                 filterRoomSection(mInviteSection, String.valueOf(mCurrentFilterPattern));
@@ -317,12 +326,20 @@ public abstract class AbsAdapter extends AbsFilterableAdapter {
      * Notify that sections have changed and must be updated internally
      */
     protected void updateSections() {
+        updateSectionsPositions();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Update the sections header positions without refreshing the whole adapter.
+     * The caller is responsible for notifying the adapter of the changes.
+     */
+    protected void updateSectionsPositions() {
         List<AdapterSection> list = getSections();
         mSections.clear();
         for (AdapterSection section : list) {
             addSection(section);
         }
-        notifyDataSetChanged();
     }
 
     /**
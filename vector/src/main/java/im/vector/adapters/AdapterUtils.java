@@ -57,7 +57,7 @@ public class AdapterUtils {
      * @return the preferred display format
      */
     private static int getTimeDisplay(Context context) {
-        return PreferencesManager.displayTimeIn12hFormat(context) ? DateUtils.FORMAT_12HOUR : DateUtils.FORMAT_24HOUR;
+        return PreferencesManager.getSettings(context).displayTimeIn12hFormat ? DateUtils.FORMAT_12HOUR : DateUtils.FORMAT_24HOUR;
     }
 
     /**
@@ -38,6 +38,7 @@ import java.util.List;
 import im.vector.R;
 import im.vector.activity.VectorRoomActivity;
 import im.vector.settings.VectorLocale;
+import im.vector.util.SearchTokenIndex;
 import im.vector.util.VectorUtils;
 
 /**
@@ -62,6 +63,9 @@ public class AutoCompletedUserAdapter extends ArrayAdapter<User> {
     // cannot use the parent list
     private List<User> mUsersList = new ArrayList<>();
 
+    // the users indexed by lower case display name
+    private final SearchTokenIndex<User> mUsersIndex = new SearchTokenIndex<>();
+
     // tell if the current search is on matrix IDs
     private boolean mIsSearchingMatrixId = false;
 
@@ -104,6 +108,14 @@ public class AutoCompletedUserAdapter extends ArrayAdapter<User> {
         mSession = session;
         addAll(users);
         mUsersList = new ArrayList<>(users);
+
+        for (User user : mUsersList) {
+            if (null != user.displayname) {
+                mUsersIndex.put(user,
+                        Collections.singletonList(user.displayname.toLowerCase(VectorLocale.INSTANCE.getApplicationLocale())),
+                        Collections.<String>emptyList());
+            }
+        }
     }
 
     /**
@@ -184,11 +196,7 @@ public class AutoCompletedUserAdapter extends ArrayAdapter<User> {
                 }
 
                 if (prefixString.length() > 0) {
-                    for (User user : mUsersList) {
-                        if ((null != user.displayname) && user.displayname.toLowerCase(VectorLocale.INSTANCE.getApplicationLocale()).startsWith(prefixString)) {
-                            newValues.add(user);
-                        }
-                    }
+                    newValues.addAll(mUsersIndex.searchByPrefix(prefixString));
                 }
             }
 
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.adapters;
+
+import android.text.TextUtils;
+
+import org.matrix.androidsdk.MXSession;
+import org.matrix.androidsdk.call.MXCallsManager;
+import org.matrix.androidsdk.core.Log;
+import org.matrix.androidsdk.data.RoomState;
+import org.matrix.androidsdk.data.store.IMXStore;
+import org.matrix.androidsdk.listeners.MXEventListener;
+import org.matrix.androidsdk.rest.model.Event;
+import org.matrix.androidsdk.rest.model.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import fr.gouv.tchap.util.DinsicUtils;
+
+/**
+ * Search index of the known users of a session i.e. the users of the store.
+ * It is built once in background, then it is updated with the presence and the room member events.
+ * It replaces the full scans of {@link im.vector.util.VectorUtils#listKnownParticipants(MXSession)} while searching.
+ */
+public class KnownUsersSearchIndex {
+    private static final String LOG_TAG = KnownUsersSearchIndex.class.getSimpleName();
+
+    private static final Map<MXSession, KnownUsersSearchIndex> instances = new HashMap<>();
+
+    // the indexes are built one after the other
+    private static final ExecutorService sBuildExecutor = Executors.newSingleThreadExecutor();
+
+    private final MXSession mSession;
+
+    private final ParticipantSearchIndex mIndex = new ParticipantSearchIndex();
+
+    // the indexed items by user id
+    private final Map<String, ParticipantAdapterItem> mParticipantsByUserId = new HashMap<>();
+
+    private boolean mIsBuilt = false;
+
+    private final MXEventListener mEventsListener = new MXEventListener() {
+        @Override
+        public void onPresenceUpdate(Event event, User user) {
+            onUserUpdate(user);
+        }
+
+        @Override
+        public void onLiveEvent(Event event, RoomState roomState) {
+            if (Event.EVENT_TYPE_STATE_ROOM_MEMBER.equals(event.getType()) && (null != event.stateKey)) {
+                IMXStore store = mSession.getDataHandler().getStore();
+
+                if (null != store) {
+                    // an user is created or updated in the store for each joined / invited room member event
+                    onUserUpdate(store.getUser(event.stateKey));
+                }
+            }
+        }
+    };
+
+    private KnownUsersSearchIndex(MXSession session) {
+        mSession = session;
+        mSession.getDataHandler().addListener(mEventsListener);
+
+        sBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                build();
+            }
+        });
+    }
+
+    /**
+     * Get the index of a session, it is created if it does not exist.
+     *
+     * @param session the session
+     * @return the linked index
+     */
+    public static synchronized KnownUsersSearchIndex getInstance(MXSession session) {
+        KnownUsersSearchIndex instance = instances.get(session);
+
+        if (null == instance) {
+            instance = new KnownUsersSearchIndex(session);
+            instances.put(session, instance);
+        }
+
+        return instance;
+    }
+
+    /**
+     * Remove the index of a session (on logout).
+     *
+     * @param session the session
+     */
+    public static synchronized void remove(MXSession session) {
+        KnownUsersSearchIndex instance = instances.remove(session);
+
+        if (null != instance) {
+            if (session.isAlive()) {
+                session.getDataHandler().removeListener(instance.mEventsListener);
+            }
+
+            synchronized (instance) {
+                instance.mParticipantsByUserId.clear();
+                instance.mIndex.clear();
+            }
+        }
+    }
+
+    /**
+     * Index the users of the store.
+     */
+    private void build() {
+        IMXStore store = mSession.isAlive() ? mSession.getDataHandler().getStore() : null;
+
+        if (null == store) {
+            Log.e(LOG_TAG, "## build() : the session is not anymore active");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<User> users = new ArrayList<>(store.getUsers());
+
+        for (User user : users) {
+            synchronized (this) {
+                // the live updates received meanwhile are more recent
+                if (!mParticipantsByUserId.containsKey(user.user_id)) {
+                    putUser(user);
+                }
+            }
+        }
+
+        synchronized (this) {
+            mIsBuilt = true;
+        }
+
+        Log.d(LOG_TAG, "## build() : " + users.size() + " users indexed in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * Index a new or an updated user.
+     *
+     * @param user the user
+     */
+    private void onUserUpdate(User user) {
+        if (null != user) {
+            synchronized (this) {
+                putUser(user);
+            }
+        }
+    }
+
+    private void putUser(User user) {
+        if ((null == user.user_id) || MXCallsManager.isConferenceUserId(user.user_id)) {
+            return;
+        }
+
+        // Note: We may don't know the display name of the users who left all our common rooms.
+        // Tchap: force a display name if it is undefined.
+        // The user belongs to the store, it is not updated from this thread.
+        String displayName = user.displayname;
+
+        if (null == displayName) {
+            displayName = DinsicUtils.computeDisplayNameFromUserId(user.user_id);
+        }
+
+        if (TextUtils.isEmpty(displayName)) {
+            displayName = user.user_id;
+        }
+
+        String avatarUrl = user.getAvatarUrl();
+        ParticipantAdapterItem item = mParticipantsByUserId.get(user.user_id);
+
+        if ((null != item) && TextUtils.equals(item.mDisplayName, displayName) && TextUtils.equals(item.mAvatarUrl, avatarUrl)) {
+            // nothing to update
+            return;
+        }
+
+        if (null != item) {
+            mIndex.remove(item);
+        }
+
+        item = new ParticipantAdapterItem(displayName, avatarUrl, user.user_id, true);
+        mParticipantsByUserId.put(user.user_id, item);
+        mIndex.put(item);
+    }
+
+    /**
+     * @return true when all the known users have been indexed.
+     */
+    public synchronized boolean isBuilt() {
+        return mIsBuilt;
+    }
+
+    /**
+     * @return the known participants, indexed by their matrix id.
+     */
+    public synchronized Map<String, ParticipantAdapterItem> getParticipants() {
+        return new HashMap<>(mParticipantsByUserId);
+    }
+
+    /**
+     * Search the known users with a display name component or a matrix id starting with a prefix.
+     *
+     * @param prefix the lower case prefix
+     * @return the matrix ids of the matched users
+     */
+    public synchronized Set<String> searchUserIdsByPrefix(String prefix) {
+        Set<String> userIds = new HashSet<>();
+
+        for (ParticipantAdapterItem item : mIndex.startsWith(prefix)) {
+            userIds.add(item.mUserId);
+        }
+
+        return userIds;
+    }
+}
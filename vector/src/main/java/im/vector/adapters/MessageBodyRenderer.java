@@ -0,0 +1,532 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.adapters;
+
+import android.content.Context;
+import android.text.SpannableString;
+import android.text.SpannedString;
+import android.text.TextUtils;
+import android.text.style.CharacterStyle;
+
+import androidx.annotation.Nullable;
+
+import org.matrix.androidsdk.adapters.MessageRow;
+import org.matrix.androidsdk.core.JsonUtils;
+import org.matrix.androidsdk.core.Log;
+import org.matrix.androidsdk.interfaces.HtmlToolbox;
+import org.matrix.androidsdk.rest.model.Event;
+import org.matrix.androidsdk.rest.model.message.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import im.vector.ui.VectorQuoteSpan;
+import im.vector.util.RenderCache;
+import im.vector.util.RiotEventDisplay;
+import im.vector.util.VectorLinkifyKt;
+
+/**
+ * Render the messages bodies of the text, emote and code rows.
+ * <ul>
+ * <li>the parse stage (HTML sanitising and conversion) runs on a background thread when the rows are added to the adapter.</li>
+ * <li>the decoration stage (search pattern, pills, links) runs once on the UI thread,
+ * its result is kept until the pattern, the highlight status or the pills are updated.</li>
+ * </ul>
+ * The rows only attach the rendered bodies when they are displayed.
+ * The theme and the font scale are not tracked: the messages adapter is recreated when they are updated.
+ */
+class MessageBodyRenderer {
+    private static final String LOG_TAG = MessageBodyRenderer.class.getSimpleName();
+
+    // the rendered bodies cache size in bytes
+    private static final int RENDERED_BODIES_CACHE_SIZE = 2 * 1024 * 1024;
+
+    // the parse stage thread, shared by the adapters
+    private static final ExecutorService sParseExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * A code message block
+     */
+    static class CodeBlock {
+        // true for a fenced block
+        final boolean mIsFenced;
+        final CharSequence mText;
+
+        CodeBlock(boolean isFenced, CharSequence text) {
+            mIsFenced = isFenced;
+            mText = text;
+        }
+    }
+
+    /**
+     * An immutable rendered body, it is replaced in the cache when it is decorated
+     * so that the cache size stays consistent.
+     */
+    private static class RenderedBody {
+        // the rendered event, the body is rendered again when the row event is updated
+        final Event mEvent;
+        final int mGeneration;
+
+        // the parsed body (a CharSequence or a CodeBlock list)
+        final Object mParsed;
+
+        // the decorated body and its decoration parameters, null when it is not decorated
+        @Nullable
+        final Object mDecorated;
+        @Nullable
+        final String mDecorationKey;
+
+        RenderedBody(Event event, int generation, Object parsed) {
+            this(event, generation, parsed, null, null);
+        }
+
+        private RenderedBody(Event event, int generation, Object parsed, @Nullable Object decorated, @Nullable String decorationKey) {
+            mEvent = event;
+            mGeneration = generation;
+            mParsed = parsed;
+            mDecorated = decorated;
+            mDecorationKey = decorationKey;
+        }
+
+        /**
+         * @param decorated     the decorated body
+         * @param decorationKey the decoration parameters
+         * @return a copy of this body with the decorated body
+         */
+        RenderedBody withDecoration(Object decorated, String decorationKey) {
+            return new RenderedBody(mEvent, mGeneration, mParsed, decorated, decorationKey);
+        }
+    }
+
+    private final Context mContext;
+    private final VectorMessagesAdapterHelper mHelper;
+
+    // the html toolboxes are not thread safe, the parse stage has its own one
+    private final HtmlToolbox mUiHtmlToolbox;
+    private final HtmlToolbox mParseHtmlToolbox;
+
+    private final int mIncomingMessageMarkdownBgColor;
+    private final int mOutgoingMessageMarkdownBgColor;
+    private final String mMyUserId;
+
+    // the rendered bodies by event id
+    private final RenderCache<RenderedBody> mRenderedBodies = new RenderCache<>("message bodies", RENDERED_BODIES_CACHE_SIZE,
+            new RenderCache.SizeProvider<RenderedBody>() {
+                @Override
+                public int sizeOf(RenderedBody renderedBody) {
+                    return sizeOfRendering(renderedBody.mParsed) + sizeOfRendering(renderedBody.mDecorated);
+                }
+            });
+
+    // incremented when the rendered bodies become invalid
+    private volatile int mGeneration = 0;
+
+    // incremented when an inline image has been loaded, a body parsed before may display its placeholder
+    private volatile int mLoadedImagesCount = 0;
+
+    /**
+     * Constructor
+     *
+     * @param context                        the context
+     * @param helper                         the adapter helper
+     * @param uiHtmlToolbox                  the html toolbox used from the UI thread
+     * @param parseHtmlToolbox               the html toolbox used from the parse stage
+     * @param myUserId                       the current user id
+     * @param incomingMessageMarkdownBgColor the markdown blocks background color of the incoming messages
+     * @param outgoingMessageMarkdownBgColor the markdown blocks background color of the outgoing messages
+     */
+    MessageBodyRenderer(Context context,
+                        VectorMessagesAdapterHelper helper,
+                        HtmlToolbox uiHtmlToolbox,
+                        HtmlToolbox parseHtmlToolbox,
+                        String myUserId,
+                        int incomingMessageMarkdownBgColor,
+                        int outgoingMessageMarkdownBgColor) {
+        mContext = context;
+        mHelper = helper;
+        mUiHtmlToolbox = uiHtmlToolbox;
+        mParseHtmlToolbox = parseHtmlToolbox;
+        mMyUserId = myUserId;
+        mIncomingMessageMarkdownBgColor = incomingMessageMarkdownBgColor;
+        mOutgoingMessageMarkdownBgColor = outgoingMessageMarkdownBgColor;
+    }
+
+    /**
+     * Tell if a row type is rendered here.
+     *
+     * @param viewType the row type
+     * @return true if the row body is rendered by this class
+     */
+    static boolean isRenderedRowType(int viewType) {
+        return (VectorMessagesAdapter.ROW_TYPE_TEXT == viewType)
+                || (VectorMessagesAdapter.ROW_TYPE_EMOTE == viewType)
+                || (VectorMessagesAdapter.ROW_TYPE_CODE == viewType);
+    }
+
+    /**
+     * Start the parse stage of a row in background.
+     * It must be called from the UI thread.
+     *
+     * @param row      the row
+     * @param viewType the row type
+     */
+    void prerender(final MessageRow row, final int viewType) {
+        final Event event = row.getEvent();
+
+        // the undecrypted messages will be rendered when they are decrypted
+        if (!isRenderedRowType(viewType) || (null == event.eventId) || Event.EVENT_TYPE_MESSAGE_ENCRYPTED.equals(event.getType())) {
+            return;
+        }
+
+        final int generation = mGeneration;
+        final int loadedImagesCount = mLoadedImagesCount;
+
+        if (null != getValidRenderedBody(row, generation)) {
+            return;
+        }
+
+        sParseExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // the row has been updated or the renderer has been invalidated in the meantime
+                if ((generation != mGeneration) || (event != row.getEvent())) {
+                    return;
+                }
+
+                try {
+                    Object parsed = parse(row, viewType, mParseHtmlToolbox);
+
+                    if ((generation == mGeneration) && (loadedImagesCount == mLoadedImagesCount)) {
+                        mRenderedBodies.put(event.eventId, new RenderedBody(event, generation, parsed));
+                    }
+                } catch (Exception e) {
+                    // the row will be rendered when it is displayed
+                    Log.e(LOG_TAG, "## prerender() : failed " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Invalidate the decorated bodies, the parsed bodies are kept.
+     * It must be called when the pills or the members names are updated.
+     */
+    void invalidateDecorations() {
+        mGeneration++;
+    }
+
+    /**
+     * Invalidate the rendered bodies which display an image.
+     * It must be called when an inline image has been loaded, the other bodies are kept.
+     *
+     * @param source the image URL
+     * @return the ids of the invalidated events
+     */
+    List<String> invalidateImage(String source) {
+        List<String> eventIds = new ArrayList<>();
+
+        if (TextUtils.isEmpty(source)) {
+            return eventIds;
+        }
+
+        // the running parse stage must not cache a placeholder
+        mLoadedImagesCount++;
+
+        for (Map.Entry<String, RenderedBody> entry : mRenderedBodies.snapshot().entrySet()) {
+            RenderedBody renderedBody = entry.getValue();
+
+            if ((null != renderedBody) && isImageDisplayed(renderedBody.mEvent, source)) {
+                mRenderedBodies.remove(entry.getKey());
+                eventIds.add(entry.getKey());
+            }
+        }
+
+        return eventIds;
+    }
+
+    /**
+     * Tell if a message displays an inline image.
+     *
+     * @param event  the message event
+     * @param source the image URL
+     * @return true if the message formatted body contains the image
+     */
+    private static boolean isImageDisplayed(Event event, String source) {
+        try {
+            Message message = JsonUtils.toMessage(event.getContent());
+            return (null != message.formatted_body) && message.formatted_body.contains(source);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## isImageDisplayed() : failed " + e.getMessage(), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Provide the decorated body of a text row.
+     *
+     * @param row                the row
+     * @param pattern            the searched pattern
+     * @param highLightTextStyle the pattern highlight style
+     * @param isHighlighted      true when the message is highlighted
+     * @return the body to display
+     */
+    CharSequence getTextBody(MessageRow row, @Nullable String pattern, CharacterStyle highLightTextStyle, boolean isHighlighted) {
+        RenderedBody renderedBody = getRenderedBody(row, VectorMessagesAdapter.ROW_TYPE_TEXT);
+        String decorationKey = getDecorationKey(pattern, isHighlighted);
+
+        if (!TextUtils.equals(decorationKey, renderedBody.mDecorationKey)) {
+            // the parsed body is copied, so that the decoration spans are not added to it
+            CharSequence highlighted = mHelper.highlightPattern(new SpannableString((CharSequence) renderedBody.mParsed),
+                    pattern,
+                    highLightTextStyle,
+                    isHighlighted);
+
+            renderedBody = renderedBody.withDecoration(linkify(highlighted, true), decorationKey);
+            putRenderedBody(row, renderedBody);
+        }
+
+        return (CharSequence) renderedBody.mDecorated;
+    }
+
+    /**
+     * Provide the decorated body of an emote row.
+     *
+     * @param row                the row
+     * @param highLightTextStyle the pattern highlight style
+     * @return the body to display
+     */
+    CharSequence getEmoteBody(MessageRow row, CharacterStyle highLightTextStyle) {
+        RenderedBody renderedBody = getRenderedBody(row, VectorMessagesAdapter.ROW_TYPE_EMOTE);
+        // the sender name is part of the decoration, it is updated with the members
+        String senderDisplayName = row.getSenderDisplayName();
+        String decorationKey = getDecorationKey(null, false) + "|" + senderDisplayName;
+
+        if (!TextUtils.equals(decorationKey, renderedBody.mDecorationKey)) {
+            Message message = JsonUtils.toMessage(row.getEvent().getContent());
+            CharSequence body = TextUtils.concat("* ", senderDisplayName, " ", (CharSequence) renderedBody.mParsed);
+            CharSequence highlighted = mHelper.highlightPattern(new SpannableString(body),
+                    null,
+                    highLightTextStyle,
+                    false);
+
+            renderedBody = renderedBody.withDecoration(linkify(highlighted, TextUtils.equals(Message.FORMAT_MATRIX_HTML, message.format)),
+                    decorationKey);
+            putRenderedBody(row, renderedBody);
+        }
+
+        return (CharSequence) renderedBody.mDecorated;
+    }
+
+    /**
+     * Provide the decorated blocks of a code row.
+     *
+     * @param row                the row
+     * @param pattern            the searched pattern
+     * @param highLightTextStyle the pattern highlight style
+     * @param isHighlighted      true when the message is highlighted
+     * @return the blocks to display
+     */
+    @SuppressWarnings("unchecked")
+    List<CodeBlock> getCodeBlocks(MessageRow row, @Nullable String pattern, CharacterStyle highLightTextStyle, boolean isHighlighted) {
+        RenderedBody renderedBody = getRenderedBody(row, VectorMessagesAdapter.ROW_TYPE_CODE);
+        String decorationKey = getDecorationKey(pattern, isHighlighted);
+
+        if (!TextUtils.equals(decorationKey, renderedBody.mDecorationKey)) {
+            List<CodeBlock> decoratedBlocks = new ArrayList<>();
+
+            for (CodeBlock codeBlock : (List<CodeBlock>) renderedBody.mParsed) {
+                if (codeBlock.mIsFenced) {
+                    decoratedBlocks.add(codeBlock);
+                } else {
+                    CharSequence highlighted = mHelper.highlightPattern(new SpannableString(codeBlock.mText),
+                            pattern,
+                            highLightTextStyle,
+                            isHighlighted);
+                    decoratedBlocks.add(new CodeBlock(false, new SpannedString(highlighted)));
+                }
+            }
+
+            renderedBody = renderedBody.withDecoration(Collections.unmodifiableList(decoratedBlocks), decorationKey);
+            putRenderedBody(row, renderedBody);
+        }
+
+        return (List<CodeBlock>) renderedBody.mDecorated;
+    }
+
+    /**
+     * Provide the rendered body of a row, it is parsed on the UI thread if the parse stage has not been done.
+     * A body without valid decorations is not cached, it is cached by the caller once it is decorated.
+     *
+     * @param row      the row
+     * @param viewType the row type
+     * @return the rendered body
+     */
+    private RenderedBody getRenderedBody(MessageRow row, int viewType) {
+        int generation = mGeneration;
+        RenderedBody renderedBody = getValidRenderedBody(row, generation);
+
+        if ((null != renderedBody) && (generation != renderedBody.mGeneration)) {
+            // the decorations are invalid, keep the parsed body
+            renderedBody = new RenderedBody(renderedBody.mEvent, generation, renderedBody.mParsed);
+        } else if (null == renderedBody) {
+            renderedBody = new RenderedBody(row.getEvent(), generation, parse(row, viewType, mUiHtmlToolbox));
+        }
+
+        return renderedBody;
+    }
+
+    private void putRenderedBody(MessageRow row, RenderedBody renderedBody) {
+        if (null != row.getEvent().eventId) {
+            mRenderedBodies.put(row.getEvent().eventId, renderedBody);
+        }
+    }
+
+    /**
+     * Provide the cached rendered body of a row if its parsed body is still valid.
+     *
+     * @param row        the row
+     * @param generation the current generation
+     * @return the rendered body, null if there is none
+     */
+    @Nullable
+    private RenderedBody getValidRenderedBody(MessageRow row, int generation) {
+        Event event = row.getEvent();
+        RenderedBody renderedBody = (null != event.eventId) ? mRenderedBodies.get(event.eventId) : null;
+
+        if ((null != renderedBody) && (renderedBody.mEvent == event) && (renderedBody.mGeneration <= generation)) {
+            return renderedBody;
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse a row body.
+     *
+     * @param row         the row
+     * @param viewType    the row type
+     * @param htmlToolbox the html toolbox to use
+     * @return the parsed body
+     */
+    private Object parse(MessageRow row, int viewType, HtmlToolbox htmlToolbox) {
+        Event event = row.getEvent();
+        int markdownBgColor = TextUtils.equals(mMyUserId, event.getSender()) ? mOutgoingMessageMarkdownBgColor : mIncomingMessageMarkdownBgColor;
+
+        if (VectorMessagesAdapter.ROW_TYPE_CODE == viewType) {
+            return parseCodeBlocks(JsonUtils.toMessage(event.getContent()), markdownBgColor);
+        } else if (VectorMessagesAdapter.ROW_TYPE_EMOTE == viewType) {
+            // the sender name is added by the decoration stage
+            Message message = JsonUtils.toMessage(event.getContent());
+            CharSequence body = (null != message.body) ? message.body : "";
+
+            if (TextUtils.equals(Message.FORMAT_MATRIX_HTML, message.format)) {
+                String htmlString = mHelper.getSanitisedHtml(message.formatted_body);
+
+                if (null != htmlString) {
+                    body = mHelper.convertToHtml(htmlString, markdownBgColor);
+                }
+            }
+
+            return new SpannedString(body);
+        } else {
+            // the row keeps its text, the UI thread and the parse stage must not build it at the same time
+            synchronized (row) {
+                return row.getText(new VectorQuoteSpan(mContext), new RiotEventDisplay(mContext, htmlToolbox));
+            }
+        }
+    }
+
+    /**
+     * Split a code message in blocks and convert them.
+     *
+     * @param message         the message
+     * @param markdownBgColor the markdown blocks background color
+     * @return the code blocks
+     */
+    private List<CodeBlock> parseCodeBlocks(Message message, int markdownBgColor) {
+        List<CodeBlock> codeBlocks = new ArrayList<>();
+
+        for (String block : mHelper.getFencedCodeBlocks(message)) {
+            // Skip empty block
+            if (TextUtils.isEmpty(block)) {
+                continue;
+            }
+
+            if (block.startsWith(VectorMessagesAdapterHelper.START_FENCED_BLOCK) && block.endsWith(VectorMessagesAdapterHelper.END_FENCED_BLOCK)) {
+                // Fenced block
+                final String minusTags = block
+                        .substring(VectorMessagesAdapterHelper.START_FENCED_BLOCK.length(),
+                                block.length() - VectorMessagesAdapterHelper.END_FENCED_BLOCK.length())
+                        .replace("\n", "<br/>")
+                        .replace(" ", "&nbsp;")
+                        .trim();
+
+                codeBlocks.add(new CodeBlock(true, new SpannedString(mHelper.convertToHtml(minusTags, markdownBgColor))));
+            } else {
+                // Not a fenced block
+                String block2 = block.trim();
+                if (TextUtils.equals(Message.FORMAT_MATRIX_HTML, message.format)) {
+                    final String sanitized = mHelper.getSanitisedHtml(block2);
+                    if (sanitized != null) {
+                        block2 = sanitized;
+                    }
+                }
+
+                codeBlocks.add(new CodeBlock(false, new SpannedString(mHelper.convertToHtml(block2, markdownBgColor))));
+            }
+        }
+
+        return Collections.unmodifiableList(codeBlocks);
+    }
+
+    /**
+     * Add the links to a decorated text.
+     *
+     * @param text                the text
+     * @param keepExistingUrlSpan true to keep the existing links
+     * @return the immutable linkified text
+     */
+    private static CharSequence linkify(CharSequence text, boolean keepExistingUrlSpan) {
+        SpannableString spannableText = SpannableString.valueOf(text);
+        VectorLinkifyKt.addVectorCustomLinks(spannableText, keepExistingUrlSpan);
+        return new SpannedString(spannableText);
+    }
+
+    private static String getDecorationKey(@Nullable String pattern, boolean isHighlighted) {
+        return isHighlighted + "|" + (TextUtils.isEmpty(pattern) ? "" : pattern);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int sizeOfRendering(@Nullable Object rendering) {
+        int size = 0;
+
+        if (rendering instanceof CharSequence) {
+            size = ((CharSequence) rendering).length() * 2;
+        } else if (rendering instanceof List) {
+            for (CodeBlock codeBlock : (List<CodeBlock>) rendering) {
+                size += codeBlock.mText.length() * 2;
+            }
+        }
+
+        return size;
+    }
+}
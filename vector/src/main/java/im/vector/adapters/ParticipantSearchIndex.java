@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.adapters;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import im.vector.contacts.Contact;
+import im.vector.settings.VectorLocale;
+import im.vector.util.SearchTokenIndex;
+
+/**
+ * Search index of participant items.
+ * The queries match the same items as {@link ParticipantAdapterItem#startsWith(String)}
+ * and {@link ParticipantAdapterItem#contains(String)}, without browsing all the items.
+ */
+public class ParticipantSearchIndex {
+
+    // the tokens are prefixed by their kind, because each kind has its own prefix rule
+    // the display name, its words and the contact emails
+    private static final String NAME_TOKEN = "n";
+    // the participant matrix id
+    private static final String MATRIX_ID_TOKEN = "m";
+    // the matrix ids linked to the contact emails and phone numbers
+    private static final String CONTACT_MATRIX_ID_TOKEN = "x";
+    // the contact phone numbers
+    private static final String PHONE_NUMBER_TOKEN = "p";
+
+    private final SearchTokenIndex<ParticipantAdapterItem> mIndex = new SearchTokenIndex<>();
+
+    /**
+     * @return the number of indexed items
+     */
+    public int size() {
+        return mIndex.size();
+    }
+
+    /**
+     * Index an item, or refresh it when its fields have been updated.
+     *
+     * @param item the item
+     */
+    public void put(ParticipantAdapterItem item) {
+        Locale locale = VectorLocale.INSTANCE.getApplicationLocale();
+        List<String> tokens = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+
+        if (!TextUtils.isEmpty(item.mDisplayName)) {
+            String lowerCaseDisplayName = item.mDisplayName.toLowerCase(locale);
+
+            tokens.add(NAME_TOKEN + lowerCaseDisplayName);
+            texts.add(lowerCaseDisplayName);
+
+            for (String component : item.mDisplayName.split(" ")) {
+                tokens.add(NAME_TOKEN + component.trim().toLowerCase(locale));
+            }
+        }
+
+        if (!TextUtils.isEmpty(item.mUserId)) {
+            String lowerCaseMatrixId = item.mUserId.toLowerCase(locale);
+
+            tokens.add(MATRIX_ID_TOKEN + lowerCaseMatrixId);
+            texts.add(lowerCaseMatrixId);
+        }
+
+        Contact contact = item.mContact;
+
+        if (null != contact) {
+            // the contact display name falls back to its first email or phone number, which are indexed below
+            String contactDisplayName = contact.getDisplayName();
+
+            if (!TextUtils.isEmpty(contactDisplayName)) {
+                texts.add(contactDisplayName.toLowerCase(locale));
+            }
+
+            for (String email : contact.getEmails()) {
+                tokens.add(NAME_TOKEN + email);
+                texts.add(email);
+            }
+
+            for (Contact.PhoneNumber pn : contact.getPhonenumbers()) {
+                tokens.add(PHONE_NUMBER_TOKEN + pn.mRawPhoneNumber);
+                tokens.add(PHONE_NUMBER_TOKEN + pn.mMsisdnPhoneNumber);
+                tokens.add(PHONE_NUMBER_TOKEN + pn.mCleanedPhoneNumber);
+                texts.add(pn.mRawPhoneNumber.toLowerCase(locale));
+                texts.add(pn.mMsisdnPhoneNumber.toLowerCase(locale));
+
+                if (null != pn.mE164PhoneNumber) {
+                    tokens.add(PHONE_NUMBER_TOKEN + pn.mE164PhoneNumber);
+                    texts.add(pn.mE164PhoneNumber.toLowerCase(locale));
+                }
+            }
+
+            for (String medium : contact.getMatrixIdMediums()) {
+                Contact.MXID mxid = contact.getMXID(medium);
+
+                if ((null != mxid) && (null != mxid.mMatrixId)) {
+                    tokens.add(CONTACT_MATRIX_ID_TOKEN + mxid.mMatrixId);
+                }
+            }
+        }
+
+        mIndex.put(item, tokens, texts);
+    }
+
+    /**
+     * Remove an item.
+     *
+     * @param item the item
+     */
+    public void remove(ParticipantAdapterItem item) {
+        mIndex.remove(item);
+    }
+
+    /**
+     * Remove all the items.
+     */
+    public void clear() {
+        mIndex.clear();
+    }
+
+    /**
+     * Search the items with a display name component, a matrix id, an email or a phone number starting with a prefix.
+     *
+     * @param prefix the lower case prefix
+     * @return the matched items
+     */
+    public Set<ParticipantAdapterItem> startsWith(String prefix) {
+        Set<ParticipantAdapterItem> result = new HashSet<>();
+
+        if (TextUtils.isEmpty(prefix)) {
+            return result;
+        }
+
+        mIndex.searchByPrefix(NAME_TOKEN + prefix, result);
+        mIndex.searchByPrefix(MATRIX_ID_TOKEN + (prefix.startsWith("@") ? "" : "@") + prefix, result);
+        mIndex.searchByPrefix(CONTACT_MATRIX_ID_TOKEN + "@" + prefix, result);
+
+        // Remove the "+" and spaces from the prefix if there is any
+        String cleanPrefix = prefix.replaceAll("\\s", "");
+        if (cleanPrefix.startsWith("+")) {
+            cleanPrefix = cleanPrefix.substring(1);
+        }
+        mIndex.searchByPrefix(PHONE_NUMBER_TOKEN + cleanPrefix, result);
+
+        return result;
+    }
+
+    /**
+     * Search the items with a display name, a matrix id, an email or a phone number containing a pattern.
+     *
+     * @param pattern the lower case pattern
+     * @return the matched items
+     */
+    public Set<ParticipantAdapterItem> contains(String pattern) {
+        return mIndex.searchBySubstring(pattern);
+    }
+}
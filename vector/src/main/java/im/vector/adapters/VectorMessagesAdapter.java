@@ -27,8 +27,6 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.text.Html;
-import android.text.Spannable;
-import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
@@ -49,6 +47,7 @@ import android.view.WindowManager;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.widget.ImageView;
+import android.widget.ListView;
 import android.widget.LinearLayout;
 import android.widget.PopupMenu;
 import android.widget.RelativeLayout;
@@ -91,16 +90,21 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import androidx.core.content.res.ResourcesCompat;
 import fr.gouv.tchap.media.MediaScanManager;
@@ -112,14 +116,16 @@ import im.vector.VectorApp;
 import im.vector.extensions.MatrixSdkExtensionsKt;
 import im.vector.listeners.IMessagesAdapterActionsListener;
 import im.vector.settings.VectorLocale;
-import im.vector.ui.VectorQuoteSpan;
 import im.vector.ui.themes.ThemeUtils;
+import im.vector.util.DayIndex;
 import im.vector.util.EmojiKt;
 import im.vector.util.EventGroup;
 import im.vector.util.MatrixLinkMovementMethod;
 import im.vector.util.MatrixURLSpan;
 import im.vector.util.PreferencesManager;
 import im.vector.util.RiotEventDisplay;
+import im.vector.util.SettingsSnapshot;
+import im.vector.util.TimestampIndex;
 import im.vector.util.VectorImageGetter;
 import im.vector.util.VectorLinkifyKt;
 import im.vector.widgets.WidgetsManager;
@@ -136,12 +142,21 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
     // events listeners
     protected IMessagesAdapterActionsListener mVectorMessagesAdapterEventsListener = null;
 
-    // current date : used to compute the day header
-    protected Date mReferenceDate = new Date();
+    // the local day of each row, in the rows order
+    private final DayIndex mDayIndex = new DayIndex();
 
-    // day date of each message
-    // the hours, minutes and seconds are removed
-    protected List<Date> mMessagesDateList = new ArrayList<>();
+    // the day headers texts by epoch day, they are valid until the day changes
+    private final Map<Long, String> mDayHeaders = new HashMap<>();
+    private long mDayHeadersToday;
+
+    // the day headers formatters
+    private SimpleDateFormat mWeekDayFormat;
+    private StringBuilder mDateRangeBuilder;
+    private Formatter mDateRangeFormatter;
+
+    // the rows which were not sent when they have been added
+    // they are moved to the end of the history when their sending fails
+    private final Set<MessageRow> mUnsentRows = new LinkedHashSet<>();
 
     // when the adapter is used in search mode
     // the searched message should be highlighted
@@ -183,6 +198,15 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
     static final int ROW_TYPE_MEDIA_SCAN = 13;
     static final int NUM_ROW_TYPES = 14;
 
+    // the rows changes which can be refreshed without refreshing the whole list (see refreshRows)
+    public static final int PAYLOAD_DECRYPTED = 1;
+    public static final int PAYLOAD_SENT_STATE = 1 << 1;
+    public static final int PAYLOAD_READ_RECEIPTS = 1 << 2;
+    public static final int PAYLOAD_MEDIA_SCAN = 1 << 3;
+    public static final int PAYLOAD_TAGS = 1 << 4;
+    public static final int PAYLOAD_MEMBERS = 1 << 5;
+    public static final int PAYLOAD_BODY = 1 << 6;
+
     protected final Context mContext;
     private final Map<Integer, Integer> mRowTypeToLayoutId = new HashMap<>();
     final LayoutInflater mLayoutInflater;
@@ -191,8 +215,20 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
     // when the current user sends one but it will also come down the event stream
     private final Map<String, MessageRow> mEventRowMap = new HashMap<>();
 
+    // the rows of mEventRowMap sorted by timestamp (the EventGroup rows are not indexed)
+    // it is used to find the closest row of an unknown event
+    private final TimestampIndex<MessageRow> mEventRowTsIndex = new TimestampIndex<>();
+
     private final Map<String, Integer> mEventType = new HashMap<>();
 
+    // the stable id of each row, the rows keep their id when they are moved or when their event id is updated
+    private final Map<MessageRow, Long> mRowIds = new WeakHashMap<>();
+    private long mNextRowId = 0;
+
+    // the list view which displays the rows
+    @Nullable
+    private ListView mMessageListView;
+
     // the message text colors
     private final int mDefaultMessageTextColor;
     private final int mNotSentMessageTextColor;
@@ -244,44 +280,8 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
 
     private VectorImageGetter mImageGetter;
 
-    private HtmlToolbox mHtmlToolbox = new HtmlToolbox() {
-        HtmlTagHandler mHtmlTagHandler;
-
-        @Override
-        public String convert(String html) {
-            String sanitised = mHelper.getSanitisedHtml(html);
-
-            if (sanitised != null) {
-                return sanitised;
-            }
-
-            return html;
-        }
-
-        @Nullable
-        @Override
-        public Html.ImageGetter getImageGetter() {
-            return mImageGetter;
-        }
-
-        @Nullable
-        @Override
-        public Html.TagHandler getTagHandler(String html) {
-            // the markdown tables are not properly supported
-            boolean isCustomizable = !html.contains("<table>");
-
-            if (isCustomizable) {
-                if (mHtmlTagHandler == null) {
-                    mHtmlTagHandler = new HtmlTagHandler();
-                    mHtmlTagHandler.mContext = mContext;
-                    mHtmlTagHandler.setCodeBlockBackgroundColor(ThemeUtils.INSTANCE.getColor(mContext, R.attr.vctr_markdown_block_background_color));
-                }
-                return mHtmlTagHandler;
-            }
-
-            return null;
-        }
-    };
+    // render the text messages bodies
+    private final MessageBodyRenderer mBodyRenderer;
 
     /**
      * Creates a messages adapter with the default layouts.
@@ -397,11 +397,67 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         mMediasHelper = new VectorMessagesAdapterMediasHelper(context,
                 mSession, mMaxImageWidth, mMaxImageHeight, mNotSentMessageTextColor, mDefaultMessageTextColor);
         mHelper = new VectorMessagesAdapterHelper(context, mSession, this);
+        mBodyRenderer = new MessageBodyRenderer(context,
+                mHelper,
+                createHtmlToolbox(),
+                createHtmlToolbox(),
+                mSession.getMyUserId(),
+                mIncomingMessageMarkdownBgColor,
+                mOutgoingMessageMarkdownBgColor);
 
         mLocale = VectorLocale.INSTANCE.getApplicationLocale();
 
-        mAlwaysShowTimeStamps = PreferencesManager.alwaysShowTimeStamps(VectorApp.getInstance());
-        mShowReadReceipts = PreferencesManager.showReadReceipts(VectorApp.getInstance());
+        SettingsSnapshot settings = PreferencesManager.getSettings(VectorApp.getInstance());
+        mAlwaysShowTimeStamps = settings.alwaysShowTimeStamps;
+        mShowReadReceipts = settings.showReadReceipts;
+    }
+
+    /**
+     * Create an html toolbox.
+     * A toolbox is not thread safe, so each rendering thread must use its own instance.
+     *
+     * @return a new html toolbox
+     */
+    private HtmlToolbox createHtmlToolbox() {
+        return new HtmlToolbox() {
+            // the markdown tables are not properly supported
+            private final HtmlTagHandler mHtmlTagHandler = new HtmlTagHandler();
+
+            {
+                mHtmlTagHandler.mContext = mContext;
+                mHtmlTagHandler.setCodeBlockBackgroundColor(ThemeUtils.INSTANCE.getColor(mContext, R.attr.vctr_markdown_block_background_color));
+            }
+
+            @Override
+            public String convert(String html) {
+                String sanitised = mHelper.getSanitisedHtml(html);
+
+                if (sanitised != null) {
+                    return sanitised;
+                }
+
+                return html;
+            }
+
+            @Nullable
+            @Override
+            public Html.ImageGetter getImageGetter() {
+                return mImageGetter;
+            }
+
+            @Nullable
+            @Override
+            public Html.TagHandler getTagHandler(String html) {
+                // the markdown tables are not properly supported
+                boolean isCustomizable = !html.contains("<table>");
+
+                if (isCustomizable) {
+                    return mHtmlTagHandler;
+                }
+
+                return null;
+            }
+        };
     }
 
     /*
@@ -501,15 +557,23 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                 insert(row, (!addToEventGroupToFront(row)) ? 0 : 1);
             }
 
+            if (!row.getEvent().isSent()) {
+                mUnsentRows.add(row);
+            }
+
             if (row.getEvent().eventId != null) {
-                mEventRowMap.put(row.getEvent().eventId, row);
+                putEventRow(row.getEvent().eventId, row);
             }
+
+            mBodyRenderer.prerender(row, getItemViewType(row.getEvent()));
         }
     }
 
     @Override
     public void remove(MessageRow row) {
         if (null != row) {
+            mUnsentRows.remove(row);
+
             if (mIsSearchMode) {
                 mLiveMessagesRowList.remove(row);
             } else {
@@ -519,7 +583,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                 int position = getPosition(row);
 
                 // remove it
-                super.remove(row);
+                removeRow(row);
 
                 // check merge
                 checkEventGroupsMerge(row, position);
@@ -543,13 +607,19 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                 mLiveMessagesRowList.add(row);
             } else {
                 addToEventGroup(row);
-                super.add(row);
+                appendRow(row);
+            }
+
+            if (!row.getEvent().isSent()) {
+                mUnsentRows.add(row);
             }
 
             if (row.getEvent().eventId != null) {
-                mEventRowMap.put(row.getEvent().eventId, row);
+                putEventRow(row.getEvent().eventId, row);
             }
 
+            mBodyRenderer.prerender(row, getItemViewType(row.getEvent()));
+
             if ((!mIsSearchMode) && refresh) {
                 notifyDataSetChanged();
             } else {
@@ -581,26 +651,11 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         MessageRow messageRow = getMessageRow(eventId);
 
         if (messageRow == null) {
-            List<MessageRow> rows = new ArrayList<>(mEventRowMap.values());
+            // the closest row received after eventTs (from)
+            messageRow = mEventRowTsIndex.higher(eventTs);
 
-            // loop because the list is not sorted
-            for (MessageRow row : rows) {
-                if (!(row.getEvent() instanceof EventGroup)) {
-                    long rowTs = row.getEvent().getOriginServerTs();
-
-                    // check if the row event has been received after eventTs (from)
-                    if (rowTs > eventTs) {
-                        // not yet initialised
-                        if (messageRow == null) {
-                            messageRow = row;
-                        }
-                        // keep the closest row
-                        else if (rowTs < messageRow.getEvent().getOriginServerTs()) {
-                            messageRow = row;
-                            Log.d(LOG_TAG, "## getClosestRowFromTs() " + row.getEvent().eventId);
-                        }
-                    }
-                }
+            if (messageRow != null) {
+                Log.d(LOG_TAG, "## getClosestRowFromTs() " + messageRow.getEvent().eventId);
             }
         }
 
@@ -612,26 +667,11 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         MessageRow messageRow = getMessageRow(eventId);
 
         if (messageRow == null) {
-            List<MessageRow> rows = new ArrayList<>(mEventRowMap.values());
+            // the closest row received before eventTs (from)
+            messageRow = mEventRowTsIndex.lower(eventTs);
 
-            // loop because the list is not sorted
-            for (MessageRow row : rows) {
-                if (!(row.getEvent() instanceof EventGroup)) {
-                    long rowTs = row.getEvent().getOriginServerTs();
-
-                    // check if the row event has been received before eventTs (from)
-                    if (rowTs < eventTs) {
-                        // not yet initialised
-                        if (messageRow == null) {
-                            messageRow = row;
-                        }
-                        // keep the closest row
-                        else if (rowTs > messageRow.getEvent().getOriginServerTs()) {
-                            messageRow = row;
-                            Log.d(LOG_TAG, "## getClosestRowBeforeTs() " + row.getEvent().eventId);
-                        }
-                    }
-                }
+            if (messageRow != null) {
+                Log.d(LOG_TAG, "## getClosestRowBeforeTs() " + messageRow.getEvent().eventId);
             }
         }
 
@@ -647,8 +687,10 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             MessageRow oldRow = mEventRowMap.get(oldEventId);
 
             if (null != oldRow) {
-                mEventRowMap.remove(oldEventId);
-                mEventRowMap.put(event.eventId, oldRow);
+                // the row keeps its event and its timestamp, only its key changes
+                removeEventRow(oldEventId);
+                putEventRow(event.eventId, oldRow);
+                refreshRowDay(oldRow);
             }
         } else {
             // the eventId already exists
@@ -669,7 +711,44 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
 
         if (row != null) {
             remove(row);
-            mEventRowMap.remove(eventId);
+            removeEventRow(eventId);
+        }
+    }
+
+    /**
+     * Register a row in the events map and in the timestamps index.
+     *
+     * @param eventId the event id
+     * @param row     the message row
+     */
+    private void putEventRow(String eventId, MessageRow row) {
+        MessageRow prevRow = mEventRowMap.put(eventId, row);
+
+        if (null != prevRow) {
+            unindexEventRow(prevRow);
+        }
+
+        if (!(row.getEvent() instanceof EventGroup)) {
+            mEventRowTsIndex.add(row.getEvent().getOriginServerTs(), row);
+        }
+    }
+
+    /**
+     * Remove a row from the events map and from the timestamps index.
+     *
+     * @param eventId the event id
+     */
+    private void removeEventRow(String eventId) {
+        MessageRow row = mEventRowMap.remove(eventId);
+
+        if (null != row) {
+            unindexEventRow(row);
+        }
+    }
+
+    private void unindexEventRow(MessageRow row) {
+        if (!(row.getEvent() instanceof EventGroup)) {
+            mEventRowTsIndex.remove(row.getEvent().getOriginServerTs(), row);
         }
     }
 
@@ -738,11 +817,169 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
     @Override
     public void clear() {
         super.clear();
+
+        synchronized (this) {
+            mDayIndex.clear();
+        }
+
         if (!mIsSearchMode) {
             mEventRowMap.clear();
+            mEventRowTsIndex.clear();
+            mUnsentRows.clear();
         }
     }
 
+    @Override
+    public void insert(MessageRow row, int index) {
+        super.insert(row, index);
+
+        synchronized (this) {
+            mDayIndex.insert(index, getIndexedTs(row));
+        }
+    }
+
+    @Override
+    public void addAll(Collection<? extends MessageRow> rows) {
+        super.addAll(rows);
+        onRowsAppended(rows);
+    }
+
+    @Override
+    public void addAll(MessageRow... rows) {
+        super.addAll(rows);
+        onRowsAppended(Arrays.asList(rows));
+    }
+
+    @Override
+    public void sort(Comparator<? super MessageRow> comparator) {
+        super.sort(comparator);
+        rebuildDayIndex();
+    }
+
+    /**
+     * Append a row without any other processing.
+     *
+     * @param row the row
+     */
+    private void appendRow(MessageRow row) {
+        super.add(row);
+
+        synchronized (this) {
+            mDayIndex.add(getIndexedTs(row));
+        }
+    }
+
+    /**
+     * Remove a row without any other processing.
+     *
+     * @param row the row
+     */
+    private void removeRow(MessageRow row) {
+        int position = getPosition(row);
+
+        if (position >= 0) {
+            super.remove(row);
+
+            synchronized (this) {
+                mDayIndex.remove(position);
+            }
+        }
+    }
+
+    /**
+     * Update the days index and the unsent rows after some rows have been appended.
+     *
+     * @param rows the appended rows
+     */
+    private void onRowsAppended(Collection<? extends MessageRow> rows) {
+        synchronized (this) {
+            for (MessageRow row : rows) {
+                mDayIndex.add(getIndexedTs(row));
+            }
+        }
+
+        for (MessageRow row : rows) {
+            if (!row.getEvent().isSent()) {
+                mUnsentRows.add(row);
+            }
+        }
+    }
+
+    /**
+     * Update the day of a row after its timestamp has been updated.
+     *
+     * @param row the row
+     */
+    private void refreshRowDay(MessageRow row) {
+        int position = getPosition(row);
+
+        if (position >= 0) {
+            synchronized (this) {
+                if (position < mDayIndex.size()) {
+                    mDayIndex.set(position, getIndexedTs(row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the day of an EventGroup row, its timestamp is the one of its first row.
+     *
+     * @param eventGroupRow the EventGroup row
+     * @param position      its position
+     */
+    private void refreshGroupDay(MessageRow eventGroupRow, int position) {
+        synchronized (this) {
+            if ((position >= 0) && (position < mDayIndex.size())) {
+                mDayIndex.set(position, getIndexedTs(eventGroupRow));
+            }
+        }
+    }
+
+    /**
+     * Rebuild the days index from the rows.
+     */
+    private synchronized void rebuildDayIndex() {
+        mDayIndex.clear();
+
+        for (int index = 0; index < getCount(); index++) {
+            mDayIndex.add(getIndexedTs(getItem(index)));
+        }
+    }
+
+    /**
+     * Provide the timestamp used to compute the day of a row.
+     *
+     * @param row the row
+     * @return the timestamp, DayIndex.NO_TIMESTAMP when it is not valid
+     */
+    private static long getIndexedTs(MessageRow row) {
+        Event event = row.getEvent();
+        return event.isValidOriginServerTs() ? event.getOriginServerTs() : DayIndex.NO_TIMESTAMP;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (position >= getCount()) {
+            return -1;
+        }
+
+        MessageRow row = getItem(position);
+        Long rowId = mRowIds.get(row);
+
+        if (null == rowId) {
+            rowId = mNextRowId++;
+            mRowIds.put(row, rowId);
+        }
+
+        return rowId;
+    }
+
     @Override
     public int getItemViewType(int position) {
         // GA Crash
@@ -839,46 +1076,72 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
     public void notifyDataSetChanged() {
         // undelivered events must be pushed at the end of the history
         setNotifyOnChange(false);
-        List<MessageRow> undeliverableEvents = new ArrayList<>();
+        moveUndeliveredRowsToTail();
+        setNotifyOnChange(true);
 
-        for (int i = 0; i < getCount(); i++) {
-            MessageRow row = getItem(i);
+        //manageDeviceInfoOfCryptoEvents();
+
+        //  do not refresh the room when the application is in background
+        // on large rooms, it drains a lot of battery
+        if (!VectorApp.isAppInBackground()) {
+            super.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Push the undelivered events at the end of the history, sorted by timestamp.
+     * Only the rows which were not sent when they have been added are checked.
+     */
+    private void moveUndeliveredRowsToTail() {
+        if (mUnsentRows.isEmpty()) {
+            return;
+        }
+
+        List<MessageRow> undeliverableRows = new ArrayList<>();
+        Iterator<MessageRow> iterator = mUnsentRows.iterator();
+
+        while (iterator.hasNext()) {
+            MessageRow row = iterator.next();
             Event event = row.getEvent();
 
-            if ((null != event) && (event.isUndelivered() || event.isUnknownDevice())) {
-                undeliverableEvents.add(row);
-                remove(row);
-                i--;
+            if (event.isUndelivered() || event.isUnknownDevice()) {
+                undeliverableRows.add(row);
+            } else if (event.isSent()) {
+                // a sent event is never moved
+                iterator.remove();
             }
         }
 
-        if (undeliverableEvents.size() > 0) {
-            try {
-                Collections.sort(undeliverableEvents, new Comparator<MessageRow>() {
-                    @Override
-                    public int compare(MessageRow m1, MessageRow m2) {
-                        long diff = m1.getEvent().getOriginServerTs() - m2.getEvent().getOriginServerTs();
-                        return (diff > 0) ? +1 : ((diff < 0) ? -1 : 0);
-                    }
-                });
-            } catch (Exception e) {
-                Log.e(LOG_TAG, "## notifyDataSetChanged () : failed to sort undeliverableEvents " + e.getMessage(), e);
-            }
+        if (undeliverableRows.isEmpty()) {
+            return;
+        }
 
-            addAll(undeliverableEvents);
+        try {
+            Collections.sort(undeliverableRows, new Comparator<MessageRow>() {
+                @Override
+                public int compare(MessageRow m1, MessageRow m2) {
+                    long diff = m1.getEvent().getOriginServerTs() - m2.getEvent().getOriginServerTs();
+                    return (diff > 0) ? +1 : ((diff < 0) ? -1 : 0);
+                }
+            });
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## moveUndeliveredRowsToTail () : failed to sort undeliverableRows " + e.getMessage(), e);
         }
 
-        setNotifyOnChange(true);
+        // check if they are already at the end of the history
+        int tailStart = getCount() - undeliverableRows.size();
+        boolean isInPlace = (tailStart >= 0);
 
-        // build event -> date list
-        refreshRefreshDateList();
+        for (int i = 0; isInPlace && (i < undeliverableRows.size()); i++) {
+            isInPlace = (getItem(tailStart + i) == undeliverableRows.get(i));
+        }
 
-        //manageDeviceInfoOfCryptoEvents();
+        if (!isInPlace) {
+            for (MessageRow row : undeliverableRows) {
+                remove(row);
+            }
 
-        //  do not refresh the room when the application is in background
-        // on large rooms, it drains a lot of battery
-        if (!VectorApp.isAppInBackground()) {
-            super.notifyDataSetChanged();
+            addAll(undeliverableRows);
         }
     }
 
@@ -895,8 +1158,110 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             mLiveRoomMembers.put(roomMember.getUserId(), roomMember);
         }
 
+        // the pills display the members names
+        mBodyRenderer.invalidateDecorations();
+
         // Update the Ui (ex: read receipt avatar)
-        notifyDataSetChanged();
+        if (!refreshRows(null, PAYLOAD_MEMBERS)) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Set the list view which displays the rows, it is used to refresh some rows only.
+     *
+     * @param listView the list view
+     */
+    public void setMessageListView(@Nullable ListView listView) {
+        mMessageListView = listView;
+    }
+
+    /**
+     * Rebind the displayed rows impacted by some changes, instead of refreshing the whole list.
+     * The hidden rows are bound with their updated content when they are displayed.
+     *
+     * @param eventIds the updated events ids, null to rebind all the displayed rows
+     * @param payload  the changes, a combination of PAYLOAD_XXX
+     * @return false when the whole list must be refreshed (the rows order or a row type has been updated)
+     */
+    public boolean refreshRows(@Nullable Collection<String> eventIds, int payload) {
+        ListView listView = mMessageListView;
+
+        if (null == listView) {
+            return false;
+        }
+
+        if (null != eventIds) {
+            for (String eventId : eventIds) {
+                MessageRow row = mEventRowMap.get(eventId);
+
+                if (null != row) {
+                    Event event = row.getEvent();
+
+                    // the undelivered events are moved to the end of the history
+                    if (((payload & PAYLOAD_SENT_STATE) != 0) && (event.isUndelivered() || event.isUnknownDevice())) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        int firstPosition = listView.getFirstVisiblePosition() - listView.getHeaderViewsCount();
+
+        for (int index = 0; index < listView.getChildCount(); index++) {
+            View child = listView.getChildAt(index);
+            int position = firstPosition + index;
+
+            // ignore the headers and the footers
+            if ((position < 0) || (position >= getCount()) || !(child.getTag() instanceof Integer)) {
+                continue;
+            }
+
+            if ((null == eventIds) || isRowImpacted(getItem(position), eventIds)) {
+                // the row layout has been updated (an event has been decrypted...)
+                if ((getItemViewType(position) != (int) child.getTag()) || (getView(position, child, listView) != child)) {
+                    return false;
+                }
+            }
+        }
+
+        // the bodies of the hidden rows can be rendered now
+        if ((null != eventIds) && ((payload & PAYLOAD_DECRYPTED) != 0)) {
+            for (String eventId : eventIds) {
+                MessageRow row = mEventRowMap.get(eventId);
+
+                if (null != row) {
+                    mBodyRenderer.prerender(row, getItemViewType(row.getEvent()));
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Tell if a row displays some events.
+     *
+     * @param row      the row
+     * @param eventIds the events ids
+     * @return true if the row displays one of them
+     */
+    private static boolean isRowImpacted(MessageRow row, Collection<String> eventIds) {
+        Event event = row.getEvent();
+
+        if (eventIds.contains(event.eventId)) {
+            return true;
+        }
+
+        if (event instanceof EventGroup) {
+            for (String eventId : eventIds) {
+                if (((EventGroup) event).contains(eventId)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
     }
 
     /**
@@ -1260,7 +1625,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             final List<TextView> textViews;
 
             if (ROW_TYPE_CODE == viewType) {
-                textViews = populateRowTypeCode(message, convertView, shouldHighlighted, isOutgoingMsg);
+                textViews = populateRowTypeCode(row, convertView, shouldHighlighted, isOutgoingMsg);
             } else {
                 final TextView bodyTextView = convertView.findViewById(R.id.messagesAdapter_body);
 
@@ -1270,8 +1635,6 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                     return convertView;
                 }
 
-                EventDisplay display = new RiotEventDisplay(mContext, mHtmlToolbox);
-
                 final String sessionId = MatrixSdkExtensionsKt.getSessionId(event);
                 if (sessionId != null) {
                     // Check whether the decryption failed for this event because its session was unknown.
@@ -1287,17 +1650,13 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                     }
                 }
 
-                Spannable body = row.getText(new VectorQuoteSpan(mContext), display);
-
-                CharSequence result = mHelper.highlightPattern(body,
-                        mPattern,
-                        mBackgroundColorSpan,
-                        shouldHighlighted);
+                // the body has been rendered in background when the row was added
+                CharSequence result = mBodyRenderer.getTextBody(row, mPattern, mBackgroundColorSpan, shouldHighlighted);
 
                 bodyTextView.setText(result);
 
                 mHelper.applyLinkMovementMethod(bodyTextView);
-                VectorLinkifyKt.vectorCustomLinkify(bodyTextView, true);
+                VectorLinkifyKt.addLinkMovementMethod(bodyTextView);
                 textViews = new ArrayList<>();
                 textViews.add(bodyTextView);
             }
@@ -1337,7 +1696,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
      * For ROW_TYPE_CODE message which may contain mixture of
      * fenced and inline code blocks and non-code (issue 145)
      */
-    private List<TextView> populateRowTypeCode(final Message message,
+    private List<TextView> populateRowTypeCode(final MessageRow row,
                                                final View convertView,
                                                final boolean shouldHighlighted,
                                                final boolean isOutgoingMsg) {
@@ -1347,27 +1706,15 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         // remove older blocks
         container.removeAllViews();
 
-        final String[] blocks = mHelper.getFencedCodeBlocks(message);
+        // the blocks have been rendered in background when the row was added
+        final List<MessageBodyRenderer.CodeBlock> blocks = mBodyRenderer.getCodeBlocks(row, mPattern, mBackgroundColorSpan, shouldHighlighted);
 
-        for (final String block : blocks) {
-            // Skip empty block
-            if (TextUtils.isEmpty(block)) {
-                continue;
-            }
-
-            if (block.startsWith(VectorMessagesAdapterHelper.START_FENCED_BLOCK) && block.endsWith(VectorMessagesAdapterHelper.END_FENCED_BLOCK)) {
+        for (final MessageBodyRenderer.CodeBlock block : blocks) {
+            if (block.mIsFenced) {
                 // Fenced block
-                final String minusTags = block
-                        .substring(VectorMessagesAdapterHelper.START_FENCED_BLOCK.length(),
-                                block.length() - VectorMessagesAdapterHelper.END_FENCED_BLOCK.length())
-                        .replace("\n", "<br/>")
-                        .replace(" ", "&nbsp;")
-                        .trim();
-
-                final CharSequence htmlReady = mHelper.convertToHtml(minusTags, isOutgoingMsg ? mOutgoingMessageMarkdownBgColor : mIncomingMessageMarkdownBgColor);
                 final View blockView = mLayoutInflater.inflate(R.layout.adapter_item_vector_message_code_block, null);
                 final TextView tv = blockView.findViewById(R.id.messagesAdapter_body);
-                tv.setText(htmlReady);
+                tv.setText(block.mText);
 
                 mHelper.highlightFencedCode(tv, isOutgoingMsg ? mOutgoingMessageMarkdownBgColor : mIncomingMessageMarkdownBgColor);
                 mHelper.applyLinkMovementMethod(tv);
@@ -1379,19 +1726,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             } else {
                 // Not a fenced block
                 final TextView tv = (TextView) mLayoutInflater.inflate(R.layout.adapter_item_vector_message_code_text, null);
-                String block2 = block.trim();
-                if (TextUtils.equals(Message.FORMAT_MATRIX_HTML, message.format)) {
-                    final String sanitized = mHelper.getSanitisedHtml(block2);
-                    if (sanitized != null) {
-                        block2 = sanitized;
-                    }
-                }
-                final CharSequence sequence = mHelper.convertToHtml(block2, isOutgoingMsg ? mOutgoingMessageMarkdownBgColor : mIncomingMessageMarkdownBgColor);
-                final CharSequence strBuilder = mHelper.highlightPattern(new SpannableString(sequence),
-                        mPattern,
-                        mBackgroundColorSpan,
-                        shouldHighlighted);
-                tv.setText(strBuilder);
+                tv.setText(block.mText);
                 mHelper.applyLinkMovementMethod(tv);
                 container.addView(tv);
                 textViews.add(tv);
@@ -1492,7 +1827,11 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             CharSequence notice;
 
             EventDisplay display = new RiotEventDisplay(mContext);
-            notice = row.getText(null, display);
+
+            // the parse stage of the message body renderer may build the row text at the same time
+            synchronized (row) {
+                notice = row.getText(null, display);
+            }
 
             TextView noticeTextView = convertView.findViewById(R.id.messagesAdapter_body);
 
@@ -1565,24 +1904,10 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
 
             Message message = JsonUtils.toMessage(event.getContent());
 
-            CharSequence body = "* " + row.getSenderDisplayName() + " " + message.body;
-
-            boolean isCustomHtml = TextUtils.equals(Message.FORMAT_MATRIX_HTML, message.format);
-            if (isCustomHtml) {
-                String htmlString = mHelper.getSanitisedHtml(message.formatted_body);
-
-                if (null != htmlString) {
-                    CharSequence sequence = mHelper.convertToHtml(htmlString, isOutgoingMsg ? mOutgoingMessageMarkdownBgColor : mIncomingMessageMarkdownBgColor);
-
-                    body = TextUtils.concat("* ", row.getSenderDisplayName(), " ", sequence);
-                }
-            }
-
-            CharSequence strBuilder = mHelper.highlightPattern(new SpannableString(body), null, mBackgroundColorSpan, false);
-
-            emoteTextView.setText(strBuilder);
+            // the body has been rendered in background when the row was added
+            emoteTextView.setText(mBodyRenderer.getEmoteBody(row, mBackgroundColorSpan));
             mHelper.applyLinkMovementMethod(emoteTextView);
-            VectorLinkifyKt.vectorCustomLinkify(emoteTextView, isCustomHtml);
+            VectorLinkifyKt.addLinkMovementMethod(emoteTextView);
 
             int textColor;
 
@@ -1959,7 +2284,10 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             // the message is displayed as sent event if the echo has not been received
             // it avoids displaying a pending message whereas the message has been sent
             if (event.getAge() == Event.DUMMY_EVENT_AGE) {
-                currentRow.updateEvent(event);
+                // the row text is reset
+                synchronized (currentRow) {
+                    currentRow.updateEvent(event);
+                }
                 Log.d(LOG_TAG, "## isSupportedRow() : update the timestamp of " + eventId);
             } else {
                 Log.e(LOG_TAG, "## isSupportedRow() : the event " + eventId + " has already been received");
@@ -1976,8 +2304,9 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         if (isSupported && TextUtils.equals(event.getType(), Event.EVENT_TYPE_STATE_ROOM_MEMBER)) {
             RoomMember roomMember = JsonUtils.toRoomMember(event.getContent());
             String membership = roomMember.membership;
+            SettingsSnapshot settings = PreferencesManager.getSettings(mContext);
 
-            if (!PreferencesManager.showJoinLeaveMessages(mContext)
+            if (!settings.showJoinLeaveMessages
                     && (TextUtils.equals(membership, RoomMember.MEMBERSHIP_LEAVE) || TextUtils.equals(membership, RoomMember.MEMBERSHIP_JOIN))) {
                 // Check whether this is an actual leave or join event
                 // (in this case the membership has changed compare to the prev-content).
@@ -1991,7 +2320,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             }
 
             if (isSupported
-                    && !PreferencesManager.showAvatarDisplayNameChangeMessages(mContext)
+                    && !settings.showAvatarDisplayNameChangeMessages
                     && TextUtils.equals(membership, RoomMember.MEMBERSHIP_JOIN)) {
                 EventContent eventContent = JsonUtils.toEventContent(event.getContentAsJsonObject());
                 EventContent prevEventContent = event.getPrevContent();
@@ -2048,32 +2377,6 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         return res;
     }
 
-    /**
-     * Refresh the messages date list
-     */
-    private void refreshRefreshDateList() {
-        // build messages timestamps
-        List<Date> dates = new ArrayList<>();
-
-        Date latestDate = AdapterUtils.zeroTimeDate(new Date());
-
-        for (int index = 0; index < getCount(); index++) {
-            MessageRow row = getItem(index);
-            Event event = row.getEvent();
-
-            if (event.isValidOriginServerTs()) {
-                latestDate = AdapterUtils.zeroTimeDate(new Date(event.getOriginServerTs()));
-            }
-
-            dates.add(latestDate);
-        }
-
-        synchronized (this) {
-            mMessagesDateList = dates;
-            mReferenceDate = new Date();
-        }
-    }
-
     /**
      * Converts a difference of days to a string.
      *
@@ -2087,7 +2390,11 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         } else if (nbrDays == 1) {
             return mContext.getString(R.string.yesterday);
         } else if (nbrDays < 7) {
-            return (new SimpleDateFormat("EEEE", mLocale)).format(date);
+            if (null == mWeekDayFormat) {
+                mWeekDayFormat = new SimpleDateFormat("EEEE", mLocale);
+            }
+
+            return mWeekDayFormat.format(date);
         } else {
             int flags = DateUtils.FORMAT_SHOW_DATE |
                     // Tchap: hide the year because the max retention period is one year
@@ -2095,9 +2402,64 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                     DateUtils.FORMAT_ABBREV_ALL |
                     DateUtils.FORMAT_SHOW_WEEKDAY;
 
-            Formatter f = new Formatter(new StringBuilder(50), mLocale);
-            return DateUtils.formatDateRange(mContext, f, date.getTime(), date.getTime(), flags).toString();
+            if (null == mDateRangeFormatter) {
+                mDateRangeBuilder = new StringBuilder(50);
+                mDateRangeFormatter = new Formatter(mDateRangeBuilder, mLocale);
+            }
+
+            mDateRangeBuilder.setLength(0);
+            return DateUtils.formatDateRange(mContext, mDateRangeFormatter, date.getTime(), date.getTime(), flags).toString();
+        }
+    }
+
+    /**
+     * Provide the day text of an epoch day.
+     * The texts are cached until the current day changes.
+     *
+     * @param day   the epoch day
+     * @param today the current epoch day
+     * @return the day text
+     */
+    private String getDayText(long day, long today) {
+        if (today != mDayHeadersToday) {
+            mDayHeaders.clear();
+            mDayHeadersToday = today;
+        }
+
+        String text = mDayHeaders.get(day);
+
+        if (null == text) {
+            text = dateDiff(new Date(mDayIndex.toTimestamp(day)), today - day);
+            mDayHeaders.put(day, text);
+        }
+
+        return text;
+    }
+
+    /**
+     * Provide the day text of the item at position.
+     *
+     * @param position the event position
+     * @return the day text, null if the position is not valid
+     */
+    protected String dayMessage(int position) {
+        long today = mDayIndex.toDay(System.currentTimeMillis());
+        long day;
+
+        synchronized (this) {
+            if (mDayIndex.size() != getCount()) {
+                rebuildDayIndex();
+            }
+
+            // sanity check
+            if ((position < 0) || (position >= mDayIndex.size())) {
+                return null;
+            }
+
+            day = mDayIndex.getDay(position, today);
         }
+
+        return getDayText(day, today);
     }
 
     /**
@@ -2108,29 +2470,28 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
      * @return the header
      */
     protected String headerMessage(int position) {
-        Date prevMessageDate = null;
-        Date messageDate = null;
+        long today = mDayIndex.toDay(System.currentTimeMillis());
+        long day;
 
         synchronized (this) {
-            if ((position > 0) && (position < mMessagesDateList.size())) {
-                prevMessageDate = mMessagesDateList.get(position - 1);
+            if (mDayIndex.size() != getCount()) {
+                rebuildDayIndex();
             }
-            if (position < mMessagesDateList.size()) {
-                messageDate = mMessagesDateList.get(position);
+
+            // sanity check
+            if ((position < 0) || (position >= mDayIndex.size())) {
+                return null;
             }
-        }
 
-        // sanity check
-        if (null == messageDate) {
-            return null;
-        }
+            day = mDayIndex.getDay(position, today);
 
-        // same day or get the oldest message
-        if ((null != prevMessageDate) && 0 == (prevMessageDate.getTime() - messageDate.getTime())) {
-            return null;
+            // same day or get the oldest message
+            if ((position > 0) && (mDayIndex.getDay(position - 1, today) == day)) {
+                return null;
+            }
         }
 
-        return dateDiff(messageDate, (mReferenceDate.getTime() - messageDate.getTime()) / AdapterUtils.MS_IN_DAY);
+        return getDayText(day, today);
     }
 
     /**
@@ -2344,7 +2705,9 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                         areAllSessionEventsDecrypted = false;
                     } else {
                         // Reset the row message text to build the actual message text.
-                        row.updateEvent(event);
+                        synchronized (row) {
+                            row.updateEvent(event);
+                        }
                     }
                 }
             }
@@ -2442,6 +2805,34 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
         mHelper.setImageGetter(imageGetter);
     }
 
+    /**
+     * An inline image has been downloaded, the messages bodies which display it must be rendered again.
+     *
+     * @param source the image URL
+     */
+    public void onInlineImageDownloaded(String source) {
+        List<String> eventIds = mBodyRenderer.invalidateImage(source);
+
+        if (eventIds.isEmpty()) {
+            return;
+        }
+
+        if (!refreshRows(eventIds, PAYLOAD_BODY)) {
+            notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * A pill has been updated, the messages bodies decorations must be done again.
+     */
+    void onPillUpdated() {
+        mBodyRenderer.invalidateDecorations();
+
+        if (!refreshRows(null, PAYLOAD_BODY)) {
+            notifyDataSetChanged();
+        }
+    }
+
     /**
      * Animate a read marker view
      */
@@ -2761,11 +3152,12 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
             if (null == eventGroupRow) {
                 eventGroupRow = new MessageRow(new EventGroup(mHiddenEventIds), null);
                 mEventGroups.add((EventGroup) eventGroupRow.getEvent());
-                super.insert(eventGroupRow, 0);
-                mEventRowMap.put(eventGroupRow.getEvent().eventId, row);
+                insert(eventGroupRow, 0);
+                putEventRow(eventGroupRow.getEvent().eventId, eventGroupRow);
             }
 
             ((EventGroup) eventGroupRow.getEvent()).addToFront(row);
+            refreshGroupDay(eventGroupRow, 0);
             updateHighlightedEventId();
         }
 
@@ -2780,6 +3172,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
     private void addToEventGroup(MessageRow row) {
         if (supportMessageRowMerge(row)) {
             MessageRow eventGroupRow = null;
+            int eventGroupPosition = -1;
 
             // search backward the EventGroup event
             for (int i = getCount() - 1; i >= 0; i--) {
@@ -2789,6 +3182,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
                     // the event can be added (same day ?)
                     if (((EventGroup) curRow.getEvent()).canAddRow(row)) {
                         eventGroupRow = curRow;
+                        eventGroupPosition = i;
                     }
                     break;
                 } else
@@ -2800,12 +3194,14 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
 
             if (null == eventGroupRow) {
                 eventGroupRow = new MessageRow(new EventGroup(mHiddenEventIds), null);
-                super.add(eventGroupRow);
+                appendRow(eventGroupRow);
+                eventGroupPosition = getCount() - 1;
                 mEventGroups.add((EventGroup) eventGroupRow.getEvent());
-                mEventRowMap.put(eventGroupRow.getEvent().eventId, eventGroupRow);
+                putEventRow(eventGroupRow.getEvent().eventId, eventGroupRow);
             }
 
             ((EventGroup) eventGroupRow.getEvent()).add(row);
+            refreshGroupDay(eventGroupRow, eventGroupPosition);
             updateHighlightedEventId();
         }
     }
@@ -2825,7 +3221,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
 
                     if (eventGroup.isEmpty()) {
                         mEventGroups.remove(eventGroup);
-                        super.remove(row);
+                        removeRow(row);
                         updateHighlightedEventId();
                         return;
                     }
@@ -2887,7 +3283,7 @@ public class VectorMessagesAdapter extends AbstractMessagesAdapter {
 
                     MessageRow row = mEventRowMap.get(nextEventGroup.eventId);
                     mEventGroups.remove(nextEventGroup);
-                    super.remove(row);
+                    removeRow(row);
 
                     updateHighlightedEventId();
                 }
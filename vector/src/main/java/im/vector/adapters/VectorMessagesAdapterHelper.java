@@ -18,7 +18,9 @@
 package im.vector.adapters;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Build;
@@ -66,7 +68,6 @@ import org.matrix.androidsdk.view.HtmlTagHandler;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +83,7 @@ import im.vector.settings.VectorLocale;
 import im.vector.ui.themes.ThemeUtils;
 import im.vector.util.MatrixLinkMovementMethod;
 import im.vector.util.MatrixURLSpan;
+import im.vector.util.RenderCache;
 import im.vector.util.RiotEventDisplay;
 import im.vector.util.VectorImageGetter;
 import im.vector.util.VectorUtils;
@@ -103,6 +105,13 @@ class VectorMessagesAdapterHelper {
     public static final String END_FENCED_BLOCK = "</code></pre>";
     private static final Pattern FENCED_CODE_BLOCK_PATTERN = Pattern.compile("(?m)(?=<pre><code>)|(?<=</code></pre>)");
 
+    // the rendering caches sizes in bytes
+    private static final int HTML_CACHE_SIZE = 512 * 1024;
+    private static final int CODE_BLOCKS_CACHE_SIZE = 256 * 1024;
+    private static final int EXTRACTED_URLS_CACHE_SIZE = 128 * 1024;
+    private static final int URL_PREVIEWS_CACHE_SIZE = 128 * 1024;
+    private static final int PILLS_CACHE_SIZE = 2 * 1024 * 1024;
+
     private IMessagesAdapterActionsListener mEventsListener;
 
     private final Context mContext;
@@ -800,7 +809,18 @@ class VectorMessagesAdapterHelper {
     }
 
     // cache the pills to avoid compute them again
-    private Map<String, Drawable> mPillsDrawableCache = new HashMap<>();
+    private final RenderCache<Drawable> mPillsDrawableCache = new RenderCache<>("pills", PILLS_CACHE_SIZE,
+            new RenderCache.SizeProvider<Drawable>() {
+                @Override
+                public int sizeOf(Drawable drawable) {
+                    if ((drawable instanceof BitmapDrawable) && (null != ((BitmapDrawable) drawable).getBitmap())) {
+                        Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+                        return bitmap.getRowBytes() * bitmap.getHeight();
+                    }
+
+                    return Math.max(0, drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * 4);
+                }
+            });
 
     /**
      * Trap the clicked URL.
@@ -843,7 +863,7 @@ class VectorMessagesAdapterHelper {
                                 mPillsDrawableCache.put(key, updatedDrawable);
                                 // should update only the current cell
                                 // but it might have been recycled
-                                mAdapter.notifyDataSetChanged();
+                                mAdapter.onPillUpdated();
                             }
                         }
                     });
@@ -884,7 +904,19 @@ class VectorMessagesAdapterHelper {
                 && message.formatted_body.contains(END_FENCED_BLOCK);
     }
 
-    private Map<String, String[]> mCodeBlocksMap = new HashMap<>();
+    private final RenderCache<String[]> mCodeBlocksMap = new RenderCache<>("code blocks", CODE_BLOCKS_CACHE_SIZE,
+            new RenderCache.SizeProvider<String[]>() {
+                @Override
+                public int sizeOf(String[] codeBlocks) {
+                    int size = 0;
+
+                    for (String codeBlock : codeBlocks) {
+                        size += RenderCache.sizeOf(codeBlock);
+                    }
+
+                    return size;
+                }
+            });
 
     /**
      * Split the message body with code blocks delimiters.
@@ -1061,7 +1093,11 @@ class VectorMessagesAdapterHelper {
         } else if (Event.EVENT_TYPE_STATE_ROOM_TOPIC.equals(eventType)
                 || Event.EVENT_TYPE_STATE_ROOM_NAME.equals(eventType)) {
             EventDisplay display = new RiotEventDisplay(context);
-            return row.getText(null, display) != null;
+
+            // the parse stage of the message body renderer may build the row text at the same time
+            synchronized (row) {
+                return row.getText(null, display) != null;
+            }
         } else if (event.isCallEvent()) {
             return Event.EVENT_TYPE_CALL_INVITE.equals(eventType)
                     || Event.EVENT_TYPE_CALL_ANSWER.equals(eventType)
@@ -1070,18 +1106,25 @@ class VectorMessagesAdapterHelper {
                 || Event.EVENT_TYPE_STATE_ROOM_THIRD_PARTY_INVITE.equals(eventType)) {
             // if we can display text for it, it's valid.
             EventDisplay display = new RiotEventDisplay(context);
-            return row.getText(null, display) != null;
+
+            // the parse stage of the message body renderer may build the row text at the same time
+            synchronized (row) {
+                return row.getText(null, display) != null;
+            }
         } else if (Event.EVENT_TYPE_STATE_HISTORY_VISIBILITY.equals(eventType)) {
             return true;
         } else if (Event.EVENT_TYPE_MESSAGE_ENCRYPTED.equals(eventType)
                 || Event.EVENT_TYPE_MESSAGE_ENCRYPTION.equals(eventType)) {
             // if we can display text for it, it's valid.
             EventDisplay display = new RiotEventDisplay(context);
-            boolean ret = event.hasContentFields() && row.getText(null, display) != null;
-            // Reset the temporary row message text (by updating the event)
-            // This is required to build the actual text message later.
-            row.updateEvent(event);
-            return ret;
+
+            synchronized (row) {
+                boolean ret = event.hasContentFields() && row.getText(null, display) != null;
+                // Reset the temporary row message text (by updating the event)
+                // This is required to build the actual text message later.
+                row.updateEvent(event);
+                return ret;
+            }
         } else if (TextUtils.equals(WidgetsManager.WIDGET_EVENT_TYPE, event.getType())) {
             // Matrix apps are enabled
             return true;
@@ -1098,7 +1141,13 @@ class VectorMessagesAdapterHelper {
     // HTML management
     //================================================================================
 
-    private final Map<String, String> mHtmlMap = new HashMap<>();
+    private final RenderCache<String> mHtmlMap = new RenderCache<>("sanitised html", HTML_CACHE_SIZE,
+            new RenderCache.SizeProvider<String>() {
+                @Override
+                public int sizeOf(String html) {
+                    return RenderCache.sizeOf(html);
+                }
+            });
 
     /**
      * Retrieves the sanitised html.
@@ -1186,8 +1235,30 @@ class VectorMessagesAdapterHelper {
      *  Url preview managements
      * *********************************************************************************************
      */
-    private final Map<String, List<String>> mExtractedUrls = new HashMap<>();
-    private final Map<String, URLPreview> mUrlsPreviews = new HashMap<>();
+    private final RenderCache<List<String>> mExtractedUrls = new RenderCache<>("extracted urls", EXTRACTED_URLS_CACHE_SIZE,
+            new RenderCache.SizeProvider<List<String>>() {
+                @Override
+                public int sizeOf(List<String> urls) {
+                    int size = 0;
+
+                    for (String url : urls) {
+                        size += RenderCache.sizeOf(url);
+                    }
+
+                    return size;
+                }
+            });
+    private final RenderCache<URLPreview> mUrlsPreviews = new RenderCache<>("url previews", URL_PREVIEWS_CACHE_SIZE,
+            new RenderCache.SizeProvider<URLPreview>() {
+                @Override
+                public int sizeOf(URLPreview urlPreview) {
+                    return RenderCache.sizeOf(urlPreview.getTitle())
+                            + RenderCache.sizeOf(urlPreview.getDescription())
+                            + RenderCache.sizeOf(urlPreview.getSiteName())
+                            + RenderCache.sizeOf(urlPreview.getRequestedURL())
+                            + RenderCache.sizeOf(urlPreview.getThumbnailURL());
+                }
+            });
     private final Set<String> mPendingUrls = new HashSet<>();
 
     /**
@@ -55,6 +55,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import im.vector.R;
 import im.vector.activity.CommonActivityUtils;
@@ -80,6 +82,9 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
 
     private static final int MAX_USERS_SEARCH_COUNT = 100;
 
+    // the participants lists are built in background, one after the other
+    private static final ExecutorService sListsBuildExecutor = Executors.newSingleThreadExecutor();
+
     // search events listener
     public interface OnParticipantsSearchListener {
         /**
@@ -115,6 +120,14 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
     // participants list
     private List<ParticipantAdapterItem> mUnusedParticipants = null;
     private List<ParticipantAdapterItem> mContactsParticipants = null;
+    // the unused participants which are known users of the session, they are searched in the session known users index
+    private Set<ParticipantAdapterItem> mKnownParticipants = new HashSet<>();
+    // the search index of the other unused participants (direct chats, local contacts)
+    private final ParticipantSearchIndex mLocalParticipantsIndex = new ParticipantSearchIndex();
+    // tell if a participants list is being built in background
+    private boolean mIsBuildingList = false;
+    // the latest search requested while a participants list is built, it is run when the list is ready
+    private Runnable mPendingSearch = null;
     private Set<String> mUsedMemberUserIds = null;
     private List<String> mDisplayNamesList = null;
     private List<String> mCurrentSelectedUsers = null;
@@ -359,15 +372,24 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
 
     /**
      * Refresh the un-invited members
+     *
+     * @param onDone called when the list has been built
      */
-    private void listOtherMembers() {
-        fillUsedMembersList(new SimpleApiCallback<Void>() {
+    private void listOtherMembers(final Runnable onDone) {
+        fillUsedMembersList(new ListBuildCallback(onDone) {
             @Override
             public void onSuccess(Void info) {
                 List<ParticipantAdapterItem> participants = new ArrayList<>();
+                Set<ParticipantAdapterItem> knownParticipants = new HashSet<>();
                 if (mContactsFilter != VectorRoomInviteMembersActivity.ContactsFilter.ALL_WITHOUT_TCHAP_USERS) {
                     // Add first all known matrix users
-                    participants.addAll(VectorUtils.listKnownParticipants(mSession).values());
+                    KnownUsersSearchIndex knownUsersIndex = KnownUsersSearchIndex.getInstance(mSession);
+                    if (knownUsersIndex.isBuilt()) {
+                        knownParticipants.addAll(knownUsersIndex.getParticipants().values());
+                    } else {
+                        knownParticipants.addAll(VectorUtils.listKnownParticipants(mSession).values());
+                    }
+                    participants.addAll(knownParticipants);
 
                     // Update each participant for who a discussion (direct chat) exists,
                     // in order to display them in local contacts section
@@ -383,25 +405,128 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
                 // List of display names
                 List<String> displayNamesList = new ArrayList<>();
 
+                // index the other participants, the known users are indexed for the session
+                mLocalParticipantsIndex.clear();
+
                 for (Iterator<ParticipantAdapterItem> iterator = participants.iterator(); iterator.hasNext(); ) {
                     ParticipantAdapterItem item = iterator.next();
                     if (!mUsedMemberUserIds.isEmpty() && mUsedMemberUserIds.contains(item.mUserId)) {
                         // Remove the used members from the final list
                         iterator.remove();
+                        continue;
                     } else if (!TextUtils.isEmpty(item.mDisplayName)) {
                         // Add to the display names list
                         displayNamesList.add(item.mDisplayName.toLowerCase(VectorLocale.INSTANCE.getApplicationLocale()));
                     }
+
+                    if (!knownParticipants.contains(item)) {
+                        mLocalParticipantsIndex.put(item);
+                    }
                 }
 
                 synchronized (LOG_TAG) {
                     mDisplayNamesList = displayNamesList;
+                    mKnownParticipants = knownParticipants;
                     mUnusedParticipants = participants;
                 }
+
+                onDone.run();
+            }
+        });
+    }
+
+    /**
+     * Build a participants list in background.
+     * The searches requested meanwhile are coalesced: only the latest one is run when the list is ready.
+     *
+     * @param buildTask the build task, it must run the provided runnable when the list is built
+     * @param search    the search to run when the list is built
+     */
+    private void buildListInBackground(final BuildTask buildTask, Runnable search) {
+        mPendingSearch = search;
+
+        if (mIsBuildingList) {
+            return;
+        }
+
+        mIsBuildingList = true;
+
+        final Handler handler = new Handler(Looper.getMainLooper());
+        final Runnable onDone = new Runnable() {
+            @Override
+            public void run() {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mIsBuildingList = false;
+
+                        Runnable pendingSearch = mPendingSearch;
+                        mPendingSearch = null;
+
+                        if (null != pendingSearch) {
+                            pendingSearch.run();
+                        }
+                    }
+                });
+            }
+        };
+
+        sListsBuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buildTask.build(onDone);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## buildListInBackground() : failed " + e.getMessage(), e);
+                    onDone.run();
+                }
             }
         });
     }
 
+    /**
+     * A participants list build task
+     */
+    private interface BuildTask {
+        /**
+         * Build the list.
+         *
+         * @param onDone to run when the list is built
+         */
+        void build(Runnable onDone);
+    }
+
+    /**
+     * The used members callback of a build task, the build is ended on error.
+     */
+    private abstract static class ListBuildCallback extends SimpleApiCallback<Void> {
+        private final Runnable mOnDone;
+
+        ListBuildCallback(Runnable onDone) {
+            mOnDone = onDone;
+        }
+
+        private void onError(String errorMessage) {
+            Log.e(LOG_TAG, "## fillUsedMembersList() : failed " + errorMessage);
+            mOnDone.run();
+        }
+
+        @Override
+        public void onNetworkError(Exception e) {
+            onError(e.getMessage());
+        }
+
+        @Override
+        public void onMatrixError(MatrixError e) {
+            onError(e.getMessage());
+        }
+
+        @Override
+        public void onUnexpectedError(Exception e) {
+            onError(e.getMessage());
+        }
+    }
+
     /**
      * @return true if the known members list has been initialized.
      */
@@ -418,12 +543,23 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
     /**
      * Tells an item fullfill the search method.
      *
-     * @param item    the item to test
-     * @param pattern the pattern
+     * @param item                the item to test
+     * @param pattern             the pattern
+     * @param matchedLocalItems   the indexed items matching the pattern
+     * @param matchedKnownUserIds the known users matching the pattern, null if the known users are not yet indexed
+     * @param knownParticipants   the items which are known users
      * @return true if match the search method
      */
-    private static boolean match(ParticipantAdapterItem item, String pattern) {
-        return item.startsWith(pattern);
+    private static boolean match(ParticipantAdapterItem item,
+                                 String pattern,
+                                 Set<ParticipantAdapterItem> matchedLocalItems,
+                                 Set<String> matchedKnownUserIds,
+                                 Set<ParticipantAdapterItem> knownParticipants) {
+        if (knownParticipants.contains(item)) {
+            return (null != matchedKnownUserIds) ? matchedKnownUserIds.contains(item.mUserId) : item.startsWith(pattern);
+        }
+
+        return matchedLocalItems.contains(item);
     }
 
     /**
@@ -475,6 +611,11 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
 
         for (ParticipantAdapterItem item : unusedParticipants) {
             gotUpdates |= item.retrievePids();
+
+            if ((null != item.mContact) && !mKnownParticipants.contains(item)) {
+                // the contact matrix ids may have been updated
+                mLocalParticipantsIndex.put(item);
+            }
         }
 
         for (ParticipantAdapterItem item : contactsParticipants) {
@@ -601,38 +742,39 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
         if (!TextUtils.isEmpty(mPattern)) {
             // the list members are refreshed in background to avoid UI locks
             if (null == mUnusedParticipants) {
-                Thread t = new Thread(new Runnable() {
-                    public void run() {
+                buildListInBackground(new BuildTask() {
+                    @Override
+                    public void build(Runnable onDone) {
                         // populate full contact list
-                        listOtherMembers();
-
-                        Handler handler = new Handler(Looper.getMainLooper());
-
-                        handler.post(new Runnable() {
-                            @Override
-                            public void run() {
-                                searchAccountKnownContacts(theFirstEntry, participantItemList, sortRoomContactsList, searchListener);
-                            }
-                        });
+                        listOtherMembers(onDone);
+                    }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        searchAccountKnownContacts(theFirstEntry, participantItemList, sortRoomContactsList, searchListener);
                     }
                 });
 
-                t.setPriority(Thread.MIN_PRIORITY);
-                t.start();
-
                 return;
             }
 
             List<ParticipantAdapterItem> unusedParticipants = new ArrayList<>();
+            Set<ParticipantAdapterItem> knownParticipants;
 
             synchronized (LOG_TAG) {
                 if (null != mUnusedParticipants) {
                     unusedParticipants = new ArrayList<>(mUnusedParticipants);
                 }
+                knownParticipants = mKnownParticipants;
             }
 
+            // the indexes give the matched items, the list order is kept
+            Set<ParticipantAdapterItem> matchedLocalItems = mLocalParticipantsIndex.startsWith(mPattern);
+            KnownUsersSearchIndex knownUsersIndex = KnownUsersSearchIndex.getInstance(mSession);
+            Set<String> matchedKnownUserIds = knownUsersIndex.isBuilt() ? knownUsersIndex.searchUserIdsByPrefix(mPattern) : null;
+
             for (ParticipantAdapterItem item : unusedParticipants) {
-                if (match(item, mPattern)) {
+                if (match(item, mPattern, matchedLocalItems, matchedKnownUserIds, knownParticipants)) {
                     // Remove the existing item with the same userId if any.
                     // This is required to keep displaying in the local contacts section the tchap
                     // users extracted from the discussions (direct chats).
@@ -645,9 +787,10 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
 
             // display only the contacts
             if (null == mContactsParticipants) {
-                Thread t = new Thread(new Runnable() {
-                    public void run() {
-                        fillUsedMembersList(new SimpleApiCallback<Void>() {
+                buildListInBackground(new BuildTask() {
+                    @Override
+                    public void build(final Runnable onDone) {
+                        fillUsedMembersList(new ListBuildCallback(onDone) {
                             @Override
                             public void onSuccess(Void info) {
                                 List<ParticipantAdapterItem> list;
@@ -665,21 +808,17 @@ public class VectorParticipantsAdapter extends BaseExpandableListAdapter {
                                     mContactsParticipants = list;
                                 }
 
-                                Handler handler = new Handler(Looper.getMainLooper());
-                                handler.post(new Runnable() {
-                                    @Override
-                                    public void run() {
-                                        refresh(theFirstEntry, searchListener);
-                                    }
-                                });
+                                onDone.run();
                             }
                         });
                     }
+                }, new Runnable() {
+                    @Override
+                    public void run() {
+                        refresh(theFirstEntry, searchListener);
+                    }
                 });
 
-                t.setPriority(Thread.MIN_PRIORITY);
-                t.start();
-
                 return;
             } else {
                 List<ParticipantAdapterItem> contactsParticipants = new ArrayList<>();
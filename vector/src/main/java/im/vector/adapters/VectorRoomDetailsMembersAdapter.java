@@ -48,8 +48,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -62,6 +66,7 @@ import im.vector.R;
 import im.vector.activity.CommonActivityUtils;
 import im.vector.settings.VectorLocale;
 import im.vector.ui.themes.ThemeUtils;
+import im.vector.util.SearchTokenIndex;
 import im.vector.util.VectorUtils;
 
 /**
@@ -139,6 +144,11 @@ public class VectorRoomDetailsMembersAdapter extends BaseExpandableListAdapter {
     // search list view: list view displaying the result of the search based on "mSearchPattern"
     private String mSearchPattern = "";
 
+    // search index of the room members by user id, it is updated when the members are refreshed
+    private final SearchTokenIndex<String> mMembersSearchIndex = new SearchTokenIndex<>();
+    // the indexed member names by user id
+    private final Map<String, String> mIndexedMemberNames = new HashMap<>();
+
     //ParticipantAdapterItem mFirstEntry;
     private OnParticipantsListener mOnParticipantsListener;
 
@@ -417,6 +427,57 @@ public class VectorRoomDetailsMembersAdapter extends BaseExpandableListAdapter {
         updateRoomMembersDataModel(aSearchListener, activeMembers, null);
     }
 
+    /**
+     * Update the members search index, and search the members with a display name or a matrix id containing a pattern.
+     * Only the new and the renamed members are indexed again.
+     *
+     * @param activeMembers the room members
+     * @param pattern       the lower case pattern
+     * @return the user ids of the matched members
+     */
+    private Set<String> searchMembers(Collection<RoomMember> activeMembers, String pattern) {
+        Locale locale = VectorLocale.INSTANCE.getApplicationLocale();
+
+        synchronized (mMembersSearchIndex) {
+            Set<String> userIds = new HashSet<>();
+
+            for (RoomMember member : activeMembers) {
+                String userId = member.getUserId();
+                String name = member.getName();
+
+                if (null == userId) {
+                    continue;
+                }
+
+                userIds.add(userId);
+
+                if (!mIndexedMemberNames.containsKey(userId) || !TextUtils.equals(mIndexedMemberNames.get(userId), name)) {
+                    List<String> texts = new ArrayList<>();
+
+                    if (!TextUtils.isEmpty(name)) {
+                        texts.add(name.toLowerCase(locale));
+                    }
+                    texts.add(userId.toLowerCase(locale));
+
+                    mMembersSearchIndex.put(userId, Collections.<String>emptyList(), texts);
+                    mIndexedMemberNames.put(userId, name);
+                }
+            }
+
+            // remove the members who left the room
+            for (Iterator<String> iterator = mIndexedMemberNames.keySet().iterator(); iterator.hasNext(); ) {
+                String userId = iterator.next();
+
+                if (!userIds.contains(userId)) {
+                    mMembersSearchIndex.remove(userId);
+                    iterator.remove();
+                }
+            }
+
+            return mMembersSearchIndex.searchBySubstring(pattern);
+        }
+    }
+
     private void updateRoomMembersDataModel(final OnRoomMembersSearchListener aSearchListener, final Collection<RoomMember> activeMembers, Map<String, UserStatusInfo> stringUserStatusInfoMap) {
         {
             final String fPattern = mSearchPattern;
@@ -430,8 +491,16 @@ public class VectorRoomDetailsMembersAdapter extends BaseExpandableListAdapter {
 
             final PowerLevels powerLevels = mRoom.getState().getPowerLevels();
 
+            // the members matching the pattern
+            Set<String> matchedUserIds = isSearchEnabled ? searchMembers(activeMembers, fPattern) : null;
+
             // Prepare the list of joined members, and the list of invited members.
             for (RoomMember member : activeMembers) {
+                // if search is enabled, just skip the member if pattern does not match
+                if (isSearchEnabled && !matchedUserIds.contains(member.getUserId())) {
+                    continue;
+                }
+
                 final ParticipantAdapterItem participantItem = new ParticipantAdapterItem(member);
 
                 // Set the user expiration status. By default the user is not expired.
@@ -442,11 +511,6 @@ public class VectorRoomDetailsMembersAdapter extends BaseExpandableListAdapter {
                     }
                 }
 
-                // if search is enabled, just skip the member if pattern does not match
-                if (isSearchEnabled && (!participantItem.contains(mSearchPattern))) {
-                    continue;
-                }
-
                 if (RoomMember.MEMBERSHIP_INVITE.equals(member.membership)) {
                     // invited members
                     invitedMembers.add(participantItem);
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.contacts;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.ContactsContract;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import org.matrix.androidsdk.core.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read the device contacts book.
+ */
+class ContactsBookReader {
+    private static final String LOG_TAG = ContactsBookReader.class.getSimpleName();
+
+    // the max number of contact ids in a query selection
+    private static final int MAX_CONTACT_IDS_BY_QUERY = 500;
+
+    // the names, the phone numbers and the emails are read in a single scan of the data table
+    private static final String[] DATA_PROJECTION = new String[]{
+            ContactsContract.Data.CONTACT_ID,
+            ContactsContract.Data.MIMETYPE,
+            ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
+            ContactsContract.Contacts.PHOTO_THUMBNAIL_URI,
+            // the phone number or the email address
+            ContactsContract.Data.DATA1,
+            ContactsContract.CommonDataKinds.Phone.NORMALIZED_NUMBER
+    };
+
+    private static final String[] DATA_MIME_TYPES = new String[]{
+            ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE,
+            ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE,
+            ContactsContract.CommonDataKinds.Email.CONTENT_ITEM_TYPE
+    };
+
+    private final ContentResolver mContentResolver;
+
+    ContactsBookReader(ContentResolver contentResolver) {
+        mContentResolver = contentResolver;
+    }
+
+    /**
+     * Read the contacts.
+     *
+     * @param contactIds the contact ids to read, null to read the whole contacts book.
+     * @return the contacts by contact id, null if the contacts book cannot be read.
+     */
+    @Nullable
+    Map<String, Contact> readContacts(@Nullable Collection<String> contactIds) {
+        Map<String, Contact> contactsById = new HashMap<>();
+
+        if (null == contactIds) {
+            return readContacts(null, contactsById) ? contactsById : null;
+        }
+
+        List<String> chunk = new ArrayList<>(MAX_CONTACT_IDS_BY_QUERY);
+
+        for (String contactId : contactIds) {
+            // the contact ids are provided by the contacts provider, they are numbers
+            if (TextUtils.isDigitsOnly(contactId)) {
+                chunk.add(contactId);
+            }
+
+            if (chunk.size() == MAX_CONTACT_IDS_BY_QUERY) {
+                if (!readContacts(chunk, contactsById)) {
+                    return null;
+                }
+                chunk.clear();
+            }
+        }
+
+        if (!chunk.isEmpty() && !readContacts(chunk, contactsById)) {
+            return null;
+        }
+
+        return contactsById;
+    }
+
+    /**
+     * Read some contacts in a single data table scan.
+     *
+     * @param contactIds   the contact ids, null to read all of them
+     * @param contactsById the read contacts
+     * @return false if the query failed
+     */
+    private boolean readContacts(@Nullable List<String> contactIds, Map<String, Contact> contactsById) {
+        String selection = ContactsContract.Data.MIMETYPE + " IN (?,?,?)";
+
+        if (null != contactIds) {
+            selection += " AND " + ContactsContract.Data.CONTACT_ID + " IN (" + TextUtils.join(",", contactIds) + ")";
+        }
+
+        Cursor cursor = null;
+
+        try {
+            cursor = mContentResolver.query(ContactsContract.Data.CONTENT_URI, DATA_PROJECTION, selection, DATA_MIME_TYPES, null);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## readContacts(): Exception - Contacts data query Msg=" + e.getMessage(), e);
+        }
+
+        if (null == cursor) {
+            return false;
+        }
+
+        try {
+            // the columns are always in the projection order
+            final int contactIdColumn = 0;
+            final int mimeTypeColumn = 1;
+            final int displayNameColumn = 2;
+            final int thumbnailUriColumn = 3;
+            final int data1Column = 4;
+            final int normalizedNumberColumn = 5;
+
+            while (cursor.moveToNext()) {
+                String contactId = cursor.getString(contactIdColumn);
+                String mimeType = cursor.getString(mimeTypeColumn);
+
+                if ((null == contactId) || (null == mimeType)) {
+                    continue;
+                }
+
+                if (TextUtils.equals(mimeType, ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE)) {
+                    Contact contact = getOrCreateContact(contactsById, contactId);
+
+                    String displayName = cursor.getString(displayNameColumn);
+                    String thumbnailUri = cursor.getString(thumbnailUriColumn);
+
+                    if (null != displayName) {
+                        contact.setDisplayName(displayName);
+                    }
+
+                    if (null != thumbnailUri) {
+                        contact.setThumbnailUri(thumbnailUri);
+                    }
+                } else if (TextUtils.equals(mimeType, ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE)) {
+                    String pn = cursor.getString(data1Column);
+
+                    if (!TextUtils.isEmpty(pn)) {
+                        getOrCreateContact(contactsById, contactId).addPhoneNumber(pn, cursor.getString(normalizedNumberColumn));
+                    }
+                } else {
+                    String email = cursor.getString(data1Column);
+
+                    if (!TextUtils.isEmpty(email)) {
+                        getOrCreateContact(contactsById, contactId).addEmailAdress(email);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## readContacts(): Exception - Contacts data query2 Msg=" + e.getMessage(), e);
+            return false;
+        } finally {
+            cursor.close();
+        }
+
+        return true;
+    }
+
+    private static Contact getOrCreateContact(Map<String, Contact> contactsById, String contactId) {
+        Contact contact = contactsById.get(contactId);
+
+        if (null == contact) {
+            contact = new Contact(contactId);
+            contactsById.put(contactId, contact);
+        }
+
+        return contact;
+    }
+
+    /**
+     * List the contacts updated after a timestamp.
+     *
+     * @param since      the timestamp, 0 to list all the contacts
+     * @param contactIds the updated contact ids, null to only get the timestamp
+     * @return the most recent update timestamp, -1 if the query failed
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    long readUpdatedContactIds(long since, @Nullable Set<String> contactIds) {
+        return readContactIds(ContactsContract.Contacts.CONTENT_URI,
+                ContactsContract.Contacts._ID,
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP,
+                since,
+                contactIds);
+    }
+
+    /**
+     * List the contacts deleted after a timestamp.
+     *
+     * @param since      the timestamp
+     * @param contactIds the deleted contact ids
+     * @return the most recent deletion timestamp, -1 if the query failed
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    long readDeletedContactIds(long since, Set<String> contactIds) {
+        return readContactIds(ContactsContract.DeletedContacts.CONTENT_URI,
+                ContactsContract.DeletedContacts.CONTACT_ID,
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP,
+                since,
+                contactIds);
+    }
+
+    private long readContactIds(Uri uri, String idColumnName, String timestampColumnName, long since, @Nullable Set<String> contactIds) {
+        Cursor cursor = null;
+
+        try {
+            cursor = mContentResolver.query(uri,
+                    new String[]{idColumnName, timestampColumnName},
+                    timestampColumnName + " > ?",
+                    new String[]{String.valueOf(since)},
+                    null);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## readContactIds(): Exception - " + uri + " query Msg=" + e.getMessage(), e);
+        }
+
+        if (null == cursor) {
+            return -1;
+        }
+
+        long lastTimestamp = since;
+
+        try {
+            while (cursor.moveToNext()) {
+                String contactId = cursor.getString(0);
+
+                if ((null != contactId) && (null != contactIds)) {
+                    contactIds.add(contactId);
+                }
+
+                lastTimestamp = Math.max(lastTimestamp, cursor.getLong(1));
+            }
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## readContactIds(): Exception - " + uri + " query2 Msg=" + e.getMessage(), e);
+            return -1;
+        } finally {
+            cursor.close();
+        }
+
+        return lastTimestamp;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.contacts;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import im.vector.util.SecretStoringUtils;
+
+/**
+ * Encrypt the contacts data persisted by the application (3PIDs, names...) with {@link SecretStoringUtils}.
+ */
+class ContactsDataCipher {
+    private static final String KEY_ALIAS = "ContactsDataCipher";
+
+    private final Context mContext;
+
+    ContactsDataCipher(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Encrypt some data.
+     *
+     * @param data   the data
+     * @param output the stream to write the encrypted data to
+     * @throws Exception if the data cannot be encrypted
+     */
+    public void write(byte[] data, OutputStream output) throws Exception {
+        SecretStoringUtils.INSTANCE.securelyStoreObject(data, KEY_ALIAS, output, mContext);
+    }
+
+    /**
+     * Decrypt some data.
+     *
+     * @param input the stream to read the encrypted data from
+     * @return the data, null if it cannot be decrypted (ex: the keystore has been reset)
+     * @throws Exception if the data cannot be read
+     */
+    @Nullable
+    public byte[] read(InputStream input) throws Exception {
+        return SecretStoringUtils.INSTANCE.<byte[]>loadSecureSecret(input, KEY_ALIAS, mContext);
+    }
+}
@@ -19,17 +19,17 @@
 package im.vector.contacts;
 
 import android.Manifest;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.ContactsContract;
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 import androidx.core.content.ContextCompat;
 import androidx.preference.PreferenceManager;
 
@@ -43,9 +43,12 @@ import org.matrix.androidsdk.rest.model.User;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import im.vector.Matrix;
 import im.vector.VectorApp;
@@ -66,6 +69,15 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
          */
         void onRefresh();
 
+        /**
+         * Called when some contacts have been updated in the contacts book.
+         * The contacts list has been refreshed, but only these contacts have been modified.
+         *
+         * @param updatedContacts   the added or updated contacts
+         * @param deletedContactIds the ids of the deleted contacts
+         */
+        void onContactsUpdate(Collection<Contact> updatedContacts, Collection<String> deletedContactIds);
+
         /**
          * Call when some contact PIDs have been retrieved
          */
@@ -91,6 +103,27 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
     // the contacts list snapshot
     private List<Contact> mContactsList = null;
 
+    // incremented each time a snapshot is published
+    private int mSnapshotVersion = 0;
+
+    // incremented each time the snapshot is cleared, to ignore the pending syncs
+    private int mSnapshotGeneration = 0;
+
+    // the contacts book is read on this thread
+    private final ExecutorService mSyncExecutor = Executors.newSingleThreadExecutor();
+
+    // the synced contacts by contact id, only used on the sync thread
+    private final Map<String, Contact> mContactsById = new HashMap<>();
+
+    // the contacts book timestamp of the last sync, only used on the sync thread
+    private long mLastSyncTimestamp = 0;
+
+    // tell if the persisted snapshot has been loaded, only used on the sync thread
+    private boolean mIsSnapshotLoaded = false;
+
+    private final ContactsBookReader mContactsBookReader;
+    private final ContactsSnapshotStore mSnapshotStore;
+
     // the listeners
     private final List<ContactsManagerListener> mListeners = new ArrayList<>();
 
@@ -149,6 +182,17 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
             }
         }
 
+        @Override
+        public void onProgress(String accountId) {
+            // ignore the current response because the request has been cancelled
+            if (!mIsRetrievingPids) {
+                return;
+            }
+
+            // warn that some contacts have been updated, the retrieval is still in progress
+            onPIDsUpdate();
+        }
+
         @Override
         public void onFailure(String accountId) {
             // ignore the current response because the request has been cancelled
@@ -273,6 +317,8 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
      */
     private ContactsManager() {
         mContext = VectorApp.getInstance().getApplicationContext();
+        mContactsBookReader = new ContactsBookReader(mContext.getContentResolver());
+        mSnapshotStore = new ContactsSnapshotStore(mContext);
         PreferenceManager.getDefaultSharedPreferences(mContext).registerOnSharedPreferenceChangeListener(this);
     }
 
@@ -282,10 +328,12 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
      * @return an unique identifier
      */
     public int getLocalContactsSnapshotSession() {
-        if (null != mContactsList) {
-            return mContactsList.hashCode();
-        } else {
-            return 0;
+        synchronized (LOG_TAG) {
+            if (null != mContactsList) {
+                return mSnapshotVersion;
+            } else {
+                return 0;
+            }
         }
     }
 
@@ -328,13 +376,25 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
     }
 
     /**
-     * Clear the current snapshot
+     * Clear the current snapshot, and the persisted one.
+     * The next refresh will read the whole contacts book.
      */
     public void clearSnapshot() {
         synchronized (LOG_TAG) {
             mContactsList = null;
+            mSnapshotGeneration++;
         }
 
+        mSyncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mIsSnapshotLoaded = true;
+                mContactsById.clear();
+                mLastSyncTimestamp = 0;
+                mSnapshotStore.delete();
+            }
+        });
+
         MXSession defaultSession = Matrix.getInstance(VectorApp.getInstance()).getDefaultSession();
 
         if (null != defaultSession) {
@@ -427,215 +487,260 @@ public class ContactsManager implements SharedPreferences.OnSharedPreferenceChan
     }
 
     /**
-     * List the local contacts.
+     * Refresh the local contacts list snapshot.
+     * The first call publishes the persisted snapshot, then the contacts book is synced incrementally.
      */
     public void refreshLocalContactsSnapshot() {
-        boolean isPopulating;
+        final int generation;
 
         synchronized (LOG_TAG) {
-            isPopulating = mIsPopulating;
+            // test if there is a population is in progress
+            if (mIsPopulating) {
+                return;
+            }
+
+            mIsPopulating = true;
+            generation = mSnapshotGeneration;
         }
 
-        // test if there is a population is in progress
-        if (isPopulating) {
+        // refresh the contacts list in background
+        mSyncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    syncLocalContacts(generation);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## refreshLocalContactsSnapshot() : failed " + e.getMessage(), e);
+                }
+
+                synchronized (LOG_TAG) {
+                    mIsPopulating = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Sync the contacts snapshot with the contacts book.
+     * It is only called on the sync thread.
+     *
+     * @param generation the snapshot generation when the sync has been requested
+     */
+    private void syncLocalContacts(int generation) {
+        long t0 = System.currentTimeMillis();
+
+        // test if the user allows to access to the contact
+        if (!isContactBookAccessAllowed()) {
+            Log.d(LOG_TAG, "## refreshLocalContactsSnapshot() : permission to read contacts is not granted");
+
+            mIsSnapshotLoaded = true;
+            mContactsById.clear();
+            mLastSyncTimestamp = 0;
+            mSnapshotStore.delete();
+            publishSnapshot(generation, null, null);
             return;
         }
 
-        synchronized (LOG_TAG) {
-            mIsPopulating = true;
+        Log.d(LOG_TAG, "## refreshLocalContactsSnapshot() starts");
+
+        // publish the persisted snapshot before syncing it
+        if (!mIsSnapshotLoaded) {
+            mIsSnapshotLoaded = true;
+
+            ContactsSnapshotStore.Snapshot snapshot = mSnapshotStore.load();
+
+            if (null != snapshot) {
+                mContactsById.putAll(snapshot.mContactsById);
+                mLastSyncTimestamp = snapshot.mSyncTimestamp;
+
+                Log.d(LOG_TAG, "## refreshLocalContactsSnapshot(): load " + mContactsById.size() + " contacts in "
+                        + (System.currentTimeMillis() - t0) + " ms");
+
+                if (!publishSnapshot(generation, null, null)) {
+                    return;
+                }
+            }
         }
 
-        // refresh the contacts list in background
-        Thread t = new Thread(new Runnable() {
-            public void run() {
-                long t0 = System.currentTimeMillis();
-                ContentResolver cr = mContext.getContentResolver();
-                Map<String, Contact> dict = new HashMap<>();
+        if (canSyncIncrementally() && syncUpdatedContacts(generation)) {
+            Log.d(LOG_TAG, "## refreshLocalContactsSnapshot(): incremental sync in " + (System.currentTimeMillis() - t0) + " ms");
+            return;
+        }
 
-                // test if the user allows to access to the contact
-                if (isContactBookAccessAllowed()) {
-                    Log.d(LOG_TAG, "## refreshLocalContactsSnapshot() starts");
+        long syncTimestamp = 0;
 
-                    // get the names
-                    Cursor namesCur = null;
+        // get the timestamp before reading the contacts, so that the contacts which are updated meanwhile are read again on next sync
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            syncTimestamp = Math.max(0, mContactsBookReader.readUpdatedContactIds(0, null));
+        }
 
-                    try {
-                        namesCur = cr.query(ContactsContract.Data.CONTENT_URI,
-                                new String[]{ContactsContract.Contacts.DISPLAY_NAME_PRIMARY,
-                                        ContactsContract.CommonDataKinds.StructuredName.CONTACT_ID,
-                                        ContactsContract.Contacts.PHOTO_THUMBNAIL_URI
-                                },
-                                ContactsContract.Data.MIMETYPE + " = ?",
-                                new String[]{ContactsContract.CommonDataKinds.StructuredName.CONTENT_ITEM_TYPE}, null);
-                    } catch (Exception e) {
-                        Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): Exception - Contact names query Msg=" + e.getMessage(), e);
-                    }
+        Map<String, Contact> contactsById = mContactsBookReader.readContacts(null);
 
-                    if (namesCur != null) {
-                        try {
-                            while (namesCur.moveToNext()) {
-                                String displayName = namesCur.getString(namesCur.getColumnIndex(ContactsContract.Contacts.DISPLAY_NAME_PRIMARY));
-                                String contactId = namesCur.getString(namesCur.getColumnIndex(ContactsContract.CommonDataKinds.StructuredName.CONTACT_ID));
-                                String thumbnailUri
-                                        = namesCur.getString(namesCur.getColumnIndex(ContactsContract.CommonDataKinds.StructuredName.PHOTO_THUMBNAIL_URI));
-
-                                if (null != contactId) {
-                                    Contact contact = dict.get(contactId);
-
-                                    if (null == contact) {
-                                        contact = new Contact(contactId);
-                                        dict.put(contactId, contact);
-                                    }
-
-                                    if (null != displayName) {
-                                        contact.setDisplayName(displayName);
-                                    }
-
-                                    if (null != thumbnailUri) {
-                                        contact.setThumbnailUri(thumbnailUri);
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): Exception - Contact names query2 Msg=" + e.getMessage(), e);
-                        }
+        if (null == contactsById) {
+            // keep the current snapshot
+            Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): cannot read the contacts book");
+            publishSnapshot(generation, null, null);
+            return;
+        }
 
-                        namesCur.close();
-                    }
+        mContactsById.clear();
+        mContactsById.putAll(contactsById);
+        mLastSyncTimestamp = syncTimestamp;
+        mSnapshotStore.save(mLastSyncTimestamp, mContactsById.values());
 
-                    // get the phonenumbers
-                    Cursor phonesCur = null;
+        Log.d(LOG_TAG, "## refreshLocalContactsSnapshot(): retrieve " + mContactsById.size() + " contacts in "
+                + (System.currentTimeMillis() - t0) + " ms");
 
-                    try {
-                        phonesCur = cr.query(ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-                                new String[]{ContactsContract.CommonDataKinds.Phone.NUMBER,
-                                        ContactsContract.CommonDataKinds.Phone.NORMALIZED_NUMBER,
-                                        ContactsContract.CommonDataKinds.Phone.CONTACT_ID
-                                },
-                                null, null, null);
-                    } catch (Exception e) {
-                        Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): Exception - Phone numbers query Msg=" + e.getMessage(), e);
-                    }
+        publishSnapshot(generation, null, null);
+    }
 
-                    if (null != phonesCur) {
-                        try {
-                            while (phonesCur.moveToNext()) {
-                                final String pn = phonesCur.getString(phonesCur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER));
-                                final String pnE164 = phonesCur.getString(phonesCur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NORMALIZED_NUMBER));
+    /**
+     * Tells if the contacts book changes can be computed from the last sync timestamp.
+     * The deleted contacts are only kept for a while by the contacts provider.
+     *
+     * @return true if an incremental sync can be done
+     */
+    private boolean canSyncIncrementally() {
+        return (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2)
+                && (mLastSyncTimestamp > 0)
+                && (mContactsById.size() > 0)
+                && (System.currentTimeMillis() - mLastSyncTimestamp < ContactsContract.DeletedContacts.DAYS_KEPT_MILLISECONDS);
+    }
 
-                                if (!TextUtils.isEmpty(pn)) {
-                                    String contactId = phonesCur.getString(phonesCur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.CONTACT_ID));
+    /**
+     * Apply the contacts book changes since the last sync.
+     *
+     * @param generation the snapshot generation when the sync has been requested
+     * @return false if the changes cannot be retrieved
+     */
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private boolean syncUpdatedContacts(int generation) {
+        Set<String> updatedContactIds = new HashSet<>();
+        Set<String> deletedContactIds = new HashSet<>();
 
-                                    if (null != contactId) {
-                                        Contact contact = dict.get(contactId);
-                                        if (null == contact) {
-                                            contact = new Contact(contactId);
-                                            dict.put(contactId, contact);
-                                        }
+        long updatedTimestamp = mContactsBookReader.readUpdatedContactIds(mLastSyncTimestamp, updatedContactIds);
+        long deletedTimestamp = mContactsBookReader.readDeletedContactIds(mLastSyncTimestamp, deletedContactIds);
 
-                                        contact.addPhoneNumber(pn, pnE164);
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): Exception - Phone numbers query2 Msg=" + e.getMessage(), e);
-                        }
+        if ((updatedTimestamp < 0) || (deletedTimestamp < 0)) {
+            return false;
+        }
 
-                        phonesCur.close();
-                    }
+        Map<String, Contact> updatedContactsById = updatedContactIds.isEmpty()
+                ? new HashMap<String, Contact>()
+                : mContactsBookReader.readContacts(updatedContactIds);
 
-                    // get the emails
-                    Cursor emailsCur = null;
+        if (null == updatedContactsById) {
+            return false;
+        }
 
-                    try {
-                        emailsCur = cr.query(ContactsContract.CommonDataKinds.Email.CONTENT_URI,
-                                new String[]{ContactsContract.CommonDataKinds.Email.DATA, // actual email
-                                        ContactsContract.CommonDataKinds.Email.CONTACT_ID},
-                                null, null, null);
-                    } catch (Exception e) {
-                        Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): Exception - Emails query Msg=" + e.getMessage(), e);
-                    }
+        List<Contact> updatedContacts = new ArrayList<>();
+        List<String> removedContactIds = new ArrayList<>();
 
-                    if (emailsCur != null) {
-                        try {
-                            while (emailsCur.moveToNext()) {
-                                String email = emailsCur.getString(emailsCur.getColumnIndex(ContactsContract.CommonDataKinds.Email.DATA));
-                                if (!TextUtils.isEmpty(email)) {
-                                    String contactId = emailsCur.getString(emailsCur.getColumnIndex(ContactsContract.CommonDataKinds.Email.CONTACT_ID));
-
-                                    if (null != contactId) {
-                                        Contact contact = dict.get(contactId);
-                                        if (null == contact) {
-                                            contact = new Contact(contactId);
-                                            dict.put(contactId, contact);
-                                        }
-
-                                        contact.addEmailAdress(email);
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(LOG_TAG, "## refreshLocalContactsSnapshot(): Exception - Emails query2 Msg=" + e.getMessage(), e);
-                        }
+        for (String contactId : deletedContactIds) {
+            if (null != mContactsById.remove(contactId)) {
+                removedContactIds.add(contactId);
+            }
+        }
 
-                        emailsCur.close();
-                    }
-                } else {
-                    Log.d(LOG_TAG, "## refreshLocalContactsSnapshot() : permission to read contacts is not granted");
-                }
+        for (String contactId : updatedContactIds) {
+            Contact contact = updatedContactsById.get(contactId);
 
-                synchronized (LOG_TAG) {
-                    mContactsList = new ArrayList<>(dict.values());
-                    mIsPopulating = false;
-                }
+            if (null != contact) {
+                mContactsById.put(contactId, contact);
+                updatedContacts.add(contact);
+            } else if (null != mContactsById.remove(contactId)) {
+                // the contact has no more name, phone number or email
+                removedContactIds.add(contactId);
+            }
+        }
 
-                // race condition reported by GA.
-                if (null == mContactsList) {
-                    Log.d(LOG_TAG, "## ## refreshLocalContactsSnapshot() : the contacts list has been cleared while processing it");
-                    mIsRetrievingPids = false;
-                    mArePidsRetrieved = false;
-                    return;
-                }
+        long previousSyncTimestamp = mLastSyncTimestamp;
+        mLastSyncTimestamp = Math.max(updatedTimestamp, deletedTimestamp);
 
-                long delta = System.currentTimeMillis() - t0;
+        Log.d(LOG_TAG, "## syncUpdatedContacts(): " + updatedContacts.size() + " updated contacts, " + removedContactIds.size() + " deleted contacts");
 
-                Log.d(LOG_TAG, "## refreshLocalContactsSnapshot(): retrieve " + mContactsList.size() + " contacts in " + delta + " ms");
+        if (updatedContacts.isEmpty() && removedContactIds.isEmpty()) {
+            // no event, only persist the new timestamp
+            if (mLastSyncTimestamp != previousSyncTimestamp) {
+                mSnapshotStore.save(mLastSyncTimestamp, mContactsById.values());
+            }
+            return true;
+        }
 
-                // define the PIDs listener
-                PIDsRetriever.getInstance().setPIDsRetrieverListener(mPIDsRetrieverListener);
+        mSnapshotStore.save(mLastSyncTimestamp, mContactsById.values());
+        publishSnapshot(generation, updatedContacts, removedContactIds);
 
-                // trigger a PIDs retrieval
-                // add a network listener to ensure that the PIDS will be retrieved asap a valid network will be found.
-                MXSession defaultSession = Matrix.getInstance(VectorApp.getInstance()).getDefaultSession();
-                if (null != defaultSession) {
-                    defaultSession.getNetworkConnectivityReceiver().addEventListener(mNetworkConnectivityReceiver);
+        return true;
+    }
 
-                    // reset the PIDs retriever statuses
-                    mIsRetrievingPids = false;
-                    mArePidsRetrieved = false;
+    /**
+     * Publish the current contacts and warn the listeners.
+     * It is only called on the sync thread.
+     *
+     * @param generation        the snapshot generation when the sync has been requested
+     * @param updatedContacts   the updated contacts, null when the whole snapshot has been refreshed
+     * @param deletedContactIds the deleted contact ids, null when the whole snapshot has been refreshed
+     * @return false if the snapshot has been cleared meanwhile
+     */
+    private boolean publishSnapshot(int generation,
+                                    @Nullable final Collection<Contact> updatedContacts,
+                                    @Nullable final Collection<String> deletedContactIds) {
+        synchronized (LOG_TAG) {
+            // race condition reported by GA.
+            if (generation != mSnapshotGeneration) {
+                Log.d(LOG_TAG, "## publishSnapshot() : the contacts list has been cleared while processing it");
+                return false;
+            }
 
-                    // the PIDs retrieval is done on demand.
-                }
+            // the published list is never modified, the UI threads can browse it
+            mContactsList = new ArrayList<>(mContactsById.values());
+            mSnapshotVersion++;
+        }
+
+        final boolean isFullRefresh = (null == updatedContacts);
 
-                Handler handler = new Handler(Looper.getMainLooper());
-
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        for (ContactsManagerListener listener : mListeners) {
-                            try {
-                                listener.onRefresh();
-                            } catch (Exception e) {
-                                Log.e(LOG_TAG, "refreshLocalContactsSnapshot : onRefresh failed" + e.getMessage(), e);
-                            }
+        // define the PIDs listener
+        PIDsRetriever.getInstance().setPIDsRetrieverListener(mPIDsRetrieverListener);
+
+        // trigger a PIDs retrieval
+        // add a network listener to ensure that the PIDS will be retrieved asap a valid network will be found.
+        MXSession defaultSession = Matrix.getInstance(VectorApp.getInstance()).getDefaultSession();
+        if (null != defaultSession) {
+            defaultSession.getNetworkConnectivityReceiver().removeEventListener(mNetworkConnectivityReceiver);
+            defaultSession.getNetworkConnectivityReceiver().addEventListener(mNetworkConnectivityReceiver);
+
+            // reset the PIDs retriever statuses
+            // the PIDs retriever only requests the unknown 3PIDs, so a partial update is cheap
+            if (isFullRefresh) {
+                mIsRetrievingPids = false;
+                mArePidsRetrieved = false;
+            } else if (!updatedContacts.isEmpty()) {
+                mArePidsRetrieved = false;
+            }
+
+            // the PIDs retrieval is done on demand.
+        }
+
+        Handler handler = new Handler(Looper.getMainLooper());
+
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (ContactsManagerListener listener : mListeners) {
+                    try {
+                        if (isFullRefresh) {
+                            listener.onRefresh();
+                        } else {
+                            listener.onContactsUpdate(updatedContacts, deletedContactIds);
                         }
+                    } catch (Exception e) {
+                        Log.e(LOG_TAG, "refreshLocalContactsSnapshot : onRefresh failed" + e.getMessage(), e);
                     }
-                });
+                }
             }
         });
 
-        t.setPriority(Thread.MIN_PRIORITY);
-        t.start();
+        return true;
     }
 
     //================================================================================
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.contacts;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import org.matrix.androidsdk.core.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persist the local contacts snapshot, so that the contacts book is not scanned again on each application start.
+ * The snapshot file is encrypted, it is deleted on logout (see {@link ContactsManager#reset()}).
+ * The store is only used from the contacts manager sync thread.
+ */
+class ContactsSnapshotStore {
+    private static final String LOG_TAG = ContactsSnapshotStore.class.getSimpleName();
+
+    private static final String SNAPSHOT_FILE_NAME = "contacts_snapshot";
+
+    // update it when the file format is modified
+    private static final int SNAPSHOT_VERSION = 2;
+
+    /**
+     * A persisted snapshot
+     */
+    static class Snapshot {
+        // the contacts book timestamp of the last sync
+        final long mSyncTimestamp;
+
+        // the contacts by contact id
+        final Map<String, Contact> mContactsById;
+
+        Snapshot(long syncTimestamp, Map<String, Contact> contactsById) {
+            mSyncTimestamp = syncTimestamp;
+            mContactsById = contactsById;
+        }
+    }
+
+    private final File mSnapshotFile;
+    private final ContactsDataCipher mCipher;
+
+    ContactsSnapshotStore(Context context) {
+        mSnapshotFile = new File(context.getFilesDir(), SNAPSHOT_FILE_NAME);
+        mCipher = new ContactsDataCipher(context);
+    }
+
+    /**
+     * Load the persisted snapshot.
+     *
+     * @return the snapshot, null if there is none or if it cannot be read.
+     */
+    @Nullable
+    Snapshot load() {
+        if (!mSnapshotFile.exists()) {
+            return null;
+        }
+
+        InputStream fileIn = null;
+        DataInputStream in = null;
+
+        try {
+            fileIn = new BufferedInputStream(new FileInputStream(mSnapshotFile));
+            byte[] data = mCipher.read(fileIn);
+
+            if (null == data) {
+                throw new IOException("cannot decrypt the snapshot");
+            }
+
+            in = new DataInputStream(new ByteArrayInputStream(data));
+
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                Log.d(LOG_TAG, "## load() : unsupported snapshot version");
+                return null;
+            }
+
+            long syncTimestamp = in.readLong();
+            int count = in.readInt();
+            Map<String, Contact> contactsById = new HashMap<>(count);
+
+            for (int i = 0; i < count; i++) {
+                Contact contact = new Contact(in.readUTF());
+
+                String displayName = readNullableString(in);
+
+                if (null != displayName) {
+                    contact.setDisplayName(displayName);
+                }
+
+                contact.setThumbnailUri(readNullableString(in));
+
+                int phoneNumbersCount = in.readInt();
+
+                for (int j = 0; j < phoneNumbersCount; j++) {
+                    String rawPhoneNumber = in.readUTF();
+                    contact.addPhoneNumber(rawPhoneNumber, readNullableString(in));
+                }
+
+                int emailsCount = in.readInt();
+
+                for (int j = 0; j < emailsCount; j++) {
+                    contact.addEmailAdress(in.readUTF());
+                }
+
+                contactsById.put(contact.getContactId(), contact);
+            }
+
+            return new Snapshot(syncTimestamp, contactsById);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## load() : failed " + e.getMessage(), e);
+        } finally {
+            closeQuietly(in);
+            closeQuietly(fileIn);
+        }
+
+        // the file is corrupted
+        delete();
+        return null;
+    }
+
+    /**
+     * Persist a snapshot.
+     * The file is replaced atomically.
+     *
+     * @param syncTimestamp the contacts book timestamp of the sync
+     * @param contacts      the contacts
+     */
+    void save(long syncTimestamp, Collection<Contact> contacts) {
+        File tmpFile = new File(mSnapshotFile.getParentFile(), SNAPSHOT_FILE_NAME + ".tmp");
+        OutputStream out = null;
+        boolean succeeded = false;
+
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            DataOutputStream dataOut = new DataOutputStream(data);
+
+            dataOut.writeInt(SNAPSHOT_VERSION);
+            dataOut.writeLong(syncTimestamp);
+            dataOut.writeInt(contacts.size());
+
+            for (Contact contact : contacts) {
+                dataOut.writeUTF(contact.getContactId());
+                writeNullableString(dataOut, contact.getDisplayName());
+                writeNullableString(dataOut, contact.getThumbnailUri());
+
+                List<Contact.PhoneNumber> phoneNumbers = contact.getPhonenumbers();
+                dataOut.writeInt(phoneNumbers.size());
+
+                for (Contact.PhoneNumber phoneNumber : phoneNumbers) {
+                    dataOut.writeUTF(phoneNumber.mRawPhoneNumber);
+                    writeNullableString(dataOut, phoneNumber.mE164PhoneNumber);
+                }
+
+                List<String> emails = contact.getEmails();
+                dataOut.writeInt(emails.size());
+
+                for (String email : emails) {
+                    dataOut.writeUTF(email);
+                }
+            }
+
+            dataOut.flush();
+
+            out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+            mCipher.write(data.toByteArray(), out);
+            out.close();
+            out = null;
+            succeeded = tmpFile.renameTo(mSnapshotFile);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## save() : failed " + e.getMessage(), e);
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!succeeded) {
+            tmpFile.delete();
+            delete();
+        }
+    }
+
+    /**
+     * Delete the persisted snapshot.
+     */
+    void delete() {
+        if (mSnapshotFile.exists() && !mSnapshotFile.delete()) {
+            Log.e(LOG_TAG, "## delete() : failed");
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(null != value);
+
+        if (null != value) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void closeQuietly(@Nullable java.io.Closeable closeable) {
+        if (null != closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "## closeQuietly() : failed " + e.getMessage(), e);
+            }
+        }
+    }
+}
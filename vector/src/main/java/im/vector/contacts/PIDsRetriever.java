@@ -20,16 +20,14 @@ package im.vector.contacts;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
-import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
 
 import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.core.Log;
-import org.matrix.androidsdk.core.callback.ApiCallback;
-import org.matrix.androidsdk.core.model.MatrixError;
-import org.matrix.androidsdk.features.identityserver.IdentityServerNotConfiguredException;
-import org.matrix.androidsdk.features.terms.TermsNotSignedException;
 import org.matrix.androidsdk.rest.model.pid.ThreePid;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -37,9 +35,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import fr.gouv.tchap.sdk.rest.client.TchapThirdPidRestClient;
 import im.vector.Matrix;
+import im.vector.VectorApp;
 
 /**
  * retrieve the contact matrix IDs
@@ -47,12 +48,19 @@ import im.vector.Matrix;
 public class PIDsRetriever {
     private static final String LOG_TAG = PIDsRetriever.class.getSimpleName();
 
+    private static final String LOOKUP_CACHE_FILE_NAME = "threepid_lookup_cache";
+
     public interface PIDsRetrieverListener {
         /**
          * Called when the contacts PIDs are retrieved.
          */
         void onSuccess(String accountId);
 
+        /**
+         * Called when some contacts PIDs are retrieved, the retrieval is still in progress.
+         */
+        void onProgress(String accountId);
+
         /**
          * Called the PIDs retrieval fails.
          */
@@ -77,12 +85,51 @@ public class PIDsRetriever {
         return mPIDsRetriever;
     }
 
-    // MatrixID <-> medium
-    private final Map<String, Contact.MXID> mMatrixIdsByMedium = new HashMap<>();
+    // MatrixID <-> medium, including the 3PIDs which are not linked to an account
+    private final ThreePidLookupCache mLookupCache;
+
+    // the cache is loaded and saved on this thread
+    private final ExecutorService mCacheSaveExecutor = Executors.newSingleThreadExecutor();
+
+    // the lookups in progress
+    private final List<ThreePidBulkLookup> mBulkLookups = new ArrayList<>();
 
     // listeners list
     private PIDsRetrieverListener mListener = null;
 
+    /**
+     * Constructor
+     */
+    private PIDsRetriever() {
+        mLookupCache = new ThreePidLookupCache(new File(VectorApp.getInstance().getFilesDir(), LOOKUP_CACHE_FILE_NAME),
+                new ContactsDataCipher(VectorApp.getInstance()));
+    }
+
+    /**
+     * Load the conversion table in background, it is done when a session is started.
+     */
+    public void loadLookupCache() {
+        loadLookupCache(null);
+    }
+
+    /**
+     * Load the conversion table in background.
+     *
+     * @param onLoaded called from the UI thread once the table is loaded
+     */
+    private void loadLookupCache(@Nullable final Runnable onLoaded) {
+        mCacheSaveExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mLookupCache.load();
+
+                if (null != onLoaded) {
+                    new Handler(Looper.getMainLooper()).post(onLoaded);
+                }
+            }
+        });
+    }
+
     /**
      * Set the listener.
      *
@@ -93,20 +140,46 @@ public class PIDsRetriever {
     }
 
     /**
-     * Clear the email to matrix id conversion table
+     * Remove the expired entries of the email to matrix id conversion table
      */
     public void onAppBackgrounded() {
-        mMatrixIdsByMedium.clear();
+        mCacheSaveExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mLookupCache.removeExpiredEntries(System.currentTimeMillis());
+            }
+        });
+        saveLookupCache();
     }
 
     /**
      * reset
      */
     public void reset() {
-        mMatrixIdsByMedium.clear();
+        for (ThreePidBulkLookup bulkLookup : mBulkLookups) {
+            bulkLookup.stop();
+        }
+        mBulkLookups.clear();
+
+        // the saves in progress are ignored
+        mLookupCache.clear();
         mListener = null;
     }
 
+    /**
+     * Persist the conversion table in background.
+     */
+    private void saveLookupCache() {
+        mCacheSaveExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!mLookupCache.save()) {
+                    Log.e(LOG_TAG, "## saveLookupCache() : failed");
+                }
+            }
+        });
+    }
+
     /**
      * ce (email, phonenumber...)
      *
@@ -116,12 +189,12 @@ public class PIDsRetriever {
     public Contact.MXID getMXID(String item) {
         Contact.MXID mxId = null;
 
-        if ((null != item) && mMatrixIdsByMedium.containsKey(item)) {
-            mxId = mMatrixIdsByMedium.get(item);
+        if (null != item) {
+            ThreePidLookupCache.Entry entry = mLookupCache.get(item, System.currentTimeMillis());
 
             // ensure that a valid matrix Id is set
-            if (null == mxId.mMatrixId) {
-                mxId = null;
+            if ((null != entry) && entry.isPositive()) {
+                mxId = entry.mMXID;
             }
         }
 
@@ -136,6 +209,7 @@ public class PIDsRetriever {
      */
     private Set<String> retrieveMatrixIds(List<Contact> contacts) {
         Set<String> requestedMediums = new HashSet<>();
+        long now = System.currentTimeMillis();
 
         for (Contact contact : contacts) {
             // check if the medium have only been checked
@@ -143,11 +217,11 @@ public class PIDsRetriever {
 
             // email first
             for (String email : contact.getEmails()) {
-                if (mMatrixIdsByMedium.containsKey(email)) {
-                    Contact.MXID mxid = mMatrixIdsByMedium.get(email);
+                ThreePidLookupCache.Entry entry = mLookupCache.get(email, now);
 
-                    if (null != mxid) {
-                        contact.put(email, mxid);
+                if (null != entry) {
+                    if (entry.isPositive()) {
+                        contact.put(email, entry.mMXID);
                     }
                 } else {
                     requestedMediums.add(email);
@@ -155,11 +229,11 @@ public class PIDsRetriever {
             }
 
             for (Contact.PhoneNumber pn : contact.getPhonenumbers()) {
-                if (mMatrixIdsByMedium.containsKey(pn.mMsisdnPhoneNumber)) {
-                    Contact.MXID mxid = mMatrixIdsByMedium.get(pn.mMsisdnPhoneNumber);
+                ThreePidLookupCache.Entry entry = (null == pn.mMsisdnPhoneNumber) ? null : mLookupCache.get(pn.mMsisdnPhoneNumber, now);
 
-                    if (null != mxid) {
-                        contact.put(pn.mMsisdnPhoneNumber, mxid);
+                if (null != entry) {
+                    if (entry.isPositive()) {
+                        contact.put(pn.mMsisdnPhoneNumber, entry.mMXID);
                     }
                 } else {
                     requestedMediums.add(pn.mMsisdnPhoneNumber);
@@ -173,6 +247,28 @@ public class PIDsRetriever {
         return requestedMediums;
     }
 
+    /**
+     * Warn the listener that the PIDs are retrieved without any request.
+     *
+     * @param context the context
+     */
+    private void notifySuccess(final Context context) {
+        if (null != mListener) {
+            Handler handler = new Handler(Looper.getMainLooper());
+
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    MXSession session = Matrix.getInstance(context.getApplicationContext()).getDefaultSession();
+
+                    if ((null != session) && (null != mListener)) {
+                        mListener.onSuccess(session.getMyUserId());
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Retrieve the matrix IDs from the contact fields (only emails are supported by now).
      * Update the contact fields with the found Matrix Ids.
@@ -187,27 +283,27 @@ public class PIDsRetriever {
         Log.d(LOG_TAG, "retrieveMatrixIds starts for " + (contacts == null ? 0 : contacts.size()) + " contacts");
         // sanity checks
         if ((null == contacts) || (0 == contacts.size())) {
-            if (null != mListener) {
-                Handler handler = new Handler(Looper.getMainLooper());
-
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        MXSession session = Matrix.getInstance(context.getApplicationContext()).getDefaultSession();
-
-                        if (null != session) {
-                            mListener.onSuccess(session.getMyUserId());
-                        }
-                    }
-                });
-            }
+            notifySuccess(context);
+            return;
+        }
 
+        if (!mLookupCache.isLoaded()) {
+            // the lookups are resumed once the cache is loaded
+            loadLookupCache(new Runnable() {
+                @Override
+                public void run() {
+                    retrieveMatrixIds(context, contacts, localUpdateOnly);
+                }
+            });
             return;
         }
 
         Set<String> missingMediums = retrieveMatrixIds(contacts);
 
-        if (!localUpdateOnly && !missingMediums.isEmpty()) {
+        if (!localUpdateOnly && missingMediums.isEmpty()) {
+            // all the PIDs are cached
+            notifySuccess(context);
+        } else if (!localUpdateOnly) {
             Map<String, String> lookupMap = new HashMap<>();
 
             for (String medium : missingMediums) {
@@ -224,76 +320,77 @@ public class PIDsRetriever {
             final List<String> medias = new ArrayList<>(lookupMap.values());
             Collection<MXSession> sessions = Matrix.getInstance(context.getApplicationContext()).getSessions();
 
+            Log.d(LOG_TAG, "retrieveMatrixIds : look up " + fRequestedMediums.size() + " 3PIDs");
+
             for (MXSession session : sessions) {
                 final String accountId = session.getCredentials().userId;
+                final ThreePidBulkLookup[] bulkLookupHolder = new ThreePidBulkLookup[1];
 
-                final ApiCallback<List<String>> callback = new ApiCallback<List<String>>() {
+                final ThreePidBulkLookup.LookupListener lookupListener = new ThreePidBulkLookup.LookupListener() {
                     @Override
-                    public void onSuccess(final List<String> pids) {
-                        Log.d(LOG_TAG, "bulkLookup success " + pids.size());
-                        // update the local cache
-                        for (int index = 0; index < fRequestedMediums.size(); index++) {
-                            String medium = fRequestedMediums.get(index);
-                            String mxId = pids.get(index);
-
-                            if (!TextUtils.isEmpty(mxId)) {
-                                mMatrixIdsByMedium.put(medium, new Contact.MXID(mxId, accountId));
-                            }
+                    public void onChunkLookedUp(List<String> addresses, List<String> matrixIds) {
+                        Log.d(LOG_TAG, "bulkLookup success " + matrixIds.size());
+                        long now = System.currentTimeMillis();
+
+                        // update the local cache, the 3PIDs without matrix id are cached too
+                        for (int index = 0; index < addresses.size(); index++) {
+                            mLookupCache.put(addresses.get(index), (index < matrixIds.size()) ? matrixIds.get(index) : null, accountId, now);
                         }
 
+                        saveLookupCache();
                         retrieveMatrixIds(contacts);
 
-                        // warn the listener of the update
-                        if (null != mListener) {
-                            mListener.onSuccess(accountId);
+                        // deliver the partial results
+                        if ((null != mListener) && bulkLookupHolder[0].isRunning()) {
+                            mListener.onProgress(accountId);
                         }
                     }
 
-                    /**
-                     * Common error routine
-                     * @param errorMessage the error message
-                     */
-                    private void onError(String errorMessage) {
-                        Log.e(LOG_TAG, "## bulkLookup() : failed " + errorMessage);
+                    @Override
+                    public void onLookupDone(boolean isComplete) {
+                        mBulkLookups.remove(bulkLookupHolder[0]);
 
                         if (null != mListener) {
-                            mListener.onFailure(accountId);
+                            // warn the listener of the update
+                            if (isComplete) {
+                                mListener.onSuccess(accountId);
+                            } else {
+                                // the missing PIDs will be looked up again later
+                                Log.e(LOG_TAG, "## bulkLookup() : some chunks failed");
+                                mListener.onFailure(accountId);
+                            }
                         }
                     }
 
-                    // ignore the network errors
-                    // will be checked again later
                     @Override
-                    public void onNetworkError(Exception e) {
-                        onError(e.getMessage());
-                    }
+                    public void onIdentityServerTermsNotSigned(String token) {
+                        mBulkLookups.remove(bulkLookupHolder[0]);
 
-                    @Override
-                    public void onMatrixError(MatrixError e) {
-                        onError(e.getMessage());
+                        if (null != mListener) {
+                            mListener.onIdentityServerTermsNotSigned(token);
+                        }
                     }
 
                     @Override
-                    public void onUnexpectedError(Exception e) {
-                        if (e instanceof TermsNotSignedException) {
-                            if (null != mListener) {
-                                mListener.onIdentityServerTermsNotSigned(((TermsNotSignedException) e).getToken());
-                            }
-                        } else if (e instanceof IdentityServerNotConfiguredException) {
-                            if (null != mListener) {
-                                mListener.onNoIdentityServer();
-                            }
-                        } else {
-                            onError(e.getMessage());
+                    public void onNoIdentityServer() {
+                        mBulkLookups.remove(bulkLookupHolder[0]);
+
+                        if (null != mListener) {
+                            mListener.onNoIdentityServer();
                         }
                     }
                 };
 
                 // Use the proxied lookup API
                 TchapThirdPidRestClient tchapThirdPidRestClient = new TchapThirdPidRestClient(session.getHomeServerConfig());
-                tchapThirdPidRestClient.bulkLookup(fRequestedMediums, medias, callback);
+                bulkLookupHolder[0] = new ThreePidBulkLookup(tchapThirdPidRestClient,
+                        lookupListener,
+                        ThreePidBulkLookup.DEFAULT_CHUNK_SIZE,
+                        ThreePidBulkLookup.DEFAULT_MAX_CONCURRENT_LOOKUPS,
+                        ThreePidBulkLookup.DEFAULT_MAX_RETRIES);
+                mBulkLookups.add(bulkLookupHolder[0]);
+                bulkLookupHolder[0].start(fRequestedMediums, medias);
             }
         }
     }
 }
-
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.contacts;
+
+import org.matrix.androidsdk.core.callback.ApiCallback;
+import org.matrix.androidsdk.core.model.MatrixError;
+import org.matrix.androidsdk.features.identityserver.IdentityServerNotConfiguredException;
+import org.matrix.androidsdk.features.terms.TermsNotSignedException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import fr.gouv.tchap.sdk.rest.client.TchapThirdPidRestClient;
+
+/**
+ * Look up a list of 3PIDs with bounded bulk lookup requests.
+ * <ul>
+ * <li>the 3PIDs are split in chunks, and a bounded number of chunks are looked up at the same time.</li>
+ * <li>a failed chunk is retried a few times, the other chunks are not impacted.</li>
+ * <li>the result of each chunk is delivered as soon as it is received.</li>
+ * </ul>
+ * It is expected to be used from the thread which receives the rest client callbacks.
+ */
+class ThreePidBulkLookup {
+
+    static final int DEFAULT_CHUNK_SIZE = 100;
+    static final int DEFAULT_MAX_CONCURRENT_LOOKUPS = 3;
+    static final int DEFAULT_MAX_RETRIES = 2;
+
+    /**
+     * The lookup events listener
+     */
+    interface LookupListener {
+        /**
+         * A chunk has been looked up.
+         *
+         * @param addresses the 3PID addresses
+         * @param matrixIds the matrix ids, in the same order, empty when an address is not linked to an account
+         */
+        void onChunkLookedUp(List<String> addresses, List<String> matrixIds);
+
+        /**
+         * All the chunks have been processed.
+         *
+         * @param isComplete false if some chunks have failed after their retries
+         */
+        void onLookupDone(boolean isComplete);
+
+        /**
+         * The identity server terms must be accepted, the lookup is stopped.
+         */
+        void onIdentityServerTermsNotSigned(String token);
+
+        /**
+         * There is no identity server, the lookup is stopped.
+         */
+        void onNoIdentityServer();
+    }
+
+    /**
+     * A chunk of 3PIDs
+     */
+    private static class Chunk {
+        final List<String> mAddresses;
+        final List<String> mMediums;
+
+        int mFailuresCount;
+
+        Chunk(List<String> addresses, List<String> mediums) {
+            mAddresses = addresses;
+            mMediums = mediums;
+        }
+    }
+
+    private final TchapThirdPidRestClient mRestClient;
+    private final LookupListener mListener;
+    private final int mChunkSize;
+    private final int mMaxConcurrentLookups;
+    private final int mMaxRetries;
+
+    private final Deque<Chunk> mPendingChunks = new ArrayDeque<>();
+
+    private int mRunningLookupsCount = 0;
+    private int mFailedChunksCount = 0;
+    private boolean mIsStopped = false;
+
+    /**
+     * Constructor
+     *
+     * @param restClient           the rest client
+     * @param listener             the listener
+     * @param chunkSize            the max number of 3PIDs by request
+     * @param maxConcurrentLookups the max number of requests sent at the same time
+     * @param maxRetries           the number of retries of a failed chunk
+     */
+    ThreePidBulkLookup(TchapThirdPidRestClient restClient, LookupListener listener, int chunkSize, int maxConcurrentLookups, int maxRetries) {
+        mRestClient = restClient;
+        mListener = listener;
+        mChunkSize = chunkSize;
+        mMaxConcurrentLookups = maxConcurrentLookups;
+        mMaxRetries = maxRetries;
+    }
+
+    /**
+     * Start the lookup.
+     *
+     * @param addresses the 3PID addresses
+     * @param mediums   the 3PID mediums, in the same order
+     */
+    void start(List<String> addresses, List<String> mediums) {
+        for (int start = 0; start < addresses.size(); start += mChunkSize) {
+            int end = Math.min(start + mChunkSize, addresses.size());
+
+            mPendingChunks.add(new Chunk(new ArrayList<>(addresses.subList(start, end)), new ArrayList<>(mediums.subList(start, end))));
+        }
+
+        if (mPendingChunks.isEmpty()) {
+            mListener.onLookupDone(true);
+        } else {
+            lookupNextChunks();
+        }
+    }
+
+    /**
+     * Stop the lookup, the pending chunks are dropped and the running ones are ignored.
+     */
+    void stop() {
+        mIsStopped = true;
+        mPendingChunks.clear();
+    }
+
+    /**
+     * @return true if some chunks are pending or running.
+     */
+    boolean isRunning() {
+        return !mIsStopped && ((mRunningLookupsCount > 0) || !mPendingChunks.isEmpty());
+    }
+
+    private void lookupNextChunks() {
+        while (!mIsStopped && (mRunningLookupsCount < mMaxConcurrentLookups) && !mPendingChunks.isEmpty()) {
+            lookup(mPendingChunks.poll());
+        }
+    }
+
+    private void lookup(final Chunk chunk) {
+        mRunningLookupsCount++;
+
+        mRestClient.bulkLookup(chunk.mAddresses, chunk.mMediums, new ApiCallback<List<String>>() {
+            @Override
+            public void onSuccess(List<String> matrixIds) {
+                if (mIsStopped) {
+                    return;
+                }
+
+                mRunningLookupsCount--;
+                mListener.onChunkLookedUp(chunk.mAddresses, matrixIds);
+                onChunkDone();
+            }
+
+            private void onError() {
+                if (mIsStopped) {
+                    return;
+                }
+
+                mRunningLookupsCount--;
+                chunk.mFailuresCount++;
+
+                if (chunk.mFailuresCount <= mMaxRetries) {
+                    // retry after the other pending chunks
+                    mPendingChunks.add(chunk);
+                } else {
+                    mFailedChunksCount++;
+                }
+
+                onChunkDone();
+            }
+
+            @Override
+            public void onNetworkError(Exception e) {
+                onError();
+            }
+
+            @Override
+            public void onMatrixError(MatrixError e) {
+                onError();
+            }
+
+            @Override
+            public void onUnexpectedError(Exception e) {
+                if (e instanceof TermsNotSignedException) {
+                    if (!mIsStopped) {
+                        stop();
+                        mListener.onIdentityServerTermsNotSigned(((TermsNotSignedException) e).getToken());
+                    }
+                } else if (e instanceof IdentityServerNotConfiguredException) {
+                    if (!mIsStopped) {
+                        stop();
+                        mListener.onNoIdentityServer();
+                    }
+                } else {
+                    onError();
+                }
+            }
+        });
+    }
+
+    private void onChunkDone() {
+        if (mIsStopped) {
+            return;
+        }
+
+        if ((0 == mRunningLookupsCount) && mPendingChunks.isEmpty()) {
+            mIsStopped = true;
+            mListener.onLookupDone(0 == mFailedChunksCount);
+        } else {
+            lookupNextChunks();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.contacts;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of the 3PID lookups (email or msisdn to matrix id).
+ * The negative results are cached too, with a shorter lifetime, so that the unknown 3PIDs are not looked up
+ * again on each application start.
+ * The cache file is encrypted. It must be loaded in background (see {@link #load()}), the reads do not wait for it.
+ * It is thread safe.
+ */
+class ThreePidLookupCache {
+
+    // update it when the file format is modified
+    private static final int CACHE_VERSION = 2;
+
+    // a matrix id is not expected to change
+    static final long POSITIVE_ENTRY_LIFETIME_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // a contact may create his account at any time
+    static final long NEGATIVE_ENTRY_LIFETIME_MS = 24L * 60 * 60 * 1000;
+
+    /**
+     * A cached lookup result
+     */
+    static class Entry {
+        // the matrix id is empty when the 3PID is not linked to an account
+        final Contact.MXID mMXID;
+
+        final long mExpirationTs;
+
+        Entry(Contact.MXID mxid, long expirationTs) {
+            mMXID = mxid;
+            mExpirationTs = expirationTs;
+        }
+
+        /**
+         * @return true if the 3PID is linked to a matrix id
+         */
+        boolean isPositive() {
+            return !mMXID.mMatrixId.isEmpty();
+        }
+    }
+
+    private final File mCacheFile;
+    private final ContactsDataCipher mCipher;
+
+    // the entries by 3PID address
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    private boolean mIsLoaded = false;
+
+    // incremented on each clear, to ignore the saves in progress
+    private int mGeneration = 0;
+
+    /**
+     * Constructor
+     *
+     * @param cacheFile the file used to persist the cache
+     * @param cipher    the cache file cipher
+     */
+    ThreePidLookupCache(File cacheFile, ContactsDataCipher cipher) {
+        mCacheFile = cacheFile;
+        mCipher = cipher;
+    }
+
+    /**
+     * Get a cached lookup result.
+     *
+     * @param address the 3PID address
+     * @param now     the current timestamp
+     * @return the entry, null if the address is unknown, if the entry has expired or if the cache is not loaded yet.
+     */
+    @Nullable
+    synchronized Entry get(String address, long now) {
+        Entry entry = mEntries.get(address);
+
+        if ((null != entry) && (entry.mExpirationTs <= now)) {
+            mEntries.remove(address);
+            entry = null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Cache a lookup result.
+     *
+     * @param address   the 3PID address
+     * @param matrixId  the matrix id, empty or null if the address is not linked to an account
+     * @param accountId the account used for the lookup
+     * @param now       the current timestamp
+     */
+    synchronized void put(String address, @Nullable String matrixId, String accountId, long now) {
+        ensureLoaded();
+
+        Contact.MXID mxid = new Contact.MXID(matrixId, accountId);
+        long lifetime = mxid.mMatrixId.isEmpty() ? NEGATIVE_ENTRY_LIFETIME_MS : POSITIVE_ENTRY_LIFETIME_MS;
+
+        mEntries.put(address, new Entry(mxid, now + lifetime));
+    }
+
+    /**
+     * Remove the expired entries.
+     *
+     * @param now the current timestamp
+     */
+    synchronized void removeExpiredEntries(long now) {
+        ensureLoaded();
+
+        Iterator<Entry> iterator = mEntries.values().iterator();
+
+        while (iterator.hasNext()) {
+            if (iterator.next().mExpirationTs <= now) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached entries, expired or not.
+     */
+    synchronized int size() {
+        ensureLoaded();
+        return mEntries.size();
+    }
+
+    /**
+     * Clear the cache and delete its file.
+     */
+    synchronized void clear() {
+        mEntries.clear();
+        mIsLoaded = true;
+        mGeneration++;
+        mCacheFile.delete();
+    }
+
+    /**
+     * @return true if the persisted entries have been loaded.
+     */
+    synchronized boolean isLoaded() {
+        return mIsLoaded;
+    }
+
+    /**
+     * Load the persisted entries if it is not yet done.
+     * It must be called from a background thread.
+     */
+    synchronized void load() {
+        ensureLoaded();
+    }
+
+    /**
+     * Load the persisted entries if it is not yet done.
+     */
+    private void ensureLoaded() {
+        if (mIsLoaded) {
+            return;
+        }
+
+        mIsLoaded = true;
+
+        if (!mCacheFile.exists()) {
+            return;
+        }
+
+        InputStream fileIn = null;
+        DataInputStream in = null;
+
+        try {
+            fileIn = new BufferedInputStream(new FileInputStream(mCacheFile));
+            byte[] data = mCipher.read(fileIn);
+
+            if (null == data) {
+                throw new IOException("cannot decrypt the cache");
+            }
+
+            in = new DataInputStream(new ByteArrayInputStream(data));
+
+            if (in.readInt() == CACHE_VERSION) {
+                int count = in.readInt();
+
+                for (int i = 0; i < count; i++) {
+                    String address = in.readUTF();
+                    String matrixId = in.readUTF();
+                    String accountId = in.readUTF();
+                    long expirationTs = in.readLong();
+
+                    mEntries.put(address, new Entry(new Contact.MXID(matrixId, accountId), expirationTs));
+                }
+            }
+        } catch (Exception e) {
+            // the file is corrupted, the 3PIDs will be looked up again
+            mEntries.clear();
+            mCacheFile.delete();
+        } finally {
+            closeQuietly(in);
+            closeQuietly(fileIn);
+        }
+    }
+
+    /**
+     * Persist the cache.
+     * The file is replaced atomically, it can be called from any thread.
+     *
+     * @return true if the cache has been saved
+     */
+    boolean save() {
+        List<Map.Entry<String, Entry>> entries;
+        int generation;
+
+        synchronized (this) {
+            ensureLoaded();
+            entries = new ArrayList<>(mEntries.entrySet());
+            generation = mGeneration;
+        }
+
+        File tmpFile = new File(mCacheFile.getParentFile(), mCacheFile.getName() + ".tmp");
+        OutputStream out = null;
+        boolean succeeded = false;
+
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            DataOutputStream dataOut = new DataOutputStream(data);
+
+            dataOut.writeInt(CACHE_VERSION);
+            dataOut.writeInt(entries.size());
+
+            for (Map.Entry<String, Entry> entry : entries) {
+                Contact.MXID mxid = entry.getValue().mMXID;
+
+                dataOut.writeUTF(entry.getKey());
+                dataOut.writeUTF(mxid.mMatrixId);
+                dataOut.writeUTF((null == mxid.mAccountId) ? "" : mxid.mAccountId);
+                dataOut.writeLong(entry.getValue().mExpirationTs);
+            }
+
+            dataOut.flush();
+
+            out = new BufferedOutputStream(new FileOutputStream(tmpFile));
+            mCipher.write(data.toByteArray(), out);
+            out.close();
+            out = null;
+
+            synchronized (this) {
+                succeeded = (generation == mGeneration) && tmpFile.renameTo(mCacheFile);
+            }
+        } catch (Exception e) {
+            succeeded = false;
+        } finally {
+            closeQuietly(out);
+        }
+
+        if (!succeeded) {
+            tmpFile.delete();
+        }
+
+        return succeeded;
+    }
+
+    private static void closeQuietly(@Nullable java.io.Closeable closeable) {
+        if (null != closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -52,6 +52,7 @@ import im.vector.adapters.AbsAdapter;
 import im.vector.ui.badge.BadgeProxy;
 import im.vector.util.HomeRoomsViewModel;
 import im.vector.util.RoomUtils;
+import im.vector.util.UnreadStateAggregator;
 
 /**
  * Abstract fragment providing the universal search
@@ -321,6 +322,17 @@ public abstract class AbsHomeFragment extends VectorBaseFragment implements
         //no-op
     }
 
+    /**
+     * The rooms have been reclassified
+     * By default, the whole result is applied.
+     *
+     * @param result the new result
+     * @param diff   the changes since the previous result, null if all the rooms have been reclassified
+     */
+    public void onRoomResultUpdated(final HomeRoomsViewModel.Result result, @Nullable final HomeRoomsViewModel.Diff diff) {
+        onRoomResultUpdated(result);
+    }
+
     /**
      * Open the selected room
      *
@@ -346,6 +358,7 @@ public abstract class AbsHomeFragment extends VectorBaseFragment implements
 
             if (null != roomSummary) {
                 room.sendReadReceipt();
+                UnreadStateAggregator.getInstance(mSession).invalidateRoom(roomId);
             }
 
             // Update badge unread count in case device is offline
@@ -438,6 +451,11 @@ public abstract class AbsHomeFragment extends VectorBaseFragment implements
                 // check if the activity is still attached
                 if ((null != mActivity) && !mActivity.isFinishing()) {
                     mActivity.hideWaitingView();
+                    UnreadStateAggregator unreadStateAggregator = UnreadStateAggregator.getInstance(mSession);
+                    for (Room room : getRooms()) {
+                        unreadStateAggregator.invalidateRoom(room.getRoomId());
+                        mActivity.getRoomsViewModel().invalidateRoom(room.getRoomId());
+                    }
                     mActivity.refreshUnreadBadges();
                     mActivity.onRoomDataUpdated();
                 }
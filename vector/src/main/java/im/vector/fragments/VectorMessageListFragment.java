@@ -78,10 +78,13 @@ import org.matrix.androidsdk.rest.model.message.VideoMessage;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import fr.gouv.tchap.media.MediaScanManager;
 import fr.gouv.tchap.model.MediaScan;
@@ -192,38 +195,54 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
 
         @Override
         public void onEventSentStateUpdated(Event event) {
-            if (mAdapter != null) mAdapter.notifyDataSetChanged();
+            refreshRows(Collections.singletonList(event.eventId), VectorMessagesAdapter.PAYLOAD_SENT_STATE);
         }
 
         @Override
         public void onTaggedEventsEvent(String roomId) {
-            if (mAdapter != null) mAdapter.notifyDataSetChanged();
+            refreshRows(null, VectorMessagesAdapter.PAYLOAD_TAGS);
         }
 
-        private boolean mRefreshAfterEventsDecryption;
+        // the events decrypted since the last refresh
+        private final Set<String> mDecryptedEventIds = new HashSet<>();
 
         @Override
         public void onEventDecrypted(final String roomId, final String eventId) {
-            // avoid refreshing the whole list for each event
+            // avoid refreshing the rows for each event
             // they are often refreshed by bunches.
-            if (mRefreshAfterEventsDecryption) {
+            if (!mDecryptedEventIds.isEmpty()) {
                 Log.d(LOG_TAG, "## onEventDecrypted " + eventId + " : there is a pending refresh");
+                mDecryptedEventIds.add(eventId);
             } else {
                 Log.d(LOG_TAG, "## onEventDecrypted " + eventId);
 
-                mRefreshAfterEventsDecryption = true;
+                mDecryptedEventIds.add(eventId);
                 new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
                     @Override
                     public void run() {
-                        Log.d(LOG_TAG, "## onEventDecrypted : refresh the list");
-                        mRefreshAfterEventsDecryption = false;
-                        mAdapter.notifyDataSetChanged();
+                        Log.d(LOG_TAG, "## onEventDecrypted : refresh " + mDecryptedEventIds.size() + " events");
+                        List<String> eventIds = new ArrayList<>(mDecryptedEventIds);
+                        mDecryptedEventIds.clear();
+                        refreshRows(eventIds, VectorMessagesAdapter.PAYLOAD_DECRYPTED);
                     }
                 }, 500);
             }
         }
     };
 
+    /**
+     * Refresh the displayed rows impacted by some changes.
+     * The whole list is refreshed when the rows cannot be updated in place.
+     *
+     * @param eventIds the updated events ids, null to refresh all the displayed rows
+     * @param payload  the changes (see VectorMessagesAdapter.PAYLOAD_XXX)
+     */
+    private void refreshRows(@Nullable Collection<String> eventIds, int payload) {
+        if ((null != mAdapter) && !mAdapter.refreshRows(eventIds, payload)) {
+            mAdapter.notifyDataSetChanged();
+        }
+    }
+
     public static VectorMessageListFragment newInstance(String matrixId, String roomId, String eventId, String previewMode, int layoutResId) {
         VectorMessageListFragment f = new VectorMessageListFragment();
         Bundle args = getArguments(matrixId, roomId, layoutResId);
@@ -262,7 +281,7 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
             mAdapter.mIsDirectRoom = mRoom.isDirect();
 
             if (null != mSession) {
-                DinumUtilsKt.clearExpiredRoomContents(mSession, mRoom);
+                DinumUtilsKt.clearExpiredRoomContents(mSession, mRoom, mExpiredContentsCallback);
             }
         }
 
@@ -271,6 +290,8 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
             mAdapter.setImageGetter(mVectorImageGetter);
         }
 
+        mAdapter.setMessageListView(mMessageListView);
+
         return v;
     }
 
@@ -290,6 +311,14 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
         super.onActivityResult(requestCode, resultCode, data);
     }
 
+    @Override
+    public void onReceiptEvent(List<String> senderIds) {
+        // the read receipts are only displayed by the visible rows
+        if ((null == mAdapter) || !mAdapter.refreshRows(null, VectorMessagesAdapter.PAYLOAD_READ_RECEIPTS)) {
+            super.onReceiptEvent(senderIds);
+        }
+    }
+
     /**
      * @return the fragment tag to use to restore the matrix messages fragment
      */
@@ -318,8 +347,7 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
 
         // Prepare media scan manager
         if (hostActivity instanceof VectorAppCompatActivity) {
-            VectorAppCompatActivity riotAppCompatActivity = (VectorAppCompatActivity) hostActivity;
-            mMediaScanManager = new MediaScanManager(mSession.getMediaScanRestClient(), riotAppCompatActivity.realm);
+            mMediaScanManager = new MediaScanManager(mSession);
 
             mMediaScanManager.setListener(new MediaScanManager.MediaScanManagerListener() {
                 @Override
@@ -327,7 +355,7 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
                     // Check if the fragment is added to its Activity before
                     if (isAdded() && null != mAdapter) {
                         // Refresh display
-                        mAdapter.notifyDataSetChanged();
+                        refreshRows(null, VectorMessagesAdapter.PAYLOAD_MEDIA_SCAN);
                     }
                 }
             });
@@ -376,7 +404,7 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
         mVectorImageGetter.setListener(new VectorImageGetter.OnImageDownloadListener() {
             @Override
             public void onImageDownloaded(String source) {
-                mAdapter.notifyDataSetChanged();
+                mAdapter.onInlineImageDownloaded(source);
             }
         });
     }
@@ -385,6 +413,10 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
     public void onDetach() {
         super.onDetach();
 
+        if (null != mMediaScanManager) {
+            // the room is closed, the pending scans are useless
+            mMediaScanManager.cancelPendingScans();
+        }
         mMediaScanManager = null;
     }
 
@@ -467,19 +499,26 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
                 && mEventTimeLine.isLiveTimeline()) {
             if (RoomRetentionKt.EVENT_TYPE_STATE_ROOM_RETENTION.equals(event.getType())) {
                 // Apply the new retention period on the stored data
-                // Reload the room history when data has been removed from the store
-                if (DinumUtilsKt.clearExpiredRoomContents(mSession, mRoom)) {
-                    // clear the room history
-                    mAdapter.clear();
-                    // init the timeline
-                    mEventTimeLine.initHistory();
-                    // fill the screen
-                    messagesFragment.renewHistory();
-                }
+                DinumUtilsKt.clearExpiredRoomContents(mSession, mRoom, mExpiredContentsCallback);
             }
         }
     }
 
+    // Reload the room history when data has been removed from the store
+    private final SimpleApiCallback<Boolean> mExpiredContentsCallback = new SimpleApiCallback<Boolean>() {
+        @Override
+        public void onSuccess(Boolean isStoreUpdated) {
+            if (isStoreUpdated && isAdded() && (null != mEventTimeLine) && (null != messagesFragment)) {
+                // clear the room history
+                mAdapter.clear();
+                // init the timeline
+                mEventTimeLine.initHistory();
+                // fill the screen
+                messagesFragment.renewHistory();
+            }
+        }
+    };
+
     /**
      * Update the encrypted status of the room
      *
@@ -1176,7 +1215,7 @@ public class VectorMessageListFragment extends MatrixMessageListFragment<VectorM
      */
     @Override
     public boolean isDisplayAllEvents() {
-        return PreferencesManager.displayAllEvents(getActivity());
+        return PreferencesManager.getSettings(getActivity()).displayAllEvents;
     }
 
     @Override
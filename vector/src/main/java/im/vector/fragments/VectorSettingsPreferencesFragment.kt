@@ -742,7 +742,7 @@ class VectorSettingsPreferencesFragment : PreferenceFragmentCompat(), SharedPref
                     // Clear media scan database
                     if (activity is VectorAppCompatActivity) {
                         val riotAppCompatActivity = activity as VectorAppCompatActivity
-                        val mediaScanManager = MediaScanManager(mSession.mediaScanRestClient, riotAppCompatActivity.realm)
+                        val mediaScanManager = MediaScanManager(mSession, riotAppCompatActivity.realm)
                         mediaScanManager.clearAntiVirusScanResults()
                     }
                 } catch (e: Exception) {
@@ -170,6 +170,10 @@ class NotifiableEventResolver(val context: Context) {
                 //?Defensive coding, reported crash and logs contains lot of invalid avatar
                 Log.e(LOG_TAG, "## Error while resolving avatars", e)
             }
+
+            // keep the room data for the next pushes, which are displayed before the store is loaded
+            RoomNotificationMetadataIndex.getInstance(context).update(notifiableEvent)
+
             return notifiableEvent
         }
     }
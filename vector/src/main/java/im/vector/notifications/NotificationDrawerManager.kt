@@ -16,14 +16,15 @@
 package im.vector.notifications
 
 import android.app.Notification
+import android.content.ComponentCallbacks2
 import android.content.Context
 import android.graphics.Bitmap
 import android.graphics.BitmapFactory
 import android.os.Build
 import android.os.PowerManager
-import android.text.TextUtils
 import android.view.WindowManager
 import android.widget.ImageView
+import androidx.collection.LruCache
 import androidx.core.app.NotificationCompat
 import androidx.core.app.Person
 import fr.gouv.tchap.util.DinsicUtils
@@ -31,12 +32,10 @@ import im.vector.BuildConfig
 import im.vector.Matrix
 import im.vector.R
 import im.vector.VectorApp
-import im.vector.util.SecretStoringUtils
+import im.vector.util.MemoryUtils
+import im.vector.util.UnreadStateAggregator
 import org.matrix.androidsdk.MXSession
 import org.matrix.androidsdk.core.Log
-import java.io.File
-import java.io.FileInputStream
-import java.io.FileOutputStream
 
 /**
  * The NotificationDrawerManager receives notification events as they arrived (from event stream or fcm) and
@@ -48,7 +47,12 @@ class NotificationDrawerManager(val context: Context) {
     //The first time the notification drawer is refreshed, we force re-render of all notifications
     private var firstTime = true
 
-    private var eventList = loadEventInfo()
+    // the events are persisted in an encrypted journal, which is replayed in background
+    private val journal = NotificationEventsJournal(context)
+
+    // only the first access waits for the journal replay
+    private val eventList: ArrayList<NotifiableEvent> by lazy { journal.getEvents() }
+
     private var myUserDisplayName: String = ""
     private var myUserAvatarUrl: String = ""
 
@@ -56,6 +60,20 @@ class NotificationDrawerManager(val context: Context) {
 
     private var currentRoomId: String? = null
 
+    // the rooms whose events have been removed since the last refresh, their notification must be rebuilt
+    // (the rooms with new events are detected with NotifiableEvent.hasBeenDisplayed)
+    private val dirtyRoomIds = HashSet<String>()
+
+    // the summary lines of the displayed rooms notifications, they are reused when a room is up to date
+    private val roomSummaries = HashMap<String, RoomSummary>()
+
+    // the decoded rooms avatars, by file path
+    private val roomBitmapCache = object : LruCache<String, Bitmap>(ROOM_BITMAP_CACHE_SIZE) {
+        override fun sizeOf(key: String, bitmap: Bitmap): Int {
+            return bitmap.rowBytes * bitmap.height // size in bytes
+        }
+    }
+
     private var iconLoader = IconLoader(context,
             object : IconLoader.IconLoaderListener {
                 override fun onIconsLoaded() {
@@ -110,12 +128,14 @@ class NotificationDrawerManager(val context: Context) {
                     notifiableEvent.noisy = false
                     eventList.remove(existing)
                     eventList.add(notifiableEvent)
+                    journal.add(listOf(notifiableEvent))
 
                 } else {
                     //keep the existing one, do not replace
                 }
             } else {
                 eventList.add(notifiableEvent)
+                journal.add(listOf(notifiableEvent))
             }
 
         }
@@ -127,6 +147,7 @@ class NotificationDrawerManager(val context: Context) {
     fun clearAllEvents() {
         synchronized(eventList) {
             eventList.clear()
+            journal.clear()
         }
         refreshNotificationDrawer(null)
     }
@@ -136,11 +157,11 @@ class NotificationDrawerManager(val context: Context) {
         Log.d(LOG_TAG, "clearMessageEventOfRoom $roomId")
 
         if (roomId != null) {
-            eventList.removeAll { e ->
-                if (e is NotifiableMessageEvent) {
-                    return@removeAll e.roomId == roomId
+            synchronized(eventList) {
+                removeEvents { e ->
+                    e is NotifiableMessageEvent && e.roomId == roomId
                 }
-                return@removeAll false
+                roomSummaries.remove(roomId)
             }
             NotificationUtils.cancelNotificationMessage(context, roomId, ROOM_MESSAGES_NOTIFICATION_ID)
         }
@@ -164,23 +185,54 @@ class NotificationDrawerManager(val context: Context) {
 
     fun homeActivityDidResume(matrixID: String?) {
         synchronized(eventList) {
-            eventList.removeAll { e ->
-                return@removeAll e !is NotifiableMessageEvent //messages are cleared when entering room
+            removeEvents { e ->
+                e !is NotifiableMessageEvent //messages are cleared when entering room
+            }
+        }
+    }
+
+    /**
+     * Remove the notification displayed from the push data of an event, when the resolved event is not notifiable.
+     * The notification drawer must be refreshed afterwards.
+     *
+     * @param eventId the event id
+     */
+    fun clearPushGatewayEvent(eventId: String) {
+        synchronized(eventList) {
+            val event = eventList.firstOrNull { it.eventId == eventId && it.isPushGatewayEvent } ?: return
+
+            removeEvents { it === event }
+
+            if (event is NotifiableMessageEvent) {
+                dirtyRoomIds.add(event.roomId)
             }
         }
     }
 
     fun clearMemberShipNotificationForRoom(roomId: String) {
         synchronized(eventList) {
-            eventList.removeAll { e ->
-                if (e is InviteNotifiableEvent) {
-                    return@removeAll e.roomId == roomId
-                }
-                return@removeAll false
+            removeEvents { e ->
+                e is InviteNotifiableEvent && e.roomId == roomId
             }
         }
     }
 
+    /**
+     * Remove the events matching a predicate, from the list and from the journal.
+     * It must be called with the eventList lock.
+     */
+    private fun removeEvents(predicate: (NotifiableEvent) -> Boolean) {
+        val removedEventIds = ArrayList<String>()
+
+        eventList.removeAll { e ->
+            predicate(e).also { isRemoved ->
+                if (isRemoved) removedEventIds.add(e.eventId)
+            }
+        }
+
+        journal.remove(removedEventIds)
+    }
+
     fun refreshNotificationDrawer(outdatedDetector: OutdatedEventDetector?) {
         try {
             _refreshNotificationDrawer(outdatedDetector)
@@ -216,6 +268,9 @@ class NotificationDrawerManager(val context: Context) {
             val roomIdToEventMap: MutableMap<String, ArrayList<NotifiableMessageEvent>> = HashMap()
             val simpleEvents: ArrayList<NotifiableEvent> = ArrayList()
             val notifications: ArrayList<Notification> = ArrayList()
+            // the journal updates
+            val removedEventIds: ArrayList<String> = ArrayList()
+            val displayedEventIds: ArrayList<String> = ArrayList()
 
             val eventIterator = eventList.listIterator()
             while (eventIterator.hasNext()) {
@@ -231,6 +286,8 @@ class NotificationDrawerManager(val context: Context) {
                     if (shouldIgnoreMessageEventInRoom(roomId) || outdatedDetector?.isMessageOutdated(event) == true) {
                         //forget this event
                         eventIterator.remove()
+                        removedEventIds.add(event.eventId)
+                        dirtyRoomIds.add(roomId)
                     } else {
                         roomEvents.add(event)
                     }
@@ -239,6 +296,11 @@ class NotificationDrawerManager(val context: Context) {
                 }
             }
 
+            // the rooms whose last events have been removed, their notification is cancelled
+            for (roomId in dirtyRoomIds) {
+                roomIdToEventMap.getOrPut(roomId) { ArrayList() }
+            }
+
 
             Log.d(LOG_TAG, "%%%%%%%% REFRESH NOTIFICATION DRAWER ${roomIdToEventMap.size} room groups")
 
@@ -251,6 +313,18 @@ class NotificationDrawerManager(val context: Context) {
                     //Just clear this notification
                     Log.d(LOG_TAG, "%%%%%%%% REFRESH NOTIFICATION DRAWER $roomId has no more events")
                     NotificationUtils.cancelNotificationMessage(context, roomId, ROOM_MESSAGES_NOTIFICATION_ID)
+                    roomSummaries.remove(roomId)
+                    continue
+                }
+
+                val roomSummary = roomSummaries[roomId]
+                val isRoomDirty = roomId in dirtyRoomIds
+
+                if (!firstTime && !isRoomDirty && roomSummary != null && events.all { it.hasBeenDisplayed }) {
+                    // the displayed notification is up to date, only its summary line is required
+                    Log.d(LOG_TAG, "%%%%%%%% REFRESH NOTIFICATION DRAWER $roomId is up to date")
+                    summaryInboxStyle.addLine(roomSummary.inboxLine)
+                    summaryLine = roomSummary.summaryLine
                     continue
                 }
 
@@ -299,6 +373,9 @@ class NotificationDrawerManager(val context: Context) {
                     } else {
                         style.addMessage(event.body, event.timestamp, senderPerson)
                     }
+                    if (!event.hasBeenDisplayed) {
+                        displayedEventIds.add(event.eventId)
+                    }
                     event.hasBeenDisplayed = true //we can consider it as displayed
 
                     //It is possible that this event was previously shown as an 'anonymous' simple notif.
@@ -326,7 +403,9 @@ class NotificationDrawerManager(val context: Context) {
                     summaryLine = null
                 }
 
-                if (firstTime || roomGroup.hasNewEvent) {
+                roomSummaries[roomId] = RoomSummary(summaryLine ?: roomName, summaryLine)
+
+                if (firstTime || roomGroup.hasNewEvent || isRoomDirty) {
                     //Should update displayed notification
                     Log.d(LOG_TAG, "%%%%%%%% REFRESH NOTIFICATION DRAWER $roomId need refresh")
                     val lastMessageTimestamp = events.last().timestamp
@@ -348,6 +427,9 @@ class NotificationDrawerManager(val context: Context) {
                 }
             }
 
+            dirtyRoomIds.clear()
+            roomSummaries.keys.retainAll(roomIdToEventMap.keys)
+
 
             //Handle simple events
             for (event in simpleEvents) {
@@ -356,6 +438,9 @@ class NotificationDrawerManager(val context: Context) {
                     NotificationUtils.buildSimpleEventNotification(context, event, null, myUserDisplayName)?.let {
                         notifications.add(it)
                         NotificationUtils.showNotificationMessage(context, event.eventId, ROOM_EVENT_NOTIFICATION_ID, it)
+                        if (!event.hasBeenDisplayed) {
+                            displayedEventIds.add(event.eventId)
+                        }
                         event.hasBeenDisplayed = true //we can consider it as displayed
                         hasNewEvent = true
                         summaryIsNoisy = summaryIsNoisy || event.noisy
@@ -364,6 +449,9 @@ class NotificationDrawerManager(val context: Context) {
                 }
             }
 
+            journal.remove(removedEventIds)
+            journal.markDisplayed(displayedEventIds)
+
 
             //======== Build summary notification =========
             //On Android 7.0 (API level 24) and higher, the system automatically builds a summary for
@@ -397,7 +485,8 @@ class NotificationDrawerManager(val context: Context) {
                         summaryInboxStyle,
                         sumTitle,
                         noisy = hasNewEvent && summaryIsNoisy,
-                        lastMessageTimestamp = globalLastMessageTimestamp
+                        lastMessageTimestamp = globalLastMessageTimestamp,
+                        unreadRoomsCount = UnreadStateAggregator.getTotalUnreadRoomsCount()
                 )?.let {
                     NotificationUtils.showNotificationMessage(context, null, SUMMARY_NOTIFICATION_ID, it)
                 }
@@ -429,11 +518,14 @@ class NotificationDrawerManager(val context: Context) {
         //Use the last event (most recent?)
         val roomAvatarPath = events[events.size - 1].roomAvatarPath
                 ?: events[events.size - 1].senderAvatarPath
-        if (!TextUtils.isEmpty(roomAvatarPath)) {
+        if (roomAvatarPath != null && roomAvatarPath.isNotEmpty()) {
+            roomBitmapCache.get(roomAvatarPath)?.let { return it }
+
             val options = BitmapFactory.Options()
             options.inPreferredConfig = Bitmap.Config.ARGB_8888
             try {
                 return BitmapFactory.decodeFile(roomAvatarPath, options)
+                        ?.also { roomBitmapCache.put(roomAvatarPath, it) }
             } catch (oom: OutOfMemoryError) {
                 Log.e(LOG_TAG, "## decodeFile failed with an oom", oom)
             } catch (e: Exception) {
@@ -444,57 +536,46 @@ class NotificationDrawerManager(val context: Context) {
         return null
     }
 
+    /**
+     * Release some memory according to the trim level.
+     *
+     * @param level the trim level (see [ComponentCallbacks2])
+     */
+    fun trimMemory(level: Int) {
+        MemoryUtils.trimLruCache(roomBitmapCache, level)
+    }
+
     private fun shouldIgnoreMessageEventInRoom(roomId: String?): Boolean {
         return currentRoomId != null && roomId == currentRoomId
     }
 
 
+    /**
+     * Compact the events journal, in background.
+     * The events are journaled as soon as they are updated, so nothing is lost if the process is killed.
+     */
     fun persistInfo() {
-        if (eventList.isEmpty()) {
-            deleteCachedRoomNotifications(context)
-            return
-        }
-        try {
-            val file = File(context.applicationContext.cacheDir, ROOMS_NOTIFICATIONS_FILE_NAME)
-            if (!file.exists()) file.createNewFile()
-            FileOutputStream(file).use {
-                SecretStoringUtils.securelyStoreObject(eventList, "notificationMgr", it, this.context)
-            }
-        } catch (e: Throwable) {
-            Log.e(LOG_TAG, "## Failed to save cached notification info", e)
-        }
+        journal.compact()
     }
 
-    private fun loadEventInfo(): ArrayList<NotifiableEvent> {
-        try {
-            val file = File(context.applicationContext.cacheDir, ROOMS_NOTIFICATIONS_FILE_NAME)
-            if (file.exists()) {
-                FileInputStream(file).use {
-                    val events: ArrayList<NotifiableEvent>? = SecretStoringUtils.loadSecureSecret(it, "notificationMgr", this.context)
-                    if (events != null) {
-                        return ArrayList(events.mapNotNull { it as? NotifiableEvent })
-                    }
-                }
-            }
-        } catch (e: Throwable) {
-            Log.e(LOG_TAG, "## Failed to load cached notification info", e)
-        }
-        return ArrayList()
-    }
-
-    private fun deleteCachedRoomNotifications(context: Context) {
-        val file = File(context.applicationContext.cacheDir, ROOMS_NOTIFICATIONS_FILE_NAME)
-        if (file.exists()) {
-            file.delete()
-        }
-    }
+    /**
+     * The summary lines of a room notification
+     */
+    private data class RoomSummary(
+            // the line displayed in the summary notification
+            val inboxLine: String,
+            // the line used as summary title when a single notification is displayed
+            val summaryLine: String?
+    )
 
     companion object {
         private const val SUMMARY_NOTIFICATION_ID = 0
         private const val ROOM_MESSAGES_NOTIFICATION_ID = 1
         private const val ROOM_EVENT_NOTIFICATION_ID = 2
 
-        private const val ROOMS_NOTIFICATIONS_FILE_NAME = "im.vector.notifications.cache"
+        // the maximum size of the decoded rooms avatars cache, in bytes
+        private const val ROOM_BITMAP_CACHE_SIZE = 2 * 1024 * 1024
+
         private val LOG_TAG = NotificationDrawerManager::class.java.simpleName
     }
 }
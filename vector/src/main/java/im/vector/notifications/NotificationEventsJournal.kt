@@ -0,0 +1,383 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.vector.notifications
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import im.vector.util.SecretStoringUtils
+import org.matrix.androidsdk.core.Log
+import java.io.BufferedInputStream
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.InputStream
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.io.OutputStream
+import java.io.Serializable
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+/**
+ * Encrypted append-only journal of the notified events.
+ *
+ * Each update of the events list (added, removed or displayed events) is appended to the journal as an encrypted record,
+ * on a background thread. The journal is rewritten as a single snapshot record when it contains too many records.
+ * At startup, the journal is replayed in background, the caller only waits for it when it needs the events.
+ */
+class NotificationEventsJournal @VisibleForTesting internal constructor(
+        private val journalFile: File,
+        private val legacyFile: File,
+        private val secretStore: SecretStore) {
+
+    constructor(context: Context) : this(File(context.cacheDir, JOURNAL_FILE_NAME),
+            File(context.cacheDir, LEGACY_FILE_NAME),
+            KeyStoreSecretStore(context.applicationContext))
+
+    /**
+     * Encrypt and decrypt the journal records
+     */
+    @VisibleForTesting
+    internal interface SecretStore {
+        fun store(any: Any, output: OutputStream)
+
+        fun <T> load(input: InputStream): T?
+    }
+
+    // all the file accesses are done on this thread
+    private val executor = Executors.newSingleThreadExecutor()
+
+    // the events as they are stored in the journal, by event id
+    // it is only used from the executor thread
+    private val storedEvents = LinkedHashMap<String, NotifiableEvent>()
+
+    // the number of records in the journal file
+    // it is only used from the executor thread
+    @VisibleForTesting
+    internal var recordsCount = 0
+        private set
+
+    private val replayedEvents: Future<ArrayList<NotifiableEvent>> = executor.submit(Callable { replay() })
+
+    /**
+     * Provide the stored events, it waits until the journal has been replayed.
+     *
+     * @return the events, they are not shared with the journal
+     */
+    fun getEvents(): ArrayList<NotifiableEvent> {
+        return try {
+            replayedEvents.get()
+        } catch (e: Exception) {
+            Log.e(LOG_TAG, "## getEvents() failed " + e.message, e)
+            ArrayList()
+        }
+    }
+
+    /**
+     * Store some events, they replace the stored events with the same ids.
+     *
+     * @param events the events
+     */
+    fun add(events: List<NotifiableEvent>) {
+        if (events.isNotEmpty()) {
+            append(JournalRecord(RECORD_ADD, ArrayList(events), null))
+        }
+    }
+
+    /**
+     * Remove some events.
+     *
+     * @param eventIds the events ids
+     */
+    fun remove(eventIds: List<String>) {
+        if (eventIds.isNotEmpty()) {
+            append(JournalRecord(RECORD_REMOVE, null, ArrayList(eventIds)))
+        }
+    }
+
+    /**
+     * Flag some events as displayed.
+     *
+     * @param eventIds the events ids
+     */
+    fun markDisplayed(eventIds: List<String>) {
+        if (eventIds.isNotEmpty()) {
+            append(JournalRecord(RECORD_DISPLAYED, null, ArrayList(eventIds)))
+        }
+    }
+
+    /**
+     * Remove all the events.
+     */
+    fun clear() {
+        append(JournalRecord(RECORD_SNAPSHOT, ArrayList(), null))
+    }
+
+    /**
+     * Rewrite the journal as a single record, in background.
+     */
+    fun compact() {
+        executor.execute {
+            if (recordsCount > 1 || storedEvents.isEmpty()) {
+                writeSnapshot()
+            }
+        }
+    }
+
+    /**
+     * Wait until the pending updates have been written.
+     */
+    @VisibleForTesting
+    internal fun flush() {
+        executor.submit(Callable {}).get()
+    }
+
+    /**
+     * Append a record to the journal.
+     * The record is serialized on the caller thread because the events are updated afterwards.
+     */
+    private fun append(record: JournalRecord) {
+        val data = try {
+            serialize(record)
+        } catch (e: Exception) {
+            Log.e(LOG_TAG, "## append() : failed to serialize " + e.message, e)
+            return
+        }
+
+        executor.execute {
+            try {
+                // the stored events are copies of the caller ones
+                apply(deserialize(data) as JournalRecord)
+
+                if (recordsCount >= MAX_RECORDS_COUNT || (RECORD_SNAPSHOT == record.type && storedEvents.isEmpty())) {
+                    writeSnapshot()
+                } else {
+                    DataOutputStream(FileOutputStream(journalFile, true)).use {
+                        writeRecord(it, data)
+                    }
+                    recordsCount++
+                }
+            } catch (e: Throwable) {
+                Log.e(LOG_TAG, "## append() : failed " + e.message, e)
+            }
+        }
+    }
+
+    /**
+     * Apply a record to the stored events.
+     */
+    private fun apply(record: JournalRecord) {
+        when (record.type) {
+            RECORD_SNAPSHOT -> {
+                storedEvents.clear()
+                record.events?.forEach { storedEvents[it.eventId] = it }
+            }
+            RECORD_ADD -> record.events?.forEach {
+                // the replaced events are moved at the end, as in the notification drawer list
+                storedEvents.remove(it.eventId)
+                storedEvents[it.eventId] = it
+            }
+            RECORD_REMOVE -> record.eventIds?.forEach { storedEvents.remove(it) }
+            RECORD_DISPLAYED -> record.eventIds?.forEach { storedEvents[it]?.hasBeenDisplayed = true }
+        }
+    }
+
+    /**
+     * Replace the journal by a single snapshot record of the stored events.
+     */
+    private fun writeSnapshot() {
+        try {
+            if (storedEvents.isEmpty()) {
+                journalFile.delete()
+                recordsCount = 0
+                return
+            }
+
+            val tmpFile = File(journalFile.parentFile, journalFile.name + ".tmp")
+
+            DataOutputStream(FileOutputStream(tmpFile)).use {
+                writeRecord(it, serialize(JournalRecord(RECORD_SNAPSHOT, ArrayList(storedEvents.values), null)))
+            }
+
+            if (tmpFile.renameTo(journalFile)) {
+                recordsCount = 1
+            } else {
+                Log.e(LOG_TAG, "## writeSnapshot() : failed to rename the journal")
+                tmpFile.delete()
+            }
+        } catch (e: Throwable) {
+            Log.e(LOG_TAG, "## writeSnapshot() failed " + e.message, e)
+        }
+    }
+
+    /**
+     * Encrypt and write a record.
+     */
+    private fun writeRecord(output: DataOutputStream, data: ByteArray) {
+        val encrypted = ByteArrayOutputStream()
+        secretStore.store(data, encrypted)
+
+        output.writeInt(encrypted.size())
+        encrypted.writeTo(output)
+    }
+
+    /**
+     * Replay the journal.
+     *
+     * @return a copy of the stored events
+     */
+    private fun replay(): ArrayList<NotifiableEvent> {
+        var isCorrupted = false
+
+        try {
+            if (journalFile.exists()) {
+                DataInputStream(BufferedInputStream(FileInputStream(journalFile))).use {
+                    while (true) {
+                        val size = try {
+                            it.readInt()
+                        } catch (e: EOFException) {
+                            break
+                        }
+
+                        if (size <= 0 || size > MAX_RECORD_SIZE) {
+                            isCorrupted = true
+                            break
+                        }
+
+                        val encrypted = ByteArray(size)
+                        it.readFully(encrypted)
+
+                        val data: ByteArray? = secretStore.load(ByteArrayInputStream(encrypted))
+
+                        if (data == null) {
+                            isCorrupted = true
+                            break
+                        }
+
+                        apply(deserialize(data) as JournalRecord)
+                        recordsCount++
+                    }
+                }
+            } else {
+                isCorrupted = migrateLegacyFile()
+            }
+        } catch (e: Throwable) {
+            // the last record may have been partially written
+            Log.e(LOG_TAG, "## replay() : failed after $recordsCount records " + e.message, e)
+            isCorrupted = true
+        }
+
+        // the next records must not be appended after an invalid one
+        if (isCorrupted) {
+            writeSnapshot()
+        }
+
+        Log.d(LOG_TAG, "## replay() : ${storedEvents.size} events in $recordsCount records")
+
+        return try {
+            @Suppress("UNCHECKED_CAST")
+            deserialize(serialize(ArrayList(storedEvents.values))) as ArrayList<NotifiableEvent>
+        } catch (e: Exception) {
+            Log.e(LOG_TAG, "## replay() : failed to copy the events " + e.message, e)
+            ArrayList()
+        }
+    }
+
+    /**
+     * Load the events saved by the previous versions, as a single encrypted list.
+     *
+     * @return true if the events must be saved in the journal
+     */
+    private fun migrateLegacyFile(): Boolean {
+        if (!legacyFile.exists()) {
+            return false
+        }
+
+        try {
+            FileInputStream(legacyFile).use {
+                val events: ArrayList<NotifiableEvent>? = secretStore.load(it)
+                events?.forEach { event -> storedEvents[event.eventId] = event }
+            }
+        } catch (e: Throwable) {
+            Log.e(LOG_TAG, "## migrateLegacyFile() failed " + e.message, e)
+        }
+
+        legacyFile.delete()
+        return true
+    }
+
+    private fun serialize(any: Any): ByteArray {
+        val bos = ByteArrayOutputStream()
+        ObjectOutputStream(bos).use {
+            it.writeObject(any)
+        }
+        return bos.toByteArray()
+    }
+
+    private fun deserialize(data: ByteArray): Any? {
+        return ObjectInputStream(ByteArrayInputStream(data)).use {
+            it.readObject()
+        }
+    }
+
+    /**
+     * A journal record
+     */
+    private class JournalRecord(val type: Int,
+                                val events: ArrayList<NotifiableEvent>?,
+                                val eventIds: ArrayList<String>?) : Serializable
+
+    /**
+     * The records are encrypted with a key of the Android keystore
+     */
+    private class KeyStoreSecretStore(private val context: Context) : SecretStore {
+        override fun store(any: Any, output: OutputStream) {
+            SecretStoringUtils.securelyStoreObject(any, KEY_ALIAS, output, context)
+        }
+
+        override fun <T> load(input: InputStream): T? {
+            return SecretStoringUtils.loadSecureSecret(input, KEY_ALIAS, context)
+        }
+    }
+
+    companion object {
+        private const val RECORD_SNAPSHOT = 0
+        private const val RECORD_ADD = 1
+        private const val RECORD_REMOVE = 2
+        private const val RECORD_DISPLAYED = 3
+
+        // the journal is compacted when it reaches this number of records
+        private const val MAX_RECORDS_COUNT = 100
+
+        // sanity check on the records size, in bytes
+        private const val MAX_RECORD_SIZE = 8 * 1024 * 1024
+
+        private const val KEY_ALIAS = "notificationMgr"
+
+        private const val JOURNAL_FILE_NAME = "im.vector.notifications.journal"
+
+        // the file used before the journal
+        private const val LEGACY_FILE_NAME = "im.vector.notifications.cache"
+
+        private val LOG_TAG = NotificationEventsJournal::class.java.simpleName
+    }
+}
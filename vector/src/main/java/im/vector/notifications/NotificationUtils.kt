@@ -607,12 +607,15 @@ object NotificationUtils {
     //// Number of new notifications for API <24 (M and below) devices.
     /**
      * Build the summary notification
+     *
+     * @param unreadRoomsCount the unread rooms count, displayed by the launchers which support the notification badges
      */
     fun buildSummaryListNotification(context: Context,
                                      style: NotificationCompat.Style,
                                      compatSummary: String,
                                      noisy: Boolean,
-                                     lastMessageTimestamp: Long): Notification? {
+                                     lastMessageTimestamp: Long,
+                                     unreadRoomsCount: Int): Notification? {
         val accentColor = ContextCompat.getColor(context, R.color.notification_accent_color)
         val smallIcon = if (noisy) R.drawable.icon_notif_important else R.drawable.logo_transparent
 
@@ -641,6 +644,10 @@ object NotificationUtils {
                         //compat
                         priority = NotificationCompat.PRIORITY_LOW
                     }
+
+                    if (unreadRoomsCount > 0) {
+                        setNumber(unreadRoomsCount)
+                    }
                 }
                 .setContentIntent(buildOpenHomePendingIntentForSummary(context))
                 .setDeleteIntent(getDismissSummaryPendingIntent(context))
@@ -24,7 +24,7 @@ class OutdatedEventDetector(val context: Context) {
     /**
      * Returns true if the given event is outdated.
      * Used to clean up notifications if a displayed message has been read on an
-     * other device.
+     * other device, or if a message displayed from the push data has been synced without being notified.
      */
     fun isMessageOutdated(notifiableEvent: NotifiableEvent): Boolean {
         if (notifiableEvent is NotifiableMessageEvent) {
@@ -33,6 +33,12 @@ class OutdatedEventDetector(val context: Context) {
             Matrix.getMXSession(context.applicationContext, notifiableEvent.matrixID)?.let { session ->
                 //find the room
                 if (session.isAlive) {
+                    // a notifiable event would have replaced the push one when it has been synced
+                    if (notifiableEvent.isPushGatewayEvent && null != session.dataHandler.store?.getEvent(eventID, roomID)) {
+                        Log.d(LOG_TAG, "Notifiable Event $eventID is not notifiable, and should be removed")
+                        return true
+                    }
+
                     session.dataHandler.getRoom(roomID)?.let { room ->
                         if (room.isEventRead(eventID)) {
                             Log.d(LOG_TAG, "Notifiable Event $eventID is read, and should be removed")
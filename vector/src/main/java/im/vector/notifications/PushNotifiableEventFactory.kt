@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.vector.notifications
+
+import androidx.core.app.NotificationCompat
+import com.google.gson.JsonParser
+import org.matrix.androidsdk.rest.model.Event
+import org.matrix.androidsdk.rest.model.bingrules.BingRule
+
+/**
+ * Build the message notification of a push from the push data and the rooms metadata index, without the matrix store.
+ */
+object PushNotifiableEventFactory {
+
+    /**
+     * Tell if the push data describes a message event well enough to display it before the store is loaded.
+     * The event type and content must be known, otherwise the resolved event could be a non notifiable one.
+     *
+     * @param data the push data
+     * @return true if the push can be displayed from its data
+     */
+    fun isDisplayable(data: Map<String, String>): Boolean {
+        if (null == data["event_id"] || null == data["room_id"] || null == data["content"]) {
+            return false
+        }
+
+        return when (data["type"]) {
+            Event.EVENT_TYPE_MESSAGE -> null != parseBody(data)
+            // the clear content is only known after the decryption
+            Event.EVENT_TYPE_MESSAGE_ENCRYPTED -> true
+            else -> false
+        }
+    }
+
+    /**
+     * Build the notification of a push.
+     *
+     * @param data               the push data
+     * @param room               the room metadata, null if the room is unknown
+     * @param myUserId           the user id of the session
+     * @param encryptedEventBody the body to display for an encrypted event
+     * @param unknownRoomName    the room name to display when it is unknown
+     * @return the notifiable event, null if the push data is not displayable
+     */
+    fun create(data: Map<String, String>,
+               room: RoomNotificationMetadataIndex.RoomMetadata?,
+               myUserId: String,
+               encryptedEventBody: String,
+               unknownRoomName: String): NotifiableMessageEvent? {
+        if (!isDisplayable(data)) {
+            return null
+        }
+
+        val body = if (Event.EVENT_TYPE_MESSAGE == data["type"]) parseBody(data) else null
+        val senderId = data["sender"]
+        val sender = senderId?.let { room?.senders?.get(it) }
+        val noisy = "high" == data["prio"]
+
+        val notifiableEvent = NotifiableMessageEvent(
+                eventId = data["event_id"]!!,
+                noisy = noisy,
+                timestamp = System.currentTimeMillis(),
+                senderName = data["sender_display_name"] ?: sender?.name ?: senderId ?: "",
+                senderId = senderId,
+                body = body ?: encryptedEventBody,
+                roomId = data["room_id"]!!,
+                roomName = data["room_name"] ?: room?.name ?: unknownRoomName,
+                roomIsDirect = room?.isDirect ?: false)
+
+        notifiableEvent.roomAvatarPath = room?.avatarPath
+        notifiableEvent.senderAvatarPath = sender?.avatarPath
+        notifiableEvent.soundName = if (noisy) BingRule.ACTION_VALUE_DEFAULT else null
+        notifiableEvent.matrixID = myUserId
+        notifiableEvent.isPushGatewayEvent = true
+
+        if (null == body) {
+            notifiableEvent.lockScreenVisibility = NotificationCompat.VISIBILITY_PRIVATE
+        }
+
+        return notifiableEvent
+    }
+
+    private fun parseBody(data: Map<String, String>): String? {
+        return try {
+            data["content"]?.let { JsonParser().parse(it).asJsonObject?.get("body")?.asString }
+        } catch (e: Exception) {
+            // the content is not a json object
+            null
+        }
+    }
+}
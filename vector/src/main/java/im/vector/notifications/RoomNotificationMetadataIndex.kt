@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package im.vector.notifications
+
+import android.content.Context
+import androidx.annotation.VisibleForTesting
+import im.vector.util.SecretStoringUtils
+import org.matrix.androidsdk.core.Log
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.Serializable
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compact index of the rooms data required to display a message notification (room name, senders names, avatars).
+ *
+ * It is fed with the notifications resolved from the matrix store, and it is persisted encrypted in its own file,
+ * so a push can be displayed without loading the store.
+ */
+class RoomNotificationMetadataIndex private constructor(context: Context) {
+
+    private val appContext = context.applicationContext
+
+    private val indexFile = File(appContext.cacheDir, INDEX_FILE_NAME)
+
+    // all the file accesses are done on this thread
+    private val executor = Executors.newSingleThreadExecutor()
+
+    // the rooms, by room id, the least recently updated first
+    // it is loaded in background, and it must be used with its lock
+    private val rooms: Future<LinkedHashMap<String, RoomMetadata>> = executor.submit(Callable { load() })
+
+    // tell if a save is pending, it is only used from the executor thread
+    private var isSavePending = false
+
+    /**
+     * The metadata of a room sender
+     */
+    data class SenderMetadata(
+            val name: String?,
+            val avatarPath: String?
+    ) : Serializable
+
+    /**
+     * The metadata of a room
+     */
+    data class RoomMetadata(
+            val name: String?,
+            val isDirect: Boolean,
+            val avatarPath: String?,
+            // the recent senders, by user id
+            val senders: Map<String, SenderMetadata>
+    ) : Serializable
+
+    /**
+     * Provide the metadata of a room, it waits until the index has been loaded.
+     *
+     * @param roomId    the room id
+     * @param timeoutMs the maximum waiting time, in milliseconds
+     * @return the room metadata, null if it is unknown or if the index is not loaded in time
+     */
+    fun getRoom(roomId: String, timeoutMs: Long): RoomMetadata? {
+        return try {
+            val rooms = this.rooms.get(timeoutMs, TimeUnit.MILLISECONDS)
+
+            synchronized(rooms) {
+                rooms[roomId]
+            }
+        } catch (e: Exception) {
+            Log.e(LOG_TAG, "## getRoom() failed " + e.message, e)
+            null
+        }
+    }
+
+    /**
+     * Update the index with a notification resolved from the store, in background.
+     *
+     * @param event the notified event
+     */
+    fun update(event: NotifiableMessageEvent) {
+        val roomId = event.roomId
+        val senderId = event.senderId
+        val room = RoomMetadata(event.roomName, event.roomIsDirect, event.roomAvatarPath, emptyMap())
+        val sender = SenderMetadata(event.senderName, event.senderAvatarPath)
+
+        executor.execute {
+            try {
+                val rooms = this.rooms.get()
+
+                synchronized(rooms) {
+                    if (merge(rooms, roomId, room, senderId, sender)) {
+                        scheduleSave()
+                    }
+                }
+            } catch (e: Exception) {
+                Log.e(LOG_TAG, "## update() failed " + e.message, e)
+            }
+        }
+    }
+
+    /**
+     * Remove all the rooms, when the user logs out.
+     */
+    fun clear() {
+        executor.execute {
+            try {
+                val rooms = this.rooms.get()
+
+                synchronized(rooms) {
+                    rooms.clear()
+                }
+
+                indexFile.delete()
+            } catch (e: Exception) {
+                Log.e(LOG_TAG, "## clear() failed " + e.message, e)
+            }
+        }
+    }
+
+    /**
+     * Save the index after the pending updates.
+     * It must be called from the executor thread.
+     */
+    private fun scheduleSave() {
+        if (!isSavePending) {
+            isSavePending = true
+
+            executor.execute {
+                isSavePending = false
+                save()
+            }
+        }
+    }
+
+    private fun save() {
+        try {
+            val rooms = this.rooms.get()
+            val copy = synchronized(rooms) {
+                LinkedHashMap(rooms)
+            }
+
+            val tmpFile = File(indexFile.parentFile, "$INDEX_FILE_NAME.tmp")
+
+            FileOutputStream(tmpFile).use {
+                SecretStoringUtils.securelyStoreObject(copy, KEY_ALIAS, it, appContext)
+            }
+
+            if (!tmpFile.renameTo(indexFile)) {
+                Log.e(LOG_TAG, "## save() : failed to rename the index")
+                tmpFile.delete()
+            }
+        } catch (e: Throwable) {
+            Log.e(LOG_TAG, "## save() failed " + e.message, e)
+        }
+    }
+
+    private fun load(): LinkedHashMap<String, RoomMetadata> {
+        val startTs = System.currentTimeMillis()
+
+        try {
+            if (indexFile.exists()) {
+                FileInputStream(indexFile).use {
+                    val rooms: LinkedHashMap<String, RoomMetadata>? = SecretStoringUtils.loadSecureSecret(it, KEY_ALIAS, appContext)
+
+                    if (null != rooms) {
+                        Log.d(LOG_TAG, "## load() : ${rooms.size} rooms loaded in ${System.currentTimeMillis() - startTs} ms")
+                        return rooms
+                    }
+                }
+            }
+        } catch (e: Throwable) {
+            Log.e(LOG_TAG, "## load() failed " + e.message, e)
+        }
+
+        return LinkedHashMap()
+    }
+
+    companion object {
+        // the index bounds
+        @VisibleForTesting
+        internal const val MAX_ROOMS = 500
+        @VisibleForTesting
+        internal const val MAX_SENDERS_PER_ROOM = 20
+
+        private const val KEY_ALIAS = "notificationMgr"
+
+        private const val INDEX_FILE_NAME = "im.vector.notifications.rooms"
+
+        private val LOG_TAG = RoomNotificationMetadataIndex::class.java.simpleName
+
+        @Volatile
+        private var instance: RoomNotificationMetadataIndex? = null
+
+        /**
+         * Merge the metadata of a notified event into the rooms.
+         * The updated room and sender are moved at the end, the least recently updated ones are removed beyond the bounds.
+         *
+         * @param rooms    the rooms, by room id
+         * @param roomId   the room id
+         * @param room     the room metadata, without its senders
+         * @param senderId the sender id, null if it is unknown
+         * @param sender   the sender metadata
+         * @return true if the room metadata have been modified
+         */
+        @VisibleForTesting
+        internal fun merge(rooms: LinkedHashMap<String, RoomMetadata>,
+                           roomId: String,
+                           room: RoomMetadata,
+                           senderId: String?,
+                           sender: SenderMetadata): Boolean {
+            val previous = rooms[roomId]
+            val senders = LinkedHashMap(previous?.senders ?: emptyMap())
+
+            if (null != senderId) {
+                senders.remove(senderId)
+                senders[senderId] = sender
+                trim(senders, MAX_SENDERS_PER_ROOM)
+            }
+
+            val mergedRoom = room.copy(senders = senders)
+
+            // the last update is written at the end
+            rooms.remove(roomId)
+            rooms[roomId] = mergedRoom
+            trim(rooms, MAX_ROOMS)
+
+            return mergedRoom != previous
+        }
+
+        private fun <V> trim(map: LinkedHashMap<String, V>, maxSize: Int) {
+            val iterator = map.keys.iterator()
+
+            while (map.size > maxSize && iterator.hasNext()) {
+                iterator.next()
+                iterator.remove()
+            }
+        }
+
+        /**
+         * Retrieve the current instance
+         *
+         * @param context the context
+         * @return the instance
+         */
+        fun getInstance(context: Context): RoomNotificationMetadataIndex {
+            return instance ?: synchronized(this) {
+                instance ?: RoomNotificationMetadataIndex(context).also { instance = it }
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.services
+
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.net.ConnectivityManager
+import android.net.TrafficStats
+import android.os.BatteryManager
+import android.os.Build
+import android.os.PowerManager
+import android.os.Process
+import android.os.SystemClock
+import androidx.core.content.edit
+import androidx.core.net.ConnectivityManagerCompat
+import org.matrix.androidsdk.core.Log
+
+/**
+ * Compute the interval of the background catchups, when there is no push (F-Droid or FCM fallback).
+ *
+ * The interval chosen by the user is adjusted with:
+ * - the messages arrival rate, observed on the previous catchups: the idle accounts are synced less often.
+ * - the battery and the power save state.
+ * - the network type.
+ *
+ * The latency and the bytes of each catchup are recorded, to tune the battery vs delivery delay trade-off.
+ */
+class AdaptiveSyncScheduler(context: Context) {
+
+    private val appContext = context.applicationContext
+
+    private val prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+
+    // the running catchup, 0 if there is none
+    private var catchupStartTs = 0L
+    private var catchupStartBytes = 0L
+    private var catchupEventsCount = 0
+
+    /**
+     * The device state used to compute the interval
+     */
+    data class DeviceState(
+            val isCharging: Boolean,
+            val isBatteryLow: Boolean,
+            // power save mode or doze
+            val isPowerSaveMode: Boolean,
+            val isNetworkMetered: Boolean
+    )
+
+    /**
+     * A catchup is started.
+     */
+    fun onCatchupStarted() {
+        if (0L == catchupStartTs) {
+            catchupStartTs = SystemClock.elapsedRealtime()
+            catchupStartBytes = getTrafficBytes()
+            catchupEventsCount = 0
+        }
+    }
+
+    /**
+     * An event has been notified.
+     */
+    fun onEventNotified() {
+        if (0L != catchupStartTs) {
+            catchupEventsCount++
+        }
+    }
+
+    /**
+     * The running catchup is done.
+     */
+    fun onCatchupDone() {
+        if (0L == catchupStartTs) {
+            return
+        }
+
+        val notifiedEventsCount = catchupEventsCount
+
+        val latency = SystemClock.elapsedRealtime() - catchupStartTs
+        val bytes = Math.max(0, getTrafficBytes() - catchupStartBytes)
+        catchupStartTs = 0L
+
+        val now = System.currentTimeMillis()
+        val lastCatchupTs = prefs.getLong(KEY_LAST_CATCHUP_TS, 0L)
+        val previousRate = prefs.getFloat(KEY_ARRIVAL_RATE, 0f)
+        val rate = if (lastCatchupTs in 1 until now) {
+            updateArrivalRate(previousRate, notifiedEventsCount, now - lastCatchupTs)
+        } else {
+            previousRate
+        }
+        val idleCatchups = if (notifiedEventsCount > 0) 0 else prefs.getInt(KEY_IDLE_CATCHUPS, 0) + 1
+
+        val catchupsCount = prefs.getLong(KEY_STATS_CATCHUPS, 0L) + 1
+        val totalLatency = prefs.getLong(KEY_STATS_LATENCY, 0L) + latency
+        val totalBytes = prefs.getLong(KEY_STATS_BYTES, 0L) + bytes
+
+        prefs.edit {
+            putLong(KEY_LAST_CATCHUP_TS, now)
+            putFloat(KEY_ARRIVAL_RATE, rate)
+            putInt(KEY_IDLE_CATCHUPS, idleCatchups)
+            putLong(KEY_STATS_CATCHUPS, catchupsCount)
+            putLong(KEY_STATS_LATENCY, totalLatency)
+            putLong(KEY_STATS_BYTES, totalBytes)
+        }
+
+        Log.i(LOG_TAG, "## onCatchupDone() : $notifiedEventsCount events in $latency ms, $bytes bytes"
+                + " (rate $rate events/h, $idleCatchups idle catchups)"
+                + " - average on $catchupsCount catchups : ${totalLatency / catchupsCount} ms, ${totalBytes / catchupsCount} bytes")
+    }
+
+    /**
+     * The user uses the application, the account is not idle anymore.
+     */
+    fun onUserActive() {
+        catchupStartTs = 0L
+
+        if (0 != prefs.getInt(KEY_IDLE_CATCHUPS, 0)) {
+            prefs.edit {
+                putInt(KEY_IDLE_CATCHUPS, 0)
+            }
+        }
+    }
+
+    /**
+     * Compute the delay before the next catchup.
+     *
+     * @param baseDelayMs the interval chosen by the user, in milliseconds
+     * @return the delay in milliseconds
+     */
+    fun computeNextDelay(baseDelayMs: Long): Long {
+        val deviceState = getDeviceState()
+        val delay = computeDelay(baseDelayMs,
+                prefs.getInt(KEY_IDLE_CATCHUPS, 0),
+                prefs.getFloat(KEY_ARRIVAL_RATE, 0f),
+                deviceState)
+
+        Log.i(LOG_TAG, "## computeNextDelay() : $delay ms instead of $baseDelayMs ms with $deviceState")
+
+        return delay
+    }
+
+    private fun getDeviceState(): DeviceState {
+        var isCharging = false
+        var isBatteryLow = false
+        var isPowerSaveMode = false
+        var isNetworkMetered = false
+
+        try {
+            appContext.registerReceiver(null, IntentFilter(Intent.ACTION_BATTERY_CHANGED))?.let {
+                val level = it.getIntExtra(BatteryManager.EXTRA_LEVEL, -1)
+                val scale = it.getIntExtra(BatteryManager.EXTRA_SCALE, -1)
+
+                isCharging = it.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0
+                isBatteryLow = level >= 0 && scale > 0 && level * 100 / scale <= LOW_BATTERY_PERCENT
+            }
+
+            val powerManager = appContext.getSystemService(Context.POWER_SERVICE) as PowerManager
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                isPowerSaveMode = powerManager.isPowerSaveMode
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                isPowerSaveMode = isPowerSaveMode || powerManager.isDeviceIdleMode
+            }
+
+            val connectivityManager = appContext.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+            isNetworkMetered = ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager)
+        } catch (e: Exception) {
+            Log.e(LOG_TAG, "## getDeviceState() failed " + e.message, e)
+        }
+
+        return DeviceState(isCharging, isBatteryLow, isPowerSaveMode, isNetworkMetered)
+    }
+
+    /**
+     * @return the bytes received and sent by the application, 0 if they are not supported
+     */
+    private fun getTrafficBytes(): Long {
+        val uid = Process.myUid()
+        val rxBytes = TrafficStats.getUidRxBytes(uid)
+        val txBytes = TrafficStats.getUidTxBytes(uid)
+
+        return if (TrafficStats.UNSUPPORTED.toLong() == rxBytes || TrafficStats.UNSUPPORTED.toLong() == txBytes) {
+            0L
+        } else {
+            rxBytes + txBytes
+        }
+    }
+
+    companion object {
+        private val LOG_TAG = AdaptiveSyncScheduler::class.java.simpleName
+
+        private const val PREFS_NAME = "AdaptiveSyncScheduler"
+
+        private const val KEY_LAST_CATCHUP_TS = "KEY_LAST_CATCHUP_TS"
+        private const val KEY_ARRIVAL_RATE = "KEY_ARRIVAL_RATE"
+        private const val KEY_IDLE_CATCHUPS = "KEY_IDLE_CATCHUPS"
+        private const val KEY_STATS_CATCHUPS = "KEY_STATS_CATCHUPS"
+        private const val KEY_STATS_LATENCY = "KEY_STATS_LATENCY"
+        private const val KEY_STATS_BYTES = "KEY_STATS_BYTES"
+
+        // the delay bounds, the interval chosen by the user is always allowed
+        private const val MIN_DELAY_MS = 30 * 1000L
+        private const val MAX_DELAY_MS = 60 * 60 * 1000L
+
+        // the interval is doubled after each idle catchup, up to this number of times
+        private const val MAX_BACKOFF_STEPS = 4
+
+        // the account is busy above this number of events per hour
+        private const val BUSY_ARRIVAL_RATE = 6f
+
+        // the weight of the last catchup in the arrival rate
+        private const val ARRIVAL_RATE_WEIGHT = 0.3f
+
+        private const val LOW_BATTERY_PERCENT = 15
+
+        /**
+         * Update the exponential moving average of the events arrival rate.
+         *
+         * @param rate        the previous rate, in events per hour
+         * @param eventsCount the number of events received since the previous catchup
+         * @param elapsedMs   the time since the previous catchup, in milliseconds
+         * @return the new rate, in events per hour
+         */
+        fun updateArrivalRate(rate: Float, eventsCount: Int, elapsedMs: Long): Float {
+            val hours = Math.max(elapsedMs, MIN_DELAY_MS) / (60 * 60 * 1000f)
+
+            return rate * (1 - ARRIVAL_RATE_WEIGHT) + (eventsCount / hours) * ARRIVAL_RATE_WEIGHT
+        }
+
+        /**
+         * Compute the delay before the next catchup.
+         *
+         * @param baseDelayMs  the interval chosen by the user, in milliseconds
+         * @param idleCatchups the number of consecutive catchups without notified event
+         * @param arrivalRate  the events arrival rate, in events per hour
+         * @param deviceState  the device state
+         * @return the delay in milliseconds
+         */
+        fun computeDelay(baseDelayMs: Long, idleCatchups: Int, arrivalRate: Float, deviceState: DeviceState): Long {
+            var delay = when {
+                idleCatchups > 0 -> baseDelayMs shl Math.min(idleCatchups, MAX_BACKOFF_STEPS)
+                arrivalRate >= BUSY_ARRIVAL_RATE -> baseDelayMs / 2
+                else -> baseDelayMs
+            }
+
+            if (deviceState.isPowerSaveMode) {
+                delay *= 2
+            }
+
+            if (deviceState.isCharging) {
+                delay /= 2
+            } else if (deviceState.isBatteryLow) {
+                delay *= 2
+            }
+
+            if (deviceState.isNetworkMetered) {
+                delay = delay * 3 / 2
+            }
+
+            return delay.coerceIn(Math.min(baseDelayMs, MIN_DELAY_MS), Math.max(baseDelayMs, MAX_DELAY_MS))
+        }
+    }
+}
@@ -81,6 +81,13 @@ class EventStreamServiceX : VectorService() {
 
     private var mNotifiableEventResolver: NotifiableEventResolver? = null
 
+    /**
+     * Background catchups scheduler
+     */
+    private val mSyncScheduler by lazy {
+        AdaptiveSyncScheduler(this)
+    }
+
     /**
      * Live events listener
      */
@@ -111,6 +118,7 @@ class EventStreamServiceX : VectorService() {
             val notifiableEvent = mNotifiableEventResolver!!.resolveEvent(event, roomState, bingRule, session)
             if (notifiableEvent != null) {
                 VectorApp.getInstance().notificationDrawerManager.onNotifiableEventReceived(notifiableEvent)
+                mSyncScheduler.onEventNotified()
             }
         }
 
@@ -133,6 +141,7 @@ class EventStreamServiceX : VectorService() {
                 } else if (ServiceState.CATCHUP == serviceState) {
                     Log.i(LOG_TAG, "onLiveEventsChunkProcessed : no Active call")
                     CallsManager.getSharedInstance().checkDeadCalls()
+                    mSyncScheduler.onCatchupDone()
                     stop()
                 }
             }
@@ -211,6 +220,7 @@ class EventStreamServiceX : VectorService() {
             ACTION_GO_TO_FOREGROUND -> {
 
                 //We are back in foreground, we can sync
+                mSyncScheduler.onUserActive()
                 mSession?.syncDelay = 0
                 mSession?.syncTimeout = 30000
 
@@ -314,11 +324,15 @@ class EventStreamServiceX : VectorService() {
 
             NotifMode.FCM_FALLBACK,
             NotifMode.FDROID_OPTIMIZED_FOR_BATTERY -> {
-                val delay = if (mSimulatePushImmediate) 0 else PreferencesManager.getWorkManagerSyncIntervalMillis(this)
+                val delay = if (mSimulatePushImmediate) {
+                    0L
+                } else {
+                    mSyncScheduler.computeNextDelay(PreferencesManager.getWorkManagerSyncIntervalMillis(this).toLong())
+                }
                 Log.i(LOG_TAG, "## service is schedule to restart in $delay millis, if network is connected")
 
                 val pushSimulatorRequest = OneTimeWorkRequestBuilder<PushSimulatorWorker>()
-                        .setInitialDelay(delay.toLong(), TimeUnit.MILLISECONDS)
+                        .setInitialDelay(delay, TimeUnit.MILLISECONDS)
                         .setConstraints(Constraints.Builder()
                                 .setRequiredNetworkType(NetworkType.CONNECTED)
                                 .build())
@@ -423,6 +437,10 @@ class EventStreamServiceX : VectorService() {
         val applicationContext = applicationContext
         mNotifiableEventResolver = NotifiableEventResolver(applicationContext)
 
+        if (forPush) {
+            mSyncScheduler.onCatchupStarted()
+        }
+
         monitorSession(mSession!!)
 
         serviceState = if (forPush) {
@@ -472,6 +490,8 @@ class EventStreamServiceX : VectorService() {
         }
 
         if (canCatchup) {
+            mSyncScheduler.onCatchupStarted()
+
             if (mSession != null) {
                 mSession!!.catchupEventStream()
             } else {
@@ -19,11 +19,11 @@ package im.vector.ui.badge
 import android.content.Context
 import android.os.Build
 import im.vector.Matrix
+import im.vector.util.UnreadStateAggregator
 import me.leolin.shortcutbadger.ShortcutBadger
 import org.matrix.androidsdk.MXDataHandler
 import org.matrix.androidsdk.MXSession
 import org.matrix.androidsdk.core.Log
-import org.matrix.androidsdk.data.Room
 import java.util.*
 
 /**
@@ -93,7 +93,7 @@ object BadgeProxy {
                     isRefreshRequired = isRefreshRequired or (null != pushManager && (!pushManager.useFcm() || !pushManager.hasRegistrationToken()))
 
                     if (isRefreshRequired) {
-                        updateBadgeCount(aContext, dataHandler)
+                        updateBadgeCount(aContext, aSession)
                     }
                 }
             }
@@ -101,30 +101,23 @@ object BadgeProxy {
     }
 
     /**
-     * Update the badge count value according to the rooms content.
+     * Update the badge count value according to the unread counters of the session.
      *
-     * @param aContext     App context
-     * @param aDataHandler data handler instance
+     * @param aContext App context
+     * @param aSession the session
      */
-    private fun updateBadgeCount(aContext: Context?, aDataHandler: MXDataHandler?) {
+    private fun updateBadgeCount(aContext: Context?, aSession: MXSession?) {
         if (!useShortcutBadger()) {
             return
         }
 
         //sanity check
-        if (null == aContext || null == aDataHandler) {
+        if (null == aContext || null == aSession) {
             Log.w(LOG_TAG, "## updateBadgeCount(): invalid input null values")
-        } else if (null == aDataHandler.store) {
+        } else if (null == aSession.dataHandler?.store) {
             Log.w(LOG_TAG, "## updateBadgeCount(): invalid store instance")
         } else {
-            val roomCompleteList = aDataHandler.store?.rooms?.toList().orEmpty()
-            var unreadRoomsCount = 0
-
-            for (room in roomCompleteList) {
-                if (room.notificationCount > 0) {
-                    unreadRoomsCount++
-                }
-            }
+            val unreadRoomsCount = UnreadStateAggregator.getInstance(aSession).refresh().unreadRoomsCount
 
             // update the badge counter
             Log.d(LOG_TAG, "## updateBadgeCount(): badge update count=$unreadRoomsCount")
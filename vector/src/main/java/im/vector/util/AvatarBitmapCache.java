@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import org.matrix.androidsdk.core.Log;
+
+/**
+ * Cache of the generated avatars (an initial letter on a colored background).
+ * <ul>
+ * <li>the cache size is computed in bytes from the device memory class.</li>
+ * <li>the same initial letter and color can be cached with several sizes (list rows, notifications, room headers...).</li>
+ * <li>the cache is shrunk when the system asks to trim the memory.</li>
+ * </ul>
+ */
+public class AvatarBitmapCache {
+    private static final String LOG_TAG = AvatarBitmapCache.class.getSimpleName();
+
+    // the part of the memory class allocated to the generated avatars
+    private static final int MEMORY_CLASS_RATIO = 32;
+
+    // the cache size bounds in bytes
+    private static final int MIN_CACHE_SIZE = 1024 * 1024;
+    private static final int MAX_CACHE_SIZE = 8 * 1024 * 1024;
+
+    // the cache
+    private final LruCache<String, Bitmap> mBitmapByKey;
+
+    // the drawing objects are shared by the avatars rendering
+    private final Paint mTextPaint = new Paint();
+    private final Rect mTextBounds = new Rect();
+
+    // the singleton
+    private static AvatarBitmapCache sAvatarBitmapCache = null;
+
+    /**
+     * Retrieve the current instance
+     *
+     * @param context the context
+     * @return the instance
+     */
+    public static synchronized AvatarBitmapCache getInstance(Context context) {
+        if (null == sAvatarBitmapCache) {
+            sAvatarBitmapCache = new AvatarBitmapCache(getCacheSize(context.getApplicationContext()));
+        }
+
+        return sAvatarBitmapCache;
+    }
+
+    /**
+     * Compute the cache size from the device memory class.
+     *
+     * @param context the context
+     * @return the cache size in bytes
+     */
+    private static int getCacheSize(Context context) {
+        int memoryClass = 0;
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+
+        if (null != activityManager) {
+            memoryClass = activityManager.getMemoryClass();
+        }
+
+        return Math.max(MIN_CACHE_SIZE, Math.min(MAX_CACHE_SIZE, memoryClass * 1024 * 1024 / MEMORY_CLASS_RATIO));
+    }
+
+    private AvatarBitmapCache(int maxSizeInBytes) {
+        mBitmapByKey = new LruCache<String, Bitmap>(maxSizeInBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight(); // size in bytes
+            }
+        };
+
+        mTextPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * Provide an avatar.
+     *
+     * @param backgroundColor the background color
+     * @param text            the text to display, usually an initial letter
+     * @param pixelsSide      the avatar side in pixels
+     * @param create          create the avatar if it is not cached
+     * @return the avatar, null if it is not cached and create is false
+     */
+    @Nullable
+    public Bitmap getAvatar(int backgroundColor, String text, int pixelsSide, boolean create) {
+        String key = text + "_" + backgroundColor + "_" + pixelsSide;
+
+        Bitmap bitmap = mBitmapByKey.get(key);
+
+        if ((null == bitmap) && create && (pixelsSide > 0)) {
+            bitmap = createAvatar(backgroundColor, text, pixelsSide);
+            mBitmapByKey.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Create an avatar bitmap from a text.
+     *
+     * @param backgroundColor the background color.
+     * @param text            the text to display.
+     * @param pixelsSide      the avatar side in pixels
+     * @return the generated bitmap
+     */
+    private Bitmap createAvatar(int backgroundColor, String text, int pixelsSide) {
+        Bitmap bitmap = Bitmap.createBitmap(pixelsSide, pixelsSide, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        canvas.drawColor(backgroundColor);
+
+        // the avatars may be rendered from several threads
+        synchronized (mTextPaint) {
+            // the text size is proportional to the avatar size.
+            // by default, the avatar size is 42dp, the text size is 28 dp (not sp because it has to be fixed).
+            mTextPaint.setTextSize(pixelsSide * 2 / 3);
+
+            // get its size
+            mTextPaint.getTextBounds(text, 0, text.length(), mTextBounds);
+
+            // draw the text in center
+            canvas.drawText(text,
+                    canvas.getWidth() / 2,
+                    (canvas.getHeight() - mTextBounds.top) / 2,
+                    mTextPaint);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Release some memory according to the trim level.
+     *
+     * @param level the trim level (see {@link ComponentCallbacks2})
+     */
+    public void trimMemory(int level) {
+        MemoryUtils.trimLruCache(mBitmapByKey, level);
+
+        Log.d(LOG_TAG, "## trimMemory() : level " + level + " " + this);
+    }
+
+    /**
+     * @return the number of cache hits
+     */
+    public int getHitCount() {
+        return mBitmapByKey.hitCount();
+    }
+
+    /**
+     * @return the number of cache misses
+     */
+    public int getMissCount() {
+        return mBitmapByKey.missCount();
+    }
+
+    /**
+     * @return the number of evicted avatars
+     */
+    public int getEvictionCount() {
+        return mBitmapByKey.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarBitmapCache[size=" + mBitmapByKey.size() + "/" + mBitmapByKey.maxSize()
+                + " bytes, hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + "]";
+    }
+}
@@ -25,6 +25,7 @@ import android.graphics.Bitmap;
 import android.os.AsyncTask;
 import android.os.Build;
 import android.text.TextUtils;
+import android.util.Pair;
 import android.view.View;
 
 import androidx.annotation.Nullable;
@@ -35,10 +36,11 @@ import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.RestClient;
 import org.matrix.androidsdk.core.Log;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -47,7 +49,6 @@ import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.zip.GZIPOutputStream;
 
 import im.vector.BuildConfig;
 import im.vector.Matrix;
@@ -63,6 +64,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okio.BufferedSink;
 
 /**
  * BugReporter creates and sends the bug reports.
@@ -108,7 +110,6 @@ public class BugReporter {
     private static final String BUG_REPORT_URL_SUFFIX = "/bugreports/submit";
 
     // filenames
-    private static final String LOG_CAT_ERROR_FILENAME = "logcatError.log";
     private static final String LOG_CAT_FILENAME = "logcat.log";
     private static final String LOG_CAT_SCREENSHOT_FILENAME = "screenshot.png";
     private static final String CRASH_FILENAME = "crash.log";
@@ -142,8 +143,8 @@ public class BugReporter {
                                      final IMXBugReportListener listener) {
         new AsyncTask<Void, Integer, String>() {
 
-            // enumerate files to delete
-            final List<File> mBugReportFiles = new ArrayList<>();
+            // the last published progress
+            int mProgress = -1;
 
             @Override
             protected String doInBackground(Void... voids) {
@@ -156,44 +157,23 @@ public class BugReporter {
                     bugDescription += crashCallStack;
                 }
 
-                List<File> gzippedFiles = new ArrayList<>();
-
-                if (withDevicesLogs) {
-                    List<File> files = org.matrix.androidsdk.core.Log.addLogFiles(new ArrayList<File>());
-
-                    for (File f : files) {
-                        if (!mIsCancelled) {
-                            File gzippedFile = compressFile(f);
-
-                            if (null != gzippedFile) {
-                                gzippedFiles.add(gzippedFile);
-                            }
-                        }
-                    }
-                }
+                // the logs are gzipped while they are uploaded
+                List<Pair<String, GzipStreamRequestBody>> gzippedLogs = new ArrayList<>();
 
                 if (!mIsCancelled && (withCrashLogs || withDevicesLogs)) {
-                    File gzippedLogcat = saveLogCat(context, false);
-
-                    if (null != gzippedLogcat) {
-                        if (gzippedFiles.size() == 0) {
-                            gzippedFiles.add(gzippedLogcat);
-                        } else {
-                            gzippedFiles.add(0, gzippedLogcat);
-                        }
-                    }
-
                     File crashDescription = getCrashFile(context);
                     if (crashDescription.exists()) {
-                        File compressedCrashDescription = compressFile(crashDescription);
+                        gzippedLogs.add(new Pair<>(crashDescription.getName() + ".gz", GzipStreamRequestBody.create(crashDescription)));
+                    }
 
-                        if (null != compressedCrashDescription) {
-                            if (gzippedFiles.size() == 0) {
-                                gzippedFiles.add(compressedCrashDescription);
-                            } else {
-                                gzippedFiles.add(0, compressedCrashDescription);
-                            }
-                        }
+                    gzippedLogs.add(new Pair<>(LOG_CAT_FILENAME + ".gz", getLogCatBody(false)));
+                }
+
+                if (withDevicesLogs) {
+                    List<File> files = org.matrix.androidsdk.core.Log.addLogFiles(new ArrayList<File>());
+
+                    for (File f : files) {
+                        gzippedLogs.add(new Pair<>(f.getName() + ".gz", GzipStreamRequestBody.create(f)));
                     }
                 }
 
@@ -242,34 +222,29 @@ public class BugReporter {
                         builder.addFormDataPart("build_number", buildNumber);
                     }
 
-                    // add the gzipped files
-                    for (File file : gzippedFiles) {
-                        builder.addFormDataPart("compressed-log", file.getName(), RequestBody.create(MediaType.parse("application/octet-stream"), file));
+                    // add the gzipped logs
+                    for (Pair<String, GzipStreamRequestBody> gzippedLog : gzippedLogs) {
+                        builder.addFormDataPart("compressed-log", gzippedLog.first, gzippedLog.second);
                     }
 
-                    mBugReportFiles.addAll(gzippedFiles);
-
                     if (withScreenshot) {
-                        Bitmap bitmap = mScreenshot;
+                        final Bitmap bitmap = mScreenshot;
 
                         if (null != bitmap) {
-                            File logCatScreenshotFile = new File(context.getCacheDir().getAbsolutePath(), LOG_CAT_SCREENSHOT_FILENAME);
-
-                            if (logCatScreenshotFile.exists()) {
-                                logCatScreenshotFile.delete();
-                            }
-
-                            try {
-                                FileOutputStream fos = new FileOutputStream(logCatScreenshotFile);
-                                bitmap.compress(Bitmap.CompressFormat.PNG, 100, fos);
-                                fos.flush();
-                                fos.close();
+                            // the screenshot is compressed while it is uploaded
+                            builder.addFormDataPart("file", LOG_CAT_SCREENSHOT_FILENAME, new RequestBody() {
+                                @Override
+                                public MediaType contentType() {
+                                    return MediaType.parse("application/octet-stream");
+                                }
 
-                                builder.addFormDataPart("file",
-                                        logCatScreenshotFile.getName(), RequestBody.create(MediaType.parse("application/octet-stream"), logCatScreenshotFile));
-                            } catch (Exception e) {
-                                Log.e(LOG_TAG, "## sendBugReport() : fail to write screenshot" + e.toString(), e);
-                            }
+                                @Override
+                                public void writeTo(BufferedSink sink) {
+                                    if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, sink.outputStream())) {
+                                        Log.e(LOG_TAG, "## sendBugReport() : fail to write screenshot");
+                                    }
+                                }
+                            });
                         }
                     }
 
@@ -280,9 +255,11 @@ public class BugReporter {
                     builder.addFormDataPart("label", BuildConfig.FLAVOR_DESCRIPTION);
                     builder.addFormDataPart("label", context.getString(R.string.git_branch_name));
 
-                    if (getCrashFile(context).exists()) {
+                    // the crash file is deleted once it has been uploaded
+                    boolean hasCrashFile = getCrashFile(context).exists();
+
+                    if (hasCrashFile) {
                         builder.addFormDataPart("label", "crash");
-                        deleteCrashFile(context);
                     }
 
                     // tag Tchap bug reports to better triage them
@@ -310,8 +287,12 @@ public class BugReporter {
                                 mBugReportCall.cancel();
                             }
 
-                            Log.d(LOG_TAG, "## onWrite() : " + percentage + "%");
-                            publishProgress(percentage);
+                            // the streamed logs report their progress on each compressed buffer
+                            if (percentage != mProgress) {
+                                mProgress = percentage;
+                                Log.d(LOG_TAG, "## onWrite() : " + percentage + "%");
+                                publishProgress(percentage);
+                            }
                         }
                     });
 
@@ -335,6 +316,10 @@ public class BugReporter {
                         errorMessage = e.getLocalizedMessage();
                     }
 
+                    if (hasCrashFile) {
+                        deleteCrashFile(context);
+                    }
+
                     // if the upload failed, try to retrieve the reason
                     if (responseCode != HttpURLConnection.HTTP_OK) {
                         if (null != errorMessage) {
@@ -404,11 +389,6 @@ public class BugReporter {
             protected void onPostExecute(String reason) {
                 mBugReportCall = null;
 
-                // delete when the bug report has been successfully sent
-                for (File file : mBugReportFiles) {
-                    file.delete();
-                }
-
                 if (null != listener) {
                     try {
                         if (mIsCancelled) {
@@ -592,41 +572,6 @@ public class BugReporter {
     // Logcat management
     //==============================================================================================================
 
-    /**
-     * Save the logcat
-     *
-     * @param context       the context
-     * @param isErrorLogcat true to save the error logcat
-     * @return the file if the operation succeeds
-     */
-    private static File saveLogCat(Context context, boolean isErrorLogcat) {
-        File logCatErrFile = new File(context.getCacheDir().getAbsolutePath(), isErrorLogcat ? LOG_CAT_ERROR_FILENAME : LOG_CAT_FILENAME);
-
-        if (logCatErrFile.exists()) {
-            logCatErrFile.delete();
-        }
-
-        try {
-            FileOutputStream fos = new FileOutputStream(logCatErrFile);
-            OutputStreamWriter osw = new OutputStreamWriter(fos);
-            getLogCatError(osw, isErrorLogcat);
-            osw.close();
-
-            fos.flush();
-            fos.close();
-
-            return compressFile(logCatErrFile);
-        } catch (OutOfMemoryError error) {
-            Log.e(LOG_TAG, "## saveLogCat() : fail to write logcat" + error.toString(), error);
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "## saveLogCat() : fail to write logcat" + e.toString(), e);
-        }
-
-        return null;
-    }
-
-    private static final int BUFFER_SIZE = 1024 * 1024 * 50;
-
     private static final String[] LOGCAT_CMD_ERROR = new String[]{
             "logcat", ///< Run 'logcat' command
             "-d",  ///< Dump the log rather than continue outputting it
@@ -647,101 +592,35 @@ public class BugReporter {
     };
 
     /**
-     * Retrieves the logs
+     * Provide a request body which gzips the logs while they are uploaded.
      *
-     * @param streamWriter  the stream writer
-     * @param isErrorLogCat true to save the error logs
+     * @param isErrorLogCat true to provide the error logs
+     * @return the request body
      */
-    private static void getLogCatError(OutputStreamWriter streamWriter, boolean isErrorLogCat) {
-        Process logcatProc;
-
-        try {
-            logcatProc = Runtime.getRuntime().exec(isErrorLogCat ? LOGCAT_CMD_ERROR : LOGCAT_CMD_DEBUG);
-        } catch (IOException e1) {
-            return;
-        }
+    private static GzipStreamRequestBody getLogCatBody(final boolean isErrorLogCat) {
+        return new GzipStreamRequestBody(new GzipStreamRequestBody.StreamProvider() {
+            @Override
+            public InputStream open() {
+                final Process logcatProc;
 
-        BufferedReader reader = null;
-        try {
-            String separator = System.getProperty("line.separator");
-            reader = new BufferedReader(new InputStreamReader(logcatProc.getInputStream()), BUFFER_SIZE);
-            String line;
-            while ((line = reader.readLine()) != null) {
-                streamWriter.append(line);
-                streamWriter.append(separator);
-            }
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "getLog fails with " + e.getLocalizedMessage(), e);
-        } finally {
-            if (reader != null) {
                 try {
-                    reader.close();
+                    logcatProc = Runtime.getRuntime().exec(isErrorLogCat ? LOGCAT_CMD_ERROR : LOGCAT_CMD_DEBUG);
                 } catch (IOException e) {
-                    Log.e(LOG_TAG, "getLog fails with " + e.getLocalizedMessage(), e);
+                    Log.e(LOG_TAG, "## getLogCatBody() : fail to run logcat " + e.getLocalizedMessage(), e);
+                    return new ByteArrayInputStream(new byte[0]);
                 }
-            }
-        }
-    }
-
-    //==============================================================================================================
-    // File compression management
-    //==============================================================================================================
-
-    /**
-     * GZip a file
-     *
-     * @param fin the input file
-     * @return the gzipped file
-     */
-    private static File compressFile(File fin) {
-        Log.d(LOG_TAG, "## compressFile() : compress " + fin.getName());
-
-        File dstFile = new File(fin.getParent(), fin.getName() + ".gz");
-
-        if (dstFile.exists()) {
-            dstFile.delete();
-        }
-
-        FileOutputStream fos = null;
-        GZIPOutputStream gos = null;
-        InputStream inputStream = null;
-        try {
-            fos = new FileOutputStream(dstFile);
-            gos = new GZIPOutputStream(fos);
-
-            inputStream = new FileInputStream(fin);
-            int n;
-
-            byte[] buffer = new byte[2048];
-            while ((n = inputStream.read(buffer)) != -1) {
-                gos.write(buffer, 0, n);
-            }
-
-            gos.close();
-            inputStream.close();
 
-            Log.d(LOG_TAG, "## compressFile() : " + fin.length() + " compressed to " + dstFile.length() + " bytes");
-            return dstFile;
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "## compressFile() failed " + e.getMessage(), e);
-        } catch (OutOfMemoryError oom) {
-            Log.e(LOG_TAG, "## compressFile() failed " + oom.getMessage(), oom);
-        } finally {
-            try {
-                if (null != fos) {
-                    fos.close();
-                }
-                if (null != gos) {
-                    gos.close();
-                }
-                if (null != inputStream) {
-                    inputStream.close();
-                }
-            } catch (Exception e) {
-                Log.e(LOG_TAG, "## compressFile() failed to close inputStream " + e.getMessage(), e);
+                return new FilterInputStream(logcatProc.getInputStream()) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            logcatProc.destroy();
+                        }
+                    }
+                };
             }
-        }
-
-        return null;
+        }, -1);
     }
 }
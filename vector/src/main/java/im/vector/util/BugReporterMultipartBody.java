@@ -60,8 +60,9 @@ public class BugReporterMultipartBody extends RequestBody {
     // listener
     private WriteListener mWriteListener;
 
-    //
-    private List<Long> mContentLengthSize = null;
+    // the length used to compute the upload progress: the parts lengths,
+    // the uncompressed lengths for the streamed parts
+    private long mProgressLength = -1L;
 
     private BugReporterMultipartBody(ByteString boundary, List<Part> parts) {
         mBoundary = boundary;
@@ -98,14 +99,25 @@ public class BugReporterMultipartBody extends RequestBody {
     /**
      * Warn the listener that some bytes have been written
      *
-     * @param totalWrittenBytes the total written bytes
+     * @param totalWrittenBytes the total written bytes, in the progress length unit
      */
     private void onWrite(long totalWrittenBytes) {
-        if ((null != mWriteListener) && (mContentLength > 0)) {
-            mWriteListener.onWrite(totalWrittenBytes, mContentLength);
+        if ((null != mWriteListener) && (mProgressLength > 0)) {
+            mWriteListener.onWrite(totalWrittenBytes, mProgressLength);
         }
     }
 
+    /**
+     * Provide the length of a part body, to compute the upload progress.
+     *
+     * @param body the part body
+     * @return the length, 0 if it is unknown
+     */
+    private static long getProgressLength(RequestBody body) throws IOException {
+        long length = (body instanceof GzipStreamRequestBody) ? ((GzipStreamRequestBody) body).sourceLength() : body.contentLength();
+        return Math.max(0, length);
+    }
+
     /**
      * Either writes this request to {@code sink} or measures its content length. We have one method
      * do double-duty to make sure the counting and content are consistent, particularly when it comes
@@ -118,9 +130,17 @@ public class BugReporterMultipartBody extends RequestBody {
         Buffer byteCountBuffer = null;
         if (countBytes) {
             sink = byteCountBuffer = new Buffer();
-            mContentLengthSize = new ArrayList<>();
+        } else {
+            mProgressLength = 0;
+
+            for (Part part : mParts) {
+                mProgressLength += getProgressLength(part.body);
+            }
         }
 
+        // the written bytes, in the progress length unit
+        long progress = 0L;
+
         for (int p = 0, partCount = mParts.size(); p < partCount; p++) {
             Part part = mParts.get(p);
             Headers headers = part.headers;
@@ -161,16 +181,28 @@ public class BugReporterMultipartBody extends RequestBody {
 
             if (countBytes) {
                 byteCount += contentLength;
-                mContentLengthSize.add(byteCount);
             } else {
+                final long partProgress = progress;
+                final long partLength = getProgressLength(body);
+
+                // the streamed parts warn the listener while they are compressed
+                if (body instanceof GzipStreamRequestBody) {
+                    ((GzipStreamRequestBody) body).setWriteListener(new WriteListener() {
+                        @Override
+                        public void onWrite(long totalWritten, long contentLength) {
+                            // the unknown lengths are not taken into account
+                            BugReporterMultipartBody.this.onWrite(partProgress + Math.min(totalWritten, partLength));
+                        }
+                    });
+                }
+
                 body.writeTo(sink);
 
                 // warn the listener of upload progress
                 // sink.buffer().size() does not give the right value
                 // assume that some data are popped
-                if ((null != mContentLengthSize) && (p < mContentLengthSize.size())) {
-                    onWrite(mContentLengthSize.get(p));
-                }
+                progress += partLength;
+                onWrite(progress);
             }
             sink.write(CRLF);
         }
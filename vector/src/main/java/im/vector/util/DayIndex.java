@@ -0,0 +1,187 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Keeps the local day of a list of timestamped items, in the list order.
+ * The days are stored as epoch days in a primitive array, which is updated when the items are
+ * inserted or removed, so the day separators can be computed without any allocation.
+ * An item without a valid timestamp belongs to the day of the previous item.
+ */
+public class DayIndex {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private static final long MS_IN_DAY = 24 * 60 * 60 * 1000L;
+
+    // the timestamp of an item without valid timestamp
+    public static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    // the day of an item without valid timestamp
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    // the epoch day of each item
+    private long[] mDays = new long[DEFAULT_CAPACITY];
+
+    private int mSize;
+
+    private final TimeZone mTimeZone;
+
+    public DayIndex() {
+        this(TimeZone.getDefault());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param timeZone the time zone used to compute the days
+     */
+    public DayIndex(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    /**
+     * @return the number of items
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Compute the local epoch day of a timestamp.
+     *
+     * @param ts the timestamp
+     * @return the epoch day
+     */
+    public long toDay(long ts) {
+        long localTs = ts + mTimeZone.getOffset(ts);
+        long day = localTs / MS_IN_DAY;
+
+        // round towards the past for the timestamps before 1970
+        if ((localTs % MS_IN_DAY) < 0) {
+            day--;
+        }
+
+        return day;
+    }
+
+    /**
+     * Compute a timestamp in the middle of an epoch day.
+     *
+     * @param day the epoch day
+     * @return the timestamp
+     */
+    public long toTimestamp(long day) {
+        long ts = day * MS_IN_DAY + MS_IN_DAY / 2;
+        return ts - mTimeZone.getOffset(ts);
+    }
+
+    /**
+     * Append an item.
+     *
+     * @param ts the item timestamp, NO_TIMESTAMP if it is not valid
+     */
+    public void add(long ts) {
+        insert(mSize, ts);
+    }
+
+    /**
+     * Insert an item.
+     *
+     * @param index the item position
+     * @param ts    the item timestamp, NO_TIMESTAMP if it is not valid
+     */
+    public void insert(int index, long ts) {
+        if ((index < 0) || (index > mSize)) {
+            throw new IndexOutOfBoundsException("index " + index + " size " + mSize);
+        }
+
+        if (mSize == mDays.length) {
+            mDays = Arrays.copyOf(mDays, mSize * 2);
+        }
+
+        if (index < mSize) {
+            System.arraycopy(mDays, index, mDays, index + 1, mSize - index);
+        }
+
+        mSize++;
+        set(index, ts);
+    }
+
+    /**
+     * Update the timestamp of an item.
+     *
+     * @param index the item position
+     * @param ts    the item timestamp, NO_TIMESTAMP if it is not valid
+     */
+    public void set(int index, long ts) {
+        if ((index < 0) || (index >= mSize)) {
+            throw new IndexOutOfBoundsException("index " + index + " size " + mSize);
+        }
+
+        mDays[index] = (NO_TIMESTAMP != ts) ? toDay(ts) : NO_DAY;
+    }
+
+    /**
+     * Remove an item.
+     *
+     * @param index the item position
+     */
+    public void remove(int index) {
+        if ((index < 0) || (index >= mSize)) {
+            throw new IndexOutOfBoundsException("index " + index + " size " + mSize);
+        }
+
+        int toMove = mSize - index - 1;
+
+        if (toMove > 0) {
+            System.arraycopy(mDays, index + 1, mDays, index, toMove);
+        }
+
+        mSize--;
+    }
+
+    /**
+     * Remove all the items.
+     */
+    public void clear() {
+        mSize = 0;
+
+        if (mDays.length > DEFAULT_CAPACITY) {
+            mDays = new long[DEFAULT_CAPACITY];
+        }
+    }
+
+    /**
+     * Provide the day of an item.
+     *
+     * @param index      the item position
+     * @param defaultDay the day to use when no item has a valid timestamp up to this one
+     * @return the epoch day
+     */
+    public long getDay(int index, long defaultDay) {
+        for (int i = Math.min(index, mSize - 1); i >= 0; i--) {
+            if (NO_DAY != mDays[i]) {
+                return mDays[i];
+            }
+        }
+
+        return defaultDay;
+    }
+}
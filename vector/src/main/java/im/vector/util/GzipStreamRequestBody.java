@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import androidx.annotation.Nullable;
+
+import org.matrix.androidsdk.core.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Request body which gzips a stream while it is written, with fixed size buffers.
+ * The stream is neither loaded in memory nor copied to a file, so its content length is unknown.
+ */
+public class GzipStreamRequestBody extends RequestBody {
+    private static final String LOG_TAG = GzipStreamRequestBody.class.getSimpleName();
+
+    // the size of the read and the compression buffers
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    /**
+     * Provider of the stream to compress, it is opened each time the body is written.
+     */
+    public interface StreamProvider {
+        /**
+         * @return the stream, it is closed by the caller
+         * @throws IOException if the stream cannot be opened
+         */
+        InputStream open() throws IOException;
+    }
+
+    private final StreamProvider mStreamProvider;
+    private final long mSourceLength;
+
+    @Nullable
+    private BugReporterMultipartBody.WriteListener mWriteListener;
+
+    /**
+     * Constructor
+     *
+     * @param streamProvider the stream provider
+     * @param sourceLength   the uncompressed length, -1 if it is unknown
+     */
+    public GzipStreamRequestBody(StreamProvider streamProvider, long sourceLength) {
+        mStreamProvider = streamProvider;
+        mSourceLength = sourceLength;
+    }
+
+    /**
+     * Create a body which compresses a file.
+     * The file is read when the body is written, it is sent empty if it does not exist anymore.
+     *
+     * @param file the file
+     * @return the body
+     */
+    public static GzipStreamRequestBody create(final File file) {
+        return new GzipStreamRequestBody(new StreamProvider() {
+            @Override
+            public InputStream open() {
+                try {
+                    return new FileInputStream(file);
+                } catch (FileNotFoundException e) {
+                    // the log files may have been rotated, the other parts must be sent
+                    Log.e(LOG_TAG, "## open() : " + file.getName() + " does not exist anymore", e);
+                    return new ByteArrayInputStream(new byte[0]);
+                }
+            }
+        }, file.length());
+    }
+
+    /**
+     * @return the uncompressed length, -1 if it is unknown
+     */
+    public long sourceLength() {
+        return mSourceLength;
+    }
+
+    /**
+     * Set a listener of the read uncompressed bytes.
+     *
+     * @param listener the listener
+     */
+    public void setWriteListener(@Nullable BugReporterMultipartBody.WriteListener listener) {
+        mWriteListener = listener;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return OCTET_STREAM;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1L;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        InputStream inputStream = mStreamProvider.open();
+
+        // the sink must stay open for the next parts
+        OutputStream sinkOutputStream = new FilterOutputStream(sink.outputStream()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+
+        GZIPOutputStream gzipOutputStream = new GZIPOutputStream(sinkOutputStream, BUFFER_SIZE);
+
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long totalRead = 0;
+            int n;
+
+            while ((n = inputStream.read(buffer)) != -1) {
+                gzipOutputStream.write(buffer, 0, n);
+                totalRead += n;
+
+                if (null != mWriteListener) {
+                    mWriteListener.onWrite(totalRead, mSourceLength);
+                }
+            }
+
+            gzipOutputStream.finish();
+        } finally {
+            inputStream.close();
+
+            // release the deflater
+            gzipOutputStream.close();
+        }
+    }
+}
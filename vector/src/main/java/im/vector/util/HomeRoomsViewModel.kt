@@ -15,13 +15,22 @@
  */
 package im.vector.util
 
+import android.os.Handler
+import android.os.Looper
+import kotlinx.coroutines.GlobalScope
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.launch
 import org.matrix.androidsdk.MXSession
 import org.matrix.androidsdk.core.Log
 import org.matrix.androidsdk.data.Room
 import org.matrix.androidsdk.data.RoomTag
+import java.util.concurrent.Executors
 
 /**
  * This class is responsible for filtering and ranking rooms whenever there is a need to update in the context of the HomeScreens
+ *
+ * The rooms are classified incrementally: only the rooms invalidated since the last update are reclassified,
+ * on a background thread. The result is published on the main thread with the diff since the previous result.
  */
 class HomeRoomsViewModel(private val session: MXSession) {
 
@@ -60,61 +69,263 @@ class HomeRoomsViewModel(private val session: MXSession) {
         }
     }
 
+    /**
+     * The sections of the result
+     */
+    enum class Section {
+        FAVOURITES,
+        DIRECT_CHATS,
+        OTHER_ROOMS,
+        LOW_PRIORITIES,
+        SERVER_NOTICES
+    }
+
+    /**
+     * The changes of a section between two results
+     *
+     * @param added   the rooms which entered the section
+     * @param removed the rooms which left the section
+     * @param moved   the rooms which stay in the section but have been updated, so their rank may have changed
+     */
+    data class SectionDiff(val added: List<Room> = emptyList(),
+                           val removed: List<Room> = emptyList(),
+                           val moved: List<Room> = emptyList()) {
+
+        fun isEmpty() = added.isEmpty() && removed.isEmpty() && moved.isEmpty()
+    }
+
+    /**
+     * The changes between two results, by section
+     */
+    data class Diff(val sections: Map<Section, SectionDiff> = emptyMap()) {
+
+        fun isEmpty() = sections.values.all { it.isEmpty() }
+
+        /**
+         * Merge the diffs of all the sections.
+         * A room moving from a section to another one is reported as moved.
+         */
+        fun getJoinedRoomsDiff(): SectionDiff {
+            val added = sections.values.flatMap { it.added }
+            val removed = sections.values.flatMap { it.removed }
+            val addedIds = added.map { it.roomId }.toSet()
+            val removedIds = removed.map { it.roomId }.toSet()
+
+            return SectionDiff(
+                    added = added.filter { !removedIds.contains(it.roomId) },
+                    removed = removed.filter { !addedIds.contains(it.roomId) },
+                    moved = sections.values.flatMap { it.moved } + added.filter { removedIds.contains(it.roomId) })
+        }
+    }
+
+    /**
+     * Listener of the asynchronous updates
+     */
+    interface UpdateListener {
+        /**
+         * Called on the main thread.
+         *
+         * @param result the new result
+         * @param diff   the changes since the previous result, null if the rooms have been fully reclassified.
+         */
+        fun onResultUpdated(result: Result, diff: Diff?)
+    }
+
     /**
      * The last result
      */
     var result = Result()
+        private set
+
+    // the classified rooms by section, only accessed from the classification thread
+    private val roomsBySection = Section.values().associate { it to LinkedHashMap<String, Room>() }
+    private val sectionByRoomId = HashMap<String, Section>()
+
+    // the rooms to reclassify, only accessed from the main thread
+    private val invalidatedRoomIds = HashSet<String>()
+    private var isFullyInvalidated = true
+
+    private var isUpdating = false
+    private var pendingListener: UpdateListener? = null
+
+    private val uiHandler = Handler(Looper.getMainLooper())
+
+    /**
+     * Flag a room to be reclassified at the next update.
+     *
+     * @param roomId the room id
+     */
+    fun invalidateRoom(roomId: String?) {
+        if (null != roomId) {
+            invalidatedRoomIds.add(roomId)
+        }
+    }
+
+    /**
+     * Flag all the rooms to be reclassified at the next update (initial sync, direct chats list update...)
+     */
+    fun invalidateAll() {
+        isFullyInvalidated = true
+        invalidatedRoomIds.clear()
+    }
 
     /**
      * The update method
-     * This method should be called whenever the room data have changed
+     * This method should be called whenever the room data have changed.
+     * It reclassifies the invalidated rooms on a background thread.
+     * When an update is already in progress, a new one is triggered when it is done.
+     * Must be called from the main thread.
+     *
+     * @param listener the listener to call on the main thread with the new result
+     */
+    fun update(listener: UpdateListener) {
+        if (isUpdating) {
+            pendingListener = listener
+            return
+        }
+
+        val roomIds = if (isFullyInvalidated) null else HashSet(invalidatedRoomIds)
+        isFullyInvalidated = false
+        invalidatedRoomIds.clear()
+
+        if (roomIds?.isEmpty() == true) {
+            listener.onResultUpdated(result, Diff())
+            return
+        }
+
+        isUpdating = true
+
+        GlobalScope.launch(classificationDispatcher) {
+            val diff = classify(roomIds)
+            val newResult = buildResult()
+
+            uiHandler.post {
+                isUpdating = false
+                result = newResult
+                Log.d(LOG_TAG, "## update() : ${roomIds?.size ?: "all"} rooms reclassified")
+                listener.onResultUpdated(newResult, diff)
+
+                pendingListener?.let {
+                    pendingListener = null
+                    update(it)
+                }
+            }
+        }
+    }
+
+    //region private methods
+
+    /**
+     * Classify the rooms
+     *
+     * @param roomIds the rooms to classify, null to classify all the rooms.
+     * @return the diff, null when all the rooms have been classified
      */
-    //TODO Take it off the main thread using coroutine
-    fun update(): Result {
-        val favourites = ArrayList<Room>()
-        val directChats = ArrayList<Room>()
-        val otherRooms = ArrayList<Room>()
-        val lowPriorities = ArrayList<Room>()
-        val serverNotices = ArrayList<Room>()
-
-        val joinedRooms = getJoinedRooms()
-        for (room in joinedRooms) {
-            val tags = room.accountData?.roomTagsKeys ?: emptySet()
-            when {
-                tags.contains(RoomTag.ROOM_TAG_SERVER_NOTICE) -> serverNotices.add(room)
-                tags.contains(RoomTag.ROOM_TAG_FAVOURITE) -> favourites.add(room)
-                tags.contains(RoomTag.ROOM_TAG_LOW_PRIORITY) -> lowPriorities.add(room)
-                RoomUtils.isDirectChat(session, room.roomId) -> directChats.add(room)
-                else -> otherRooms.add(room)
+    private fun classify(roomIds: Set<String>?): Diff? {
+        if (null == roomIds) {
+            roomsBySection.values.forEach { it.clear() }
+            sectionByRoomId.clear()
+
+            for (room in getJoinedRooms()) {
+                val section = getSection(room)
+                roomsBySection.getValue(section)[room.roomId] = room
+                sectionByRoomId[room.roomId] = section
+            }
+
+            return null
+        }
+
+        val added = Section.values().associate { it to ArrayList<Room>() }
+        val removed = Section.values().associate { it to ArrayList<Room>() }
+        val moved = Section.values().associate { it to ArrayList<Room>() }
+
+        for (roomId in withPredecessors(roomIds)) {
+            val room = session.dataHandler.store?.getRoom(roomId)
+            val oldSection = sectionByRoomId[roomId]
+            val newSection = room?.takeIf { isDisplayed(it) }?.let { getSection(it) }
+
+            if (oldSection == newSection) {
+                if (null != room && null != newSection) {
+                    // the room may have been updated (new message, read receipt...)
+                    roomsBySection.getValue(newSection)[roomId] = room
+                    moved.getValue(newSection).add(room)
+                }
+                continue
+            }
+
+            if (null != oldSection) {
+                roomsBySection.getValue(oldSection).remove(roomId)?.let { removed.getValue(oldSection).add(it) }
+                sectionByRoomId.remove(roomId)
+            }
+
+            if (null != room && null != newSection) {
+                roomsBySection.getValue(newSection)[roomId] = room
+                sectionByRoomId[roomId] = newSection
+                added.getValue(newSection).add(room)
             }
         }
 
-        result = Result(
-                favourites = favourites,
-                directChats = directChats,
-                otherRooms = otherRooms,
-                lowPriorities = lowPriorities,
-                serverNotices = serverNotices)
-        Log.d("HomeRoomsViewModel", result.toString())
+        return Diff(Section.values().associate {
+            it to SectionDiff(added.getValue(it), removed.getValue(it), moved.getValue(it))
+        })
+    }
+
+    /**
+     * Joining a room replacement hides its predecessor, so the predecessors must be reclassified too.
+     */
+    private fun withPredecessors(roomIds: Set<String>): Set<String> {
+        val result = HashSet(roomIds)
+
+        for (roomId in roomIds) {
+            session.dataHandler.store?.getRoom(roomId)?.state?.roomCreateContent?.predecessor?.roomId?.let { result.add(it) }
+        }
+
         return result
     }
 
-    //region private methods
+    private fun buildResult(): Result {
+        return Result(
+                favourites = ArrayList(roomsBySection.getValue(Section.FAVOURITES).values),
+                directChats = ArrayList(roomsBySection.getValue(Section.DIRECT_CHATS).values),
+                otherRooms = ArrayList(roomsBySection.getValue(Section.OTHER_ROOMS).values),
+                lowPriorities = ArrayList(roomsBySection.getValue(Section.LOW_PRIORITIES).values),
+                serverNotices = ArrayList(roomsBySection.getValue(Section.SERVER_NOTICES).values))
+    }
+
+    private fun getSection(room: Room): Section {
+        val tags = room.accountData?.roomTagsKeys ?: emptySet()
+        return when {
+            tags.contains(RoomTag.ROOM_TAG_SERVER_NOTICE) -> Section.SERVER_NOTICES
+            tags.contains(RoomTag.ROOM_TAG_FAVOURITE) -> Section.FAVOURITES
+            tags.contains(RoomTag.ROOM_TAG_LOW_PRIORITY) -> Section.LOW_PRIORITIES
+            RoomUtils.isDirectChat(session, room.roomId) -> Section.DIRECT_CHATS
+            else -> Section.OTHER_ROOMS
+        }
+    }
 
     private fun getJoinedRooms(): List<Room> {
-        return session.dataHandler.store?.rooms?.filter {
-                    val isJoined = it.isJoined
-                    val tombstoneContent = it.state.roomTombstoneContent
-                    val redirectRoom = if (tombstoneContent?.replacementRoom != null) {
-                        session.dataHandler.getRoom(tombstoneContent.replacementRoom)
-                    } else {
-                        null
-                    }
-                    val isVersioned = redirectRoom?.isJoined
-                            ?: false
-                    isJoined && !isVersioned && !it.isConferenceUserRoom
-                } .orEmpty()
+        return session.dataHandler.store?.rooms?.filter { isDisplayed(it) }.orEmpty()
+    }
+
+    private fun isDisplayed(room: Room): Boolean {
+        val isJoined = room.isJoined
+        val tombstoneContent = room.state.roomTombstoneContent
+        val redirectRoom = if (tombstoneContent?.replacementRoom != null) {
+            session.dataHandler.getRoom(tombstoneContent.replacementRoom)
+        } else {
+            null
+        }
+        val isVersioned = redirectRoom?.isJoined
+                ?: false
+        return isJoined && !isVersioned && !room.isConferenceUserRoom
     }
 
     //endregion
+
+    companion object {
+        private const val LOG_TAG = "HomeRoomsViewModel"
+
+        // a single thread, so the classification state is never accessed concurrently
+        private val classificationDispatcher = Executors.newSingleThreadExecutor().asCoroutineDispatcher()
+    }
 }
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import com.google.gson.JsonElement;
+
+import org.matrix.androidsdk.MXSession;
+import org.matrix.androidsdk.core.Log;
+import org.matrix.androidsdk.core.callback.SimpleApiCallback;
+import org.matrix.androidsdk.db.MXMediaCache;
+import org.matrix.androidsdk.listeners.MXMediaDownloadListener;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loader of the images displayed inside the formatted messages.
+ * <ul>
+ * <li>the images are downloaded with the session media cache, so they are shared by all the rooms
+ * and they use the home server network configuration.</li>
+ * <li>the images are decoded on a small thread pool, with a sample size which fits the requested width.</li>
+ * <li>the decoded bitmaps are kept in a LRU cache bounded in bytes, which is trimmed on memory pressure.</li>
+ * <li>the concurrent requests of the same image are merged.</li>
+ * <li>the images which cannot be loaded are not requested again before a retry delay.</li>
+ * </ul>
+ */
+public class InlineImageLoader {
+    private static final String LOG_TAG = InlineImageLoader.class.getSimpleName();
+
+    // the inline images have no mime type, this one is only used to name the cached files
+    private static final String INLINE_IMAGE_MIME_TYPE = "image/jpeg";
+
+    // the number of decoding threads
+    private static final int DECODING_THREADS_COUNT = 2;
+
+    // the part of the heap allocated to the decoded images
+    private static final int HEAP_RATIO = 16;
+
+    // the maximum cache size in bytes
+    private static final int MAX_CACHE_SIZE = 16 * 1024 * 1024;
+
+    // the delay before loading again an image which cannot be loaded
+    static final long FAILED_SOURCE_RETRY_DELAY_MS = 5 * 60 * 1000;
+
+    // the maximum number of tracked failed images
+    private static final int MAX_FAILED_SOURCES = 128;
+
+    /**
+     * Image loading listener, it is called from the UI thread.
+     */
+    public interface OnImageLoadedListener {
+        /**
+         * The image loading is done.
+         *
+         * @param source the image URL
+         * @param bitmap the image, null on failure
+         */
+        void onImageLoaded(String source, @Nullable Bitmap bitmap);
+    }
+
+    // the singleton
+    private static InlineImageLoader sInlineImageLoader = null;
+
+    private final LruCache<String, Bitmap> mBitmapCache;
+    private final ExecutorService mDecodingExecutor = Executors.newFixedThreadPool(DECODING_THREADS_COUNT);
+    private final Handler mUIHandler = new Handler(Looper.getMainLooper());
+
+    // the listeners of the pending requests, by cache key
+    private final Map<String, List<OnImageLoadedListener>> mPendingRequests = new HashMap<>();
+
+    // the last failure time of the images which cannot be loaded, by URL
+    private final LruCache<String, Long> mFailureTsBySource = new LruCache<>(MAX_FAILED_SOURCES);
+
+    /**
+     * Retrieve the current instance
+     *
+     * @return the instance
+     */
+    public static synchronized InlineImageLoader getInstance() {
+        if (null == sInlineImageLoader) {
+            sInlineImageLoader = new InlineImageLoader();
+        }
+
+        return sInlineImageLoader;
+    }
+
+    private InlineImageLoader() {
+        int cacheSize = (int) Math.min(MAX_CACHE_SIZE, Runtime.getRuntime().maxMemory() / HEAP_RATIO);
+
+        mBitmapCache = new LruCache<String, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight(); // size in bytes
+            }
+        };
+    }
+
+    private static String getCacheKey(String source, int maxWidth) {
+        return source + "|" + maxWidth;
+    }
+
+    /**
+     * Provide a loaded image.
+     *
+     * @param source   the image URL
+     * @param maxWidth the maximum width in pixels
+     * @return the image, null if it is not loaded
+     */
+    @Nullable
+    public Bitmap getCachedBitmap(String source, int maxWidth) {
+        return mBitmapCache.get(getCacheKey(source, maxWidth));
+    }
+
+    /**
+     * Tell if an image has failed to be loaded recently, it must not be requested again.
+     *
+     * @param source the image URL
+     * @return true if the image loading has failed during the retry delay
+     */
+    public boolean hasFailedRecently(String source) {
+        Long failureTs = mFailureTsBySource.get(source);
+
+        if (null == failureTs) {
+            return false;
+        }
+
+        if (isRetryDelayElapsed(failureTs, System.currentTimeMillis())) {
+            mFailureTsBySource.remove(source);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Tell if an image which has failed to be loaded can be requested again.
+     *
+     * @param failureTs the failure time
+     * @param now       the current time
+     * @return true if the retry delay is elapsed
+     */
+    static boolean isRetryDelayElapsed(long failureTs, long now) {
+        return (now < failureTs) || ((now - failureTs) >= FAILED_SOURCE_RETRY_DELAY_MS);
+    }
+
+    /**
+     * Load an image. This method can be called from any thread.
+     * The images which have failed to be loaded recently are not requested again, the listener is called with a null bitmap.
+     *
+     * @param context  the context
+     * @param session  the session
+     * @param source   the image URL (mxc://)
+     * @param maxWidth the maximum width in pixels
+     * @param listener the listener
+     */
+    public void load(final Context context,
+                     final MXSession session,
+                     final String source,
+                     final int maxWidth,
+                     final OnImageLoadedListener listener) {
+        final String key = getCacheKey(source, maxWidth);
+
+        if (hasFailedRecently(source)) {
+            mUIHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onImageLoaded(source, null);
+                }
+            });
+            return;
+        }
+
+        synchronized (mPendingRequests) {
+            List<OnImageLoadedListener> listeners = mPendingRequests.get(key);
+
+            // the image is already requested
+            if (null != listeners) {
+                listeners.add(listener);
+                return;
+            }
+
+            listeners = new ArrayList<>();
+            listeners.add(listener);
+            mPendingRequests.put(key, listeners);
+        }
+
+        // the media cache must be used from the UI thread
+        mUIHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = mBitmapCache.get(key);
+
+                if (null != bitmap) {
+                    onLoadDone(key, source, bitmap);
+                } else {
+                    loadFromMediaCache(context.getApplicationContext(), session, source, maxWidth, key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Retrieve the image file from the media cache, it is downloaded if it is not cached.
+     */
+    private void loadFromMediaCache(final Context context, final MXSession session, final String source, final int maxWidth, final String key) {
+        final MXMediaCache mediaCache = session.getMediaCache();
+
+        if (mediaCache.isMediaCached(source, INLINE_IMAGE_MIME_TYPE)) {
+            boolean isFound = mediaCache.createTmpDecryptedMediaFile(source, INLINE_IMAGE_MIME_TYPE, null, new SimpleApiCallback<File>() {
+                @Override
+                public void onSuccess(File file) {
+                    decode(file, source, maxWidth, key);
+                }
+            });
+
+            if (!isFound) {
+                onLoadDone(key, source, null);
+            }
+        } else {
+            final String downloadId = mediaCache.downloadMedia(context, session.getHomeServerConfig(), source, INLINE_IMAGE_MIME_TYPE, null);
+
+            if (null == downloadId) {
+                onLoadDone(key, source, null);
+                return;
+            }
+
+            mediaCache.addDownloadListener(downloadId, new MXMediaDownloadListener() {
+                @Override
+                public void onDownloadComplete(String aDownloadId) {
+                    mUIHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (mediaCache.isMediaCached(source, INLINE_IMAGE_MIME_TYPE)) {
+                                loadFromMediaCache(context, session, source, maxWidth, key);
+                            } else {
+                                onLoadDone(key, source, null);
+                            }
+                        }
+                    });
+                }
+
+                @Override
+                public void onDownloadError(String aDownloadId, JsonElement jsonElement) {
+                    Log.e(LOG_TAG, "## loadFromMediaCache() : failed to download " + source);
+                    onDownloadCancel(aDownloadId);
+                }
+
+                @Override
+                public void onDownloadCancel(String aDownloadId) {
+                    mUIHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoadDone(key, source, null);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Decode an image file in background.
+     *
+     * @param file     the image file, it is deleted after decoding
+     * @param source   the image URL
+     * @param maxWidth the maximum width in pixels
+     * @param key      the cache key
+     */
+    private void decode(@Nullable final File file, final String source, final int maxWidth, final String key) {
+        if (null == file) {
+            onLoadDone(key, source, null);
+            return;
+        }
+
+        mDecodingExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap bitmap = null;
+
+                try {
+                    bitmap = decodeSampledBitmap(file.getPath(), maxWidth);
+                } catch (OutOfMemoryError oom) {
+                    Log.e(LOG_TAG, "## decode() : failed with an oom", oom);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## decode() : failed " + e.getMessage(), e);
+                }
+
+                // the file is a temporary copy of the cached media
+                if (!file.delete()) {
+                    Log.e(LOG_TAG, "## decode() : cannot delete the temporary file");
+                }
+
+                final Bitmap fBitmap = bitmap;
+
+                mUIHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (null != fBitmap) {
+                            mBitmapCache.put(key, fBitmap);
+                        }
+
+                        onLoadDone(key, source, fBitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Decode an image with the largest power of 2 sample size which keeps its width above maxWidth.
+     *
+     * @param path     the image file path
+     * @param maxWidth the maximum width in pixels
+     * @return the bitmap, null if the file cannot be decoded
+     */
+    @Nullable
+    private static Bitmap decodeSampledBitmap(String path, int maxWidth) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+
+        if ((options.outWidth <= 0) || (options.outHeight <= 0)) {
+            return null;
+        }
+
+        options.inSampleSize = computeSampleSize(options.outWidth, maxWidth);
+        options.inJustDecodeBounds = false;
+
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    /**
+     * Compute the sample size to decode an image.
+     *
+     * @param width    the image width
+     * @param maxWidth the maximum width
+     * @return the sample size, a power of 2
+     */
+    static int computeSampleSize(int width, int maxWidth) {
+        int sampleSize = 1;
+
+        if (maxWidth > 0) {
+            while ((width / (sampleSize * 2)) >= maxWidth) {
+                sampleSize *= 2;
+            }
+        }
+
+        return sampleSize;
+    }
+
+    /**
+     * Dispatch a result to the listeners of a request.
+     * It must be called from the UI thread.
+     */
+    private void onLoadDone(String key, String source, @Nullable Bitmap bitmap) {
+        List<OnImageLoadedListener> listeners;
+
+        if (null == bitmap) {
+            mFailureTsBySource.put(source, System.currentTimeMillis());
+        } else {
+            mFailureTsBySource.remove(source);
+        }
+
+        synchronized (mPendingRequests) {
+            listeners = mPendingRequests.remove(key);
+        }
+
+        if (null != listeners) {
+            for (OnImageLoadedListener listener : listeners) {
+                try {
+                    listener.onImageLoaded(source, bitmap);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## onLoadDone() : failed " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Release some memory according to the trim level.
+     *
+     * @param level the trim level (see {@link ComponentCallbacks2})
+     */
+    public void trimMemory(int level) {
+        MemoryUtils.trimLruCache(mBitmapCache, level);
+    }
+}
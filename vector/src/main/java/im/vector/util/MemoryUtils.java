@@ -0,0 +1,42 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.collection.LruCache;
+
+/**
+ * Helpers to release the memory caches when the system asks for it.
+ */
+public class MemoryUtils {
+
+    /**
+     * Trim a LRU cache according to a trim level.
+     * The cache is emptied when the application is likely to be killed, and it is halved when the memory is getting low.
+     *
+     * @param cache the cache to trim
+     * @param level the trim level (see {@link ComponentCallbacks2})
+     */
+    public static void trimLruCache(LruCache<?, ?> cache, int level) {
+        if ((level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) || (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL)) {
+            cache.evictAll();
+        } else if ((level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) || (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)) {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+}
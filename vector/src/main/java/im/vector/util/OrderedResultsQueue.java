@@ -0,0 +1,86 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Release the results of parallel tasks in the order of their submission.
+ * This class is not thread safe, it is expected to be used from a single thread.
+ *
+ * @param <T> the result type
+ */
+public class OrderedResultsQueue<T> {
+    // the completed results which wait for the previous ones, a null result is a skipped task
+    private final Map<Integer, T> mPendingResults = new HashMap<>();
+
+    // the number of reserved indexes
+    private int mReservedCount;
+
+    // the index of the next result to release
+    private int mNextIndex;
+
+    /**
+     * Reserve the index of a new task.
+     *
+     * @return the index
+     */
+    public int reserve() {
+        return mReservedCount++;
+    }
+
+    /**
+     * Provide the result of a task.
+     *
+     * @param index  the task index
+     * @param result the result, null if the task is skipped
+     * @return the results which can be released, in order
+     */
+    public List<T> put(int index, @Nullable T result) {
+        List<T> releasedResults = new ArrayList<>();
+
+        if ((index < mNextIndex) || (index >= mReservedCount) || mPendingResults.containsKey(index)) {
+            // unknown or already provided
+            return releasedResults;
+        }
+
+        mPendingResults.put(index, result);
+
+        while (mPendingResults.containsKey(mNextIndex)) {
+            T nextResult = mPendingResults.remove(mNextIndex);
+            mNextIndex++;
+
+            if (null != nextResult) {
+                releasedResults.add(nextResult);
+            }
+        }
+
+        return releasedResults;
+    }
+
+    /**
+     * @return true when all the reserved results have been released
+     */
+    public boolean isDrained() {
+        return mNextIndex == mReservedCount;
+    }
+}
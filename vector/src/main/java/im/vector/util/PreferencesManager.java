@@ -39,6 +39,7 @@ import java.util.Set;
 
 import im.vector.Matrix;
 import im.vector.R;
+import im.vector.VectorApp;
 import im.vector.push.PushManager;
 import im.vector.repositories.ServerUrlsRepository;
 import im.vector.ui.themes.ThemeUtils;
@@ -271,6 +272,107 @@ public class PreferencesManager {
         editor.apply();
     }
 
+    //==============================================================================================================
+    // Settings snapshot
+    //==============================================================================================================
+
+    /**
+     * Settings change listener, it is called from the UI thread.
+     */
+    public interface OnSettingsChangeListener {
+        /**
+         * The settings snapshot has been replaced.
+         *
+         * @param settings the new settings
+         */
+        void onSettingsChange(SettingsSnapshot settings);
+    }
+
+    // the current settings, loaded on the first read
+    private static volatile SettingsSnapshot sSettings = null;
+
+    private static final Set<OnSettingsChangeListener> sSettingsChangeListeners = new HashSet<>();
+
+    // the shared preferences only keep a weak reference to their listeners
+    private static final SharedPreferences.OnSharedPreferenceChangeListener sSharedPreferenceChangeListener
+            = new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            SettingsSnapshot settings = new SettingsSnapshot(VectorApp.getInstance());
+
+            if (settings.equals(sSettings)) {
+                return;
+            }
+
+            sSettings = settings;
+
+            List<OnSettingsChangeListener> listeners;
+
+            synchronized (sSettingsChangeListeners) {
+                listeners = new ArrayList<>(sSettingsChangeListeners);
+            }
+
+            for (OnSettingsChangeListener listener : listeners) {
+                try {
+                    listener.onSettingsChange(settings);
+                } catch (Exception e) {
+                    Log.e(LOG_TAG, "## onSettingsChange() failed " + e.getMessage(), e);
+                }
+            }
+        }
+    };
+
+    /**
+     * Provide the current settings snapshot.
+     * The settings are read once, then the snapshot is replaced when a setting is updated.
+     *
+     * @param context the context
+     * @return the settings snapshot
+     */
+    public static SettingsSnapshot getSettings(Context context) {
+        SettingsSnapshot settings = sSettings;
+
+        if (null == settings) {
+            synchronized (PreferencesManager.class) {
+                if (null == sSettings) {
+                    Context appContext = context.getApplicationContext();
+                    PreferenceManager.getDefaultSharedPreferences(appContext).registerOnSharedPreferenceChangeListener(sSharedPreferenceChangeListener);
+                    sSettings = new SettingsSnapshot(appContext);
+                }
+
+                settings = sSettings;
+            }
+        }
+
+        return settings;
+    }
+
+    /**
+     * Add a settings change listener.
+     *
+     * @param listener the listener to add
+     */
+    public static void addOnSettingsChangeListener(OnSettingsChangeListener listener) {
+        if (null != listener) {
+            synchronized (sSettingsChangeListeners) {
+                sSettingsChangeListeners.add(listener);
+            }
+        }
+    }
+
+    /**
+     * Remove a settings change listener.
+     *
+     * @param listener the listener to remove
+     */
+    public static void removeOnSettingsChangeListener(OnSettingsChangeListener listener) {
+        if (null != listener) {
+            synchronized (sSettingsChangeListeners) {
+                sSettingsChangeListeners.remove(listener);
+            }
+        }
+    }
+
     /**
      * Tells if we want to check at each start up if some notification listener(s) is active
      *
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import android.content.ComponentCallbacks2;
+
+import androidx.annotation.Nullable;
+import androidx.collection.LruCache;
+
+import org.matrix.androidsdk.core.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * LRU cache of rendering results, bounded by an estimated size in bytes.
+ * <ul>
+ * <li>the keys are accounted as their characters, the values with a {@link SizeProvider}.</li>
+ * <li>null values are supported, so that a failed computation is not retried.</li>
+ * <li>the living caches are trimmed together with {@link #trimAll(int)} when the system asks to release memory.</li>
+ * </ul>
+ *
+ * @param <V> the cached values type
+ */
+public class RenderCache<V> {
+    private static final String LOG_TAG = RenderCache.class.getSimpleName();
+
+    // the estimated overhead of an entry (key object, LRU node...)
+    private static final int ENTRY_OVERHEAD = 64;
+
+    // the cached value for null
+    private static final Object NULL_VALUE = new Object();
+
+    /**
+     * Provide the estimated size of a value.
+     */
+    public interface SizeProvider<V> {
+        /**
+         * @param value the cached value, never null
+         * @return the value size in bytes
+         */
+        int sizeOf(V value);
+    }
+
+    // the living caches
+    private static final Set<RenderCache<?>> sRenderCaches = Collections.newSetFromMap(new WeakHashMap<RenderCache<?>, Boolean>());
+
+    private final String mName;
+    private final LruCache<String, Object> mCache;
+
+    // the cached keys, they are checked without updating the statistics and the LRU order
+    // the cache entries are added and removed while holding this set lock, so that they remain consistent
+    private final Set<String> mKeys = new HashSet<>();
+
+    /**
+     * Constructor
+     *
+     * @param name           the cache name, used by the statistics
+     * @param maxSizeInBytes the maximum cache size in bytes
+     * @param sizeProvider   the values size provider
+     */
+    public RenderCache(String name, int maxSizeInBytes, final SizeProvider<V> sizeProvider) {
+        mName = name;
+        mCache = new LruCache<String, Object>(maxSizeInBytes) {
+            @Override
+            @SuppressWarnings("unchecked")
+            protected int sizeOf(String key, Object value) {
+                int size = ENTRY_OVERHEAD + key.length() * 2;
+
+                if (NULL_VALUE != value) {
+                    size += sizeProvider.sizeOf((V) value);
+                }
+
+                return size;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Object oldValue, @Nullable Object newValue) {
+                // the replaced values keep their key
+                if (null == newValue) {
+                    synchronized (mKeys) {
+                        mKeys.remove(key);
+                    }
+                }
+            }
+        };
+
+        synchronized (sRenderCaches) {
+            sRenderCaches.add(this);
+        }
+    }
+
+    /**
+     * Provide a cached value.
+     *
+     * @param key the key
+     * @return the cached value, null if it is not cached or if it has been cached as null
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        Object value = mCache.get(key);
+        return (NULL_VALUE == value) ? null : (V) value;
+    }
+
+    /**
+     * Tell if a key is cached, even with a null value.
+     *
+     * @param key the key
+     * @return true if the key is cached
+     */
+    public boolean containsKey(String key) {
+        synchronized (mKeys) {
+            return mKeys.contains(key);
+        }
+    }
+
+    /**
+     * Provide a copy of the cached entries, from the least recently used one.
+     * The statistics and the LRU order are not updated.
+     *
+     * @return the cached values by key, null for the keys cached as null
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, V> snapshot() {
+        Map<String, V> snapshot = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Object> entry : mCache.snapshot().entrySet()) {
+            snapshot.put(entry.getKey(), (NULL_VALUE == entry.getValue()) ? null : (V) entry.getValue());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Cache a value.
+     *
+     * @param key   the key
+     * @param value the value, null is allowed
+     */
+    public void put(String key, @Nullable V value) {
+        synchronized (mKeys) {
+            // the key is added first, an entry larger than the cache is removed by the put
+            mKeys.add(key);
+            mCache.put(key, (null == value) ? NULL_VALUE : value);
+        }
+    }
+
+    /**
+     * Remove a value.
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+        synchronized (mKeys) {
+            mCache.remove(key);
+        }
+    }
+
+    /**
+     * Clear the cache.
+     */
+    public void clear() {
+        synchronized (mKeys) {
+            mCache.evictAll();
+        }
+    }
+
+    /**
+     * Release some memory according to the trim level.
+     *
+     * @param level the trim level (see {@link ComponentCallbacks2})
+     */
+    public void trimMemory(int level) {
+        synchronized (mKeys) {
+            MemoryUtils.trimLruCache(mCache, level);
+        }
+    }
+
+    /**
+     * @return the cache name
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the estimated cache size in bytes
+     */
+    public int getSize() {
+        return mCache.size();
+    }
+
+    /**
+     * @return the number of cache hits
+     */
+    public int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    /**
+     * @return the number of cache misses
+     */
+    public int getMissCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * @return the number of evicted entries
+     */
+    public int getEvictionCount() {
+        return mCache.evictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return mName + "[size=" + mCache.size() + "/" + mCache.maxSize()
+                + " bytes, hits=" + getHitCount()
+                + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Estimate the size of a string.
+     *
+     * @param text the string
+     * @return its size in bytes
+     */
+    public static int sizeOf(@Nullable String text) {
+        return (null == text) ? 0 : text.length() * 2;
+    }
+
+    /**
+     * Release some memory in all the living caches.
+     *
+     * @param level the trim level (see {@link ComponentCallbacks2})
+     */
+    public static void trimAll(int level) {
+        for (RenderCache<?> renderCache : getRenderCaches()) {
+            renderCache.trimMemory(level);
+        }
+
+        Log.d(LOG_TAG, "## trimAll() : level " + level + " " + getStatistics());
+    }
+
+    /**
+     * @return the statistics of all the living caches, for debug purpose
+     */
+    public static String getStatistics() {
+        StringBuilder stringBuilder = new StringBuilder();
+
+        for (RenderCache<?> renderCache : getRenderCaches()) {
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append("\n");
+            }
+
+            stringBuilder.append(renderCache);
+        }
+
+        return stringBuilder.toString();
+    }
+
+    private static List<RenderCache<?>> getRenderCaches() {
+        synchronized (sRenderCaches) {
+            return new ArrayList<>(sRenderCaches);
+        }
+    }
+}
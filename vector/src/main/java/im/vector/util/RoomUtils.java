@@ -36,6 +36,7 @@ import android.view.View;
 import android.widget.PopupMenu;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 
 import org.matrix.androidsdk.MXSession;
@@ -60,8 +61,10 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
@@ -968,6 +971,39 @@ public class RoomUtils {
         }
     }
 
+    /**
+     * Tell whether two lists contain the same rooms, whatever their order.
+     *
+     * @param rooms1 the first list, null is considered as empty
+     * @param rooms2 the second list, null is considered as empty
+     * @return true if the lists have the same room ids
+     */
+    public static boolean haveSameRoomIds(@Nullable final List<Room> rooms1, @Nullable final List<Room> rooms2) {
+        int size1 = (null == rooms1) ? 0 : rooms1.size();
+        int size2 = (null == rooms2) ? 0 : rooms2.size();
+
+        if (size1 != size2) {
+            return false;
+        }
+
+        if (0 == size1) {
+            return true;
+        }
+
+        Set<String> roomIds = new HashSet<>();
+        for (Room room : rooms1) {
+            roomIds.add(room.getRoomId());
+        }
+
+        for (Room room : rooms2) {
+            if (!roomIds.contains(room.getRoomId())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Format the unread messages counter.
      *
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory search index of items.
+ * <ul>
+ * <li>the prefix queries are answered from a sorted tokens map.</li>
+ * <li>the substring queries are answered from a trigrams map, the candidates are checked with their texts.</li>
+ * </ul>
+ * The tokens and the texts are provided already normalized (lower case...), the queries must be normalized the same way.
+ * It is thread safe.
+ *
+ * @param <T> the item type, its equals() method is used to identify the items
+ */
+public class SearchTokenIndex<T> {
+
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * The indexed data of an item
+     */
+    private static class Entry {
+        final String[] mTokens;
+        final String[] mTexts;
+
+        Entry(String[] tokens, String[] texts) {
+            mTokens = tokens;
+            mTexts = texts;
+        }
+    }
+
+    private final Map<T, Entry> mEntries = new HashMap<>();
+
+    // the items by token
+    private final TreeMap<String, Set<T>> mItemsByToken = new TreeMap<>();
+
+    // the items by trigram of their texts
+    private final Map<String, Set<T>> mItemsByTrigram = new HashMap<>();
+
+    /**
+     * @return the number of indexed items
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Tell if an item is indexed.
+     *
+     * @param item the item
+     * @return true if it is indexed
+     */
+    public synchronized boolean contains(T item) {
+        return mEntries.containsKey(item);
+    }
+
+    /**
+     * Index an item, or update it if it is already indexed.
+     *
+     * @param item   the item
+     * @param tokens the tokens used by the prefix queries
+     * @param texts  the texts used by the substring queries
+     */
+    public synchronized void put(T item, Collection<String> tokens, Collection<String> texts) {
+        remove(item);
+
+        Entry entry = new Entry(tokens.toArray(new String[0]), texts.toArray(new String[0]));
+        mEntries.put(item, entry);
+
+        for (String token : entry.mTokens) {
+            addToPostings(mItemsByToken, token, item);
+        }
+
+        for (String text : entry.mTexts) {
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                addToPostings(mItemsByTrigram, text.substring(i, i + GRAM_LENGTH), item);
+            }
+        }
+    }
+
+    /**
+     * Remove an item.
+     *
+     * @param item the item
+     */
+    public synchronized void remove(T item) {
+        Entry entry = mEntries.remove(item);
+
+        if (null == entry) {
+            return;
+        }
+
+        for (String token : entry.mTokens) {
+            removeFromPostings(mItemsByToken, token, item);
+        }
+
+        for (String text : entry.mTexts) {
+            for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+                removeFromPostings(mItemsByTrigram, text.substring(i, i + GRAM_LENGTH), item);
+            }
+        }
+    }
+
+    /**
+     * Remove all the items.
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mItemsByToken.clear();
+        mItemsByTrigram.clear();
+    }
+
+    /**
+     * Add the items which have a token starting with a prefix.
+     *
+     * @param prefix the prefix, an empty prefix matches nothing
+     * @param result the set to fill
+     */
+    public synchronized void searchByPrefix(String prefix, Set<T> result) {
+        if ((null == prefix) || prefix.isEmpty()) {
+            return;
+        }
+
+        NavigableMap<String, Set<T>> matches = mItemsByToken.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+
+        for (Set<T> items : matches.values()) {
+            result.addAll(items);
+        }
+    }
+
+    /**
+     * Search the items which have a token starting with a prefix.
+     *
+     * @param prefix the prefix, an empty prefix matches nothing
+     * @return the matched items
+     */
+    public Set<T> searchByPrefix(String prefix) {
+        Set<T> result = new HashSet<>();
+        searchByPrefix(prefix, result);
+        return result;
+    }
+
+    /**
+     * Search the items which have a text containing a pattern.
+     *
+     * @param pattern the pattern, an empty pattern matches nothing
+     * @return the matched items
+     */
+    public synchronized Set<T> searchBySubstring(String pattern) {
+        Set<T> result = new HashSet<>();
+
+        if ((null == pattern) || pattern.isEmpty()) {
+            return result;
+        }
+
+        Collection<T> candidates;
+
+        if (pattern.length() < GRAM_LENGTH) {
+            // too short to use the trigrams
+            candidates = mEntries.keySet();
+        } else {
+            // use the rarest trigram of the pattern
+            Set<T> rarest = null;
+
+            for (int i = 0; i + GRAM_LENGTH <= pattern.length(); i++) {
+                Set<T> items = mItemsByTrigram.get(pattern.substring(i, i + GRAM_LENGTH));
+
+                if (null == items) {
+                    return result;
+                }
+
+                if ((null == rarest) || (items.size() < rarest.size())) {
+                    rarest = items;
+                }
+            }
+
+            candidates = rarest;
+        }
+
+        for (T item : candidates) {
+            for (String text : mEntries.get(item).mTexts) {
+                if (text.contains(pattern)) {
+                    result.add(item);
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static <T> void addToPostings(Map<String, Set<T>> postings, String key, T item) {
+        Set<T> items = postings.get(key);
+
+        if (null == items) {
+            items = new HashSet<>(2);
+            postings.put(key, items);
+        }
+
+        items.add(item);
+    }
+
+    private static <T> void removeFromPostings(Map<String, Set<T>> postings, String key, T item) {
+        Set<T> items = postings.get(key);
+
+        if (null != items) {
+            items.remove(item);
+
+            if (items.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import android.content.Context;
+
+/**
+ * Immutable snapshot of the settings which are read on the hot paths (messages rows, composer, medias sending).
+ * The current snapshot is provided by {@link PreferencesManager#getSettings(Context)}, it is replaced when a setting is updated.
+ */
+public final class SettingsSnapshot {
+    // messages list
+    public final boolean displayTimeIn12hFormat;
+    public final boolean showJoinLeaveMessages;
+    public final boolean showAvatarDisplayNameChangeMessages;
+    public final boolean showReadReceipts;
+    public final boolean alwaysShowTimeStamps;
+    public final boolean displayAllEvents;
+
+    // composer
+    public final boolean sendTypingNotifs;
+    public final boolean sendMessageWithEnter;
+    public final boolean isMarkdownEnabled;
+
+    // medias
+    public final boolean previewMediaWhenSending;
+    public final int defaultMediaCompressionLevel;
+
+    /**
+     * Read the settings.
+     *
+     * @param context the context
+     */
+    SettingsSnapshot(Context context) {
+        displayTimeIn12hFormat = PreferencesManager.displayTimeIn12hFormat(context);
+        showJoinLeaveMessages = PreferencesManager.showJoinLeaveMessages(context);
+        showAvatarDisplayNameChangeMessages = PreferencesManager.showAvatarDisplayNameChangeMessages(context);
+        showReadReceipts = PreferencesManager.showReadReceipts(context);
+        alwaysShowTimeStamps = PreferencesManager.alwaysShowTimeStamps(context);
+        displayAllEvents = PreferencesManager.displayAllEvents(context);
+
+        sendTypingNotifs = PreferencesManager.sendTypingNotifs(context);
+        sendMessageWithEnter = PreferencesManager.sendMessageWithEnter(context);
+        isMarkdownEnabled = PreferencesManager.isMarkdownEnabled(context);
+
+        previewMediaWhenSending = PreferencesManager.previewMediaWhenSending(context);
+        defaultMediaCompressionLevel = PreferencesManager.getSelectedDefaultMediaCompressionLevel(context);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof SettingsSnapshot)) {
+            return false;
+        }
+
+        SettingsSnapshot other = (SettingsSnapshot) o;
+
+        return (displayTimeIn12hFormat == other.displayTimeIn12hFormat)
+                && (showJoinLeaveMessages == other.showJoinLeaveMessages)
+                && (showAvatarDisplayNameChangeMessages == other.showAvatarDisplayNameChangeMessages)
+                && (showReadReceipts == other.showReadReceipts)
+                && (alwaysShowTimeStamps == other.alwaysShowTimeStamps)
+                && (displayAllEvents == other.displayAllEvents)
+                && (sendTypingNotifs == other.sendTypingNotifs)
+                && (sendMessageWithEnter == other.sendMessageWithEnter)
+                && (isMarkdownEnabled == other.isMarkdownEnabled)
+                && (previewMediaWhenSending == other.previewMediaWhenSending)
+                && (defaultMediaCompressionLevel == other.defaultMediaCompressionLevel);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = defaultMediaCompressionLevel;
+        boolean[] flags = {displayTimeIn12hFormat, showJoinLeaveMessages, showAvatarDisplayNameChangeMessages, showReadReceipts,
+                alwaysShowTimeStamps, displayAllEvents, sendTypingNotifs, sendMessageWithEnter, isMarkdownEnabled, previewMediaWhenSending};
+
+        for (boolean flag : flags) {
+            result = 31 * result + (flag ? 1 : 0);
+        }
+
+        return result;
+    }
+}
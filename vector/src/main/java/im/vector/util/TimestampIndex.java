@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a set of items ordered by a timestamp.
+ * The timestamps and the items are stored in two parallel arrays, so the closest item lookups
+ * are binary searches which do not allocate anything.
+ * Several items may share the same timestamp, they are kept in insertion order.
+ *
+ * @param <T> the item type
+ */
+public class TimestampIndex<T> {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // the sorted timestamps
+    private long[] mTimestamps;
+
+    // the items, mItems[i] has been indexed with mTimestamps[i]
+    private Object[] mItems;
+
+    private int mSize;
+
+    public TimestampIndex() {
+        mTimestamps = new long[DEFAULT_CAPACITY];
+        mItems = new Object[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * @return the number of indexed items
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Index an item.
+     *
+     * @param ts   the item timestamp
+     * @param item the item
+     */
+    public void add(long ts, T item) {
+        if (mSize == mTimestamps.length) {
+            int capacity = mSize * 2;
+            mTimestamps = Arrays.copyOf(mTimestamps, capacity);
+            mItems = Arrays.copyOf(mItems, capacity);
+        }
+
+        // insert after the items with the same timestamp
+        int pos = upperBound(ts);
+
+        if (pos < mSize) {
+            System.arraycopy(mTimestamps, pos, mTimestamps, pos + 1, mSize - pos);
+            System.arraycopy(mItems, pos, mItems, pos + 1, mSize - pos);
+        }
+
+        mTimestamps[pos] = ts;
+        mItems[pos] = item;
+        mSize++;
+    }
+
+    /**
+     * Remove an item from the index.
+     * The item is only searched among the items indexed with ts, it is compared by reference.
+     *
+     * @param ts   the timestamp used to index the item
+     * @param item the item to remove
+     * @return true if the item has been found and removed
+     */
+    public boolean remove(long ts, T item) {
+        int pos = -1;
+
+        for (int i = lowerBound(ts); (i < mSize) && (mTimestamps[i] == ts); i++) {
+            if (mItems[i] == item) {
+                pos = i;
+                break;
+            }
+        }
+
+        if (pos < 0) {
+            return false;
+        }
+
+        int toMove = mSize - pos - 1;
+
+        if (toMove > 0) {
+            System.arraycopy(mTimestamps, pos + 1, mTimestamps, pos, toMove);
+            System.arraycopy(mItems, pos + 1, mItems, pos, toMove);
+        }
+
+        mSize--;
+        mItems[mSize] = null;
+        return true;
+    }
+
+    /**
+     * Remove all the items.
+     */
+    public void clear() {
+        Arrays.fill(mItems, 0, mSize, null);
+        mSize = 0;
+    }
+
+    /**
+     * Provides the item with the lowest timestamp strictly greater than ts.
+     *
+     * @param ts the timestamp
+     * @return the item or null if there is none
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T higher(long ts) {
+        int pos = upperBound(ts);
+        return (pos < mSize) ? (T) mItems[pos] : null;
+    }
+
+    /**
+     * Provides the item with the highest timestamp strictly lower than ts.
+     *
+     * @param ts the timestamp
+     * @return the item or null if there is none
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T lower(long ts) {
+        int pos = lowerBound(ts) - 1;
+
+        if (pos < 0) {
+            return null;
+        }
+
+        // keep the first indexed item among the ones with the same timestamp
+        long lowerTs = mTimestamps[pos];
+        while ((pos > 0) && (mTimestamps[pos - 1] == lowerTs)) {
+            pos--;
+        }
+
+        return (T) mItems[pos];
+    }
+
+    /**
+     * @return the position of the first timestamp greater or equal to ts
+     */
+    private int lowerBound(long ts) {
+        int low = 0;
+        int high = mSize;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (mTimestamps[mid] < ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return the position of the first timestamp strictly greater than ts
+     */
+    private int upperBound(long ts) {
+        int low = 0;
+        int high = mSize;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (mTimestamps[mid] <= ts) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+}
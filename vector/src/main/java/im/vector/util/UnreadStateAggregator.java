@@ -0,0 +1,485 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util;
+
+import androidx.annotation.Nullable;
+
+import org.matrix.androidsdk.MXDataHandler;
+import org.matrix.androidsdk.MXSession;
+import org.matrix.androidsdk.core.BingRulesManager;
+import org.matrix.androidsdk.core.Log;
+import org.matrix.androidsdk.data.Room;
+import org.matrix.androidsdk.data.RoomState;
+import org.matrix.androidsdk.data.store.IMXStore;
+import org.matrix.androidsdk.listeners.MXEventListener;
+import org.matrix.androidsdk.rest.model.Event;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Count the unread rooms of a session, for the home badge, the launcher badge and the notification summary.
+ * <p>
+ * The state of each room is kept, and the counters are updated with the changes of the rooms which are updated
+ * by the sync. The rooms are only rebuilt when the store is loaded, and the mention only rooms are checked again
+ * when the push rules are updated. The counters are provided by an immutable snapshot.
+ */
+public class UnreadStateAggregator {
+    private static final String LOG_TAG = UnreadStateAggregator.class.getSimpleName();
+
+    // the room state flags
+    private static final int FLAG_UNREAD = 1;
+    private static final int FLAG_INVITED = 1 << 1;
+    private static final int FLAG_NOTIFIED = 1 << 2;
+    private static final int FLAG_HIGHLIGHTED = 1 << 3;
+    // the unread state depends on the mention only push rule
+    private static final int FLAG_MENTION_ONLY_DEPENDENT = 1 << 4;
+
+    /**
+     * The unread counters.
+     */
+    public static final class Snapshot {
+        // the rooms displayed in the badges: the invitations and the rooms with notifications
+        public final int unreadRoomsCount;
+        public final int invitedRoomsCount;
+        // the joined rooms with notifications and with highlights, whatever the room push rules
+        public final int notifiedRoomsCount;
+        public final int highlightedRoomsCount;
+
+        Snapshot(int unreadRoomsCount, int invitedRoomsCount, int notifiedRoomsCount, int highlightedRoomsCount) {
+            this.unreadRoomsCount = unreadRoomsCount;
+            this.invitedRoomsCount = invitedRoomsCount;
+            this.notifiedRoomsCount = notifiedRoomsCount;
+            this.highlightedRoomsCount = highlightedRoomsCount;
+        }
+
+        private boolean hasSameCounters(Snapshot other) {
+            return (unreadRoomsCount == other.unreadRoomsCount)
+                    && (invitedRoomsCount == other.invitedRoomsCount)
+                    && (notifiedRoomsCount == other.notifiedRoomsCount)
+                    && (highlightedRoomsCount == other.highlightedRoomsCount);
+        }
+
+        @Override
+        public String toString() {
+            return "unread " + unreadRoomsCount + ", invited " + invitedRoomsCount
+                    + ", notified " + notifiedRoomsCount + ", highlighted " + highlightedRoomsCount;
+        }
+    }
+
+    /**
+     * Unread state listener, it is called from the UI thread.
+     */
+    public interface OnUnreadStateChangeListener {
+        /**
+         * The counters have changed.
+         *
+         * @param snapshot the new counters
+         */
+        void onUnreadStateChange(Snapshot snapshot);
+    }
+
+    private static final Snapshot EMPTY_SNAPSHOT = new Snapshot(0, 0, 0, 0);
+
+    // the aggregators, by user id
+    private static final Map<String, UnreadStateAggregator> sAggregators = new HashMap<>();
+
+    private final MXSession mSession;
+
+    // the following fields are protected by the instance lock
+
+    // room id -> state flags, for the rooms with at least one flag
+    private final Map<String, Integer> mRoomFlags = new HashMap<>();
+
+    // the number of rooms by flag
+    private final int[] mFlagCounts = new int[5];
+
+    // the rooms to check at the next refresh
+    private final Set<String> mDirtyRoomIds = new HashSet<>();
+    private boolean mIsRebuildRequired = true;
+    private boolean mIsMentionOnlyCheckRequired = false;
+
+    private volatile Snapshot mSnapshot = EMPTY_SNAPSHOT;
+
+    private final Set<OnUnreadStateChangeListener> mListeners = new HashSet<>();
+
+    private final MXEventListener mEventListener = new MXEventListener() {
+        @Override
+        public void onStoreReady() {
+            invalidateAll();
+            refresh();
+        }
+
+        @Override
+        public void onInitialSyncComplete(String toToken) {
+            invalidateAll();
+            refresh();
+        }
+
+        @Override
+        public void onLiveEvent(Event event, RoomState roomState) {
+            invalidateRoom(event.roomId);
+        }
+
+        @Override
+        public void onReceiptEvent(String roomId, List<String> senderIds) {
+            invalidateRoom(roomId);
+        }
+
+        @Override
+        public void onNotificationCountUpdate(String roomId) {
+            invalidateRoom(roomId);
+        }
+
+        @Override
+        public void onNewRoom(String roomId) {
+            invalidateRoom(roomId);
+        }
+
+        @Override
+        public void onJoinRoom(String roomId) {
+            invalidateRoom(roomId);
+        }
+
+        @Override
+        public void onLeaveRoom(String roomId) {
+            invalidateRoom(roomId);
+            refresh();
+        }
+
+        @Override
+        public void onRoomKick(String roomId) {
+            invalidateRoom(roomId);
+        }
+
+        @Override
+        public void onRoomFlush(String roomId) {
+            invalidateRoom(roomId);
+        }
+
+        @Override
+        public void onBingRulesUpdate() {
+            synchronized (UnreadStateAggregator.this) {
+                mIsMentionOnlyCheckRequired = true;
+            }
+            refresh();
+        }
+
+        @Override
+        public void onLiveEventsChunkProcessed(String fromToken, String toToken) {
+            refresh();
+        }
+    };
+
+    /**
+     * Provide the aggregator of a session, it is created if it does not exist.
+     *
+     * @param session the session
+     * @return the aggregator
+     */
+    public static UnreadStateAggregator getInstance(MXSession session) {
+        synchronized (sAggregators) {
+            String userId = session.getMyUserId();
+            UnreadStateAggregator aggregator = sAggregators.get(userId);
+
+            // the sessions are recreated when they are reloaded
+            if ((null == aggregator) || (aggregator.mSession != session)) {
+                if (null != aggregator) {
+                    aggregator.detach();
+                }
+
+                aggregator = new UnreadStateAggregator(session);
+                sAggregators.put(userId, aggregator);
+            }
+
+            return aggregator;
+        }
+    }
+
+    /**
+     * Release the aggregator of a session, after a logout.
+     *
+     * @param session the session
+     */
+    public static void release(MXSession session) {
+        synchronized (sAggregators) {
+            UnreadStateAggregator aggregator = sAggregators.remove(session.getMyUserId());
+
+            if (null != aggregator) {
+                aggregator.detach();
+            }
+        }
+    }
+
+    /**
+     * Provide the unread rooms count of the alive sessions, from their last snapshots.
+     *
+     * @return the unread rooms count
+     */
+    public static int getTotalUnreadRoomsCount() {
+        int count = 0;
+
+        synchronized (sAggregators) {
+            for (UnreadStateAggregator aggregator : sAggregators.values()) {
+                if (aggregator.mSession.isAlive()) {
+                    count += aggregator.getSnapshot().unreadRoomsCount;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private UnreadStateAggregator(MXSession session) {
+        mSession = session;
+
+        MXDataHandler dataHandler = session.getDataHandler();
+
+        if (null != dataHandler) {
+            dataHandler.addListener(mEventListener);
+        }
+    }
+
+    private void detach() {
+        MXDataHandler dataHandler = mSession.getDataHandler();
+
+        if (null != dataHandler) {
+            dataHandler.removeListener(mEventListener);
+        }
+
+        synchronized (mListeners) {
+            mListeners.clear();
+        }
+    }
+
+    /**
+     * Add a listener.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(OnUnreadStateChangeListener listener) {
+        if (null != listener) {
+            synchronized (mListeners) {
+                mListeners.add(listener);
+            }
+        }
+    }
+
+    /**
+     * Remove a listener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(OnUnreadStateChangeListener listener) {
+        if (null != listener) {
+            synchronized (mListeners) {
+                mListeners.remove(listener);
+            }
+        }
+    }
+
+    /**
+     * @return the last computed counters
+     */
+    public Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * The unread state of a room may have changed, it is checked at the next refresh.
+     *
+     * @param roomId the room id
+     */
+    public synchronized void invalidateRoom(@Nullable String roomId) {
+        if (null != roomId) {
+            mDirtyRoomIds.add(roomId);
+        }
+    }
+
+    /**
+     * All the rooms must be checked at the next refresh.
+     */
+    public synchronized void invalidateAll() {
+        mIsRebuildRequired = true;
+    }
+
+    /**
+     * Apply the rooms updates, the listeners are warned when the counters change.
+     * It must be called from the UI thread.
+     *
+     * @return the counters
+     */
+    public Snapshot refresh() {
+        Snapshot snapshot;
+        Snapshot previousSnapshot = mSnapshot;
+
+        synchronized (this) {
+            MXDataHandler dataHandler = mSession.getDataHandler();
+            IMXStore store = (null != dataHandler) ? dataHandler.getStore() : null;
+
+            // the rooms are not known yet
+            if ((null == store) || !store.isReady() || !mSession.isAlive()) {
+                return mSnapshot;
+            }
+
+            BingRulesManager bingRulesManager = dataHandler.getBingRulesManager();
+
+            if (mIsRebuildRequired) {
+                mIsRebuildRequired = false;
+                mIsMentionOnlyCheckRequired = false;
+                mDirtyRoomIds.clear();
+                mRoomFlags.clear();
+
+                for (int i = 0; i < mFlagCounts.length; i++) {
+                    mFlagCounts[i] = 0;
+                }
+
+                for (Room room : store.getRooms()) {
+                    updateRoom(room.getRoomId(), room, bingRulesManager);
+                }
+            } else {
+                if (mIsMentionOnlyCheckRequired) {
+                    mIsMentionOnlyCheckRequired = false;
+
+                    // only these rooms can be updated by a push rule
+                    for (Map.Entry<String, Integer> entry : mRoomFlags.entrySet()) {
+                        if (0 != (entry.getValue() & FLAG_MENTION_ONLY_DEPENDENT)) {
+                            mDirtyRoomIds.add(entry.getKey());
+                        }
+                    }
+                }
+
+                for (Iterator<String> iterator = mDirtyRoomIds.iterator(); iterator.hasNext(); ) {
+                    String roomId = iterator.next();
+                    iterator.remove();
+                    updateRoom(roomId, store.getRoom(roomId), bingRulesManager);
+                }
+            }
+
+            snapshot = new Snapshot(getFlagCount(FLAG_UNREAD),
+                    getFlagCount(FLAG_INVITED),
+                    getFlagCount(FLAG_NOTIFIED),
+                    getFlagCount(FLAG_HIGHLIGHTED));
+
+            if (snapshot.hasSameCounters(previousSnapshot)) {
+                return previousSnapshot;
+            }
+
+            mSnapshot = snapshot;
+        }
+
+        Log.d(LOG_TAG, "## refresh() : " + snapshot);
+
+        List<OnUnreadStateChangeListener> listeners;
+
+        synchronized (mListeners) {
+            listeners = new ArrayList<>(mListeners);
+        }
+
+        for (OnUnreadStateChangeListener listener : listeners) {
+            try {
+                listener.onUnreadStateChange(snapshot);
+            } catch (Exception e) {
+                Log.e(LOG_TAG, "## refresh() : onUnreadStateChange failed " + e.getMessage(), e);
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Update the counters with the new state of a room.
+     *
+     * @param roomId           the room id
+     * @param room             the room, null if it is not known anymore
+     * @param bingRulesManager the push rules manager
+     */
+    private void updateRoom(String roomId, @Nullable Room room, @Nullable BingRulesManager bingRulesManager) {
+        int flags = (null != room) ? computeRoomFlags(room, bingRulesManager) : 0;
+        Integer previousFlags = (0 != flags) ? mRoomFlags.put(roomId, flags) : mRoomFlags.remove(roomId);
+
+        if (null != previousFlags) {
+            updateFlagCounts(previousFlags, -1);
+        }
+
+        updateFlagCounts(flags, +1);
+    }
+
+    /**
+     * Compute the unread state of a room.
+     * The VOIP conference rooms are ignored, the mention only rooms are unread when they have highlights.
+     *
+     * @param room             the room
+     * @param bingRulesManager the push rules manager
+     * @return the state flags
+     */
+    private static int computeRoomFlags(Room room, @Nullable BingRulesManager bingRulesManager) {
+        if (room.isConferenceUserRoom()) {
+            return 0;
+        }
+
+        if (room.isInvited()) {
+            return FLAG_UNREAD | FLAG_INVITED;
+        }
+
+        int flags = 0;
+        boolean isNotified = room.getNotificationCount() > 0;
+        boolean isHighlighted = room.getHighlightCount() > 0;
+
+        if (isNotified) {
+            flags |= FLAG_NOTIFIED;
+        }
+
+        if (isHighlighted) {
+            flags |= FLAG_HIGHLIGHTED;
+        }
+
+        if (isNotified == isHighlighted) {
+            // the push rules do not matter
+            if (isNotified) {
+                flags |= FLAG_UNREAD;
+            }
+        } else {
+            flags |= FLAG_MENTION_ONLY_DEPENDENT;
+
+            boolean isMentionOnly = (null != bingRulesManager) && bingRulesManager.isRoomMentionOnly(room.getRoomId());
+
+            if (isMentionOnly ? isHighlighted : isNotified) {
+                flags |= FLAG_UNREAD;
+            }
+        }
+
+        return flags;
+    }
+
+    private void updateFlagCounts(int flags, int delta) {
+        for (int i = 0; i < mFlagCounts.length; i++) {
+            if (0 != (flags & (1 << i))) {
+                mFlagCounts[i] += delta;
+            }
+        }
+    }
+
+    private int getFlagCount(int flag) {
+        return mFlagCounts[Integer.numberOfTrailingZeros(flag)];
+    }
+}
@@ -17,22 +17,18 @@
 package im.vector.util;
 
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
-import android.os.AsyncTask;
 import android.text.Html;
 
+import androidx.annotation.Nullable;
 import androidx.core.content.res.ResourcesCompat;
 
 import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.core.ContentManager;
 import org.matrix.androidsdk.core.Log;
 
-import java.net.URL;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import im.vector.R;
@@ -42,10 +38,7 @@ public class VectorImageGetter implements Html.ImageGetter {
     private final String LOG_TAG = VectorImageGetter.class.getSimpleName();
 
     // application image placeholder
-    private static Drawable mPlaceHolder = null;
-
-    // source to image map
-    private Map<String, Drawable> mBitmapCache = new HashMap<>();
+    private static volatile Drawable mPlaceHolder = null;
 
     // pending source downloads
     private Set<String> mPendingDownloads = new HashSet<>();
@@ -65,9 +58,30 @@ public class VectorImageGetter implements Html.ImageGetter {
     //
     private MXSession mSession;
 
+    // the maximum image width in pixels
+    private volatile int mMaxWidth;
+
     // listener
     private OnImageDownloadListener mListener;
 
+    // the downloads listener
+    private final InlineImageLoader.OnImageLoadedListener mImageLoadedListener = new InlineImageLoader.OnImageLoadedListener() {
+        @Override
+        public void onImageLoaded(String source, @Nullable Bitmap bitmap) {
+            synchronized (VectorImageGetter.this) {
+                mPendingDownloads.remove(source);
+            }
+
+            if ((null != bitmap) && (null != mListener)) {
+                try {
+                    mListener.onImageDownloaded(source);
+                } catch (Throwable t) {
+                    Log.e(LOG_TAG, "## onImageLoaded() failed " + t.getMessage(), t);
+                }
+            }
+        }
+    };
+
     /**
      * Constructor
      *
@@ -75,6 +89,7 @@ public class VectorImageGetter implements Html.ImageGetter {
      */
     public VectorImageGetter(MXSession session) {
         mSession = session;
+        mMaxWidth = VectorApp.getInstance().getResources().getDisplayMetrics().widthPixels;
     }
 
     /**
@@ -86,82 +101,75 @@ public class VectorImageGetter implements Html.ImageGetter {
         mListener = listener;
     }
 
+    /**
+     * Set the maximum width of the images, the screen width by default.
+     * The images are decoded and displayed within this width.
+     *
+     * @param maxWidth the maximum width in pixels
+     */
+    public void setMaxWidth(int maxWidth) {
+        if (maxWidth > 0) {
+            mMaxWidth = maxWidth;
+        }
+    }
+
+    /**
+     * Provide the drawable of an image source.
+     * The messages bodies can be rendered outside the UI thread, so this method can be called from any thread.
+     *
+     * @param source the image URL
+     * @return the drawable, a placeholder while the image is downloaded
+     */
     @Override
-    public Drawable getDrawable(String source) {
+    public synchronized Drawable getDrawable(final String source) {
 
         // allow only url which starts with mxc://
         if ((null != source) && source.toLowerCase().startsWith(ContentManager.MATRIX_CONTENT_URI_SCHEME)) {
-            if (mBitmapCache.containsKey(source)) {
-                Log.d(LOG_TAG, "## getDrawable() : " + source + " already cached");
-                return mBitmapCache.get(source);
-            }
+            int maxWidth = mMaxWidth;
+            Bitmap bitmap = InlineImageLoader.getInstance().getCachedBitmap(source, maxWidth);
 
-            if (!mPendingDownloads.contains(source)) {
-                Log.d(LOG_TAG, "## getDrawable() : starts a task to download " + source);
-                try {
-                    new ImageDownloaderTask().execute(source);
-                    mPendingDownloads.add(source);
-                } catch (Throwable t) {
-                    Log.e(LOG_TAG, "## getDrawable() failed " + t.getMessage(), t);
-                }
-            } else {
-                Log.d(LOG_TAG, "## getDrawable() : " + source + " is downloading");
+            if (null != bitmap) {
+                return createDrawable(bitmap, maxWidth);
             }
 
-
+            // the failed images are displayed with the placeholder until their retry delay is elapsed
+            if (!mPendingDownloads.contains(source) && !InlineImageLoader.getInstance().hasFailedRecently(source)) {
+                Log.d(LOG_TAG, "## getDrawable() : starts to load " + source);
+                mPendingDownloads.add(source);
+                InlineImageLoader.getInstance().load(VectorApp.getInstance(), mSession, source, maxWidth, mImageLoadedListener);
+            }
         }
 
         if (null == mPlaceHolder) {
-            mPlaceHolder = ResourcesCompat.getDrawable(VectorApp.getInstance().getResources(), R.drawable.filetype_image, null);
-            mPlaceHolder.setBounds(0, 0, mPlaceHolder.getIntrinsicWidth(), mPlaceHolder.getIntrinsicHeight());
+            Drawable placeHolder = ResourcesCompat.getDrawable(VectorApp.getInstance().getResources(), R.drawable.filetype_image, null);
+            placeHolder.setBounds(0, 0, placeHolder.getIntrinsicWidth(), placeHolder.getIntrinsicHeight());
+            mPlaceHolder = placeHolder;
         }
 
         return mPlaceHolder;
     }
 
+    /**
+     * Create the drawable of a loaded image.
+     * The drawables are not shared because the text layouts may set their own bounds.
+     *
+     * @param bitmap   the image
+     * @param maxWidth the maximum width in pixels
+     * @return the drawable
+     */
+    private static Drawable createDrawable(Bitmap bitmap, int maxWidth) {
+        Drawable drawable = new BitmapDrawable(VectorApp.getInstance().getResources(), bitmap);
 
-    private class ImageDownloaderTask extends AsyncTask<Object, Void, Bitmap> {
-        private String mSource;
-
-        @Override
-        protected Bitmap doInBackground(Object... params) {
-            mSource = (String) params[0];
-            // Check whether this source is a valid Matrix media content URI, and convert it in an actual url.
-            String downloadableUrl = mSession.getContentManager().getDownloadableUrl(mSource, false);
-            if (null != downloadableUrl)
-            {
-                Log.d(LOG_TAG, "## doInBackground() : " + mSource);
-                try {
-                    return BitmapFactory.decodeStream(new URL(downloadableUrl).openConnection().getInputStream());
-                } catch (Throwable t) {
-                    Log.e(LOG_TAG, "## ImageDownloader() failed " + t.getMessage(), t);
-                }
-            }
-
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
 
-            return null;
+        // keep the image within the text width
+        if ((maxWidth > 0) && (width > maxWidth)) {
+            height = height * maxWidth / width;
+            width = maxWidth;
         }
 
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            Log.d(LOG_TAG, "## doInBackground() : bitmap " + bitmap);
-
-            mPendingDownloads.remove(mSource);
-
-            if (null != bitmap) {
-                Drawable drawable = new BitmapDrawable(VectorApp.getInstance().getResources(), bitmap);
-                drawable.setBounds(0, 0, drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
-
-                mBitmapCache.put(mSource, drawable);
-
-                try {
-                    if (null != mListener) {
-                        mListener.onImageDownloaded(mSource);
-                    }
-                } catch (Throwable t) {
-                    Log.e(LOG_TAG, "## ImageDownloader() failed " + t.getMessage(), t);
-                }
-            }
-        }
+        drawable.setBounds(0, 0, width, height);
+        return drawable;
     }
 }
@@ -28,8 +28,19 @@ import java.util.*
  * Better support for auto link than the default implementation
  */
 fun TextView.vectorCustomLinkify(keepExistingUrlSpan: Boolean = false) {
-
     val spannableText = SpannableString.valueOf(text)
+    spannableText.addVectorCustomLinks(keepExistingUrlSpan)
+
+    text = spannableText
+    addLinkMovementMethod()
+}
+
+/**
+ * Add the links to a text, without any view.
+ * It can be used to prepare a text outside the UI thread.
+ */
+fun Spannable.addVectorCustomLinks(keepExistingUrlSpan: Boolean = false) {
+    val spannableText = this
 
     //we might want to modify some matches
     val createdSpans = ArrayList<LinkSpec>()
@@ -110,9 +121,6 @@ fun TextView.vectorCustomLinkify(keepExistingUrlSpan: Boolean = false) {
     for (spec in createdSpans) {
         spannableText.setSpan(spec.span, spec.start, spec.end, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE)
     }
-
-    text = spannableText
-    addLinkMovementMethod()
 }
 
 private fun pruneOverlaps(links: ArrayList<LinkSpec>) {
@@ -193,7 +201,7 @@ private inline fun Spannable.forEachSpanIndexed(action: (index: Int, urlSpan: UR
             }
 }
 
-private fun TextView.addLinkMovementMethod() {
+fun TextView.addLinkMovementMethod() {
     val m = movementMethod
 
     if (m == null || m !is LinkMovementMethod) {
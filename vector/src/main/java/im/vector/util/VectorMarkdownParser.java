@@ -18,30 +18,36 @@
 
 package im.vector.util;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
-import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
-import android.util.AttributeSet;
-import android.webkit.JavascriptInterface;
-import android.webkit.WebView;
 
 import org.matrix.androidsdk.core.Log;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import im.vector.util.markdown.MarkdownRenderer;
 
 /**
  * Markdown parser.
- * This class uses a WebView.
+ * The conversion is done by {@link MarkdownRenderer}, a java port of the javascript library
+ * which was previously run in a WebView.
  */
-public class VectorMarkdownParser extends WebView {
+public class VectorMarkdownParser {
     private static final String LOG_TAG = VectorMarkdownParser.class.getSimpleName();
 
-    private final static int MAX_DELAY_TO_WAIT_FOR_WEBVIEW_RESPONSE_MILLIS = 300;
+    // the text is sent without format when its conversion takes longer
+    private static final long CONVERSION_TIMEOUT_MS = 500;
+
+    private static final Handler sUIHandler = new Handler(Looper.getMainLooper());
+
+    // replaced when a conversion times out, so that the next conversions do not wait for it
+    private static ExecutorService sConversionExecutor = Executors.newSingleThreadExecutor();
 
-    // tell if the parser is properly initialised
-    private boolean mIsInitialised = false;
+    private final Context mContext;
 
     public interface IVectorMarkdownParserListener {
         /**
@@ -53,45 +59,14 @@ public class VectorMarkdownParser extends WebView {
         void onMarkdownParsed(String text, String htmlText);
     }
 
-    /**
-     * Java <-> JS interface
-     **/
-    private final MarkDownWebAppInterface mMarkDownWebAppInterface = new MarkDownWebAppInterface();
-
     public VectorMarkdownParser(Context context) {
-        this(context, null);
-    }
-
-    public VectorMarkdownParser(Context context, AttributeSet attrs) {
-        this(context, attrs, 0);
-    }
-
-    public VectorMarkdownParser(Context context, AttributeSet attrs, int defStyleAttr) {
-        super(context, attrs, defStyleAttr);
-        initialize();
-    }
-
-    @SuppressLint("SetJavaScriptEnabled")
-    private void initialize() {
-        try {
-            loadUrl("file:///android_asset/html/markdown.html");
-
-            // allow java script
-            getSettings().setJavaScriptEnabled(true);
-
-            // java <-> web interface
-            addJavascriptInterface(mMarkDownWebAppInterface, "Android");
-
-            getSettings().setAllowUniversalAccessFromFileURLs(true);
-
-            mIsInitialised = true;
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "## initialize() failed " + e.getMessage(), e);
-        }
+        mContext = context.getApplicationContext();
     }
 
     /**
-     * Parse the MarkDown text.
+     * Parse the MarkDown text in background.
+     * The listener is called from the UI thread, with the trimmed text as html text
+     * when the conversion fails or does not end within CONVERSION_TIMEOUT_MS.
      *
      * @param markdownText the text to parse
      * @param listener     the parser listener
@@ -102,152 +77,107 @@ public class VectorMarkdownParser extends WebView {
             return;
         }
 
-        String text = markdownText;
+        final AtomicBoolean isDone = new AtomicBoolean(false);
+        final ExecutorService executor = getConversionExecutor();
 
-        if (null != markdownText) {
-            text = markdownText.trim();
-        }
+        final Runnable timeoutRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (isDone.compareAndSet(false, true)) {
+                    Log.e(LOG_TAG, "## markdownToHtml() : timeout, the text is not formatted");
+                    replaceConversionExecutor(executor);
+                    listener.onMarkdownParsed(markdownText, (null != markdownText) ? markdownText.trim() : null);
+                }
+            }
+        };
 
-        // empty text or disabled
-        if (!mIsInitialised || TextUtils.isEmpty(text) || !PreferencesManager.isMarkdownEnabled(getContext())) {
-            // nothing to do
-            listener.onMarkdownParsed(markdownText, text);
-            return;
-        }
+        sUIHandler.postDelayed(timeoutRunnable, CONVERSION_TIMEOUT_MS);
 
-        mMarkDownWebAppInterface.initParams(markdownText, listener);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String htmlText = markdownToHtml(markdownText);
 
-        try {
-            // the conversion starts
-            mMarkDownWebAppInterface.start();
-
-            // call the javascript method
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
-                loadUrl(String.format("javascript:convertToHtml('%s')", escapeText(markdownText)));
-            } else {
-                evaluateJavascript(String.format("convertToHtml('%s')", escapeText(markdownText)), null);
+                sUIHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isDone.compareAndSet(false, true)) {
+                            sUIHandler.removeCallbacks(timeoutRunnable);
+                            listener.onMarkdownParsed(markdownText, htmlText);
+                        }
+                    }
+                });
             }
-        } catch (Exception e) {
-            mMarkDownWebAppInterface.cancel();
-            Log.e(LOG_TAG, "## markdownToHtml() : failed " + e.getMessage(), e);
-            listener.onMarkdownParsed(markdownText, text);
-        }
+        });
+    }
+
+    private static synchronized ExecutorService getConversionExecutor() {
+        return sConversionExecutor;
     }
 
     /**
-     * Escape text before converting it.
+     * The timed out conversion cannot be interrupted, it keeps its thread until it ends.
      *
-     * @param text the text to escape
-     * @return the escaped text
+     * @param executor the executor running the timed out conversion
      */
-    private static String escapeText(String text) {
-        text = text.replace("\\", "\\\\");
-        text = text.replace("\n", "\\\\n");
-        text = text.replace("'", "\\\'");
-        text = text.replace("\r", "");
-        return text;
+    private static synchronized void replaceConversionExecutor(ExecutorService executor) {
+        if (executor == sConversionExecutor) {
+            executor.shutdown();
+            sConversionExecutor = Executors.newSingleThreadExecutor();
+        }
     }
 
-    // private class
-    private class MarkDownWebAppInterface {
-        /**
-         * The text to parse
-         */
-        private String mTextToParse;
-
-        /**
-         * The parser listener
-         */
-        private IVectorMarkdownParserListener mListener;
-
-        /**
-         * Defines watchdog timer
-         */
-        private Timer mWatchdogTimer;
+    /**
+     * Parse the MarkDown text synchronously.
+     *
+     * @param markdownText the text to parse
+     * @return the html text, or the trimmed text when the markdown is disabled or when the conversion fails
+     */
+    public String markdownToHtml(final String markdownText) {
+        String text = markdownText;
 
-        /**
-         * Init the search params.
-         *
-         * @param textToParse the text to parse
-         * @param listener    the listener.
-         */
-        public void initParams(String textToParse, IVectorMarkdownParserListener listener) {
-            mTextToParse = textToParse;
-            mListener = listener;
+        if (null != markdownText) {
+            text = markdownText.trim();
         }
 
-        /**
-         * The parsing starts.
-         */
-        public void start() {
-            Log.d(LOG_TAG, "## start() : Markdown starts");
-
-            try {
-                // monitor the parsing as there is no way to detect if there was an error in the JS.
-                mWatchdogTimer = new Timer();
-                mWatchdogTimer.schedule(new TimerTask() {
-                    @Override
-                    public void run() {
-                        if (null != mListener) {
-                            Log.d(LOG_TAG, "## start() : delay expires");
-
-                            try {
-                                mListener.onMarkdownParsed(mTextToParse, mTextToParse);
-                            } catch (Exception e) {
-                                Log.e(LOG_TAG, "## onMarkdownParsed() " + e.getMessage(), e);
-                            }
-                        }
-                        done();
-                    }
-                }, MAX_DELAY_TO_WAIT_FOR_WEBVIEW_RESPONSE_MILLIS);
-            } catch (Throwable e) {
-                Log.e(LOG_TAG, "## start() : failed to starts " + e.getMessage(), e);
-            }
+        // empty text or disabled
+        if (TextUtils.isEmpty(text) || !PreferencesManager.getSettings(mContext).isMarkdownEnabled) {
+            // nothing to do
+            return text;
         }
 
-        /**
-         * Cancel the markdown parser
-         */
-        public void cancel() {
-            Log.d(LOG_TAG, "## cancel()");
-            done();
+        try {
+            long t0 = System.currentTimeMillis();
+            String htmlText = convertToHtml(markdownText);
+            Log.d(LOG_TAG, "## markdownToHtml() : done in " + (System.currentTimeMillis() - t0) + " ms");
+            return htmlText;
+        } catch (Throwable t) {
+            // a StackOverflowError is thrown by some pathological texts
+            Log.e(LOG_TAG, "## markdownToHtml() : failed " + t.getMessage(), t);
+            return text;
         }
+    }
 
-        /**
-         * The parsing is done
-         */
-        private void done() {
-            if (null != mWatchdogTimer) {
-                mWatchdogTimer.cancel();
-                mWatchdogTimer = null;
-            }
-            mListener = null;
+    /**
+     * Convert a markdown text to html, as the javascript parser did.
+     *
+     * @param markdownText the text to convert
+     * @return the html text
+     */
+    static String convertToHtml(String markdownText) {
+        // the text used to be escaped to be given to the javascript parser,
+        // which converted the escaped new lines and the "\n" strings to new lines.
+        String text = markdownText.replace("\r", "").replace("\\n", "\n");
+
+        String htmlText = MarkdownRenderer.render(text).trim();
+
+        if (htmlText.startsWith("<p>")
+                && htmlText.lastIndexOf("<p>") == 0
+                && htmlText.endsWith("</p>")) {
+            // Remove a <p> level, only if there is only one <p>
+            htmlText = htmlText.substring("<p>".length(), htmlText.length() - "</p>".length());
         }
 
-        @JavascriptInterface
-        public void wOnParse(String htmlText) {
-            htmlText = htmlText.trim();
-
-            if (htmlText.startsWith("<p>")
-                    && htmlText.lastIndexOf("<p>") == 0
-                    && htmlText.endsWith("</p>")) {
-                // Remove a <p> level, only if there is only one <p>
-                htmlText = htmlText.substring("<p>".length(), htmlText.length() - "</p>".length());
-            }
-
-            if (null != mListener) {
-                Log.d(LOG_TAG, "## wOnParse() : parse done");
-
-                try {
-                    mListener.onMarkdownParsed(mTextToParse, htmlText);
-                } catch (Exception e) {
-                    Log.e(LOG_TAG, "## onMarkdownParsed() " + e.getMessage(), e);
-                }
-
-                done();
-            } else {
-                Log.d(LOG_TAG, "## wOnParse() : parse required too much time");
-            }
-        }
+        return htmlText;
     }
 }
@@ -23,13 +23,12 @@ import android.content.DialogInterface;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.os.Looper;
+import android.os.SystemClock;
 import android.text.Html;
 import android.text.TextUtils;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.FragmentManager;
 
@@ -45,27 +44,159 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import im.vector.R;
 import im.vector.activity.VectorRoomActivity;
 import im.vector.fragments.ImageSizeSelectionDialogFragment;
 import im.vector.fragments.VectorMessageListFragment;
 
-// VectorRoomMediasSender helps the vectorRoomActivity to manage medias .
+/**
+ * VectorRoomMediasSender helps the vectorRoomActivity to manage medias.
+ * <p>
+ * The shared items are prepared by a staged pipeline:
+ * - the probe stage opens the resources, copies the images to the medias cache and reads their size and EXIF rotation.
+ * - the resize stage decodes and resizes the images with the selected compression.
+ * - the delivery stage hands the prepared items to the room medias sender of the SDK, in their sharing order.
+ * The items are probed and resized in parallel, the compression dialog only holds the images which need it.
+ */
 public class VectorRoomMediasSender {
     private static final String LOG_TAG = VectorRoomMediasSender.class.getSimpleName();
 
     private static final String TAG_FRAGMENT_IMAGE_SIZE_DIALOG = "TAG_FRAGMENT_IMAGE_SIZE_DIALOG";
 
+    // the pipeline stages
+    public static final int STAGE_PROBE = 0;
+    public static final int STAGE_RESIZE = 1;
+    public static final int STAGE_DELIVERY = 2;
+    private static final int STAGES_COUNT = 3;
+
+    // the number of threads which open and probe the resources (I/O bound)
+    private static final int PROBE_THREADS_COUNT = 3;
+
+    // the number of threads which decode and resize the images (memory bound)
+    private static final int RESIZE_THREADS_COUNT = 2;
+
     /**
-     * This listener is displayed when the image has been resized.
+     * The cumulated durations of the pipeline stages for a batch of shared items.
      */
-    private interface OnImageUploadListener {
-        // the image has been successfully resized and the upload starts
-        void onDone();
+    public static class StageTimings {
+        private final long[] mDurations = new long[STAGES_COUNT];
+        private final int[] mCounts = new int[STAGES_COUNT];
+
+        private final long mStartTs = SystemClock.elapsedRealtime();
+        private long mElapsedTime = -1;
+
+        synchronized void add(int stage, long durationMs) {
+            mDurations[stage] += durationMs;
+            mCounts[stage]++;
+        }
+
+        synchronized void onDone() {
+            mElapsedTime = SystemClock.elapsedRealtime() - mStartTs;
+        }
+
+        /**
+         * @param stage the stage (STAGE_PROBE, STAGE_RESIZE or STAGE_DELIVERY)
+         * @return the cumulated duration of the stage in milliseconds.
+         * For the delivery stage, it is the time spent by the prepared items to wait for the previous ones.
+         */
+        public synchronized long getDuration(int stage) {
+            return mDurations[stage];
+        }
 
-        // the resize has been cancelled
-        void onCancel();
+        /**
+         * @param stage the stage (STAGE_PROBE, STAGE_RESIZE or STAGE_DELIVERY)
+         * @return the number of items which went through the stage
+         */
+        public synchronized int getCount(int stage) {
+            return mCounts[stage];
+        }
+
+        /**
+         * @return the batch duration in milliseconds, -1 if it is in progress
+         */
+        public synchronized long getElapsedTime() {
+            return mElapsedTime;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "probe " + mCounts[STAGE_PROBE] + " items in " + mDurations[STAGE_PROBE] + " ms"
+                    + ", resize " + mCounts[STAGE_RESIZE] + " items in " + mDurations[STAGE_RESIZE] + " ms"
+                    + ", delivery " + mCounts[STAGE_DELIVERY] + " items after " + mDurations[STAGE_DELIVERY] + " ms"
+                    + ", total " + mElapsedTime + " ms";
+        }
+    }
+
+    /**
+     * A prepared item, which is delivered in the sharing order.
+     */
+    private static class PreparedItem {
+        // the media to send
+        @Nullable
+        private RoomMediaMessage mRoomMediaMessage;
+
+        // the text to send
+        @Nullable
+        private String mText;
+        @Nullable
+        private String mHtmlText;
+
+        // true if the text is inserted in the composer instead of being sent
+        private boolean mIsComposerText;
+
+        private final long mReadyTs = SystemClock.elapsedRealtime();
+
+        static PreparedItem media(RoomMediaMessage roomMediaMessage) {
+            PreparedItem item = new PreparedItem();
+            item.mRoomMediaMessage = roomMediaMessage;
+            return item;
+        }
+
+        static PreparedItem text(@Nullable String text, @Nullable String htmlText, boolean isComposerText) {
+            PreparedItem item = new PreparedItem();
+            item.mText = text;
+            item.mHtmlText = htmlText;
+            item.mIsComposerText = isComposerText;
+            return item;
+        }
+    }
+
+    /**
+     * A probed image, waiting for its resize.
+     */
+    private static class ImageJob {
+        private int mIndex;
+        private RoomMediaMessage mRoomMediaMessage;
+        private String mImageUrl;
+        private String mFilename;
+        private int mRotationAngle;
+        private int mFileSize;
+        private ImageCompressionSizes mImageSizes;
+    }
+
+    /**
+     * The shared items which are being prepared.
+     */
+    private static class Batch {
+        // only used from the UI thread
+        private final OrderedResultsQueue<PreparedItem> mResultsQueue = new OrderedResultsQueue<>();
+
+        private final StageTimings mTimings = new StageTimings();
+
+        // the following fields are protected by the batch lock
+
+        // the compression selected by the user
+        private String mImageCompressionDescription;
+
+        // the images which wait for the compression selection
+        private final List<ImageJob> mImageJobsWaitingForCompression = new ArrayList<>();
+
+        // the items from this index are not sent anymore
+        private int mCancelledIndex = Integer.MAX_VALUE;
     }
 
     private AlertDialog mImageSizesListDialog;
@@ -79,13 +210,17 @@ public class VectorRoomMediasSender {
     // the medias cache
     private final MXMediaCache mMediasCache;
 
-    // the background thread
-    private static HandlerThread mHandlerThread = null;
-    private static android.os.Handler mMediasSendingHandler = null;
+    // the pipeline pools
+    private static ExecutorService sProbeExecutor = null;
+    private static ExecutorService sResizeExecutor = null;
+
+    // the batch in progress, only used from the UI thread
+    @Nullable
+    private Batch mBatch;
 
-    // pending
-    private List<RoomMediaMessage> mSharedDataItems;
-    private String mImageCompressionDescription;
+    // the timings of the last completed batch
+    @Nullable
+    private StageTimings mLastBatchTimings;
 
     // media compression
     private static final int MEDIA_COMPRESSION_CHOOSE = 0;
@@ -100,264 +235,269 @@ public class VectorRoomMediasSender {
         mVectorMessageListFragment = vectorMessageListFragment;
         mMediasCache = mediaCache;
 
-        if (null == mHandlerThread) {
-            mHandlerThread = new HandlerThread("VectorRoomMediasSender", Thread.MIN_PRIORITY);
-            mHandlerThread.start();
-
-            mMediasSendingHandler = new android.os.Handler(mHandlerThread.getLooper());
+        synchronized (VectorRoomMediasSender.class) {
+            if (null == sProbeExecutor) {
+                sProbeExecutor = Executors.newFixedThreadPool(PROBE_THREADS_COUNT, newThreadFactory("VectorRoomMediasSender-probe"));
+                sResizeExecutor = Executors.newFixedThreadPool(RESIZE_THREADS_COUNT, newThreadFactory("VectorRoomMediasSender-resize"));
+            }
         }
     }
 
+    private static ThreadFactory newThreadFactory(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * @return the stage timings of the last sent batch, null if there is none
+     */
+    @Nullable
+    public StageTimings getLastBatchTimings() {
+        return mLastBatchTimings;
+    }
+
     /**
      * Resume any camera image upload that could have been in progress and
      * stopped due to activity lifecycle event.
      */
     public void resumeResizeMediaAndSend() {
-        if (null != mSharedDataItems) {
+        final Batch batch = mBatch;
+
+        if ((null != batch) && ((null == mImageSizesListDialog) || !mImageSizesListDialog.isShowing())) {
             mVectorRoomActivity.runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
-                    sendMedias();
+                    showImageSizesDialog(batch);
                 }
             });
         }
     }
 
     /**
-     * Send a list of images from their URIs
+     * Send a list of images from their URIs.
+     * The items are added to the batch in progress if there is one.
      *
      * @param sharedDataItems the media URIs
      */
     public void sendMedias(final List<RoomMediaMessage> sharedDataItems) {
-        if (null != sharedDataItems) {
-            mSharedDataItems = new ArrayList<>(sharedDataItems);
-            sendMedias();
-        }
-    }
-
-    /**
-     * Send a list of images from their URIs
-     */
-    private void sendMedias() {
         // sanity checks
-        if ((null == mVectorRoomActivity) || (null == mVectorMessageListFragment) || (null == mMediasCache)) {
+        if ((null == sharedDataItems) || (null == mVectorRoomActivity) || (null == mVectorMessageListFragment) || (null == mMediasCache)) {
             Log.d(LOG_TAG, "sendMedias : null parameters");
             return;
         }
 
-        // detect end of messages sending
-        if ((null == mSharedDataItems) || (0 == mSharedDataItems.size())) {
-            Log.d(LOG_TAG, "sendMedias : done");
-            mImageCompressionDescription = null;
-            mSharedDataItems = null;
-
-            mVectorRoomActivity.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    mVectorMessageListFragment.scrollToBottom();
-                    mVectorRoomActivity.cancelSelectionMode();
-                    mVectorRoomActivity.hideWaitingView();
-                }
-            });
-
-            return;
+        if (null == mBatch) {
+            mBatch = new Batch();
         }
 
+        final Batch batch = mBatch;
+
         // display a spinner
         mVectorRoomActivity.cancelSelectionMode();
         mVectorRoomActivity.showWaitingView();
 
-        Log.d(LOG_TAG, "sendMedias : " + mSharedDataItems.size() + " items to send");
+        Log.d(LOG_TAG, "sendMedias : " + sharedDataItems.size() + " items to send");
 
-        mMediasSendingHandler.post(new Runnable() {
-            @Override
-            public void run() {
-                final RoomMediaMessage sharedDataItem = mSharedDataItems.get(0);
-                String mimeType = sharedDataItem.getMimeType(mVectorRoomActivity);
+        for (final RoomMediaMessage sharedDataItem : sharedDataItems) {
+            final int index = batch.mResultsQueue.reserve();
+
+            sProbeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long startTs = SystemClock.elapsedRealtime();
+
+                    try {
+                        probeItem(batch, index, sharedDataItem);
+                    } catch (Throwable t) {
+                        // skip the item, the batch must not wait for it
+                        Log.e(LOG_TAG, "## sendMedias() : failed to probe an item " + t.getMessage(), t);
+                        onItemPrepared(batch, index, null);
+                    }
 
-                // avoid null case
-                if (null == mimeType) {
-                    mimeType = "";
+                    batch.mTimings.add(STAGE_PROBE, SystemClock.elapsedRealtime() - startTs);
                 }
+            });
+        }
 
-                if (TextUtils.equals(ClipDescription.MIMETYPE_TEXT_INTENT, mimeType)) {
-                    Log.d(LOG_TAG, "sendMedias :  unsupported mime type");
-                    // don't know how to manage it -> skip it
-                    // GA issue
-                    if (mSharedDataItems.size() > 0) {
-                        mSharedDataItems.remove(0);
-                    }
-                    sendMedias();
-                } else if ((null == sharedDataItem.getUri())
-                        && (TextUtils.equals(ClipDescription.MIMETYPE_TEXT_PLAIN, mimeType)
-                        || TextUtils.equals(ClipDescription.MIMETYPE_TEXT_HTML, mimeType))) {
-                    sendTextMessage(sharedDataItem);
-                } else {
-                    // check if it is an uri
-                    // else we don't know what to do
-                    if (null == sharedDataItem.getUri()) {
-                        Log.e(LOG_TAG, "sendMedias : null uri");
-                        // manage others
-                        if (mSharedDataItems.size() > 0) {
-                            mSharedDataItems.remove(0);
-                        }
-                        sendMedias();
-                        return;
-                    }
+        // nothing to send
+        checkBatchDone(batch);
+    }
 
-                    final String fFilename = sharedDataItem.getFileName(mVectorRoomActivity);
+    /**
+     * Probe a shared item, in the probe pool.
+     *
+     * @param batch          the batch
+     * @param index          the item index in the batch
+     * @param sharedDataItem the item
+     */
+    private void probeItem(Batch batch, int index, final RoomMediaMessage sharedDataItem) {
+        String mimeType = sharedDataItem.getMimeType(mVectorRoomActivity);
 
-                    ResourceUtils.Resource resource
-                            = ResourceUtils.openResource(mVectorRoomActivity, sharedDataItem.getUri(), sharedDataItem.getMimeType(mVectorRoomActivity));
+        // avoid null case
+        if (null == mimeType) {
+            mimeType = "";
+        }
 
-                    if (null == resource) {
-                        Log.e(LOG_TAG, "sendMedias : " + fFilename + " is not found");
+        if (TextUtils.equals(ClipDescription.MIMETYPE_TEXT_INTENT, mimeType)) {
+            Log.d(LOG_TAG, "sendMedias :  unsupported mime type");
+            // don't know how to manage it -> skip it
+            onItemPrepared(batch, index, null);
+        } else if ((null == sharedDataItem.getUri())
+                && (TextUtils.equals(ClipDescription.MIMETYPE_TEXT_PLAIN, mimeType)
+                || TextUtils.equals(ClipDescription.MIMETYPE_TEXT_HTML, mimeType))) {
+            onItemPrepared(batch, index, prepareTextMessage(sharedDataItem));
+        } else {
+            // check if it is an uri
+            // else we don't know what to do
+            if (null == sharedDataItem.getUri()) {
+                Log.e(LOG_TAG, "sendMedias : null uri");
+                onItemPrepared(batch, index, null);
+                return;
+            }
 
-                        mVectorRoomActivity.runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                Toast.makeText(mVectorRoomActivity,
-                                        mVectorRoomActivity.getString(R.string.room_message_file_not_found),
-                                        Toast.LENGTH_LONG).show();
-                            }
-                        });
+            final String fFilename = sharedDataItem.getFileName(mVectorRoomActivity);
 
-                        // manage others
-                        if (mSharedDataItems.size() > 0) {
-                            mSharedDataItems.remove(0);
-                        }
-                        sendMedias();
+            ResourceUtils.Resource resource
+                    = ResourceUtils.openResource(mVectorRoomActivity, sharedDataItem.getUri(), sharedDataItem.getMimeType(mVectorRoomActivity));
+
+            if (null == resource) {
+                Log.e(LOG_TAG, "sendMedias : " + fFilename + " is not found");
 
-                        return;
+                mVectorRoomActivity.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Toast.makeText(mVectorRoomActivity,
+                                mVectorRoomActivity.getString(R.string.room_message_file_not_found),
+                                Toast.LENGTH_LONG).show();
                     }
+                });
 
-                    if (mimeType.startsWith("image/")
-                            && (ResourceUtils.MIME_TYPE_JPEG.equals(mimeType)
-                            || ResourceUtils.MIME_TYPE_JPG.equals(mimeType)
-                            || ResourceUtils.MIME_TYPE_IMAGE_ALL.equals(mimeType))) {
-                        sendJpegImage(sharedDataItem, resource);
-                    } else {
-                        resource.close();
-                        mVectorRoomActivity.runOnUiThread(new Runnable() {
-                            @Override
-                            public void run() {
-                                mVectorMessageListFragment.sendMediaMessage(sharedDataItem);
-                            }
-                        });
+                onItemPrepared(batch, index, null);
+                return;
+            }
 
-                        // manage others
-                        if (mSharedDataItems.size() > 0) {
-                            mSharedDataItems.remove(0);
-                        }
-                        sendMedias();
-                    }
-                }
+            if (mimeType.startsWith("image/")
+                    && (ResourceUtils.MIME_TYPE_JPEG.equals(mimeType)
+                    || ResourceUtils.MIME_TYPE_JPG.equals(mimeType)
+                    || ResourceUtils.MIME_TYPE_IMAGE_ALL.equals(mimeType))) {
+                // save the file in the filesystem
+                String mediaUrl = mMediasCache.saveMedia(resource.mContentStream, null, mimeType);
+                resource.close();
+
+                probeJpegImage(batch, index, sharedDataItem, mediaUrl, mimeType);
+            } else {
+                resource.close();
+                onItemPrepared(batch, index, PreparedItem.media(sharedDataItem));
             }
-        });
+        }
     }
 
-    //================================================================================
-    // text messages management
-    //================================================================================
-
     /**
-     * Send a text message.
+     * Provide a prepared item, from any thread.
+     * The prepared items are delivered in their sharing order, from the UI thread.
      *
-     * @param sharedDataItem the media item.
+     * @param batch        the batch
+     * @param index        the item index in the batch
+     * @param preparedItem the prepared item, null if the item is skipped
      */
-    private void sendTextMessage(RoomMediaMessage sharedDataItem) {
-        final CharSequence sequence = sharedDataItem.getText();
-        String htmlText = sharedDataItem.getHtmlText();
+    private void onItemPrepared(final Batch batch, final int index, @Nullable final PreparedItem preparedItem) {
+        mVectorRoomActivity.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                PreparedItem item = preparedItem;
 
-        // content only text -> insert it in the room editor
-        // to let the user decides to send the message
-        if (!TextUtils.isEmpty(sequence) && (null == htmlText)) {
-            new Handler(Looper.getMainLooper()).post(new Runnable() {
-                @Override
-                public void run() {
-                    mVectorRoomActivity.insertTextInTextEditor(sequence.toString());
+                synchronized (batch) {
+                    if (index >= batch.mCancelledIndex) {
+                        item = null;
+                    }
                 }
-            });
-        } else {
-
-            String text = null;
 
-            if (null == sequence) {
-                if (null != htmlText) {
-                    text = Html.fromHtml(htmlText).toString();
+                for (PreparedItem releasedItem : batch.mResultsQueue.put(index, item)) {
+                    batch.mTimings.add(STAGE_DELIVERY, SystemClock.elapsedRealtime() - releasedItem.mReadyTs);
+                    deliverItem(releasedItem);
                 }
-            } else {
-                text = sequence.toString();
-            }
-
-            Log.d(LOG_TAG, "sendTextMessage " + text);
 
-            final String fText = text;
-            final String fHtmlText = htmlText;
+                checkBatchDone(batch);
+            }
+        });
+    }
 
-            mVectorRoomActivity.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    mVectorRoomActivity.sendMessage(fText, fHtmlText, Message.FORMAT_MATRIX_HTML, false);
-                }
-            });
+    /**
+     * Hand a prepared item to the room, from the UI thread.
+     *
+     * @param item the prepared item
+     */
+    private void deliverItem(PreparedItem item) {
+        if (null != item.mRoomMediaMessage) {
+            // the SDK uploads the medias and sends the events in this order
+            mVectorMessageListFragment.sendMediaMessage(item.mRoomMediaMessage);
+        } else if (item.mIsComposerText) {
+            mVectorRoomActivity.insertTextInTextEditor(item.mText);
+        } else {
+            mVectorRoomActivity.sendMessage(item.mText, item.mHtmlText, Message.FORMAT_MATRIX_HTML, false);
         }
+    }
 
-        // manage others
-        if (mSharedDataItems.size() > 0) {
-            mSharedDataItems.remove(0);
+    /**
+     * Detect the end of a batch, from the UI thread.
+     *
+     * @param batch the batch
+     */
+    private void checkBatchDone(Batch batch) {
+        if ((batch != mBatch) || !batch.mResultsQueue.isDrained()) {
+            return;
         }
-        sendMedias();
+
+        mBatch = null;
+        batch.mTimings.onDone();
+        mLastBatchTimings = batch.mTimings;
+
+        Log.d(LOG_TAG, "sendMedias : done - " + batch.mTimings);
+
+        mVectorMessageListFragment.scrollToBottom();
+        mVectorRoomActivity.cancelSelectionMode();
+        mVectorRoomActivity.hideWaitingView();
     }
 
     //================================================================================
-    // image messages management
+    // text messages management
     //================================================================================
 
     /**
-     * Send  message.
+     * Prepare a text message.
      *
-     * @param sharedDataItem the item to send
-     * @param resource       the media resource
+     * @param sharedDataItem the media item.
+     * @return the prepared item
      */
-    private void sendJpegImage(final RoomMediaMessage sharedDataItem, final ResourceUtils.Resource resource) {
-        String mimeType = sharedDataItem.getMimeType(mVectorRoomActivity);
-
-        // save the file in the filesystem
-        String mediaUrl = mMediasCache.saveMedia(resource.mContentStream, null, mimeType);
-        resource.close();
+    private PreparedItem prepareTextMessage(RoomMediaMessage sharedDataItem) {
+        final CharSequence sequence = sharedDataItem.getText();
+        String htmlText = sharedDataItem.getHtmlText();
 
-        final String fMediaUrl = mediaUrl;
-        final String fMimeType = mimeType;
+        // content only text -> insert it in the room editor
+        // to let the user decides to send the message
+        if (!TextUtils.isEmpty(sequence) && (null == htmlText)) {
+            return PreparedItem.text(sequence.toString(), null, true);
+        }
 
-        mVectorRoomActivity.runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                if ((null != mSharedDataItems) && (mSharedDataItems.size() > 0)) {
-                    sendJpegImage(sharedDataItem, fMediaUrl, fMimeType, new OnImageUploadListener() {
-                        @Override
-                        public void onDone() {
-                            // reported by GA
-                            if ((null != mSharedDataItems) && (mSharedDataItems.size() > 0)) {
-                                mSharedDataItems.remove(0);
-                            }
-                            // go to the next item
-                            sendMedias();
-                        }
+        String text = null;
 
-                        @Override
-                        public void onCancel() {
-                            // cancel any media sending
-                            // reported by GA
-                            if (null != mSharedDataItems) {
-                                mSharedDataItems.clear();
-                            }
-                            sendMedias();
-                        }
-                    });
-                }
+        if (null == sequence) {
+            if (null != htmlText) {
+                text = Html.fromHtml(htmlText).toString();
             }
-        });
+        } else {
+            text = sequence.toString();
+        }
+
+        Log.d(LOG_TAG, "sendTextMessage " + text);
+
+        return PreparedItem.text(text, htmlText, false);
     }
 
     //================================================================================
@@ -676,29 +816,35 @@ public class VectorRoomMediasSender {
         return imageUrl;
     }
 
+    //================================================================================
+    // image messages management
+    //================================================================================
+
     /**
-     * Offer to resize the image before sending it.
+     * Probe an image, in the probe pool.
+     * The image is resized with the selected compression, or waits for the user selection.
      *
-     * @param anImageUrl      the image url.
-     * @param anImageMimeType the image mimetype
-     * @param aListener       the listener
+     * @param batch            the batch
+     * @param index            the item index in the batch
+     * @param roomMediaMessage the shared item
+     * @param anImageUrl       the image url in the medias cache.
+     * @param anImageMimeType  the image mimetype
      */
-    private void sendJpegImage(final RoomMediaMessage roomMediaMessage,
-                               final String anImageUrl,
-                               final String anImageMimeType,
-                               final OnImageUploadListener aListener) {
+    private void probeJpegImage(final Batch batch,
+                                final int index,
+                                final RoomMediaMessage roomMediaMessage,
+                                final String anImageUrl,
+                                final String anImageMimeType) {
         // sanity check
-        if ((null == anImageUrl) || (null == aListener)) {
+        if (null == anImageUrl) {
+            onItemPrepared(batch, index, null);
             return;
         }
 
-        boolean isManaged = false;
-
         // check if the media could be resized
         if ((ResourceUtils.MIME_TYPE_JPEG.equals(anImageMimeType)
                 || ResourceUtils.MIME_TYPE_JPG.equals(anImageMimeType)
                 || ResourceUtils.MIME_TYPE_IMAGE_ALL.equals(anImageMimeType))) {
-            System.gc();
             FileInputStream imageStream;
 
             try {
@@ -728,7 +874,20 @@ public class VectorRoomMediasSender {
 
                 imageStream.close();
 
-                int prefResize = PreferencesManager.getSelectedDefaultMediaCompressionLevel(mVectorRoomActivity);
+                ImageJob imageJob = new ImageJob();
+                imageJob.mIndex = index;
+                imageJob.mRoomMediaMessage = roomMediaMessage;
+                imageJob.mImageUrl = anImageUrl;
+                imageJob.mFilename = filename;
+                imageJob.mRotationAngle = rotationAngle;
+                imageJob.mFileSize = fileSize;
+                imageJob.mImageSizes = imageSizes;
+
+                String imageCompressionDescription;
+                boolean isWaitingForCompression = false;
+                boolean isCancelled = false;
+
+                int prefResize = PreferencesManager.getSettings(mVectorRoomActivity).defaultMediaCompressionLevel;
                 if (prefResize > MEDIA_COMPRESSION_CHOOSE) {
                     // subtract "choose" option
                     int opt = prefResize - 1;
@@ -743,95 +902,43 @@ public class VectorRoomMediasSender {
                     if (opt > sizesIdx) opt = sizesIdx;
                     else if (opt < 0) opt = 0;
 
-                    mImageCompressionDescription = imageSizes.getImageSizesDescription(mVectorRoomActivity).get(opt);
+                    imageCompressionDescription = imageSizes.getImageSizesDescription(mVectorRoomActivity).get(opt);
+                } else {
+                    synchronized (batch) {
+                        imageCompressionDescription = batch.mImageCompressionDescription;
+
+                        if (index >= batch.mCancelledIndex) {
+                            // the compression dialog has been cancelled while this image was probed
+                            isCancelled = true;
+                        } else if ((null == imageCompressionDescription) && (null != imageSizes.mSmallImageSize)) {
+                            // can be rescaled
+                            batch.mImageJobsWaitingForCompression.add(imageJob);
+                            isWaitingForCompression = true;
+                        }
+                    }
                 }
 
-                // the user already selects a compression
-                if (null != mImageCompressionDescription) {
-                    isManaged = true;
+                if (isCancelled) {
+                    onItemPrepared(batch, index, null);
+                    return;
+                }
 
-                    final ImageSize expectedSize = imageSizes.getImageSize(mVectorRoomActivity, mImageCompressionDescription);
-                    final String fImageUrl = resizeImage(anImageUrl, filename, imageSizes.mFullImageSize, expectedSize, rotationAngle);
+                // the user already selects a compression
+                if (null != imageCompressionDescription) {
+                    resizeJpegImage(batch, imageJob, imageSizes.getImageSize(mVectorRoomActivity, imageCompressionDescription));
+                    return;
+                }
 
+                if (isWaitingForCompression) {
                     mVectorRoomActivity.runOnUiThread(new Runnable() {
                         @Override
                         public void run() {
-                            mVectorMessageListFragment.sendMediaMessage(new RoomMediaMessage(Uri.parse(fImageUrl),
-                                    roomMediaMessage.getFileName(mVectorRoomActivity)));
-                            aListener.onDone();
+                            if ((null == mImageSizesListDialog) || !mImageSizesListDialog.isShowing()) {
+                                showImageSizesDialog(batch);
+                            }
                         }
                     });
-                }
-                // can be rescaled ?
-                else if (null != imageSizes.mSmallImageSize) {
-                    isManaged = true;
-
-                    FragmentManager fm = mVectorRoomActivity.getSupportFragmentManager();
-                    ImageSizeSelectionDialogFragment fragment = (ImageSizeSelectionDialogFragment) fm.findFragmentByTag(TAG_FRAGMENT_IMAGE_SIZE_DIALOG);
-
-                    if (fragment != null) {
-                        fragment.dismissAllowingStateLoss();
-                    }
-
-                    String[] stringsArray = getImagesCompressionTextsList(mVectorRoomActivity, imageSizes, fileSize);
-
-                    mImageSizesListDialog = new AlertDialog.Builder(mVectorRoomActivity)
-                            .setTitle(im.vector.R.string.compression_options)
-                            .setSingleChoiceItems(stringsArray, -1, new DialogInterface.OnClickListener() {
-                                @Override
-                                public void onClick(DialogInterface dialog, int which) {
-                                    final int fPos = which;
-
-                                    mImageSizesListDialog.dismiss();
-
-                                    mVectorRoomActivity.runOnUiThread(new Runnable() {
-                                        @Override
-                                        public void run() {
-                                            mVectorRoomActivity.showWaitingView();
-
-                                            Thread thread = new Thread(new Runnable() {
-                                                @Override
-                                                public void run() {
-                                                    ImageSize expectedSize = null;
-
-                                                    // full size
-                                                    if (0 != fPos) {
-                                                        expectedSize = imageSizes.getImageSizesList().get(fPos);
-                                                    }
-
-                                                    // stored the compression selected by the user
-                                                    mImageCompressionDescription = imageSizes.getImageSizesDescription(mVectorRoomActivity).get(fPos);
-
-                                                    final String fImageUrl
-                                                            = resizeImage(anImageUrl, filename, imageSizes.mFullImageSize, expectedSize, rotationAngle);
-
-                                                    mVectorRoomActivity.runOnUiThread(new Runnable() {
-                                                        @Override
-                                                        public void run() {
-                                                            mVectorMessageListFragment.sendMediaMessage(new RoomMediaMessage(Uri.parse(fImageUrl),
-                                                                    roomMediaMessage.getFileName(mVectorRoomActivity)));
-                                                            aListener.onDone();
-                                                        }
-                                                    });
-                                                }
-                                            });
-
-                                            thread.setPriority(Thread.MIN_PRIORITY);
-                                            thread.start();
-                                        }
-                                    });
-                                }
-                            })
-                            .setOnCancelListener(new DialogInterface.OnCancelListener() {
-                                @Override
-                                public void onCancel(DialogInterface dialog) {
-                                    mImageSizesListDialog = null;
-                                    if (null != aListener) {
-                                        aListener.onCancel();
-                                    }
-                                }
-                            })
-                            .show();
+                    return;
                 }
             } catch (Exception e) {
                 Log.e(LOG_TAG, "sendImageMessage failed " + e.getMessage(), e);
@@ -839,16 +946,134 @@ public class VectorRoomMediasSender {
         }
 
         // cannot resize, let assumes that it has been done
-        if (!isManaged) {
-            mVectorRoomActivity.runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    mVectorMessageListFragment.sendMediaMessage(roomMediaMessage);
-                    if (null != aListener) {
-                        aListener.onDone();
-                    }
+        onItemPrepared(batch, index, PreparedItem.media(roomMediaMessage));
+    }
+
+    /**
+     * Resize an image in the resize pool.
+     *
+     * @param batch        the batch
+     * @param imageJob     the probed image
+     * @param expectedSize the expected image size, null to keep the full size
+     */
+    private void resizeJpegImage(final Batch batch, final ImageJob imageJob, @Nullable final ImageSize expectedSize) {
+        sResizeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long startTs = SystemClock.elapsedRealtime();
+
+                try {
+                    final String fImageUrl = resizeImage(imageJob.mImageUrl,
+                            imageJob.mFilename,
+                            imageJob.mImageSizes.mFullImageSize,
+                            expectedSize,
+                            imageJob.mRotationAngle);
+
+                    onItemPrepared(batch, imageJob.mIndex, PreparedItem.media(new RoomMediaMessage(Uri.parse(fImageUrl),
+                            imageJob.mRoomMediaMessage.getFileName(mVectorRoomActivity))));
+                } catch (Throwable t) {
+                    // skip the image, the batch must not wait for it
+                    Log.e(LOG_TAG, "## resizeJpegImage() : failed " + t.getMessage(), t);
+                    onItemPrepared(batch, imageJob.mIndex, null);
                 }
-            });
+
+                batch.mTimings.add(STAGE_RESIZE, SystemClock.elapsedRealtime() - startTs);
+            }
+        });
+    }
+
+    /**
+     * Offer to resize the images which wait for a compression, from the UI thread.
+     * The dialog displays the sizes of the first waiting image, the selection applies to the whole batch.
+     *
+     * @param batch the batch
+     */
+    private void showImageSizesDialog(final Batch batch) {
+        final ImageJob firstImageJob;
+
+        synchronized (batch) {
+            if (batch.mImageJobsWaitingForCompression.isEmpty()) {
+                return;
+            }
+
+            ImageJob imageJob = batch.mImageJobsWaitingForCompression.get(0);
+
+            for (ImageJob waitingImageJob : batch.mImageJobsWaitingForCompression) {
+                if (waitingImageJob.mIndex < imageJob.mIndex) {
+                    imageJob = waitingImageJob;
+                }
+            }
+
+            firstImageJob = imageJob;
         }
+
+        final ImageCompressionSizes imageSizes = firstImageJob.mImageSizes;
+
+        FragmentManager fm = mVectorRoomActivity.getSupportFragmentManager();
+        ImageSizeSelectionDialogFragment fragment = (ImageSizeSelectionDialogFragment) fm.findFragmentByTag(TAG_FRAGMENT_IMAGE_SIZE_DIALOG);
+
+        if (fragment != null) {
+            fragment.dismissAllowingStateLoss();
+        }
+
+        String[] stringsArray = getImagesCompressionTextsList(mVectorRoomActivity, imageSizes, firstImageJob.mFileSize);
+
+        mImageSizesListDialog = new AlertDialog.Builder(mVectorRoomActivity)
+                .setTitle(im.vector.R.string.compression_options)
+                .setSingleChoiceItems(stringsArray, -1, new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        mImageSizesListDialog.dismiss();
+                        mImageSizesListDialog = null;
+
+                        mVectorRoomActivity.showWaitingView();
+
+                        // stored the compression selected by the user
+                        String imageCompressionDescription = imageSizes.getImageSizesDescription(mVectorRoomActivity).get(which);
+                        List<ImageJob> imageJobs;
+
+                        synchronized (batch) {
+                            batch.mImageCompressionDescription = imageCompressionDescription;
+                            imageJobs = new ArrayList<>(batch.mImageJobsWaitingForCompression);
+                            batch.mImageJobsWaitingForCompression.clear();
+                        }
+
+                        for (ImageJob imageJob : imageJobs) {
+                            ImageSize expectedSize;
+
+                            if (imageJob == firstImageJob) {
+                                // full size
+                                expectedSize = (0 != which) ? imageSizes.getImageSizesList().get(which) : null;
+                            } else {
+                                expectedSize = imageJob.mImageSizes.getImageSize(mVectorRoomActivity, imageCompressionDescription);
+                            }
+
+                            resizeJpegImage(batch, imageJob, expectedSize);
+                        }
+                    }
+                })
+                .setOnCancelListener(new DialogInterface.OnCancelListener() {
+                    @Override
+                    public void onCancel(DialogInterface dialog) {
+                        mImageSizesListDialog = null;
+
+                        // cancel the sending of this image and of the next items
+                        List<ImageJob> imageJobs;
+
+                        synchronized (batch) {
+                            imageJobs = new ArrayList<>(batch.mImageJobsWaitingForCompression);
+                            batch.mImageJobsWaitingForCompression.clear();
+
+                            for (ImageJob imageJob : imageJobs) {
+                                batch.mCancelledIndex = Math.min(batch.mCancelledIndex, imageJob.mIndex);
+                            }
+                        }
+
+                        for (ImageJob imageJob : imageJobs) {
+                            onItemPrepared(batch, imageJob.mIndex, null);
+                        }
+                    }
+                })
+                .show();
     }
 }
@@ -23,11 +23,6 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Rect;
-import android.graphics.Typeface;
 import android.net.Uri;
 import android.net.http.SslError;
 import android.os.Build;
@@ -46,7 +41,6 @@ import android.widget.ImageView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
-import androidx.collection.LruCache;
 import androidx.core.content.ContextCompat;
 
 import org.matrix.androidsdk.MXSession;
@@ -148,8 +142,6 @@ public class VectorUtils {
     // Avatars generation
     //==============================================================================================================
 
-    // avatars cache
-    static final private LruCache<String, Bitmap> mAvatarImageByKeyDict = new LruCache<>(20 * 1024 * 1024);
     // the avatars background color
     static final private List<Integer> mColorList = new ArrayList<>();
 
@@ -183,56 +175,15 @@ public class VectorUtils {
     }
 
     /**
-     * Create a thumbnail avatar.
+     * Provide the default avatar size in pixels (42dp).
      *
-     * @param context         the context
-     * @param backgroundColor the background color
-     * @param text            the text to display.
-     * @return the generated bitmap
+     * @param context the context
+     * @return the avatar side in pixels
      */
-    private static Bitmap createAvatarThumbnail(Context context, int backgroundColor, String text) {
+    private static int getAvatarThumbnailSide(Context context) {
         float densityScale = context.getResources().getDisplayMetrics().density;
         // the avatar size is 42dp, convert it in pixels.
-        return createAvatar(backgroundColor, text, (int) (42 * densityScale));
-    }
-
-    /**
-     * Create an avatar bitmap from a text.
-     *
-     * @param backgroundColor the background color.
-     * @param text            the text to display.
-     * @param pixelsSide      the avatar side in pixels
-     * @return the generated bitmap
-     */
-    private static Bitmap createAvatar(int backgroundColor, String text, int pixelsSide) {
-        Bitmap.Config bitmapConfig = Bitmap.Config.ARGB_8888;
-
-        Bitmap bitmap = Bitmap.createBitmap(pixelsSide, pixelsSide, bitmapConfig);
-        Canvas canvas = new Canvas(bitmap);
-
-        canvas.drawColor(backgroundColor);
-
-        // prepare the text drawing
-        Paint textPaint = new Paint();
-        textPaint.setTypeface(Typeface.create(Typeface.DEFAULT, Typeface.BOLD));
-        textPaint.setColor(Color.WHITE);
-        textPaint.setTextAlign(Paint.Align.CENTER);
-        // the text size is proportional to the avatar size.
-        // by default, the avatar size is 42dp, the text size is 28 dp (not sp because it has to be fixed).
-        textPaint.setTextSize(pixelsSide * 2 / 3);
-
-        // get its size
-        Rect textBounds = new Rect();
-        textPaint.getTextBounds(text, 0, text.length(), textBounds);
-
-        // draw the text in center
-        canvas.drawText(text,
-                canvas.getWidth() / 2,
-                (canvas.getHeight() - textBounds.top) / 2,
-                textPaint);
-
-        // Return the avatar
-        return bitmap;
+        return (int) (42 * densityScale);
     }
 
     /**
@@ -286,18 +237,20 @@ public class VectorUtils {
      * @return the avatar.
      */
     public static Bitmap getAvatar(Context context, int backgroundColor, String aText, boolean create) {
-        String firstChar = getInitialLetter(aText);
-        String key = firstChar + "_" + backgroundColor;
-
-        // check if the avatar is already defined
-        Bitmap thumbnail = mAvatarImageByKeyDict.get(key);
-
-        if ((null == thumbnail) && create) {
-            thumbnail = VectorUtils.createAvatarThumbnail(context, backgroundColor, firstChar);
-            mAvatarImageByKeyDict.put(key, thumbnail);
-        }
+        return getAvatar(context, backgroundColor, aText, getAvatarThumbnailSide(context), create);
+    }
 
-        return thumbnail;
+    /**
+     * Returns an avatar from a text with a dedicated size.
+     *
+     * @param context    the context.
+     * @param aText      the text.
+     * @param pixelsSide the avatar side in pixels
+     * @param create     create the avatar if it does not exist
+     * @return the avatar.
+     */
+    public static Bitmap getAvatar(Context context, int backgroundColor, String aText, int pixelsSide, boolean create) {
+        return AvatarBitmapCache.getInstance(context).getAvatar(backgroundColor, getInitialLetter(aText), pixelsSide, create);
     }
 
     /**
@@ -418,7 +371,7 @@ public class VectorUtils {
 
                 if (pixelsSide > 0) {
                     // get the avatar bitmap.
-                    bitmap = VectorUtils.createAvatar(VectorUtils.getAvatarColor(roomId), getInitialLetter(displayName), pixelsSide);
+                    bitmap = VectorUtils.getAvatar(context, VectorUtils.getAvatarColor(roomId), displayName, pixelsSide, true);
                 }
 
                 // until the dedicated avatar is loaded.
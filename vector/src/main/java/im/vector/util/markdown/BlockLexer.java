@@ -0,0 +1,464 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util.markdown;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Block level lexer, port of the marked 0.3 lexer with the "gfm", "tables" and "smartLists" options.
+ */
+final class BlockLexer {
+
+    /**
+     * A block token
+     */
+    static final class Token {
+        static final int SPACE = 0;
+        static final int HR = 1;
+        static final int HEADING = 2;
+        static final int CODE = 3;
+        static final int TABLE = 4;
+        static final int BLOCKQUOTE_START = 5;
+        static final int BLOCKQUOTE_END = 6;
+        static final int LIST_START = 7;
+        static final int LIST_END = 8;
+        static final int LIST_ITEM_START = 9;
+        static final int LOOSE_ITEM_START = 10;
+        static final int LIST_ITEM_END = 11;
+        static final int PARAGRAPH = 12;
+        static final int TEXT = 13;
+
+        final int mType;
+        String mText;
+
+        // code
+        String mLang;
+
+        // heading
+        int mDepth;
+
+        // list
+        boolean mOrdered;
+
+        // table
+        String[] mHeader;
+        String[] mAlign;
+        String[][] mCells;
+
+        Token(int type) {
+            mType = type;
+        }
+
+        Token(int type, String text) {
+            mType = type;
+            mText = text;
+        }
+    }
+
+    /**
+     * A link definition
+     */
+    static final class Link {
+        final String mHref;
+        final String mTitle;
+
+        Link(String href, String title) {
+            mHref = href;
+            mTitle = title;
+        }
+    }
+
+    /* ==========================================================================================
+     * Grammar
+     * ========================================================================================== */
+
+    private static final String BULLET = "(?:[*+-]|\\d+\\.)";
+
+    private static final String DEF = " *\\[([^\\]]+)\\]: *<?([^\\s>]+)>?(?: +[\"(]([^\\n]+)[\")])? *(?:\\n+|$)";
+
+    private static final String HR = "( *[-*_]){3,} *(?:\\n+|$)";
+
+    private static final String LHEADING = "([^\\n]+)\\n *(=|-){2,} *(?:\\n+|$)";
+
+    private static final String BLOCKQUOTE = "( *>[^\\n]+(\\n(?!" + DEF + ")[^\\n]+)*\\n*)+";
+
+    private static final String TAG = "(?!(?:"
+            + "a|em|strong|small|s|cite|q|dfn|abbr|data|time|code"
+            + "|var|samp|kbd|sub|sup|i|b|u|mark|ruby|rt|rp|bdi|bdo"
+            + "|span|br|wbr|ins|del|img)\\b)\\w+(?!:\\/|[^\\w\\s@]*@)\\b";
+
+    private static final String FENCES = " *(`{3,}|~{3,})[ \\.]*(\\S+)? *\\n([\\s\\S]*?)\\s*\\1 *(?:\\n+|$)";
+
+    /**
+     * @param hrIndent     the optional indentation back reference before a following hr
+     * @param bulletIndent the indentation back reference before a following bullet
+     * @return the list rule
+     */
+    private static String list(String hrIndent, String bulletIndent) {
+        return "( *)(" + BULLET + ") [\\s\\S]+?(?:"
+                + "\\n+(?=" + hrIndent + "(?:[-*_] *){3,}(?:\\n+|$))"
+                + "|\\n+(?=" + DEF + ")"
+                + "|\\n{2,}(?! )(?!" + bulletIndent + BULLET + " )\\n*"
+                + "|\\s*$)";
+    }
+
+    private static final int RULE_NEWLINE = 0;
+    private static final int RULE_CODE = 1;
+    private static final int RULE_FENCES = 2;
+    private static final int RULE_HEADING = 3;
+    private static final int RULE_NPTABLE = 4;
+    private static final int RULE_LHEADING = 5;
+    private static final int RULE_HR = 6;
+    private static final int RULE_BLOCKQUOTE = 7;
+    private static final int RULE_LIST = 8;
+    private static final int RULE_HTML = 9;
+    private static final int RULE_DEF = 10;
+    private static final int RULE_TABLE = 11;
+    private static final int RULE_PARAGRAPH = 12;
+    private static final int RULE_TEXT = 13;
+
+    private static final Pattern[] RULES = new Pattern[]{
+            // newline
+            JsRegex.compile("^\\n+"),
+            // code
+            JsRegex.compile("^( {4}[^\\n]+\\n*)+"),
+            // fences
+            JsRegex.compile("^" + FENCES),
+            // heading
+            JsRegex.compile("^ *(#{1,6}) +([^\\n]+?) *#* *(?:\\n+|$)"),
+            // nptable
+            JsRegex.compile("^ *(\\S.*\\|.*)\\n *([-:]+ *\\|[-| :]*)\\n((?:.*\\|.*(?:\\n|$))*)\\n*"),
+            // lheading
+            JsRegex.compile("^" + LHEADING),
+            // hr
+            JsRegex.compile("^" + HR),
+            // blockquote
+            JsRegex.compile("^" + BLOCKQUOTE),
+            // list
+            JsRegex.compile("^" + list("\\1?", "\\1")),
+            // html
+            JsRegex.compile("^ *(?:"
+                    + "<!--[\\s\\S]*?--> *(?:\\n|\\s*$)"
+                    + "|<(" + TAG + ")[\\s\\S]+?<\\/\\1> *(?:\\n{2,}|\\s*$)"
+                    + "|<" + TAG + "(?:\"[^\"]*\"|'[^']*'|[^'\">])*?> *(?:\\n{2,}|\\s*$))"),
+            // def
+            JsRegex.compile("^" + DEF),
+            // table
+            JsRegex.compile("^ *\\|(.+)\\n *\\|( *[-:]+[-| :]*)\\n((?: *\\|.*(?:\\n|$))*)\\n*"),
+            // paragraph
+            // marked shifts the back references of the embedded rules by hand: the list ones target groups which never
+            // participate in the match, they match an empty string in JavaScript, so they are omitted.
+            JsRegex.compile("^((?:[^\\n]+\\n?(?!"
+                    + FENCES.replace("\\1", "\\2")
+                    + "|" + list("", "")
+                    + "|" + HR
+                    + "| *(#{1,6}) *([^\\n]+?) *#* *(?:\\n+|$)"
+                    + "|" + LHEADING
+                    + "|" + BLOCKQUOTE
+                    + "|<" + TAG
+                    + "|" + DEF
+                    + "))+)\\n*"),
+            // text
+            JsRegex.compile("^[^\\n]+"),
+    };
+
+    private static final Pattern BULLET_PATTERN = JsRegex.compile(BULLET);
+    private static final Pattern ITEM_PATTERN = JsRegex.compile("^( *)(" + BULLET + ") [^\\n]*(?:\\n(?!\\1" + BULLET + " )[^\\n]*)*", JsRegex.MULTILINE);
+
+    private static final Pattern CARRIAGE_RETURN_PATTERN = JsRegex.compile("\\r\\n|\\r");
+    private static final Pattern TAB_PATTERN = JsRegex.compile("\\t");
+    private static final Pattern NBSP_PATTERN = JsRegex.compile("\\u00a0");
+    private static final Pattern SYMBOL_FOR_NEWLINE_PATTERN = JsRegex.compile("\\u2424");
+    private static final Pattern BLANK_LINE_PATTERN = JsRegex.compile("^ +$", JsRegex.MULTILINE);
+    private static final Pattern CODE_INDENT_PATTERN = JsRegex.compile("^ {4}", JsRegex.MULTILINE);
+    private static final Pattern TRAILING_NEWLINES_PATTERN = JsRegex.compile("\\n+$");
+    private static final Pattern BLOCKQUOTE_PREFIX_PATTERN = JsRegex.compile("^ *> ?", JsRegex.MULTILINE);
+    private static final Pattern BULLET_PREFIX_PATTERN = JsRegex.compile("^ *([*+-]|\\d+\\.) +");
+    private static final Pattern LOOSE_ITEM_PATTERN = JsRegex.compile("\\n\\n(?!\\s*$)");
+    private static final Pattern NPTABLE_HEADER_TRIM_PATTERN = JsRegex.compile("^ *| *\\| *$");
+    private static final Pattern ALIGN_TRIM_PATTERN = JsRegex.compile("^ *|\\| *$");
+    private static final Pattern CELL_SEPARATOR_PATTERN = JsRegex.compile(" *\\| *");
+    private static final Pattern LAST_NEWLINE_PATTERN = JsRegex.compile("\\n$");
+    private static final Pattern LINE_SEPARATOR_PATTERN = JsRegex.compile("\\n");
+    private static final Pattern TABLE_LAST_ROW_END_PATTERN = JsRegex.compile("(?: *\\| *)?\\n$");
+    private static final Pattern TABLE_ROW_TRIM_PATTERN = JsRegex.compile("^ *\\| *| *\\| *$");
+    private static final Pattern ALIGN_RIGHT_PATTERN = JsRegex.compile("^ *-+: *$");
+    private static final Pattern ALIGN_CENTER_PATTERN = JsRegex.compile("^ *:-+: *$");
+    private static final Pattern ALIGN_LEFT_PATTERN = JsRegex.compile("^ *:-+ *$");
+
+    private final List<Token> mTokens = new ArrayList<>();
+    private final Map<String, Link> mLinks = new HashMap<>();
+
+    /**
+     * Split a markdown text in block tokens.
+     *
+     * @param src the markdown text
+     */
+    BlockLexer(String src) {
+        src = JsRegex.replaceAll(CARRIAGE_RETURN_PATTERN, src, "\n");
+        src = JsRegex.replaceAll(TAB_PATTERN, src, "    ");
+        src = JsRegex.replaceAll(NBSP_PATTERN, src, " ");
+        src = JsRegex.replaceAll(SYMBOL_FOR_NEWLINE_PATTERN, src, "\n");
+
+        token(src, true, false);
+    }
+
+    /**
+     * @return the block tokens
+     */
+    List<Token> getTokens() {
+        return mTokens;
+    }
+
+    /**
+     * @return the link definitions by lower case name
+     */
+    Map<String, Link> getLinks() {
+        return mLinks;
+    }
+
+    private void token(String src, boolean top, boolean bq) {
+        JsRegex.Cursor cursor = new JsRegex.Cursor(RULES, JsRegex.replaceAll(BLANK_LINE_PATTERN, src, ""));
+        Matcher cap;
+
+        while (cursor.hasRemaining()) {
+            // newline
+            if (null != (cap = cursor.exec(RULE_NEWLINE))) {
+                if (cap.group().length() > 1) {
+                    mTokens.add(new Token(Token.SPACE));
+                }
+            }
+
+            // code
+            if (null != (cap = cursor.exec(RULE_CODE))) {
+                String code = JsRegex.replaceAll(CODE_INDENT_PATTERN, cap.group(), "");
+                mTokens.add(new Token(Token.CODE, JsRegex.replaceFirst(TRAILING_NEWLINES_PATTERN, code, "")));
+                continue;
+            }
+
+            // fences
+            if (null != (cap = cursor.exec(RULE_FENCES))) {
+                Token token = new Token(Token.CODE, (null != cap.group(3)) ? cap.group(3) : "");
+                token.mLang = cap.group(2);
+                mTokens.add(token);
+                continue;
+            }
+
+            // heading
+            if (null != (cap = cursor.exec(RULE_HEADING))) {
+                Token token = new Token(Token.HEADING, cap.group(2));
+                token.mDepth = cap.group(1).length();
+                mTokens.add(token);
+                continue;
+            }
+
+            // table no leading pipe
+            if (top && (null != (cap = cursor.exec(RULE_NPTABLE)))) {
+                Token token = new Token(Token.TABLE);
+                token.mHeader = JsRegex.split(CELL_SEPARATOR_PATTERN, JsRegex.replaceAll(NPTABLE_HEADER_TRIM_PATTERN, cap.group(1), ""));
+                token.mAlign = parseAlign(cap.group(2));
+
+                String[] rows = JsRegex.split(LINE_SEPARATOR_PATTERN, JsRegex.replaceFirst(LAST_NEWLINE_PATTERN, cap.group(3), ""));
+                token.mCells = new String[rows.length][];
+
+                for (int i = 0; i < rows.length; i++) {
+                    token.mCells[i] = JsRegex.split(CELL_SEPARATOR_PATTERN, rows[i]);
+                }
+
+                mTokens.add(token);
+                continue;
+            }
+
+            // lheading
+            if (null != (cap = cursor.exec(RULE_LHEADING))) {
+                Token token = new Token(Token.HEADING, cap.group(1));
+                token.mDepth = "=".equals(cap.group(2)) ? 1 : 2;
+                mTokens.add(token);
+                continue;
+            }
+
+            // hr
+            if (null != cursor.exec(RULE_HR)) {
+                mTokens.add(new Token(Token.HR));
+                continue;
+            }
+
+            // blockquote
+            if (null != (cap = cursor.exec(RULE_BLOCKQUOTE))) {
+                mTokens.add(new Token(Token.BLOCKQUOTE_START));
+
+                // keep the current "top level" state
+                token(JsRegex.replaceAll(BLOCKQUOTE_PREFIX_PATTERN, cap.group(), ""), top, true);
+
+                mTokens.add(new Token(Token.BLOCKQUOTE_END));
+                continue;
+            }
+
+            // list
+            if (null != (cap = cursor.exec(RULE_LIST))) {
+                String bull = cap.group(2);
+
+                Token listStart = new Token(Token.LIST_START);
+                listStart.mOrdered = bull.length() > 1;
+                mTokens.add(listStart);
+
+                // get each top level item
+                List<String> items = new ArrayList<>();
+                Matcher itemMatcher = ITEM_PATTERN.matcher(cap.group());
+                while (itemMatcher.find()) {
+                    items.add(itemMatcher.group());
+                }
+
+                boolean next = false;
+                int count = items.size();
+
+                for (int i = 0; i < count; i++) {
+                    String item = items.get(i);
+
+                    // remove the bullet so it is seen as the next token
+                    int space = item.length();
+                    item = JsRegex.replaceFirst(BULLET_PREFIX_PATTERN, item, "");
+
+                    // outdent whatever the list item contains
+                    if (item.contains("\n ")) {
+                        space -= item.length();
+                        item = JsRegex.replaceAll(JsRegex.compile("^ {1," + space + "}", JsRegex.MULTILINE), item, "");
+                    }
+
+                    // backpedal if the next item does not belong to this list
+                    if (i != count - 1) {
+                        Matcher bulletMatcher = BULLET_PATTERN.matcher(items.get(i + 1));
+                        String b = bulletMatcher.find() ? bulletMatcher.group() : "";
+
+                        if (!bull.equals(b) && !((bull.length() > 1) && (b.length() > 1))) {
+                            StringBuilder remaining = new StringBuilder();
+
+                            for (int j = i + 1; j < count; j++) {
+                                if (j > i + 1) {
+                                    remaining.append('\n');
+                                }
+                                remaining.append(items.get(j));
+                            }
+
+                            cursor.setSource(remaining.append(cursor.getRemaining()).toString());
+                            i = count - 1;
+                        }
+                    }
+
+                    // determine whether the item is loose or not
+                    boolean loose = next || JsRegex.test(LOOSE_ITEM_PATTERN, item);
+
+                    if (i != count - 1) {
+                        next = !item.isEmpty() && (item.charAt(item.length() - 1) == '\n');
+
+                        if (!loose) {
+                            loose = next;
+                        }
+                    }
+
+                    mTokens.add(new Token(loose ? Token.LOOSE_ITEM_START : Token.LIST_ITEM_START));
+                    token(item, false, bq);
+                    mTokens.add(new Token(Token.LIST_ITEM_END));
+                }
+
+                mTokens.add(new Token(Token.LIST_END));
+                continue;
+            }
+
+            // html, displayed as text
+            if (null != (cap = cursor.exec(RULE_HTML))) {
+                mTokens.add(new Token(Token.PARAGRAPH, cap.group()));
+                continue;
+            }
+
+            // def
+            if (!bq && top && (null != (cap = cursor.exec(RULE_DEF)))) {
+                mLinks.put(cap.group(1).toLowerCase(Locale.ROOT), new Link(cap.group(2), cap.group(3)));
+                continue;
+            }
+
+            // table
+            if (top && (null != (cap = cursor.exec(RULE_TABLE)))) {
+                Token token = new Token(Token.TABLE);
+                token.mHeader = JsRegex.split(CELL_SEPARATOR_PATTERN, JsRegex.replaceAll(NPTABLE_HEADER_TRIM_PATTERN, cap.group(1), ""));
+                token.mAlign = parseAlign(cap.group(2));
+
+                String[] rows = JsRegex.split(LINE_SEPARATOR_PATTERN, JsRegex.replaceFirst(TABLE_LAST_ROW_END_PATTERN, cap.group(3), ""));
+                token.mCells = new String[rows.length][];
+
+                for (int i = 0; i < rows.length; i++) {
+                    token.mCells[i] = JsRegex.split(CELL_SEPARATOR_PATTERN, JsRegex.replaceAll(TABLE_ROW_TRIM_PATTERN, rows[i], ""));
+                }
+
+                mTokens.add(token);
+                continue;
+            }
+
+            // top level paragraph
+            if (top && (null != (cap = cursor.exec(RULE_PARAGRAPH)))) {
+                String text = cap.group(1);
+
+                if (text.charAt(text.length() - 1) == '\n') {
+                    text = text.substring(0, text.length() - 1);
+                }
+
+                mTokens.add(new Token(Token.PARAGRAPH, text));
+                continue;
+            }
+
+            // text, top level should never reach here
+            if (null != (cap = cursor.exec(RULE_TEXT))) {
+                mTokens.add(new Token(Token.TEXT, cap.group()));
+                continue;
+            }
+
+            if (cursor.hasRemaining()) {
+                throw new IllegalStateException("Infinite loop on byte: " + (int) cursor.getRemaining().charAt(0));
+            }
+        }
+    }
+
+    /**
+     * Parse the table alignment row.
+     *
+     * @param alignRow the alignment row
+     * @return the alignment of each column, null when it is not defined
+     */
+    private static String[] parseAlign(String alignRow) {
+        String[] align = JsRegex.split(CELL_SEPARATOR_PATTERN, JsRegex.replaceAll(ALIGN_TRIM_PATTERN, alignRow, ""));
+
+        for (int i = 0; i < align.length; i++) {
+            if (JsRegex.test(ALIGN_RIGHT_PATTERN, align[i])) {
+                align[i] = "right";
+            } else if (JsRegex.test(ALIGN_CENTER_PATTERN, align[i])) {
+                align[i] = "center";
+            } else if (JsRegex.test(ALIGN_LEFT_PATTERN, align[i])) {
+                align[i] = "left";
+            } else {
+                align[i] = null;
+            }
+        }
+
+        return align;
+    }
+}
@@ -0,0 +1,1056 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util.markdown;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inline level lexer and renderer, port of the marked 0.3 inline lexer with the "gfm", "breaks" and "sanitize" options.
+ */
+final class InlineLexer {
+
+    /* ==========================================================================================
+     * Grammar
+     * ========================================================================================== */
+
+    private static final String INSIDE = "(?:\\[[^\\]]*\\]|[^\\[\\]]|\\](?=[^\\[]*\\]))*";
+    private static final String HREF = "\\s*<?([\\s\\S]*?)>?(?:\\s+['\"]([\\s\\S]*?)['\"])?\\s*";
+
+    private static final int RULE_ESCAPE = 0;
+    private static final int RULE_AUTOLINK = 1;
+    private static final int RULE_URL = 2;
+    private static final int RULE_LINK = 3;
+    private static final int RULE_REFLINK = 4;
+    private static final int RULE_NOLINK = 5;
+    private static final int RULE_BR = 6;
+    private static final int RULE_DEL = 7;
+    private static final int RULE_TEXT = 8;
+
+    private static final Pattern[] RULES = new Pattern[]{
+            // escape
+            JsRegex.compile("^\\\\([\\\\`*{}\\[\\]()#+\\-.!_>~|])"),
+            // autolink
+            JsRegex.compile("^<([^ >]+(@|:\\/)[^ >]+)>"),
+            // url
+            JsRegex.compile("^(https?:\\/\\/[^\\s<]+[^<.,:;\"')\\]\\s])"),
+            // link
+            JsRegex.compile("^!?\\[(" + INSIDE + ")\\]\\(" + HREF + "\\)"),
+            // reflink
+            JsRegex.compile("^!?\\[(" + INSIDE + ")\\]\\s*\\[([^\\]]*)\\]"),
+            // nolink
+            JsRegex.compile("^!?\\[((?:\\[[^\\]]*\\]|[^\\[\\]])*)\\]"),
+            // br
+            JsRegex.compile("^ *\\n(?!\\s*$)"),
+            // del
+            JsRegex.compile("^~~(?=\\S)([\\s\\S]*?\\S)~~"),
+            // text
+            JsRegex.compile("^[\\s\\S]+?(?=[\\\\<!\\[_*`~]|https?:\\/\\/| *\\n|$)"),
+    };
+
+    private static final Pattern LINK_START_TAG_PATTERN = JsRegex.compile("^<a ", JsRegex.IGNORE_CASE);
+    private static final Pattern LINK_END_TAG_PATTERN = JsRegex.compile("^<\\/a>", JsRegex.IGNORE_CASE);
+    private static final Pattern WHITE_SPACES_PATTERN = JsRegex.compile("\\s+");
+    private static final Pattern ENTITY_PATTERN = JsRegex.compile("&([#\\w]+);");
+    private static final Pattern NOT_PROTOCOL_CHAR_PATTERN = JsRegex.compile("[^\\w:]");
+    private static final Pattern NOT_ESCAPED_AMPERSAND_PATTERN = JsRegex.compile("&(?!#?\\w+;)");
+
+    /**
+     * A part of the source.
+     */
+    private static final class Span {
+        final int mStart;
+        final int mEnd;
+
+        Span(int start, int end) {
+            mStart = start;
+            mEnd = end;
+        }
+    }
+
+    /**
+     * A nested part of the source which is being rendered.
+     */
+    private static final class Frame {
+        int mPosition;
+        final int mEnd;
+
+        // the html to append when the part is rendered, null if none
+        final String mClosingTag;
+
+        // true if the part is a link text
+        final boolean mIsLinkText;
+
+        Frame(int position, int end, String closingTag, boolean isLinkText) {
+            mPosition = position;
+            mEnd = end;
+            mClosingTag = closingTag;
+            mIsLinkText = isLinkText;
+        }
+    }
+
+    /**
+     * The backticks runs of a source, to find the closing run of a code span without scanning the source again.
+     */
+    private static final class CodeSpans {
+        private final String mSource;
+
+        // the runs starts by run length
+        private final Map<Integer, List<Integer>> mRunStartsByLength = new HashMap<>();
+        private int mMaxRunLength;
+
+        // the opening run part which has no closing run, with the end of the source part which has been read
+        private int mUnmatchedStart = -1;
+        private int mUnmatchedEnd = -1;
+        private int mUnmatchedBoundsEnd = -1;
+
+        CodeSpans(String source) {
+            mSource = source;
+
+            int i = 0;
+
+            while (i < source.length()) {
+                if (source.charAt(i) != '`') {
+                    i++;
+                    continue;
+                }
+
+                int start = i;
+
+                while ((i < source.length()) && (source.charAt(i) == '`')) {
+                    i++;
+                }
+
+                List<Integer> starts = mRunStartsByLength.get(i - start);
+
+                if (null == starts) {
+                    starts = new ArrayList<>();
+                    mRunStartsByLength.put(i - start, starts);
+                }
+
+                starts.add(start);
+                mMaxRunLength = Math.max(mMaxRunLength, i - start);
+            }
+        }
+
+        /**
+         * Match a code span at the cursor position, which is a backtick.
+         *
+         * @param cursor the cursor, it is moved after the match
+         * @return the code text, null if there is no match
+         */
+        Span match(JsRegex.Cursor cursor) {
+            int position = cursor.getPosition();
+            int end = cursor.getEnd();
+
+            // a shorter opening run has no closing run either
+            if ((position >= mUnmatchedStart) && (position < mUnmatchedEnd) && (end <= mUnmatchedBoundsEnd)) {
+                return null;
+            }
+
+            // the opening run, the characters before the position are not visible
+            int runEnd = position;
+
+            while ((runEnd < end) && (mSource.charAt(runEnd) == '`')) {
+                runEnd++;
+            }
+
+            // the leading white spaces, they are only skipped when the opening run is the whole run
+            int textStart = runEnd;
+
+            while ((textStart < end) && JsRegex.isWhiteSpace(mSource.charAt(textStart))) {
+                textStart++;
+            }
+
+            for (int length = Math.min(runEnd - position, mMaxRunLength); length > 0; length--) {
+                int codeStart = position + length;
+                int closingStart = -1;
+
+                if (codeStart == runEnd) {
+                    // the text starts after the white spaces and it has one character at least
+                    closingStart = findRun(length, textStart + 1, end);
+
+                    // or the text is the last white space and the closing run follows it
+                    if ((-1 == closingStart) && (textStart > runEnd)) {
+                        closingStart = findRun(length, textStart, end);
+
+                        if (closingStart == textStart) {
+                            codeStart = textStart - 1;
+                        } else {
+                            closingStart = -1;
+                        }
+                    } else {
+                        codeStart = textStart;
+                    }
+                } else {
+                    closingStart = findRun(length, runEnd, end);
+                }
+
+                if (-1 != closingStart) {
+                    cursor.setPosition(closingStart + length);
+                    return new Span(codeStart, getCodeEnd(codeStart, closingStart));
+                }
+            }
+
+            mUnmatchedStart = position;
+            mUnmatchedEnd = runEnd;
+            mUnmatchedBoundsEnd = end;
+
+            return null;
+        }
+
+        /**
+         * Find the first backticks run with a length, which is in a part of the source.
+         *
+         * @param length the run length
+         * @param from   the minimum run start
+         * @param end    the end of the source part
+         * @return the run start, -1 if there is none
+         */
+        private int findRun(int length, int from, int end) {
+            List<Integer> starts = mRunStartsByLength.get(length);
+
+            if (null == starts) {
+                return -1;
+            }
+
+            // binary search of the first start after from
+            int low = 0;
+            int high = starts.size();
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+
+                if (starts.get(middle) < from) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            if ((low < starts.size()) && (starts.get(low) + length <= end)) {
+                return starts.get(low);
+            }
+
+            return -1;
+        }
+
+        /**
+         * The code text ends at the first character which is followed by white spaces only,
+         * and which is not a backtick.
+         *
+         * @param codeStart    the code text start
+         * @param closingStart the closing run start
+         * @return the code text end
+         */
+        private int getCodeEnd(int codeStart, int closingStart) {
+            int codeEnd = closingStart;
+
+            while ((codeEnd > codeStart) && JsRegex.isWhiteSpace(mSource.charAt(codeEnd - 1))) {
+                codeEnd--;
+            }
+
+            if ((codeEnd > codeStart) && (mSource.charAt(codeEnd - 1) != '`')) {
+                return codeEnd;
+            }
+
+            return Math.max(codeEnd, codeStart) + 1;
+        }
+    }
+
+    private final Map<String, BlockLexer.Link> mLinks;
+
+    private boolean mInLink;
+
+    // the code spans of the rendered source, built when a backtick is found
+    private CodeSpans mCodeSpans;
+
+    // the last closing bracket and parenthesis of the rendered source, the links are not searched after them
+    private int mLastBracketIndex;
+    private int mLastParenthesisIndex;
+    private int mLastAngleBracketIndex;
+
+    // the next comment end, searched from mCommentEndSearchIndex, -1 if there is none
+    private int mCommentEndIndex;
+    private int mCommentEndSearchIndex;
+
+    /**
+     * @param links the link definitions by lower case name
+     */
+    InlineLexer(Map<String, BlockLexer.Link> links) {
+        mLinks = links;
+    }
+
+    /**
+     * Render an inline text.
+     *
+     * @param src the text
+     * @return the html text
+     */
+    String output(String src) {
+        StringBuilder out = new StringBuilder(src.length() + 16);
+        output(src, out);
+        return out.toString();
+    }
+
+    /**
+     * Render an inline text.
+     * The nested parts (strong, em, del, link texts) are rendered with a stack instead of recursive calls,
+     * so that a deep nesting cannot overflow the thread stack.
+     *
+     * @param src the text
+     * @param out the html output
+     */
+    void output(String src, StringBuilder out) {
+        JsRegex.Cursor cursor = new JsRegex.Cursor(RULES, src);
+        Deque<Frame> frames = new ArrayDeque<>();
+
+        mCodeSpans = null;
+        mLastBracketIndex = src.lastIndexOf(']');
+        mLastParenthesisIndex = src.lastIndexOf(')');
+        mLastAngleBracketIndex = src.lastIndexOf('>');
+        mCommentEndIndex = -1;
+        mCommentEndSearchIndex = Integer.MAX_VALUE;
+
+        frames.push(new Frame(0, src.length(), null, false));
+
+        while (!frames.isEmpty()) {
+            Frame frame = frames.peek();
+
+            if (frame.mPosition >= frame.mEnd) {
+                frames.pop();
+
+                if (null != frame.mClosingTag) {
+                    out.append(frame.mClosingTag);
+                }
+
+                if (frame.mIsLinkText) {
+                    mInLink = false;
+                }
+                continue;
+            }
+
+            cursor.setBounds(frame.mPosition, frame.mEnd);
+            Frame child = outputToken(cursor, out);
+            frame.mPosition = cursor.getPosition();
+
+            if (null != child) {
+                frames.push(child);
+            }
+        }
+    }
+
+    /**
+     * Render the token at the cursor position.
+     *
+     * @param cursor the cursor, it is moved after the token
+     * @param out    the html output
+     * @return the nested part to render before the next token, null if there is none
+     */
+    private Frame outputToken(JsRegex.Cursor cursor, StringBuilder out) {
+        Matcher cap;
+        Span span;
+
+        // escape
+        if (null != (cap = cursor.exec(RULE_ESCAPE))) {
+            out.append(cap.group(1));
+            return null;
+        }
+
+        // autolink, it needs a closing angle bracket
+        if ((mLastAngleBracketIndex > cursor.getPosition()) && (null != (cap = cursor.exec(RULE_AUTOLINK)))) {
+            String text;
+            String href;
+
+            if ("@".equals(cap.group(2))) {
+                String address = cap.group(1);
+                text = ((address.length() > 6) && (address.charAt(6) == ':')) ? mangle(address.substring(7)) : mangle(address);
+                href = mangle("mailto:") + text;
+            } else {
+                text = escape(cap.group(1), false);
+                href = text;
+            }
+
+            out.append(link(href, null, text));
+            return null;
+        }
+
+        // url
+        if (!mInLink && (null != (cap = cursor.exec(RULE_URL)))) {
+            String text = escape(cap.group(1), false);
+            out.append(link(text, null, text));
+            return null;
+        }
+
+        // tag, displayed as text
+        if (null != (span = matchTag(cursor))) {
+            String tag = cursor.getSource().substring(span.mStart, span.mEnd);
+
+            if (!mInLink && JsRegex.test(LINK_START_TAG_PATTERN, tag)) {
+                mInLink = true;
+            } else if (mInLink && JsRegex.test(LINK_END_TAG_PATTERN, tag)) {
+                mInLink = false;
+            }
+
+            out.append(escape(tag, false));
+            return null;
+        }
+
+        // the links need a closing bracket, the inline links need a closing parenthesis too
+        boolean mayBeLink = mLastBracketIndex > cursor.getPosition();
+
+        // link
+        if (mayBeLink && (mLastParenthesisIndex > cursor.getPosition()) && (null != (cap = cursor.exec(RULE_LINK)))) {
+            return outputLink(cap, cap.group(2), cap.group(3), out);
+        }
+
+        // reflink, nolink
+        if (mayBeLink && ((null != (cap = cursor.exec(RULE_REFLINK))) || (null != (cap = cursor.exec(RULE_NOLINK))))) {
+            String whole = cap.group();
+            String name = JsRegex.replaceAll(WHITE_SPACES_PATTERN, firstNonEmpty(groupOrNull(cap, 2), cap.group(1)), " ");
+            BlockLexer.Link link = mLinks.get(name.toLowerCase(Locale.ROOT));
+
+            if ((null == link) || isEmpty(link.mHref)) {
+                out.append(whole.charAt(0));
+                // parse the remaining part of the match again
+                cursor.setPosition(cursor.getPosition() - whole.length() + 1);
+                return null;
+            }
+
+            return outputLink(cap, link.mHref, link.mTitle, out);
+        }
+
+        // strong
+        if (null != (span = matchStrong(cursor))) {
+            out.append("<strong>");
+            return new Frame(span.mStart, span.mEnd, "</strong>", false);
+        }
+
+        // em
+        if (null != (span = matchEm(cursor))) {
+            out.append("<em>");
+            return new Frame(span.mStart, span.mEnd, "</em>", false);
+        }
+
+        // code
+        if (null != (span = matchCode(cursor))) {
+            out.append("<code>").append(escape(cursor.getSource().substring(span.mStart, span.mEnd), true)).append("</code>");
+            return null;
+        }
+
+        // br
+        if (null != cursor.exec(RULE_BR)) {
+            out.append("<br>");
+            return null;
+        }
+
+        // del
+        if (null != (cap = cursor.exec(RULE_DEL))) {
+            out.append("<del>");
+            return new Frame(cap.start(1), cap.end(1), "</del>", false);
+        }
+
+        // text
+        if (null != (cap = cursor.exec(RULE_TEXT))) {
+            out.append(escape(cap.group(), false));
+            return null;
+        }
+
+        if (cursor.hasRemaining()) {
+            throw new IllegalStateException("Infinite loop on byte: " + (int) cursor.getRemaining().charAt(0));
+        }
+
+        return null;
+    }
+
+    /* ==========================================================================================
+     * Emphasis and code spans
+     * The marked rules have nested lazy quantifiers, they are replaced by single forward scans
+     * which give the same matches without backtracking.
+     * ========================================================================================== */
+
+    /**
+     * Same as the marked rule: ^__([\s\S]+?)__(?!_)|^\*\*([\s\S]+?)\*\*(?!\*)
+     *
+     * @param cursor the cursor, it is moved after the match
+     * @return the strong text, null if there is no match
+     */
+    private static Span matchStrong(JsRegex.Cursor cursor) {
+        String src = cursor.getSource();
+        int position = cursor.getPosition();
+        int end = cursor.getEnd();
+
+        if (position + 5 > end) {
+            return null;
+        }
+
+        char delimiter = src.charAt(position);
+
+        if (((delimiter != '_') && (delimiter != '*')) || (src.charAt(position + 1) != delimiter)) {
+            return null;
+        }
+
+        // the first delimiters pair which is not followed by the delimiter, after one character at least
+        for (int i = position + 3; i + 1 < end; i++) {
+            if ((src.charAt(i) == delimiter) && (src.charAt(i + 1) == delimiter) && ((i + 2 == end) || (src.charAt(i + 2) != delimiter))) {
+                cursor.setPosition(i + 2);
+                return new Span(position + 2, i);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Same as the marked rule: ^\b_((?:[^_]|__)+?)_\b|^\*((?:\*\*|[\s\S])+?)\*(?!\*)
+     *
+     * @param cursor the cursor, it is moved after the match
+     * @return the emphasized text, null if there is no match
+     */
+    private static Span matchEm(JsRegex.Cursor cursor) {
+        String src = cursor.getSource();
+        int position = cursor.getPosition();
+        int end = cursor.getEnd();
+
+        if (position + 2 >= end) {
+            return null;
+        }
+
+        int closing = -1;
+
+        if (src.charAt(position) == '_') {
+            // the word boundary before the delimiter is always found: nothing is visible before the position
+            int i = position + 1;
+
+            // the units are a character which is not a delimiter or a delimiters pair, the first one is mandatory
+            while (i < end) {
+                if ((i > position + 1) && (src.charAt(i) == '_') && ((i + 1 == end) || !JsRegex.isWordChar(src.charAt(i + 1)))) {
+                    closing = i;
+                    break;
+                }
+
+                if (src.charAt(i) != '_') {
+                    i++;
+                } else if ((i + 1 < end) && (src.charAt(i + 1) == '_')) {
+                    i += 2;
+                } else {
+                    break;
+                }
+            }
+        } else if (src.charAt(position) == '*') {
+            // the units are a delimiters pair or any character, the pairs are tried first
+            int i = position + 1;
+            int lastPair = -1;
+
+            while (i < end) {
+                if ((i > position + 1) && (src.charAt(i) == '*') && ((i + 1 == end) || (src.charAt(i + 1) != '*'))) {
+                    closing = i;
+                    break;
+                }
+
+                if ((i + 1 < end) && (src.charAt(i) == '*') && (src.charAt(i + 1) == '*')) {
+                    lastPair = i;
+                    i += 2;
+                } else {
+                    i++;
+                }
+            }
+
+            // the regex would backtrack to the last pair and read it as a single character:
+            // the second delimiter of this pair is the closing one, it is not followed by a delimiter
+            if ((-1 == closing) && (-1 != lastPair)) {
+                closing = lastPair + 1;
+            }
+        }
+
+        if (-1 == closing) {
+            return null;
+        }
+
+        cursor.setPosition(closing + 1);
+        return new Span(position + 1, closing);
+    }
+
+    /**
+     * Same as the marked rule: ^<!--[\s\S]*?-->|^<\/?\w+(?:"[^"]*"|'[^']*'|[^'">])*?>
+     *
+     * @param cursor the cursor, it is moved after the match
+     * @return the tag, null if there is no match
+     */
+    private Span matchTag(JsRegex.Cursor cursor) {
+        String src = cursor.getSource();
+        int position = cursor.getPosition();
+        int end = cursor.getEnd();
+
+        // both branches need a closing angle bracket
+        if ((src.charAt(position) != '<') || (mLastAngleBracketIndex <= position)) {
+            return null;
+        }
+
+        if (src.startsWith("<!--", position)) {
+            // the comment ends at the first "-->" after the opening, which is searched once for all the comments
+            if ((position + 4 < mCommentEndSearchIndex) || ((-1 != mCommentEndIndex) && (mCommentEndIndex < position + 4))) {
+                mCommentEndSearchIndex = position + 4;
+                mCommentEndIndex = src.indexOf("-->", mCommentEndSearchIndex);
+            }
+
+            if ((-1 == mCommentEndIndex) || (mCommentEndIndex + 3 > end)) {
+                return null;
+            }
+
+            cursor.setPosition(mCommentEndIndex + 3);
+            return new Span(position, mCommentEndIndex + 3);
+        }
+
+        int i = position + 1;
+
+        if ((i < end) && (src.charAt(i) == '/')) {
+            i++;
+        }
+
+        if ((i >= end) || !JsRegex.isWordChar(src.charAt(i))) {
+            return null;
+        }
+
+        // the quoted attributes values may contain the closing character
+        while (i < end) {
+            char c = src.charAt(i);
+
+            if (c == '>') {
+                cursor.setPosition(i + 1);
+                return new Span(position, i + 1);
+            }
+
+            if ((c == '"') || (c == '\'')) {
+                int closingQuote = src.indexOf(c, i + 1);
+
+                if ((-1 == closingQuote) || (closingQuote >= end)) {
+                    return null;
+                }
+
+                i = closingQuote + 1;
+            } else {
+                i++;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Same as the marked rule: ^(`+)\s*([\s\S]*?[^`])\s*\1(?!`)
+     * The regex opens the span with the longest backticks run which has a closing run of the same length,
+     * the closing run is the first one, and the text is trimmed.
+     *
+     * @param cursor the cursor, it is moved after the match
+     * @return the code text, null if there is no match
+     */
+    private Span matchCode(JsRegex.Cursor cursor) {
+        String src = cursor.getSource();
+        int position = cursor.getPosition();
+        int end = cursor.getEnd();
+
+        if (src.charAt(position) != '`') {
+            return null;
+        }
+
+        if (null == mCodeSpans) {
+            mCodeSpans = new CodeSpans(src);
+        }
+
+        return mCodeSpans.match(cursor);
+    }
+
+    /**
+     * Render a link or an image.
+     *
+     * @param cap   the link match, the text is the first group
+     * @param href  the link target
+     * @param title the link title, null if none
+     * @param out   the html output
+     * @return the link text to render, null if there is none
+     */
+    private Frame outputLink(Matcher cap, String href, String title, StringBuilder out) {
+        String escapedHref = escape(href, false);
+        String escapedTitle = isEmpty(title) ? null : escape(title, false);
+
+        if (cap.group().charAt(0) != '!') {
+            String linkStart = linkStart(escapedHref, escapedTitle);
+
+            // the scripts links are removed with their text
+            if (null == linkStart) {
+                mInLink = false;
+                return null;
+            }
+
+            mInLink = true;
+            out.append(linkStart);
+            return new Frame(cap.start(1), cap.end(1), "</a>", true);
+        }
+
+        out.append("<img src=\"").append(escapedHref).append("\" alt=\"").append(escape(cap.group(1), false)).append('"');
+
+        if (null != escapedTitle) {
+            out.append(" title=\"").append(escapedTitle).append('"');
+        }
+
+        out.append('>');
+        mInLink = false;
+        return null;
+    }
+
+    /**
+     * Render a link, the scripts are removed.
+     *
+     * @param href  the escaped target
+     * @param title the escaped title, null if none
+     * @param text  the html text
+     * @return the html link
+     */
+    private static String link(String href, String title, String text) {
+        String linkStart = linkStart(href, title);
+
+        if (null == linkStart) {
+            return "";
+        }
+
+        return linkStart + text + "</a>";
+    }
+
+    /**
+     * Render the start tag of a link.
+     *
+     * @param href  the escaped target
+     * @param title the escaped title, null if none
+     * @return the html start tag, null if the link is a script
+     */
+    private static String linkStart(String href, String title) {
+        String protocol = decodeURIComponent(unescape(href));
+
+        if (null == protocol) {
+            return null;
+        }
+
+        protocol = JsRegex.replaceAll(NOT_PROTOCOL_CHAR_PATTERN, protocol, "").toLowerCase(Locale.ROOT);
+
+        if (protocol.startsWith("javascript:") || protocol.startsWith("vbscript:")) {
+            return null;
+        }
+
+        StringBuilder out = new StringBuilder("<a href=\"").append(href).append('"');
+
+        if (!isEmpty(title)) {
+            out.append(" title=\"").append(title).append('"');
+        }
+
+        return out.append('>').toString();
+    }
+
+    /**
+     * Encode a text with html entities.
+     * marked picks randomly the decimal or hexadecimal form, the decimal one is always used here.
+     *
+     * @param text the text
+     * @return the encoded text
+     */
+    private static String mangle(String text) {
+        StringBuilder out = new StringBuilder(text.length() * 6);
+
+        for (int i = 0; i < text.length(); i++) {
+            out.append("&#").append((int) text.charAt(i)).append(';');
+        }
+
+        return out.toString();
+    }
+
+    /* ==========================================================================================
+     * Helpers
+     * ========================================================================================== */
+
+    /**
+     * Escape the html special characters.
+     *
+     * @param html   the text
+     * @param encode true to encode the existing entities
+     * @return the escaped text
+     */
+    static String escape(String html, boolean encode) {
+        StringBuilder out = null;
+        Matcher entityMatcher = null;
+
+        for (int i = 0; i < html.length(); i++) {
+            char c = html.charAt(i);
+            String replacement;
+
+            switch (c) {
+                case '&':
+                    if (!encode) {
+                        if (null == entityMatcher) {
+                            entityMatcher = NOT_ESCAPED_AMPERSAND_PATTERN.matcher(html);
+                        }
+                        entityMatcher.region(i, html.length());
+                        replacement = entityMatcher.lookingAt() ? "&amp;" : null;
+                    } else {
+                        replacement = "&amp;";
+                    }
+                    break;
+                case '<':
+                    replacement = "&lt;";
+                    break;
+                case '>':
+                    replacement = "&gt;";
+                    break;
+                case '"':
+                    replacement = "&quot;";
+                    break;
+                case '\'':
+                    replacement = "&#39;";
+                    break;
+                default:
+                    replacement = null;
+                    break;
+            }
+
+            if (null != replacement) {
+                if (null == out) {
+                    out = new StringBuilder(html.length() + 16).append(html, 0, i);
+                }
+                out.append(replacement);
+            } else if (null != out) {
+                out.append(c);
+            }
+        }
+
+        return (null == out) ? html : out.toString();
+    }
+
+    /**
+     * Decode the html entities which may hide a script protocol.
+     *
+     * @param html the html text
+     * @return the decoded text
+     */
+    private static String unescape(String html) {
+        Matcher matcher = ENTITY_PATTERN.matcher(html);
+
+        if (!matcher.find()) {
+            return html;
+        }
+
+        StringBuilder out = new StringBuilder(html.length());
+        int last = 0;
+
+        do {
+            out.append(html, last, matcher.start());
+
+            String name = matcher.group(1).toLowerCase(Locale.ROOT);
+
+            if ("colon".equals(name)) {
+                out.append(':');
+            } else if (name.charAt(0) == '#') {
+                double code = ((name.length() > 1) && (name.charAt(1) == 'x')) ? parseHexInt(name.substring(2)) : toNumber(name.substring(1));
+                out.append(toUint16(code));
+            }
+
+            last = matcher.end();
+        } while (matcher.find());
+
+        return out.append(html, last, html.length()).toString();
+    }
+
+    /**
+     * Same as the JavaScript parseInt(text, 16).
+     */
+    private static double parseHexInt(String text) {
+        if (text.startsWith("0x")) {
+            text = text.substring(2);
+        }
+
+        double value = 0;
+        int i = 0;
+
+        for (; i < text.length(); i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+
+            if ((digit < 0) || (text.charAt(i) > 'f')) {
+                break;
+            }
+
+            value = value * 16 + digit;
+        }
+
+        return (i == 0) ? Double.NaN : value;
+    }
+
+    /**
+     * Same as the JavaScript Number(text) for a text made of word characters.
+     */
+    private static double toNumber(String text) {
+        if (text.isEmpty()) {
+            return 0;
+        }
+
+        if (text.matches("0x[0-9a-f]+")) {
+            return new BigInteger(text.substring(2), 16).doubleValue();
+        } else if (text.matches("0o[0-7]+")) {
+            return new BigInteger(text.substring(2), 8).doubleValue();
+        } else if (text.matches("0b[01]+")) {
+            return new BigInteger(text.substring(2), 2).doubleValue();
+        } else if (text.matches("[0-9]+(e[0-9]+)?")) {
+            return Double.parseDouble(text);
+        }
+
+        return Double.NaN;
+    }
+
+    /**
+     * Same as the JavaScript String.fromCharCode(value).
+     */
+    private static char toUint16(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return 0;
+        }
+
+        return (char) new BigDecimal(value).toBigInteger().intValue();
+    }
+
+    /**
+     * Same as the JavaScript decodeURIComponent().
+     *
+     * @param text the encoded text
+     * @return the decoded text, null if the text is malformed
+     */
+    private static String decodeURIComponent(String text) {
+        if (text.indexOf('%') < 0) {
+            return text;
+        }
+
+        StringBuilder out = new StringBuilder(text.length());
+        int length = text.length();
+
+        for (int k = 0; k < length; k++) {
+            char c = text.charAt(k);
+
+            if (c != '%') {
+                out.append(c);
+                continue;
+            }
+
+            int b = decodeByte(text, k);
+
+            if (b < 0) {
+                return null;
+            }
+            k += 2;
+
+            if ((b & 0x80) == 0) {
+                out.append((char) b);
+                continue;
+            }
+
+            int n;
+            int codePoint;
+            int minCodePoint;
+
+            if ((b & 0xE0) == 0xC0) {
+                n = 2;
+                codePoint = b & 0x1F;
+                minCodePoint = 0x80;
+            } else if ((b & 0xF0) == 0xE0) {
+                n = 3;
+                codePoint = b & 0x0F;
+                minCodePoint = 0x800;
+            } else if ((b & 0xF8) == 0xF0) {
+                n = 4;
+                codePoint = b & 0x07;
+                minCodePoint = 0x10000;
+            } else {
+                return null;
+            }
+
+            for (int j = 1; j < n; j++) {
+                k++;
+
+                if ((k >= length) || (text.charAt(k) != '%')) {
+                    return null;
+                }
+
+                int continuation = decodeByte(text, k);
+
+                if ((continuation < 0) || ((continuation & 0xC0) != 0x80)) {
+                    return null;
+                }
+
+                k += 2;
+                codePoint = (codePoint << 6) | (continuation & 0x3F);
+            }
+
+            if ((codePoint < minCodePoint) || (codePoint > 0x10FFFF) || ((codePoint >= 0xD800) && (codePoint <= 0xDFFF))) {
+                return null;
+            }
+
+            out.appendCodePoint(codePoint);
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * @return the byte encoded after the '%' at the position, -1 if it is malformed
+     */
+    private static int decodeByte(String text, int position) {
+        if (position + 2 >= text.length()) {
+            return -1;
+        }
+
+        int high = Character.digit(text.charAt(position + 1), 16);
+        int low = Character.digit(text.charAt(position + 2), 16);
+
+        if ((high < 0) || (low < 0) || (text.charAt(position + 1) > 'f') || (text.charAt(position + 2) > 'f')) {
+            return -1;
+        }
+
+        return (high << 4) | low;
+    }
+
+    /**
+     * @return the group value, null if the pattern has no such group
+     */
+    private static String groupOrNull(Matcher matcher, int group) {
+        return (group <= matcher.groupCount()) ? matcher.group(group) : null;
+    }
+
+    /**
+     * Same as the JavaScript (first || second).
+     */
+    private static String firstNonEmpty(String first, String second) {
+        return isEmpty(first) ? second : first;
+    }
+
+    private static boolean isEmpty(String text) {
+        return (null == text) || text.isEmpty();
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util.markdown;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compile the JavaScript regular expressions of the markdown grammar into java patterns
+ * with the JavaScript semantic, whatever the regex engine (JDK or ICU on Android):
+ * <ul>
+ * <li>\s is the JavaScript white spaces set, \w, \d and \b are ASCII only.</li>
+ * <li>. does not match the line terminators.</li>
+ * <li>$ only matches at the end of the input (or before a line terminator in multiline mode).</li>
+ * </ul>
+ */
+final class JsRegex {
+    // the JavaScript flags
+    static final int MULTILINE = 1;
+    static final int IGNORE_CASE = 2;
+
+    private static final String WHITE_SPACES = "\\t\\n\\u000B\\f\\r \\u00A0\\u1680\\u2000-\\u200A\\u2028\\u2029\\u202F\\u205F\\u3000\\uFEFF";
+    private static final String WORD_CHARS = "A-Za-z0-9_";
+    private static final String LINE_TERMINATORS = "\\n\\r\\u2028\\u2029";
+
+    private static final String WORD_BOUNDARY = "(?:(?<=[" + WORD_CHARS + "])(?![" + WORD_CHARS + "])|(?<![" + WORD_CHARS + "])(?=[" + WORD_CHARS + "]))";
+
+    private JsRegex() {
+    }
+
+    /**
+     * Same as the JavaScript \s class.
+     *
+     * @param c the character
+     * @return true if it is a white space
+     */
+    static boolean isWhiteSpace(char c) {
+        switch (c) {
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+            case ' ':
+            case '\u00A0':
+            case '\u1680':
+            case '\u2028':
+            case '\u2029':
+            case '\u202F':
+            case '\u205F':
+            case '\u3000':
+            case '\uFEFF':
+                return true;
+            default:
+                return (c >= '\u2000') && (c <= '\u200A');
+        }
+    }
+
+    /**
+     * Same as the JavaScript \w class.
+     *
+     * @param c the character
+     * @return true if it is an ASCII word character
+     */
+    static boolean isWordChar(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_');
+    }
+
+    /**
+     * Compile a JavaScript regular expression source.
+     *
+     * @param source the JavaScript source
+     * @return the pattern
+     */
+    static Pattern compile(String source) {
+        return compile(source, 0);
+    }
+
+    /**
+     * Compile a JavaScript regular expression source.
+     *
+     * @param source the JavaScript source
+     * @param flags  the JavaScript flags, a combination of MULTILINE and IGNORE_CASE
+     * @return the pattern
+     */
+    static Pattern compile(String source, int flags) {
+        boolean multiline = (flags & MULTILINE) != 0;
+        StringBuilder builder = new StringBuilder(source.length() * 2);
+        boolean inClass = false;
+
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+
+            if (c == '\\') {
+                char escaped = source.charAt(++i);
+
+                switch (escaped) {
+                    case 's':
+                        builder.append(inClass ? WHITE_SPACES : "[" + WHITE_SPACES + "]");
+                        break;
+                    case 'S':
+                        // a nested class is an union when it is inside a class
+                        builder.append("[^" + WHITE_SPACES + "]");
+                        break;
+                    case 'w':
+                        builder.append(inClass ? WORD_CHARS : "[" + WORD_CHARS + "]");
+                        break;
+                    case 'W':
+                        builder.append("[^" + WORD_CHARS + "]");
+                        break;
+                    case 'd':
+                        builder.append(inClass ? "0-9" : "[0-9]");
+                        break;
+                    case 'b':
+                        builder.append(inClass ? "\\x08" : WORD_BOUNDARY);
+                        break;
+                    case '/':
+                        builder.append('/');
+                        break;
+                    default:
+                        builder.append(c).append(escaped);
+                        break;
+                }
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                    builder.append(c);
+                } else if ((c == '[') || (c == '&')) {
+                    // literals in a JavaScript class
+                    builder.append('\\').append(c);
+                } else {
+                    builder.append(c);
+                }
+            } else if (c == '[') {
+                inClass = true;
+                builder.append(c);
+
+                // keep the negation
+                if ((i + 1 < source.length()) && (source.charAt(i + 1) == '^')) {
+                    builder.append('^');
+                    i++;
+                }
+            } else if (c == '.') {
+                builder.append("[^" + LINE_TERMINATORS + "]");
+            } else if (c == '$') {
+                builder.append(multiline ? "(?=[" + LINE_TERMINATORS + "]|\\z)" : "\\z");
+            } else if ((c == '^') && multiline) {
+                builder.append("(?:^|(?<=[" + LINE_TERMINATORS + "]))");
+            } else {
+                builder.append(c);
+            }
+        }
+
+        return Pattern.compile(builder.toString(), ((flags & IGNORE_CASE) != 0) ? Pattern.CASE_INSENSITIVE : 0);
+    }
+
+    /**
+     * Same as the JavaScript String.replace() with a global regex.
+     *
+     * @param pattern     the pattern
+     * @param input       the input
+     * @param replacement the literal replacement
+     * @return the updated string
+     */
+    static String replaceAll(Pattern pattern, String input, String replacement) {
+        return pattern.matcher(input).replaceAll(Matcher.quoteReplacement(replacement));
+    }
+
+    /**
+     * Same as the JavaScript String.replace() with a non global regex.
+     *
+     * @param pattern     the pattern
+     * @param input       the input
+     * @param replacement the literal replacement
+     * @return the updated string
+     */
+    static String replaceFirst(Pattern pattern, String input, String replacement) {
+        return pattern.matcher(input).replaceFirst(Matcher.quoteReplacement(replacement));
+    }
+
+    /**
+     * Same as the JavaScript String.split(), the trailing empty strings are kept.
+     *
+     * @param pattern the separator
+     * @param input   the input
+     * @return the split strings
+     */
+    static String[] split(Pattern pattern, String input) {
+        return pattern.split(input, -1);
+    }
+
+    /**
+     * Same as the JavaScript RegExp.test().
+     *
+     * @param pattern the pattern
+     * @param input   the input
+     * @return true if the pattern is found
+     */
+    static boolean test(Pattern pattern, String input) {
+        return pattern.matcher(input).find();
+    }
+
+    /**
+     * Apply the rules of a grammar from a position of a source, like the JavaScript RegExp.exec()
+     * on the remaining part of the source, without copying it.
+     * The source can be bounded, the rules do not see what is after the end, as on a substring.
+     * A matcher is created once per rule.
+     */
+    static final class Cursor {
+        private final Pattern[] mRules;
+        private final Matcher[] mMatchers;
+
+        private String mSource;
+        private int mPosition;
+        private int mEnd;
+
+        Cursor(Pattern[] rules, String source) {
+            mRules = rules;
+            mMatchers = new Matcher[rules.length];
+            mSource = source;
+            mEnd = source.length();
+        }
+
+        /**
+         * @return true if the source has not been fully consumed
+         */
+        boolean hasRemaining() {
+            return mPosition < mEnd;
+        }
+
+        /**
+         * @return the source, whatever the bounds
+         */
+        String getSource() {
+            return mSource;
+        }
+
+        /**
+         * @return the end of the source part which is read
+         */
+        int getEnd() {
+            return mEnd;
+        }
+
+        /**
+         * Read only a part of the source.
+         *
+         * @param position the new position
+         * @param end      the end of the part
+         */
+        void setBounds(int position, int end) {
+            mPosition = position;
+            mEnd = end;
+        }
+
+        /**
+         * @return the position in the source
+         */
+        int getPosition() {
+            return mPosition;
+        }
+
+        /**
+         * Move in the source.
+         *
+         * @param position the new position
+         */
+        void setPosition(int position) {
+            mPosition = position;
+        }
+
+        /**
+         * @return the source from the current position
+         */
+        String getRemaining() {
+            return mSource.substring(mPosition, mEnd);
+        }
+
+        /**
+         * Replace the source, the position is reset.
+         *
+         * @param source the new source
+         */
+        void setSource(String source) {
+            mSource = source;
+            mPosition = 0;
+            mEnd = source.length();
+
+            for (Matcher matcher : mMatchers) {
+                if (null != matcher) {
+                    matcher.reset(source);
+                }
+            }
+        }
+
+        /**
+         * Apply a rule at the current position.
+         * The position is moved after the match.
+         *
+         * @param rule the rule index
+         * @return the matcher on success, null if the rule does not match
+         */
+        Matcher exec(int rule) {
+            Matcher matcher = mMatchers[rule];
+
+            if (null == matcher) {
+                matcher = mRules[rule].matcher(mSource);
+                mMatchers[rule] = matcher;
+            }
+
+            // the anchoring bounds make ^ match at the current position, the opaque bounds hide what has been consumed
+            matcher.region(mPosition, mEnd);
+
+            if (!matcher.lookingAt()) {
+                return null;
+            }
+
+            mPosition = matcher.end();
+            return matcher;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util.markdown;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Markdown to html renderer.
+ * This is a java port of the marked 0.3 library used by the former WebView parser, with the same options
+ * (gfm, tables, breaks, sanitize, smartLists), so that the messages are formatted as before.
+ * It has no Android dependency and it can be used from any thread.
+ */
+public final class MarkdownRenderer {
+
+    private static final Pattern NOT_WORD_CHARS_PATTERN = JsRegex.compile("[^\\w]+");
+
+    private final List<BlockLexer.Token> mTokens;
+    private final InlineLexer mInlineLexer;
+
+    private int mTokenIndex;
+
+    private MarkdownRenderer(BlockLexer lexer) {
+        mTokens = lexer.getTokens();
+        mInlineLexer = new InlineLexer(lexer.getLinks());
+    }
+
+    /**
+     * Convert a markdown text to html.
+     *
+     * @param markdownText the markdown text
+     * @return the html text
+     * @throws IllegalStateException if the text cannot be parsed
+     */
+    public static String render(String markdownText) {
+        MarkdownRenderer renderer = new MarkdownRenderer(new BlockLexer(markdownText));
+        StringBuilder out = new StringBuilder(markdownText.length() * 2);
+
+        while (renderer.hasNext()) {
+            renderer.tok(renderer.next(), out);
+        }
+
+        return out.toString();
+    }
+
+    private boolean hasNext() {
+        return mTokenIndex < mTokens.size();
+    }
+
+    private BlockLexer.Token next() {
+        return mTokens.get(mTokenIndex++);
+    }
+
+    private int peekType() {
+        return hasNext() ? mTokens.get(mTokenIndex).mType : -1;
+    }
+
+    /**
+     * Merge the consecutive text tokens and render them.
+     */
+    private void parseText(BlockLexer.Token token, StringBuilder out) {
+        String body = token.mText;
+
+        if (peekType() == BlockLexer.Token.TEXT) {
+            StringBuilder builder = new StringBuilder(body);
+
+            while (peekType() == BlockLexer.Token.TEXT) {
+                builder.append('\n').append(next().mText);
+            }
+
+            body = builder.toString();
+        }
+
+        mInlineLexer.output(body, out);
+    }
+
+    /**
+     * Render a token.
+     *
+     * @param token the token
+     * @param out   the html output
+     */
+    private void tok(BlockLexer.Token token, StringBuilder out) {
+        switch (token.mType) {
+            case BlockLexer.Token.SPACE:
+                break;
+            case BlockLexer.Token.HR:
+                out.append("<hr>\n");
+                break;
+            case BlockLexer.Token.HEADING:
+                out.append("<h").append(token.mDepth)
+                        .append(" id=\"").append(JsRegex.replaceAll(NOT_WORD_CHARS_PATTERN, token.mText.toLowerCase(Locale.ROOT), "-")).append("\">");
+                mInlineLexer.output(token.mText, out);
+                out.append("</h").append(token.mDepth).append(">\n");
+                break;
+            case BlockLexer.Token.CODE:
+                if (null == token.mLang || token.mLang.isEmpty()) {
+                    out.append("<pre><code>").append(InlineLexer.escape(token.mText, true)).append("\n</code></pre>");
+                } else {
+                    out.append("<pre><code class=\"").append(InlineLexer.escape(token.mLang, true)).append("\">")
+                            .append(InlineLexer.escape(token.mText, true)).append("\n</code></pre>\n");
+                }
+                break;
+            case BlockLexer.Token.TABLE:
+                out.append("<table>\n<thead>\n<tr>\n");
+                for (int i = 0; i < token.mHeader.length; i++) {
+                    tableCell(token.mHeader[i], true, (i < token.mAlign.length) ? token.mAlign[i] : null, out);
+                }
+                out.append("</tr>\n</thead>\n<tbody>\n");
+                for (String[] row : token.mCells) {
+                    out.append("<tr>\n");
+                    for (int j = 0; j < row.length; j++) {
+                        tableCell(row[j], false, (j < token.mAlign.length) ? token.mAlign[j] : null, out);
+                    }
+                    out.append("</tr>\n");
+                }
+                out.append("</tbody>\n</table>\n");
+                break;
+            case BlockLexer.Token.BLOCKQUOTE_START: {
+                out.append("<blockquote>\n");
+                BlockLexer.Token child;
+                while ((child = next()).mType != BlockLexer.Token.BLOCKQUOTE_END) {
+                    tok(child, out);
+                }
+                out.append("</blockquote>\n");
+                break;
+            }
+            case BlockLexer.Token.LIST_START: {
+                String type = token.mOrdered ? "ol" : "ul";
+                out.append('<').append(type).append(">\n");
+                BlockLexer.Token child;
+                while ((child = next()).mType != BlockLexer.Token.LIST_END) {
+                    tok(child, out);
+                }
+                out.append("</").append(type).append(">\n");
+                break;
+            }
+            case BlockLexer.Token.LIST_ITEM_START: {
+                out.append("<li>");
+                BlockLexer.Token child;
+                while ((child = next()).mType != BlockLexer.Token.LIST_ITEM_END) {
+                    if (child.mType == BlockLexer.Token.TEXT) {
+                        parseText(child, out);
+                    } else {
+                        tok(child, out);
+                    }
+                }
+                out.append("</li>\n");
+                break;
+            }
+            case BlockLexer.Token.LOOSE_ITEM_START: {
+                out.append("<li>");
+                BlockLexer.Token child;
+                while ((child = next()).mType != BlockLexer.Token.LIST_ITEM_END) {
+                    tok(child, out);
+                }
+                out.append("</li>\n");
+                break;
+            }
+            case BlockLexer.Token.PARAGRAPH:
+                out.append("<p>");
+                mInlineLexer.output(token.mText, out);
+                out.append("</p>\n");
+                break;
+            case BlockLexer.Token.TEXT:
+                out.append("<p>");
+                parseText(token, out);
+                out.append("</p>\n");
+                break;
+        }
+    }
+
+    private void tableCell(String content, boolean header, String align, StringBuilder out) {
+        String type = header ? "th" : "td";
+
+        out.append('<').append(type);
+        if (null != align) {
+            out.append(" style=\"text-align:").append(align).append('"');
+        }
+        out.append('>');
+        mInlineLexer.output(content, out);
+        out.append("</").append(type).append(">\n");
+    }
+}
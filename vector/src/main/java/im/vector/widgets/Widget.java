@@ -100,7 +100,7 @@ public class Widget implements Serializable {
         return mWidgetEvent.roomId;
     }
 
-    private String getType() {
+    String getType() {
         return mWidgetContent.type;
     }
 
@@ -22,19 +22,21 @@ import android.content.Context;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
-
-import com.google.gson.JsonObject;
+import androidx.annotation.Nullable;
 
 import org.matrix.androidsdk.MXSession;
 import org.matrix.androidsdk.core.Log;
 import org.matrix.androidsdk.core.callback.ApiCallback;
 import org.matrix.androidsdk.core.callback.SimpleApiCallback;
 import org.matrix.androidsdk.core.model.MatrixError;
+import org.matrix.androidsdk.data.MyUser;
 import org.matrix.androidsdk.data.Room;
+import org.matrix.androidsdk.data.RoomState;
 import org.matrix.androidsdk.features.terms.TermsNotSignedException;
 import org.matrix.androidsdk.rest.model.Event;
 import org.matrix.androidsdk.rest.model.openid.RequestOpenIdTokenResponse;
 
+import java.lang.ref.WeakReference;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,6 +44,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -112,98 +116,222 @@ public class WidgetsManager {
      *
      * @param session the session.
      * @param room    the room to check.
-     * @return the active widgets list
+     * @return the active widgets list, it must not be modified
      */
     public List<Widget> getActiveWidgets(MXSession session, Room room) {
-        return getActiveWidgets(session, room, null, null);
+        return getRoomWidgets(session, room).mActiveWidgets;
     }
 
     /**
-     * List all active widgets in a room.
-     *
-     * @param session       the session.
-     * @param room          the room to check.
-     * @param widgetTypes   the widget types
-     * @param excludedTypes the excluded widget types
-     * @return the active widgets list
+     * The widgets of a room.
+     * It is built from the room state on the first read, then updated by the live events.
      */
-    private List<Widget> getActiveWidgets(final MXSession session, final Room room, final Set<String> widgetTypes, final Set<String> excludedTypes) {
-        // Get all im.vector.modular.widgets state events in the room
-        List<Event> widgetEvents = room.getState().getStateEvents(new HashSet<>(Arrays.asList(WIDGET_EVENT_TYPE)));
+    private static class RoomWidgets {
+        // the room state and the user data used to build the widgets
+        private final WeakReference<RoomState> mRoomStateRef;
+        private final String mDisplayName;
+        private final String mAvatarUrl;
+
+        // widget id -> widget, from the latest widget state events
+        private final Map<String, Widget> mWidgets = new LinkedHashMap<>();
+
+        // the active widgets, they are only rebuilt when a widget is updated
+        private List<Widget> mActiveWidgets = Collections.emptyList();
+        private List<Widget> mActiveJitsiWidgets = Collections.emptyList();
+        private List<Widget> mActiveWebviewWidgets = Collections.emptyList();
+
+        RoomWidgets(RoomState roomState, MyUser myUser) {
+            mRoomStateRef = new WeakReference<>(roomState);
+            mDisplayName = myUser.displayname;
+            mAvatarUrl = myUser.getAvatarUrl();
+        }
 
-        // Widget id -> widget
-        Map<String, Widget> widgets = new HashMap<>();
+        /**
+         * Tells if the widgets are still valid.
+         * The room state is replaced when the rooms are reloaded, the user data are used in the widgets url.
+         *
+         * @param roomState the room state
+         * @param myUser    the user
+         * @return true if the widgets have been built with these data
+         */
+        boolean isBuiltWith(RoomState roomState, MyUser myUser) {
+            return (mRoomStateRef.get() == roomState)
+                    && TextUtils.equals(mDisplayName, myUser.displayname)
+                    && TextUtils.equals(mAvatarUrl, myUser.getAvatarUrl());
+        }
 
-        // Order widgetEvents with the last event first
-        // There can be several im.vector.modular.widgets state events for a same widget but
-        // only the last one must be considered.
+        /**
+         * Update a widget.
+         * The latest instance is always kept, so that its event is the current one.
+         *
+         * @param widgetId the widget id
+         * @param widget   the widget, null if its event cannot be decoded
+         * @return true if the active widgets are displayed differently
+         */
+        boolean update(String widgetId, @Nullable Widget widget) {
+            Widget currentWidget = mWidgets.get(widgetId);
 
-        Collections.sort(widgetEvents, new Comparator<Event>() {
-            @Override
-            public int compare(Event e1, Event e2) {
-                long diff = e1.getOriginServerTs() - e2.getOriginServerTs();
-                return (diff < 0) ? +1 : ((diff > 0) ? -1 : 0);
+            if (null == widget) {
+                mWidgets.remove(widgetId);
+            } else {
+                mWidgets.put(widgetId, widget);
             }
-        });
 
-        // Create each widget from its latest im.vector.modular.widgets state event
-        for (Event widgetEvent : widgetEvents) {
-            // Filter widget types if required
-            if ((null != widgetTypes) || (null != excludedTypes)) {
-                String widgetType = null;
+            boolean wasActive = (null != currentWidget) && currentWidget.isActive();
+            boolean isActive = (null != widget) && widget.isActive();
 
-                try {
-                    JsonObject jsonObject = widgetEvent.getContentAsJsonObject();
+            if (wasActive || isActive) {
+                refreshActiveWidgets();
 
-                    if (jsonObject.has("type")) {
-                        widgetType = jsonObject.get("type").getAsString();
-                    }
-                } catch (Exception e) {
-                    Log.e(LOG_TAG, "## getWidgets() failed : " + e.getMessage(), e);
-                }
+                // the listeners are not notified when only the event has changed
+                return (wasActive != isActive) || (null == currentWidget) || (null == widget) || !isSameWidget(currentWidget, widget);
+            }
 
-                if (null != widgetType) {
-                    if ((null != widgetTypes) && !widgetTypes.contains(widgetType)) {
-                        continue;
-                    }
+            return false;
+        }
 
-                    if ((null != excludedTypes) && excludedTypes.contains(widgetType)) {
-                        continue;
+        /**
+         * Rebuild the active widgets lists.
+         */
+        void refreshActiveWidgets() {
+            List<Widget> activeWidgets = new ArrayList<>();
+            List<Widget> activeJitsiWidgets = new ArrayList<>();
+            List<Widget> activeWebviewWidgets = new ArrayList<>();
+
+            for (Widget widget : mWidgets.values()) {
+                if (widget.isActive()) {
+                    activeWidgets.add(widget);
+
+                    if (TextUtils.equals(WIDGET_TYPE_JITSI, widget.getType())) {
+                        activeJitsiWidgets.add(widget);
+                    } else {
+                        activeWebviewWidgets.add(widget);
                     }
                 }
             }
 
-            // widgetEvent.stateKey = widget id
-            if ((null != widgetEvent.stateKey) && !widgets.containsKey(widgetEvent.stateKey)) {
-                Widget widget = null;
+            mActiveWidgets = Collections.unmodifiableList(activeWidgets);
+            mActiveJitsiWidgets = Collections.unmodifiableList(activeJitsiWidgets);
+            mActiveWebviewWidgets = Collections.unmodifiableList(activeWebviewWidgets);
+        }
 
-                try {
-                    if (null == widgetEvent.roomId) {
-                        Log.e(LOG_TAG, "## getWidgets() : set the room id to the event " + widgetEvent.eventId);
-                        widgetEvent.roomId = room.getRoomId();
-                    }
+        /**
+         * Tells if two widgets are displayed in the same way.
+         *
+         * @param widget1 the first widget
+         * @param widget2 the second widget
+         * @return true if they have the same type, url and name
+         */
+        private static boolean isSameWidget(Widget widget1, Widget widget2) {
+            return TextUtils.equals(widget1.getType(), widget2.getType())
+                    && TextUtils.equals(widget1.getUrl(), widget2.getUrl())
+                    && TextUtils.equals(widget1.getHumanName(), widget2.getHumanName());
+        }
+    }
 
-                    widget = new Widget(session, widgetEvent);
-                } catch (Exception e) {
-                    Log.e(LOG_TAG, "## getWidgets() : widget creation failed " + e.getMessage(), e);
-                }
+    /**
+     * Widgets by room, the key is built with the user id and the room id
+     */
+    private final Map<String, RoomWidgets> mRoomWidgets = new HashMap<>();
+
+    private static String getRoomWidgetsKey(MXSession session, String roomId) {
+        return getRoomWidgetsKeyPrefix(session) + roomId;
+    }
+
+    private static String getRoomWidgetsKeyPrefix(MXSession session) {
+        return session.getMyUserId() + "|";
+    }
+
+    /**
+     * Forget the widgets of the rooms of a session, when the session is cleared.
+     *
+     * @param session the session.
+     */
+    public void clearSession(MXSession session) {
+        String prefix = getRoomWidgetsKeyPrefix(session);
+
+        synchronized (mRoomWidgets) {
+            Iterator<String> iterator = mRoomWidgets.keySet().iterator();
 
-                if (null != widget) {
-                    widgets.put(widget.getWidgetId(), widget);
+            while (iterator.hasNext()) {
+                if (iterator.next().startsWith(prefix)) {
+                    iterator.remove();
                 }
             }
         }
+    }
+
+    /**
+     * Provide the widgets of a room, they are built from the room state if they are not known.
+     *
+     * @param session the session.
+     * @param room    the room.
+     * @return the room widgets
+     */
+    private RoomWidgets getRoomWidgets(MXSession session, Room room) {
+        String key = getRoomWidgetsKey(session, room.getRoomId());
+        RoomState roomState = room.getState();
+        MyUser myUser = session.getMyUser();
+
+        synchronized (mRoomWidgets) {
+            RoomWidgets roomWidgets = mRoomWidgets.get(key);
+
+            if ((null == roomWidgets) || !roomWidgets.isBuiltWith(roomState, myUser)) {
+                roomWidgets = new RoomWidgets(roomState, myUser);
+
+                // Get all im.vector.modular.widgets state events in the room
+                // There is one state event by widget id (stateKey), the latest one.
+                List<Event> widgetEvents = roomState.getStateEvents(new HashSet<>(Arrays.asList(WIDGET_EVENT_TYPE)));
+
+                // Order widgetEvents with the oldest event first
+                Collections.sort(widgetEvents, new Comparator<Event>() {
+                    @Override
+                    public int compare(Event e1, Event e2) {
+                        long diff = e1.getOriginServerTs() - e2.getOriginServerTs();
+                        return (diff < 0) ? -1 : ((diff > 0) ? +1 : 0);
+                    }
+                });
+
+                for (Event widgetEvent : widgetEvents) {
+                    // widgetEvent.stateKey = widget id
+                    if (null != widgetEvent.stateKey) {
+                        if (null == widgetEvent.roomId) {
+                            Log.e(LOG_TAG, "## getWidgets() : set the room id to the event " + widgetEvent.eventId);
+                            widgetEvent.roomId = room.getRoomId();
+                        }
 
-        // Return active widgets only
-        List<Widget> activeWidgets = new ArrayList<>();
+                        Widget widget = createWidget(session, widgetEvent);
 
-        for (Widget widget : widgets.values()) {
-            if (widget.isActive()) {
-                activeWidgets.add(widget);
+                        if (null != widget) {
+                            roomWidgets.mWidgets.put(widget.getWidgetId(), widget);
+                        }
+                    }
+                }
+
+                roomWidgets.refreshActiveWidgets();
+                mRoomWidgets.put(key, roomWidgets);
             }
+
+            return roomWidgets;
+        }
+    }
+
+    /**
+     * Create a widget from its state event.
+     *
+     * @param session the session
+     * @param event   the widget state event
+     * @return the widget, null if the event cannot be decoded
+     */
+    @Nullable
+    private static Widget createWidget(MXSession session, Event event) {
+        try {
+            return new Widget(session, event);
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "## createWidget() : widget creation failed " + e.getMessage(), e);
         }
 
-        return activeWidgets;
+        return null;
     }
 
     /**
@@ -211,10 +339,10 @@ public class WidgetsManager {
      *
      * @param session the session
      * @param room    the room
-     * @return the list of active widgets
+     * @return the list of active widgets, it must not be modified
      */
     public List<Widget> getActiveJitsiWidgets(final MXSession session, final Room room) {
-        return getActiveWidgets(session, room, new HashSet<>(Arrays.asList(WidgetsManager.WIDGET_TYPE_JITSI)), null);
+        return getRoomWidgets(session, room).mActiveJitsiWidgets;
     }
 
     /**
@@ -222,10 +350,10 @@ public class WidgetsManager {
      *
      * @param session the session
      * @param room    the room
-     * @return the list of active widgets
+     * @return the list of active widgets, it must not be modified
      */
     public List<Widget> getActiveWebviewWidgets(final MXSession session, final Room room) {
-        return getActiveWidgets(session, room, null, new HashSet<>(Arrays.asList(WidgetsManager.WIDGET_TYPE_JITSI)));
+        return getRoomWidgets(session, room).mActiveWebviewWidgets;
     }
 
     /**
@@ -431,7 +559,8 @@ public class WidgetsManager {
     }
 
     /**
-     * Manage the live event
+     * Manage the live event.
+     * The listeners are only warned when the active widgets of the room are updated.
      *
      * @param session the session
      * @param event   the event
@@ -445,12 +574,18 @@ public class WidgetsManager {
 
             Log.d(LOG_TAG, "## onLiveEvent() : New widget detected: " + widgetId + " in room " + event.roomId);
 
-            Widget widget = null;
+            Widget widget = createWidget(session, event);
+            boolean isActiveWidgetsUpdate = true;
 
-            try {
-                widget = new Widget(session, event);
-            } catch (Exception e) {
-                Log.e(LOG_TAG, "## onLiveEvent () : widget creation failed " + e.getMessage(), e);
+            if ((null != widgetId) && (null != event.roomId)) {
+                synchronized (mRoomWidgets) {
+                    RoomWidgets roomWidgets = mRoomWidgets.get(getRoomWidgetsKey(session, event.roomId));
+
+                    // the widgets of this room are not indexed yet, the change cannot be checked
+                    if (null != roomWidgets) {
+                        isActiveWidgetsUpdate = roomWidgets.update(widgetId, widget);
+                    }
+                }
             }
 
             if (null != widget) {
@@ -463,7 +598,9 @@ public class WidgetsManager {
                     }
                 }
 
-                onWidgetUpdate(widget);
+                if (isActiveWidgetsUpdate) {
+                    onWidgetUpdate(widget);
+                }
             } else {
                 Log.e(LOG_TAG, "## onLiveEvent() : Cannot decode new widget - event: " + event);
 
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.gouv.tchap.media
+
+import im.vector.test.PendingRequests
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.matrix.androidsdk.rest.client.MediaScanRestClient
+import org.matrix.androidsdk.rest.model.MediaScanResult
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.mock
+
+class MediaScanSchedulerTest {
+
+    /**
+     * The antivirus server answers the scans with the result chosen by the test.
+     */
+    private class FakeMediaScanServer {
+        val pendingRequests = PendingRequests<String, MediaScanResult>()
+
+        val client: MediaScanRestClient = mock(MediaScanRestClient::class.java)
+
+        init {
+            doAnswer(pendingRequests.answer(1, 2)).`when`(client).scanUnencryptedFile(anyString(), anyString(), any())
+        }
+
+        fun answer(mediaId: String, clean: Boolean) = pendingRequests.succeed({ MediaScanResult().apply { this.clean = clean } }, { it == mediaId })
+
+        fun fail(mediaId: String) = pendingRequests.fail { it == mediaId }
+    }
+
+    private class RecordingListener : MediaScanScheduler.ScanListener {
+        val events = ArrayList<String>()
+
+        override fun onScanSucceeded(url: String, mediaScanResult: MediaScanResult) {
+            events.add("success:$url")
+        }
+
+        override fun onScanFailed(url: String, errorMessage: String?) {
+            events.add("failure:$url")
+        }
+
+        override fun onScanCancelled(url: String) {
+            events.add("cancel:$url")
+        }
+    }
+
+    private lateinit var server: FakeMediaScanServer
+    private lateinit var resultListener: RecordingListener
+    private lateinit var scheduler: MediaScanScheduler
+
+    @Before
+    fun setUp() {
+        server = FakeMediaScanServer()
+        resultListener = RecordingListener()
+        scheduler = MediaScanScheduler(server.client, resultListener, 2)
+    }
+
+    private fun scan(mediaId: String, priority: Int, owner: Any, listener: RecordingListener) {
+        scheduler.scanUnencryptedMedia("mxc://server/$mediaId", "server", mediaId, priority, owner, listener)
+    }
+
+    @Test
+    fun scheduler_singleFlight() {
+        val listener1 = RecordingListener()
+        val listener2 = RecordingListener()
+
+        scan("media", MediaScanScheduler.PRIORITY_NORMAL, "room1", listener1)
+        scan("media", MediaScanScheduler.PRIORITY_NORMAL, "room2", listener2)
+
+        assertEquals(1, server.pendingRequests.size)
+        assertTrue(scheduler.isScheduled("mxc://server/media"))
+
+        server.answer("media", true)
+
+        assertEquals(listOf("success:mxc://server/media"), resultListener.events)
+        assertEquals(listOf("success:mxc://server/media"), listener1.events)
+        assertEquals(listOf("success:mxc://server/media"), listener2.events)
+        assertFalse(scheduler.isScheduled("mxc://server/media"))
+    }
+
+    @Test
+    fun scheduler_boundedConcurrencyAndPriority() {
+        val listener = RecordingListener()
+
+        scan("media1", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+        scan("media2", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+        scan("media3", MediaScanScheduler.PRIORITY_LOW, "room", listener)
+        scan("media4", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+        scan("media5", MediaScanScheduler.PRIORITY_HIGH, "room", listener)
+
+        // only 2 requests at the same time
+        assertEquals(listOf("media1", "media2"), server.pendingRequests.params())
+
+        // the highest priority first, then the most recent request
+        server.answer("media1", true)
+        assertEquals("media5", server.pendingRequests.params().last())
+        server.answer("media2", true)
+        assertEquals("media4", server.pendingRequests.params().last())
+        server.answer("media5", true)
+        assertEquals("media3", server.pendingRequests.params().last())
+    }
+
+    @Test
+    fun scheduler_cancel() {
+        val listener1 = RecordingListener()
+        val listener2 = RecordingListener()
+
+        scan("media1", MediaScanScheduler.PRIORITY_NORMAL, "room1", listener1)
+        scan("media2", MediaScanScheduler.PRIORITY_NORMAL, "room1", listener1)
+        scan("media3", MediaScanScheduler.PRIORITY_NORMAL, "room1", listener1)
+        scan("media4", MediaScanScheduler.PRIORITY_NORMAL, "room1", listener1)
+        scan("media4", MediaScanScheduler.PRIORITY_NORMAL, "room2", listener2)
+
+        scheduler.cancel("room1")
+
+        // the pending scan of media3 is dropped, media4 is still expected by room2
+        assertEquals(listOf("cancel:mxc://server/media3"), listener1.events)
+        assertFalse(scheduler.isScheduled("mxc://server/media3"))
+        assertTrue(scheduler.isScheduled("mxc://server/media4"))
+
+        // the running scans are completed and stored, but room1 is not notified
+        server.answer("media1", true)
+        assertEquals(listOf("cancel:mxc://server/media3"), listener1.events)
+        assertEquals(listOf("success:mxc://server/media1"), resultListener.events)
+
+        server.answer("media2", true)
+        server.answer("media4", false)
+        assertEquals(listOf("success:mxc://server/media4"), listener2.events)
+        assertTrue(server.pendingRequests.isEmpty())
+    }
+
+    @Test
+    fun scheduler_exponentialBackoff() {
+        val listener = RecordingListener()
+        val url = "mxc://server/media"
+
+        assertEquals(0L, scheduler.getRetryDelay(url))
+
+        scan("media", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+        server.fail("media")
+        assertEquals(MediaScanScheduler.RETRY_BASE_DELAY_MS, scheduler.getRetryDelay(url))
+        assertFalse(scheduler.isRetryAllowed(url, 1000, 1000 + MediaScanScheduler.RETRY_BASE_DELAY_MS - 1))
+        assertTrue(scheduler.isRetryAllowed(url, 1000, 1000 + MediaScanScheduler.RETRY_BASE_DELAY_MS))
+
+        scan("media", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+        server.fail("media")
+        assertEquals(MediaScanScheduler.RETRY_BASE_DELAY_MS * 2, scheduler.getRetryDelay(url))
+
+        for (i in 0 until 20) {
+            scan("media", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+            server.fail("media")
+        }
+        assertEquals(MediaScanScheduler.RETRY_MAX_DELAY_MS, scheduler.getRetryDelay(url))
+
+        // a success resets the backoff
+        scan("media", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+        server.answer("media", true)
+        assertEquals(0L, scheduler.getRetryDelay(url))
+    }
+
+    @Test
+    fun scheduler_failuresAreBounded() {
+        val listener = RecordingListener()
+
+        for (i in 0..MediaScanScheduler.MAX_TRACKED_FAILURES) {
+            scan("media$i", MediaScanScheduler.PRIORITY_NORMAL, "room", listener)
+            server.fail("media$i")
+        }
+
+        // the oldest failure is forgotten
+        assertEquals(0L, scheduler.getRetryDelay("mxc://server/media0"))
+        assertEquals(MediaScanScheduler.RETRY_BASE_DELAY_MS, scheduler.getRetryDelay("mxc://server/media1"))
+        assertEquals(MediaScanScheduler.RETRY_BASE_DELAY_MS,
+                scheduler.getRetryDelay("mxc://server/media${MediaScanScheduler.MAX_TRACKED_FAILURES}"))
+    }
+}
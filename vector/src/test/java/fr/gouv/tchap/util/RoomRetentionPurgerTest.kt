@@ -0,0 +1,203 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package fr.gouv.tchap.util
+
+import fr.gouv.tchap.sdk.session.room.model.UNDEFINED_RETENTION_VALUE
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.matrix.androidsdk.data.Room
+import org.matrix.androidsdk.data.store.IMXStore
+import org.matrix.androidsdk.rest.model.Event
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyString
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.`when`
+import java.util.concurrent.TimeUnit
+
+class RoomRetentionPurgerTest {
+
+    /**
+     * The store rooms and messages are kept in memory, the messages reads are counted.
+     */
+    private class FakeStore {
+        val messagesByRoomId = LinkedHashMap<String, MutableList<Event>>()
+        val retentionByRoomId = HashMap<String, Int>()
+        val roomsById = LinkedHashMap<String, Room>()
+        val readRoomIds = ArrayList<String>()
+        var commitsCount = 0
+
+        val store: IMXStore = mock(IMXStore::class.java)
+
+        init {
+            `when`(store.rooms).thenAnswer { roomsById.values }
+            `when`(store.getRoomMessages(anyString())).thenAnswer { invocation ->
+                val roomId = invocation.getArgument<String>(0)
+                readRoomIds.add(roomId)
+                ArrayList(messagesByRoomId[roomId].orEmpty())
+            }
+            doAnswer { invocation ->
+                val event = invocation.getArgument<Event>(0)
+                messagesByRoomId[event.roomId]?.remove(event)
+                null
+            }.`when`(store).deleteEvent(any())
+            doAnswer {
+                commitsCount++
+                null
+            }.`when`(store).commit()
+        }
+
+        fun addRoom(roomId: String, retentionInDays: Int, vararg events: Event) {
+            roomsById[roomId] = mock(Room::class.java).also {
+                `when`(it.roomId).thenReturn(roomId)
+                `when`(it.isInvited).thenReturn(false)
+            }
+            retentionByRoomId[roomId] = retentionInDays
+            messagesByRoomId[roomId] = events.onEach { it.roomId = roomId }.toMutableList()
+        }
+    }
+
+    private val now = TimeUnit.DAYS.toMillis(1000)
+
+    private lateinit var fakeStore: FakeStore
+    private var currentTs = now
+
+    private fun message(eventId: String, ageInDays: Int) = Event().apply {
+        this.eventId = eventId
+        this.originServerTs = now - TimeUnit.DAYS.toMillis(ageInDays.toLong())
+    }
+
+    private fun stateEvent(eventId: String, ageInDays: Int) = message(eventId, ageInDays).apply {
+        this.stateKey = ""
+    }
+
+    private fun createPurger(commitBatchSize: Int = 500) = RoomRetentionPurger(fakeStore.store,
+            { it.run() },
+            { room -> fakeStore.retentionByRoomId[room.roomId] ?: UNDEFINED_RETENTION_VALUE },
+            { currentTs },
+            commitBatchSize)
+
+    @Before
+    fun setUp() {
+        fakeStore = FakeStore()
+        currentTs = now
+    }
+
+    @Test
+    fun purge_deletesOnlyExpiredMessages() {
+        fakeStore.addRoom("!a", 7, stateEvent("create", 30), message("m1", 20), message("m2", 10), message("m3", 2))
+        fakeStore.addRoom("!b", UNDEFINED_RETENTION_VALUE, message("n1", 300))
+
+        val purger = createPurger()
+
+        assertEquals(2, purger.purgeExpiredContents())
+        assertEquals(listOf("create", "m3"), fakeStore.messagesByRoomId["!a"]!!.map { it.eventId })
+        assertEquals(listOf("n1"), fakeStore.messagesByRoomId["!b"]!!.map { it.eventId })
+        assertEquals(1, fakeStore.commitsCount)
+
+        // the room without retention period is not read
+        assertEquals(listOf("!a"), fakeStore.readRoomIds)
+    }
+
+    @Test
+    fun purge_skipsTheRoomsBelowTheirWatermark() {
+        fakeStore.addRoom("!a", 7, message("m1", 20), message("m2", 3))
+        fakeStore.addRoom("!b", 30, message("n1", 10))
+
+        val purger = createPurger()
+        purger.purgeExpiredContents()
+        fakeStore.readRoomIds.clear()
+
+        // nothing has expired since the last sweep, no room is read
+        currentTs = now + TimeUnit.DAYS.toMillis(1)
+        assertEquals(0, purger.purgeExpiredContents())
+        assertTrue(fakeStore.readRoomIds.isEmpty())
+        assertEquals(1, fakeStore.commitsCount)
+
+        // the oldest message of "!a" has expired, only this room is read
+        currentTs = now + TimeUnit.DAYS.toMillis(5)
+        assertEquals(1, purger.purgeExpiredContents())
+        assertEquals(listOf("!a"), fakeStore.readRoomIds)
+        assertTrue(fakeStore.messagesByRoomId["!a"]!!.isEmpty())
+
+        val metrics = purger.getMetrics()
+        assertEquals(3, metrics.passesCount)
+        assertEquals(2L, metrics.purgedEventsCount)
+        assertEquals(3, metrics.visitedRoomsCount)
+        assertEquals(3, metrics.skippedRoomsCount)
+    }
+
+    @Test
+    fun purge_commitsByBatches() {
+        for (i in 0 until 5) {
+            fakeStore.addRoom("!room$i", 1, message("a$i", 10), message("b$i", 9))
+        }
+
+        val purger = createPurger(commitBatchSize = 4)
+
+        assertEquals(10, purger.purgeExpiredContents())
+        // 4 + 4 + 2 deleted events
+        assertEquals(3, fakeStore.commitsCount)
+    }
+
+    @Test
+    fun purgeRoom_ignoresTheWatermark() {
+        fakeStore.addRoom("!a", 7, message("m1", 3))
+
+        val purger = createPurger()
+        purger.purgeExpiredContents()
+
+        // some older messages have been retrieved by back pagination
+        fakeStore.messagesByRoomId["!a"]!!.add(0, message("old", 50).apply { roomId = "!a" })
+
+        assertEquals(0, purger.purgeExpiredContents())
+        assertTrue(purgeRoom(purger, "!a"))
+        assertEquals(listOf("m1"), fakeStore.messagesByRoomId["!a"]!!.map { it.eventId })
+        assertFalse(purgeRoom(purger, "!a"))
+    }
+
+    @Test
+    fun purge_readsAgainTheRoomsWithoutMessagesLeft() {
+        fakeStore.addRoom("!a", 7, message("m1", 20))
+        fakeStore.addRoom("!b", 7)
+
+        val purger = createPurger()
+        assertEquals(1, purger.purgeExpiredContents())
+
+        // some messages are received after the sweep
+        currentTs = now + TimeUnit.DAYS.toMillis(1)
+        fakeStore.messagesByRoomId["!a"]!!.add(message("m2", -1).apply { roomId = "!a" })
+        fakeStore.messagesByRoomId["!b"]!!.add(message("n1", -1).apply { roomId = "!b" })
+        fakeStore.readRoomIds.clear()
+
+        // they are purged once expired
+        currentTs = now + TimeUnit.DAYS.toMillis(9)
+        assertEquals(2, purger.purgeExpiredContents())
+        assertEquals(listOf("!a", "!b"), fakeStore.readRoomIds)
+        assertTrue(fakeStore.messagesByRoomId["!a"]!!.isEmpty())
+        assertTrue(fakeStore.messagesByRoomId["!b"]!!.isEmpty())
+    }
+
+    private fun purgeRoom(purger: RoomRetentionPurger, roomId: String): Boolean {
+        var isStoreUpdated: Boolean? = null
+        purger.purgeRoom(fakeStore.roomsById[roomId]!!) { isStoreUpdated = it }
+        return isStoreUpdated!!
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.contacts
+
+import fr.gouv.tchap.sdk.rest.client.TchapThirdPidRestClient
+import im.vector.test.PendingRequests
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.mockito.ArgumentMatchers.any
+import org.mockito.ArgumentMatchers.anyList
+import org.mockito.Mockito.doAnswer
+import org.mockito.Mockito.mock
+import java.io.InputStream
+import java.io.OutputStream
+
+class ThreePidBulkLookupTest {
+
+    /**
+     * The identity server answers the lookups of the known addresses with their matrix ids.
+     */
+    private class FakeIdentityServer(private val matrixIdsByAddress: Map<String, String>) {
+        val pendingRequests = PendingRequests<List<String>, List<String>>()
+
+        val client: TchapThirdPidRestClient = mock(TchapThirdPidRestClient::class.java)
+
+        init {
+            doAnswer(pendingRequests.answer(0, 2)).`when`(client).bulkLookup(anyList(), anyList(), any())
+        }
+
+        fun answerNext() = pendingRequests.succeed({ addresses -> addresses.map { matrixIdsByAddress[it] ?: "" } })
+
+        fun failNext() = pendingRequests.fail()
+    }
+
+    /**
+     * The key store is not available in the unit tests, the cache files are not encrypted.
+     */
+    private val plainCipher = object : ContactsDataCipher(null) {
+        override fun write(data: ByteArray, output: OutputStream) = output.write(data)
+
+        override fun read(input: InputStream): ByteArray? = input.readBytes()
+    }
+
+    private class RecordingListener : ThreePidBulkLookup.LookupListener {
+        val lookedUp = LinkedHashMap<String, String>()
+        var chunksCount = 0
+        var done: Boolean? = null
+
+        override fun onChunkLookedUp(addresses: List<String>, matrixIds: List<String>) {
+            chunksCount++
+            addresses.forEachIndexed { index, address -> lookedUp[address] = matrixIds[index] }
+        }
+
+        override fun onLookupDone(isComplete: Boolean) {
+            done = isComplete
+        }
+
+        override fun onIdentityServerTermsNotSigned(token: String) {
+        }
+
+        override fun onNoIdentityServer() {
+        }
+    }
+
+    @get:Rule
+    val temporaryFolder = TemporaryFolder()
+
+    private val addresses = (0 until 10).map { "user$it@example.org" }
+    private val mediums = addresses.map { "email" }
+
+    private lateinit var server: FakeIdentityServer
+    private lateinit var listener: RecordingListener
+
+    @Before
+    fun setUp() {
+        server = FakeIdentityServer(mapOf("user1@example.org" to "@user1:example.org", "user7@example.org" to "@user7:example.org"))
+        listener = RecordingListener()
+    }
+
+    @Test
+    fun lookup_boundedChunksWithProgressiveResults() {
+        val lookup = ThreePidBulkLookup(server.client, listener, 3, 2, 0)
+        lookup.start(addresses, mediums)
+
+        // 4 chunks, only 2 requests at the same time
+        assertEquals(2, server.pendingRequests.size)
+        assertEquals(listOf("user0@example.org", "user1@example.org", "user2@example.org"), server.pendingRequests.params()[0])
+
+        // the results of a chunk are delivered as soon as it is received
+        server.answerNext()
+        assertEquals(1, listener.chunksCount)
+        assertEquals("@user1:example.org", listener.lookedUp["user1@example.org"])
+        assertNull(listener.done)
+        assertTrue(lookup.isRunning())
+        assertEquals(2, server.pendingRequests.size)
+
+        while (server.pendingRequests.isNotEmpty()) {
+            server.answerNext()
+        }
+
+        assertEquals(4, server.pendingRequests.sentCount)
+        assertEquals(10, listener.lookedUp.size)
+        assertEquals("", listener.lookedUp["user0@example.org"])
+        assertEquals("@user7:example.org", listener.lookedUp["user7@example.org"])
+        assertEquals(true, listener.done)
+        assertFalse(lookup.isRunning())
+    }
+
+    @Test
+    fun lookup_failedChunkIsRetried() {
+        val lookup = ThreePidBulkLookup(server.client, listener, 5, 1, 1)
+        lookup.start(addresses, mediums)
+
+        // the first chunk fails once, it is retried after the second one
+        server.failNext()
+        assertEquals(listOf("user5@example.org", "user6@example.org", "user7@example.org", "user8@example.org", "user9@example.org"),
+                server.pendingRequests.params()[0])
+        server.answerNext()
+        assertEquals(listOf("user0@example.org", "user1@example.org", "user2@example.org", "user3@example.org", "user4@example.org"),
+                server.pendingRequests.params()[0])
+        server.answerNext()
+
+        assertEquals(3, server.pendingRequests.sentCount)
+        assertEquals(10, listener.lookedUp.size)
+        assertEquals(true, listener.done)
+    }
+
+    @Test
+    fun lookup_failureIsLimitedToTheFailedChunk() {
+        val lookup = ThreePidBulkLookup(server.client, listener, 5, 2, 1)
+        lookup.start(addresses, mediums)
+
+        // the first chunk fails twice, the second one succeeds
+        server.failNext()
+        server.answerNext()
+        server.failNext()
+
+        assertTrue(server.pendingRequests.isEmpty())
+        assertEquals(5, listener.lookedUp.size)
+        assertEquals("@user7:example.org", listener.lookedUp["user7@example.org"])
+        assertEquals(false, listener.done)
+        assertFalse(lookup.isRunning())
+    }
+
+    @Test
+    fun lookup_stop() {
+        val lookup = ThreePidBulkLookup(server.client, listener, 3, 2, 0)
+        lookup.start(addresses, mediums)
+        lookup.stop()
+
+        // the running lookups are ignored, the pending ones are not sent
+        server.answerNext()
+        server.answerNext()
+
+        assertEquals(2, server.pendingRequests.sentCount)
+        assertEquals(0, listener.chunksCount)
+        assertNull(listener.done)
+    }
+
+    @Test
+    fun cache_negativeResultsAndLifetimes() {
+        val cache = ThreePidLookupCache(temporaryFolder.newFile(), plainCipher)
+        val now = 1000L
+
+        cache.put("user1@example.org", "@user1:example.org", "@me:example.org", now)
+        cache.put("user2@example.org", "", "@me:example.org", now)
+
+        val positive = cache.get("user1@example.org", now)
+        assertNotNull(positive)
+        assertTrue(positive!!.isPositive)
+        assertEquals("@user1:example.org", positive.mMXID.mMatrixId)
+
+        // the unknown 3PIDs are cached, so that they are not looked up again
+        val negative = cache.get("user2@example.org", now)
+        assertNotNull(negative)
+        assertFalse(negative!!.isPositive)
+
+        // the negative results expire first
+        assertNull(cache.get("user2@example.org", now + ThreePidLookupCache.NEGATIVE_ENTRY_LIFETIME_MS))
+        assertNotNull(cache.get("user1@example.org", now + ThreePidLookupCache.NEGATIVE_ENTRY_LIFETIME_MS))
+        assertNull(cache.get("user1@example.org", now + ThreePidLookupCache.POSITIVE_ENTRY_LIFETIME_MS))
+    }
+
+    @Test
+    fun cache_persistence() {
+        val file = temporaryFolder.newFile()
+        val now = 1000L
+
+        val cache = ThreePidLookupCache(file, plainCipher)
+        cache.put("user1@example.org", "@user1:example.org", "@me:example.org", now)
+        cache.put("user2@example.org", null, "@me:example.org", now)
+        assertTrue(cache.save())
+
+        // a new process
+        val reloadedCache = ThreePidLookupCache(file, plainCipher)
+        assertEquals(2, reloadedCache.size())
+        assertEquals("@user1:example.org", reloadedCache.get("user1@example.org", now)!!.mMXID.mMatrixId)
+        assertEquals("@me:example.org", reloadedCache.get("user1@example.org", now)!!.mMXID.mAccountId)
+        assertFalse(reloadedCache.get("user2@example.org", now)!!.isPositive)
+
+        reloadedCache.removeExpiredEntries(now + ThreePidLookupCache.NEGATIVE_ENTRY_LIFETIME_MS)
+        assertEquals(1, reloadedCache.size())
+
+        // the cache is cleared on logout
+        reloadedCache.clear()
+        assertFalse(file.exists())
+        assertEquals(0, ThreePidLookupCache(file, plainCipher).size())
+    }
+
+    @Test
+    fun cache_readsDoNotLoadTheFile() {
+        val file = temporaryFolder.newFile()
+        val now = 1000L
+
+        ThreePidLookupCache(file, plainCipher).apply {
+            put("user1@example.org", "@user1:example.org", "@me:example.org", now)
+            assertTrue(save())
+        }
+
+        // the reads do not wait for the file, it is loaded in background
+        val reloadedCache = ThreePidLookupCache(file, plainCipher)
+        assertFalse(reloadedCache.isLoaded)
+        assertNull(reloadedCache.get("user1@example.org", now))
+
+        reloadedCache.load()
+        assertTrue(reloadedCache.isLoaded)
+        assertNotNull(reloadedCache.get("user1@example.org", now))
+    }
+
+    @Test
+    fun lookup_cachedResultsAreNotLookedUpAgain() {
+        val cache = ThreePidLookupCache(temporaryFolder.newFile(), plainCipher)
+        val now = 1000L
+
+        val firstLookup = ThreePidBulkLookup(server.client, object : ThreePidBulkLookup.LookupListener by listener {
+            override fun onChunkLookedUp(addresses: List<String>, matrixIds: List<String>) {
+                listener.onChunkLookedUp(addresses, matrixIds)
+                addresses.forEachIndexed { index, address -> cache.put(address, matrixIds[index], "@me:example.org", now) }
+            }
+        }, 4, 3, 0)
+        firstLookup.start(addresses, mediums)
+        while (server.pendingRequests.isNotEmpty()) {
+            server.answerNext()
+        }
+        assertEquals(3, server.pendingRequests.sentCount)
+
+        // only the missing addresses are looked up
+        val missingAddresses = (addresses + "new@example.org").filter { null == cache.get(it, now) }
+        assertEquals(listOf("new@example.org"), missingAddresses)
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.notifications
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileOutputStream
+import java.io.InputStream
+import java.io.ObjectInputStream
+import java.io.ObjectOutputStream
+import java.io.OutputStream
+import java.io.RandomAccessFile
+
+// the journal logs with android.util.Log
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [28])
+class NotificationEventsJournalTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    // the records are not encrypted
+    private val secretStore = object : NotificationEventsJournal.SecretStore {
+        override fun store(any: Any, output: OutputStream) {
+            ObjectOutputStream(output).use { it.writeObject(any) }
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        override fun <T> load(input: InputStream): T? {
+            return ObjectInputStream(input).use { it.readObject() as T? }
+        }
+    }
+
+    private val journalFile: File
+        get() = File(folder.root, "journal")
+
+    private fun openJournal() = NotificationEventsJournal(journalFile, File(folder.root, "legacy"), secretStore)
+
+    private fun event(eventId: String, body: String = "body") = NotifiableMessageEvent(
+            eventId = eventId,
+            noisy = false,
+            timestamp = 0,
+            senderName = "Alice",
+            senderId = "@alice",
+            body = body,
+            roomId = "!room",
+            roomName = "Room")
+
+    private fun eventIds(events: List<NotifiableEvent>) = events.map { it.eventId }
+
+    @Test
+    fun replay_restoresTheUpdates() {
+        val journal = openJournal()
+
+        assertTrue(journal.getEvents().isEmpty())
+
+        journal.add(listOf(event("\$a"), event("\$b")))
+        journal.add(listOf(event("\$c")))
+        // the replaced event is moved at the end
+        journal.add(listOf(event("\$a", "edited")))
+        journal.remove(listOf("\$b"))
+        journal.markDisplayed(listOf("\$c"))
+        journal.flush()
+
+        assertEquals(5, journal.recordsCount)
+
+        val events = openJournal().getEvents()
+
+        assertEquals(listOf("\$c", "\$a"), eventIds(events))
+        assertTrue(events[0].hasBeenDisplayed)
+        assertFalse(events[1].hasBeenDisplayed)
+        assertEquals("edited", events[1].description)
+    }
+
+    @Test
+    fun compact_writesASingleRecord() {
+        val journal = openJournal()
+
+        journal.add(listOf(event("\$a")))
+        journal.add(listOf(event("\$b")))
+        journal.remove(listOf("\$a"))
+        journal.compact()
+        journal.flush()
+
+        assertEquals(1, journal.recordsCount)
+
+        val reopenedJournal = openJournal()
+
+        assertEquals(listOf("\$b"), eventIds(reopenedJournal.getEvents()))
+        assertEquals(1, reopenedJournal.recordsCount)
+    }
+
+    @Test
+    fun append_compactsTheJournalWhenItIsTooLong() {
+        val journal = openJournal()
+
+        for (i in 0 until 250) {
+            journal.add(listOf(event("\$$i")))
+        }
+        journal.flush()
+
+        assertTrue(journal.recordsCount < 100)
+        assertEquals(250, openJournal().getEvents().size)
+    }
+
+    @Test
+    fun clear_deletesTheJournal() {
+        val journal = openJournal()
+
+        journal.add(listOf(event("\$a")))
+        journal.clear()
+        journal.flush()
+
+        assertFalse(journalFile.exists())
+        assertTrue(openJournal().getEvents().isEmpty())
+    }
+
+    @Test
+    fun replay_ignoresATruncatedTrailingRecord() {
+        val journal = openJournal()
+
+        journal.add(listOf(event("\$a")))
+        journal.add(listOf(event("\$b")))
+        journal.flush()
+
+        // the process has been killed while the last record was written
+        RandomAccessFile(journalFile, "rw").use { it.setLength(it.length() - 10) }
+
+        val reopenedJournal = openJournal()
+
+        assertEquals(listOf("\$a"), eventIds(reopenedJournal.getEvents()))
+
+        // the next records are appended after the valid ones
+        reopenedJournal.add(listOf(event("\$c")))
+        reopenedJournal.flush()
+
+        assertEquals(listOf("\$a", "\$c"), eventIds(openJournal().getEvents()))
+    }
+
+    @Test
+    fun replay_ignoresACorruptTrailingRecord() {
+        val journal = openJournal()
+
+        journal.add(listOf(event("\$a")))
+        journal.flush()
+
+        DataOutputStream(FileOutputStream(journalFile, true)).use {
+            it.writeInt(16)
+            it.write(ByteArray(16) { index -> index.toByte() })
+        }
+
+        val reopenedJournal = openJournal()
+
+        assertEquals(listOf("\$a"), eventIds(reopenedJournal.getEvents()))
+        assertEquals(1, reopenedJournal.recordsCount)
+    }
+
+    @Test
+    fun replay_ignoresAnInvalidRecordSize() {
+        val journal = openJournal()
+
+        journal.add(listOf(event("\$a")))
+        journal.flush()
+
+        DataOutputStream(FileOutputStream(journalFile, true)).use {
+            it.writeInt(-1)
+        }
+
+        assertEquals(listOf("\$a"), eventIds(openJournal().getEvents()))
+    }
+}
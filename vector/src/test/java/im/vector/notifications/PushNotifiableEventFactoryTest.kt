@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.notifications
+
+import androidx.core.app.NotificationCompat
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PushNotifiableEventFactoryTest {
+
+    private val messageData = mapOf(
+            "event_id" to "\$event:matrix.org",
+            "room_id" to "!room:matrix.org",
+            "sender" to "@alice:matrix.org",
+            "type" to "m.room.message",
+            "content" to "{\"msgtype\":\"m.text\",\"body\":\"hello\"}")
+
+    private val room = RoomNotificationMetadataIndex.RoomMetadata(
+            "Room",
+            false,
+            "/avatars/room",
+            mapOf("@alice:matrix.org" to RoomNotificationMetadataIndex.SenderMetadata("Alice", "/avatars/alice")))
+
+    private fun create(data: Map<String, String>, room: RoomNotificationMetadataIndex.RoomMetadata? = this.room) =
+            PushNotifiableEventFactory.create(data, room, "@me:matrix.org", "New event", "Unknown room")
+
+    @Test
+    fun isDisplayable_message() {
+        assertTrue(PushNotifiableEventFactory.isDisplayable(messageData))
+        assertTrue(PushNotifiableEventFactory.isDisplayable(messageData + ("type" to "m.room.encrypted")))
+    }
+
+    @Test
+    fun isDisplayable_unknownTypeOrContent() {
+        // the event id only pushes
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData - "type" - "content"))
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData - "type"))
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData - "content"))
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData - "event_id"))
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData - "room_id"))
+
+        // the other events are resolved by the full pipeline
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData + ("type" to "m.room.member")))
+
+        // a message without body
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData + ("content" to "{\"msgtype\":\"m.text\"}")))
+        assertFalse(PushNotifiableEventFactory.isDisplayable(messageData + ("content" to "not json")))
+    }
+
+    @Test
+    fun create_message_usesTheRoomMetadata() {
+        val event = create(messageData)!!
+
+        assertEquals("\$event:matrix.org", event.eventId)
+        assertEquals("!room:matrix.org", event.roomId)
+        assertEquals("hello", event.body)
+        assertEquals("Alice", event.senderName)
+        assertEquals("/avatars/alice", event.senderAvatarPath)
+        assertEquals("Room", event.roomName)
+        assertEquals("/avatars/room", event.roomAvatarPath)
+        assertEquals("@me:matrix.org", event.matrixID)
+        assertTrue(event.isPushGatewayEvent)
+        assertFalse(event.noisy)
+        assertNull(event.soundName)
+        assertEquals(NotificationCompat.VISIBILITY_PUBLIC, event.lockScreenVisibility)
+    }
+
+    @Test
+    fun create_pushNamesOverrideTheRoomMetadata() {
+        val event = create(messageData + mapOf("sender_display_name" to "Alice B", "room_name" to "Other", "prio" to "high"))!!
+
+        assertEquals("Alice B", event.senderName)
+        assertEquals("Other", event.roomName)
+        assertTrue(event.noisy)
+        assertNotNull(event.soundName)
+    }
+
+    @Test
+    fun create_unknownRoom() {
+        val event = create(messageData, null)!!
+
+        assertEquals("@alice:matrix.org", event.senderName)
+        assertEquals("Unknown room", event.roomName)
+        assertNull(event.roomAvatarPath)
+        assertFalse(event.roomIsDirect)
+    }
+
+    @Test
+    fun create_encrypted_isPrivate() {
+        val event = create(messageData + mapOf("type" to "m.room.encrypted", "content" to "{\"algorithm\":\"m.megolm.v1.aes-sha2\"}"))!!
+
+        assertEquals("New event", event.body)
+        assertEquals(NotificationCompat.VISIBILITY_PRIVATE, event.lockScreenVisibility)
+    }
+
+    @Test
+    fun create_notDisplayable() {
+        assertNull(create(messageData - "type"))
+        assertNull(create(messageData + ("type" to "m.room.member")))
+    }
+}
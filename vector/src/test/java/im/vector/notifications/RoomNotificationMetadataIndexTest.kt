@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.notifications
+
+import im.vector.notifications.RoomNotificationMetadataIndex.Companion.MAX_ROOMS
+import im.vector.notifications.RoomNotificationMetadataIndex.Companion.MAX_SENDERS_PER_ROOM
+import im.vector.notifications.RoomNotificationMetadataIndex.RoomMetadata
+import im.vector.notifications.RoomNotificationMetadataIndex.SenderMetadata
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class RoomNotificationMetadataIndexTest {
+
+    private val room = RoomMetadata("Room", false, null, emptyMap())
+
+    private fun merge(rooms: LinkedHashMap<String, RoomMetadata>, roomId: String, senderId: String?, room: RoomMetadata = this.room) =
+            RoomNotificationMetadataIndex.merge(rooms, roomId, room, senderId, SenderMetadata(senderId, null))
+
+    @Test
+    fun merge_addsTheRoomAndTheSender() {
+        val rooms = LinkedHashMap<String, RoomMetadata>()
+
+        assertTrue(merge(rooms, "!a", "@alice"))
+
+        assertEquals("Room", rooms["!a"]?.name)
+        assertEquals(SenderMetadata("@alice", null), rooms["!a"]?.senders?.get("@alice"))
+    }
+
+    @Test
+    fun merge_sameMetadata_isNotAModification() {
+        val rooms = LinkedHashMap<String, RoomMetadata>()
+
+        merge(rooms, "!a", "@alice")
+
+        assertFalse(merge(rooms, "!a", "@alice"))
+        assertFalse(merge(rooms, "!a", null))
+        assertTrue(merge(rooms, "!a", "@alice", room.copy(name = "Renamed")))
+        assertEquals("Renamed", rooms["!a"]?.name)
+    }
+
+    @Test
+    fun merge_keepsTheSendersOfTheRoom() {
+        val rooms = LinkedHashMap<String, RoomMetadata>()
+
+        merge(rooms, "!a", "@alice")
+        merge(rooms, "!a", "@bob")
+        merge(rooms, "!a", "@alice")
+
+        // the most recent sender last
+        assertEquals(listOf("@bob", "@alice"), rooms["!a"]?.senders?.keys?.toList())
+    }
+
+    @Test
+    fun merge_recentRoomsLast() {
+        val rooms = LinkedHashMap<String, RoomMetadata>()
+
+        merge(rooms, "!a", null)
+        merge(rooms, "!b", null)
+        merge(rooms, "!a", null)
+
+        assertEquals(listOf("!b", "!a"), rooms.keys.toList())
+    }
+
+    @Test
+    fun merge_boundedSenders() {
+        val rooms = LinkedHashMap<String, RoomMetadata>()
+
+        for (i in 0..MAX_SENDERS_PER_ROOM) {
+            merge(rooms, "!a", "@user$i")
+        }
+
+        val senders = rooms["!a"]!!.senders
+
+        assertEquals(MAX_SENDERS_PER_ROOM, senders.size)
+        assertNull(senders["@user0"])
+        assertTrue(senders.containsKey("@user$MAX_SENDERS_PER_ROOM"))
+    }
+
+    @Test
+    fun merge_boundedRooms() {
+        val rooms = LinkedHashMap<String, RoomMetadata>()
+
+        for (i in 0..MAX_ROOMS) {
+            merge(rooms, "!room$i", null)
+        }
+
+        assertEquals(MAX_ROOMS, rooms.size)
+        assertFalse(rooms.containsKey("!room0"))
+        assertTrue(rooms.containsKey("!room$MAX_ROOMS"))
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.services
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class AdaptiveSyncSchedulerTest {
+
+    private val minute = 60 * 1000L
+
+    private val defaultState = AdaptiveSyncScheduler.DeviceState(
+            isCharging = false,
+            isBatteryLow = false,
+            isPowerSaveMode = false,
+            isNetworkMetered = false)
+
+    @Test
+    fun computeDelay_keepsTheUserIntervalByDefault() {
+        assertEquals(10 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 0, 1f, defaultState))
+    }
+
+    @Test
+    fun computeDelay_backsOffOnIdleAccounts() {
+        assertEquals(20 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 1, 0f, defaultState))
+        assertEquals(40 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 2, 0f, defaultState))
+
+        // bounded to one hour
+        assertEquals(60 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 10, 0f, defaultState))
+    }
+
+    @Test
+    fun computeDelay_syncsBusyAccountsMoreOften() {
+        assertEquals(5 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 0, 30f, defaultState))
+
+        // bounded to 30 seconds
+        assertEquals(30 * 1000L, AdaptiveSyncScheduler.computeDelay(minute, 0, 30f, defaultState.copy(isCharging = true)))
+    }
+
+    @Test
+    fun computeDelay_followsTheDeviceState() {
+        assertEquals(20 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 0, 0f, defaultState.copy(isPowerSaveMode = true)))
+        assertEquals(20 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 0, 0f, defaultState.copy(isBatteryLow = true)))
+        assertEquals(5 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 0, 0f, defaultState.copy(isCharging = true, isBatteryLow = true)))
+        assertEquals(15 * minute, AdaptiveSyncScheduler.computeDelay(10 * minute, 0, 0f, defaultState.copy(isNetworkMetered = true)))
+    }
+
+    @Test
+    fun computeDelay_alwaysAllowsTheUserInterval() {
+        // the user interval is out of the default bounds
+        assertEquals(10 * 1000L, AdaptiveSyncScheduler.computeDelay(10 * 1000L, 0, 0f, defaultState))
+        assertEquals(120 * minute, AdaptiveSyncScheduler.computeDelay(120 * minute, 3, 0f, defaultState))
+    }
+
+    @Test
+    fun updateArrivalRate_convergesToTheObservedRate() {
+        var rate = 0f
+
+        // 2 events every 10 minutes
+        for (i in 0 until 30) {
+            rate = AdaptiveSyncScheduler.updateArrivalRate(rate, 2, 10 * minute)
+        }
+
+        assertEquals(12f, rate, 0.01f)
+
+        // the account becomes idle
+        rate = AdaptiveSyncScheduler.updateArrivalRate(rate, 0, 10 * minute)
+        assertTrue(rate < 12f)
+    }
+}
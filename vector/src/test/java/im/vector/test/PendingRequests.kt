@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.test
+
+import org.matrix.androidsdk.core.callback.ApiCallback
+import org.mockito.stubbing.Answer
+
+/**
+ * The requests sent to a mocked rest client: they are kept until the test answers them,
+ * so that the tests control the order and the results of the responses.
+ *
+ * @param P the request parameters
+ * @param T the response type
+ */
+class PendingRequests<P, T> {
+    private val requests = ArrayList<Pair<P, ApiCallback<T>>>()
+
+    // the number of sent requests, answered or not
+    var sentCount = 0
+        private set
+
+    val size: Int
+        get() = requests.size
+
+    fun isEmpty() = requests.isEmpty()
+
+    fun isNotEmpty() = requests.isNotEmpty()
+
+    /**
+     * @return the parameters of the pending requests, from the oldest one
+     */
+    fun params(): List<P> = requests.map { it.first }
+
+    /**
+     * Provide the mock answer which keeps the requests of a rest client method.
+     *
+     * @param paramsIndex   the index of the parameters argument
+     * @param callbackIndex the index of the callback argument
+     */
+    fun answer(paramsIndex: Int, callbackIndex: Int) = Answer<Any?> { invocation ->
+        sentCount++
+        @Suppress("UNCHECKED_CAST")
+        requests.add(Pair(invocation.getArgument<P>(paramsIndex), invocation.getArgument<Any>(callbackIndex) as ApiCallback<T>))
+        null
+    }
+
+    /**
+     * Answer the oldest request which matches some parameters, the oldest one by default.
+     */
+    fun succeed(result: (P) -> T, predicate: (P) -> Boolean = { true }) {
+        val request = remove(predicate)
+        request.second.onSuccess(result(request.first))
+    }
+
+    /**
+     * Fail the oldest request which matches some parameters, the oldest one by default.
+     */
+    fun fail(predicate: (P) -> Boolean = { true }) {
+        remove(predicate).second.onNetworkError(Exception("network"))
+    }
+
+    private fun remove(predicate: (P) -> Boolean): Pair<P, ApiCallback<T>> {
+        val request = requests.first { predicate(it.first) }
+        requests.remove(request)
+        return request
+    }
+}
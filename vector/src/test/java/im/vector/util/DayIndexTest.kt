@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import im.vector.adapters.AdapterUtils
+import org.junit.Assert.assertEquals
+import org.junit.Ignore
+import org.junit.Test
+import java.util.Date
+import java.util.Random
+import java.util.TimeZone
+import java.util.logging.Logger
+
+class DayIndexTest {
+
+    private val timeZone = TimeZone.getTimeZone("Europe/Paris")
+
+    // 2019-03-31 00:30 in Paris, the DST starts this day
+    private val dstDayTs = 1553988600000L
+
+    @Test
+    fun toDay_matchesTheLocalMidnight() {
+        val index = DayIndex(timeZone)
+        val hour = 60 * 60 * 1000L
+
+        // the days before and after the DST change
+        assertEquals(index.toDay(dstDayTs), index.toDay(dstDayTs + 20 * hour))
+        assertEquals(index.toDay(dstDayTs) + 1, index.toDay(dstDayTs + 23 * hour))
+        assertEquals(index.toDay(dstDayTs), index.toDay(index.toTimestamp(index.toDay(dstDayTs))))
+    }
+
+    @Test
+    fun toDay_matchesZeroTimeDate() {
+        val index = DayIndex()
+        val random = Random(42)
+
+        for (i in 0 until 1000) {
+            val ts = dstDayTs + random.nextInt(1000 * 60 * 60 * 24).toLong() * 365
+            val midnight = AdapterUtils.zeroTimeDate(Date(ts)).time
+
+            assertEquals(index.toDay(midnight), index.toDay(ts))
+            assertEquals(index.toDay(midnight - 1) + 1, index.toDay(ts))
+        }
+    }
+
+    @Test
+    fun insertAndRemove_keepTheOrder() {
+        val index = DayIndex(timeZone)
+        val day = 24 * 60 * 60 * 1000L
+
+        index.add(dstDayTs)
+        index.add(dstDayTs + 2 * day)
+        index.insert(1, dstDayTs + day)
+        index.insert(0, dstDayTs - day)
+
+        assertEquals(4, index.size())
+
+        val firstDay = index.toDay(dstDayTs - day)
+        for (i in 0 until 4) {
+            assertEquals(firstDay + i, index.getDay(i, 0))
+        }
+
+        index.remove(1)
+        assertEquals(3, index.size())
+        assertEquals(firstDay + 2, index.getDay(1, 0))
+
+        index.clear()
+        assertEquals(0, index.size())
+    }
+
+    @Test
+    fun invalidTimestamps_useThePreviousDay() {
+        val index = DayIndex(timeZone)
+
+        index.add(DayIndex.NO_TIMESTAMP)
+        index.add(dstDayTs)
+        index.add(DayIndex.NO_TIMESTAMP)
+
+        assertEquals(-1, index.getDay(0, -1))
+        assertEquals(index.toDay(dstDayTs), index.getDay(2, -1))
+
+        index.set(0, dstDayTs)
+        assertEquals(index.toDay(dstDayTs), index.getDay(0, -1))
+    }
+
+    /**
+     * Micro benchmark: compare the incremental index with the dates list previously rebuilt by
+     * VectorMessagesAdapter on each refresh, when a message is received on a large timeline.
+     * The durations are reported in the logs.
+     */
+    @Ignore("benchmark, run it manually")
+    @Test
+    fun dayIndex_benchmark() {
+        for (count in listOf(5_000, 20_000)) {
+            val random = Random(count.toLong())
+            val timestamps = LongArray(count)
+            var ts = dstDayTs
+
+            for (i in 0 until count) {
+                ts += random.nextInt(60 * 60 * 1000)
+                timestamps[i] = ts
+            }
+
+            val refreshes = 50
+
+            var start = System.nanoTime()
+            for (refresh in 0 until refreshes) {
+                val dates = ArrayList<Date>()
+                for (rowTs in timestamps) {
+                    dates.add(AdapterUtils.zeroTimeDate(Date(rowTs)))
+                }
+            }
+            val rebuildDuration = System.nanoTime() - start
+
+            start = System.nanoTime()
+            val index = DayIndex()
+            for (rowTs in timestamps) {
+                index.add(rowTs)
+            }
+            for (refresh in 0 until refreshes) {
+                index.add(ts + refresh)
+                // the displayed headers
+                for (position in index.size() - 20 until index.size()) {
+                    index.getDay(position, 0)
+                }
+            }
+            val indexDuration = System.nanoTime() - start
+
+            Logger.getLogger(javaClass.simpleName).info("## dayIndex_benchmark() : $count rows, $refreshes refreshes : " +
+                    "dates list ${rebuildDuration / 1000} us, day index ${indexDuration / 1000} us")
+        }
+    }
+}
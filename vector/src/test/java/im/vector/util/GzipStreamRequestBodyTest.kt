@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import okio.Buffer
+import okio.Okio
+import okio.Sink
+import okio.Timeout
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.InputStream
+import java.util.zip.GZIPInputStream
+
+class GzipStreamRequestBodyTest {
+
+    /**
+     * Generate some log lines without keeping them in memory.
+     */
+    private class LogLinesInputStream(private val size: Long) : InputStream() {
+        private val line = "01-01 12:00:00.000  1234  5678 D Tag: a log line which is repeated\n".toByteArray()
+
+        var position = 0L
+            private set
+
+        var maxReadLength = 0
+            private set
+
+        override fun read(): Int {
+            if (position >= size) return -1
+            return line[(position++ % line.size).toInt()].toInt()
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (position >= size) return -1
+
+            maxReadLength = Math.max(maxReadLength, len)
+
+            val count = Math.min(len.toLong(), size - position).toInt()
+            for (i in 0 until count) {
+                b[off + i] = line[((position + i) % line.size).toInt()]
+            }
+            position += count
+            return count
+        }
+    }
+
+    /**
+     * Sink which only counts the written bytes.
+     */
+    private class CountingSink : Sink {
+        var byteCount = 0L
+            private set
+
+        var maxWriteLength = 0L
+            private set
+
+        override fun write(source: Buffer, byteCount: Long) {
+            this.byteCount += byteCount
+            maxWriteLength = Math.max(maxWriteLength, byteCount)
+            source.skip(byteCount)
+        }
+
+        override fun flush() {}
+
+        override fun timeout(): Timeout = Timeout.NONE
+
+        override fun close() {}
+    }
+
+    @Test
+    fun writeTo_gzipsTheStream() {
+        val content = ByteArray(200_000) { ('a' + it % 26).toByte() }
+        val body = GzipStreamRequestBody(GzipStreamRequestBody.StreamProvider { content.inputStream() }, content.size.toLong())
+        val buffer = Buffer()
+
+        body.writeTo(buffer)
+
+        assertEquals(-1L, body.contentLength())
+        assertTrue(buffer.size() < content.size)
+        assertArrayEquals(content, GZIPInputStream(buffer.inputStream()).readBytes())
+    }
+
+    @Test
+    fun writeTo_keepsTheSinkOpen() {
+        val body = GzipStreamRequestBody(GzipStreamRequestBody.StreamProvider { "log".toByteArray().inputStream() }, 3)
+        val buffer = Buffer()
+        val sink = Okio.buffer(buffer as Sink)
+
+        body.writeTo(sink)
+        sink.writeUtf8("next part")
+        sink.flush()
+
+        assertTrue(buffer.readByteString().utf8().endsWith("next part"))
+    }
+
+    /**
+     * The log is streamed with fixed size buffers, it is never held in memory.
+     */
+    @Test
+    fun writeTo_usesFixedSizeBuffers() {
+        val size = 64L * GzipStreamRequestBody.BUFFER_SIZE
+        val source = LogLinesInputStream(size)
+        val countingSink = CountingSink()
+        val sink = Okio.buffer(countingSink)
+        var lastProgress = 0L
+
+        val body = GzipStreamRequestBody(GzipStreamRequestBody.StreamProvider { source }, size)
+        body.setWriteListener { totalWritten, _ -> lastProgress = totalWritten }
+
+        body.writeTo(sink)
+        sink.flush()
+
+        assertEquals(size, source.position)
+        assertEquals(size, lastProgress)
+        assertTrue(countingSink.byteCount in 1 until size)
+
+        // the buffers have a fixed size
+        assertTrue(source.maxReadLength <= GzipStreamRequestBody.BUFFER_SIZE)
+        assertTrue(countingSink.maxWriteLength <= 64 * 1024)
+    }
+
+    @Test
+    fun multipartBody_reportsTheStreamedProgress() {
+        val content = ByteArray(100_000) { ('a' + it % 26).toByte() }
+        val multipartBody = BugReporterMultipartBody.Builder()
+                .addFormDataPart("text", "description")
+                .addFormDataPart("compressed-log", "logcat.log.gz",
+                        GzipStreamRequestBody(GzipStreamRequestBody.StreamProvider { content.inputStream() }, content.size.toLong()))
+                .build()
+        val progresses = ArrayList<Long>()
+        var progressLength = 0L
+
+        multipartBody.setWriteListener { totalWritten, contentLength ->
+            progresses.add(totalWritten)
+            progressLength = contentLength
+        }
+
+        // the streamed parts are sent with a chunked encoding
+        assertEquals(-1L, multipartBody.contentLength())
+
+        val buffer = Buffer()
+        multipartBody.writeTo(buffer)
+
+        assertEquals("description".length + content.size.toLong(), progressLength)
+        assertEquals(progressLength, progresses.last())
+        assertTrue(progresses.size > 2)
+        assertTrue(progresses.zipWithNext().all { it.first <= it.second })
+        assertTrue(buffer.readUtf8().contains("filename=\"logcat.log.gz\""))
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class InlineImageLoaderTest {
+
+    @Test
+    fun computeSampleSize_smallImage_isNotSampled() {
+        assertEquals(1, InlineImageLoader.computeSampleSize(500, 1080))
+        assertEquals(1, InlineImageLoader.computeSampleSize(1080, 1080))
+        assertEquals(1, InlineImageLoader.computeSampleSize(2000, 1080))
+    }
+
+    @Test
+    fun computeSampleSize_largeImage_keepsTheMaxWidth() {
+        assertEquals(2, InlineImageLoader.computeSampleSize(2160, 1080))
+        assertEquals(4, InlineImageLoader.computeSampleSize(4032, 1000))
+        assertEquals(8, InlineImageLoader.computeSampleSize(8000, 1000))
+    }
+
+    @Test
+    fun computeSampleSize_noMaxWidth_isNotSampled() {
+        assertEquals(1, InlineImageLoader.computeSampleSize(8000, 0))
+    }
+
+    @Test
+    fun isRetryDelayElapsed_failedImagesAreNotRequestedAgainBeforeTheDelay() {
+        val failureTs = 1000L
+
+        assertFalse(InlineImageLoader.isRetryDelayElapsed(failureTs, failureTs))
+        assertFalse(InlineImageLoader.isRetryDelayElapsed(failureTs, failureTs + InlineImageLoader.FAILED_SOURCE_RETRY_DELAY_MS - 1))
+        assertTrue(InlineImageLoader.isRetryDelayElapsed(failureTs, failureTs + InlineImageLoader.FAILED_SOURCE_RETRY_DELAY_MS))
+    }
+
+    @Test
+    fun isRetryDelayElapsed_clockChange_allowsTheRetry() {
+        assertTrue(InlineImageLoader.isRetryDelayElapsed(1000L, 500L))
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import android.content.ComponentCallbacks2
+import androidx.collection.LruCache
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class MemoryUtilsTest {
+
+    private fun createCache(): LruCache<String, String> {
+        val cache = LruCache<String, String>(8)
+
+        for (i in 0 until 8) {
+            cache.put("key$i", "value$i")
+        }
+
+        return cache
+    }
+
+    @Test
+    fun trimLruCache_keepsTheEntriesWhenTheMemoryIsNotLow() {
+        val cache = createCache()
+
+        MemoryUtils.trimLruCache(cache, ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE)
+        MemoryUtils.trimLruCache(cache, ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN)
+
+        assertEquals(8, cache.size())
+    }
+
+    @Test
+    fun trimLruCache_halvesTheCacheWhenTheMemoryIsLow() {
+        for (level in listOf(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)) {
+            val cache = createCache()
+
+            MemoryUtils.trimLruCache(cache, level)
+
+            assertEquals(4, cache.size())
+            // the most recently used entries are kept
+            assertEquals("value7", cache.get("key7"))
+        }
+    }
+
+    @Test
+    fun trimLruCache_emptiesTheCacheWhenTheMemoryIsCritical() {
+        for (level in listOf(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL,
+                ComponentCallbacks2.TRIM_MEMORY_MODERATE,
+                ComponentCallbacks2.TRIM_MEMORY_COMPLETE)) {
+            val cache = createCache()
+
+            MemoryUtils.trimLruCache(cache, level)
+
+            assertEquals(0, cache.size())
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class OrderedResultsQueueTest {
+
+    @Test
+    fun put_releasesTheResultsInOrder() {
+        val queue = OrderedResultsQueue<String>()
+        repeat(3) { queue.reserve() }
+
+        assertEquals(emptyList<String>(), queue.put(2, "c"))
+        assertEquals(emptyList<String>(), queue.put(1, "b"))
+        assertFalse(queue.isDrained)
+
+        assertEquals(listOf("a", "b", "c"), queue.put(0, "a"))
+        assertTrue(queue.isDrained)
+    }
+
+    @Test
+    fun put_skipsTheNullResults() {
+        val queue = OrderedResultsQueue<String>()
+        repeat(3) { queue.reserve() }
+
+        assertEquals(emptyList<String>(), queue.put(1, null))
+        assertEquals(listOf("a"), queue.put(0, "a"))
+        assertEquals(listOf("c"), queue.put(2, "c"))
+        assertTrue(queue.isDrained)
+    }
+
+    @Test
+    fun put_ignoresTheUnknownAndTheDuplicatedResults() {
+        val queue = OrderedResultsQueue<String>()
+        queue.reserve()
+
+        assertEquals(emptyList<String>(), queue.put(1, "unknown"))
+        assertEquals(listOf("a"), queue.put(0, "a"))
+        assertEquals(emptyList<String>(), queue.put(0, "duplicated"))
+
+        // new tasks can be added after a drain
+        assertEquals(1, queue.reserve())
+        assertFalse(queue.isDrained)
+        assertEquals(listOf("b"), queue.put(1, "b"))
+    }
+
+    @Test
+    fun put_keepsTheOrderOfShuffledResults() {
+        val queue = OrderedResultsQueue<Int>()
+        val indexes = (0 until 30).map { queue.reserve() }.shuffled(Random(42))
+        val released = ArrayList<Int>()
+
+        indexes.forEach { released.addAll(queue.put(it, it)) }
+
+        assertEquals((0 until 30).toList(), released)
+        assertTrue(queue.isDrained)
+    }
+}
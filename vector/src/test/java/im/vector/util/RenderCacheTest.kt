@@ -0,0 +1,135 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import android.content.ComponentCallbacks2
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class RenderCacheTest {
+
+    private fun createCache(maxSize: Int) = RenderCache<String>("test", maxSize,
+            RenderCache.SizeProvider<String> { value -> RenderCache.sizeOf(value) })
+
+    @Test
+    fun nullValues_areCached() {
+        val cache = createCache(10 * 1024)
+
+        assertFalse(cache.containsKey("a"))
+
+        cache.put("a", null)
+
+        assertTrue(cache.containsKey("a"))
+        assertNull(cache.get("a"))
+    }
+
+    @Test
+    fun containsKey_doesNotUpdateTheStatisticsNorTheOrder() {
+        val cache = createCache(2 * (64 + 2 + 200))
+
+        cache.put("a", "x".repeat(100))
+        cache.put("b", "x".repeat(100))
+
+        assertTrue(cache.containsKey("a"))
+        assertFalse(cache.containsKey("c"))
+        assertEquals(0, cache.hitCount)
+        assertEquals(0, cache.missCount)
+
+        // "a" is still the least recently used entry
+        cache.put("c", "x".repeat(100))
+        assertFalse(cache.containsKey("a"))
+        assertTrue(cache.containsKey("b"))
+
+        cache.remove("b")
+        assertFalse(cache.containsKey("b"))
+
+        cache.clear()
+        assertFalse(cache.containsKey("c"))
+    }
+
+    @Test
+    fun containsKey_isConsistentWithTheEntries_whenUpdatedConcurrently() {
+        // the entries are evicted too
+        val cache = createCache(8 * (64 + 4 + 2))
+        val keysCount = 16
+
+        val threads = (0 until 4).map { threadIndex ->
+            Thread {
+                val random = Random(threadIndex.toLong())
+
+                for (i in 0 until 20_000) {
+                    val key = "k" + random.nextInt(keysCount)
+
+                    if (random.nextBoolean()) {
+                        cache.put(key, "x")
+                    } else {
+                        cache.remove(key)
+                    }
+                }
+            }
+        }
+
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        val cachedKeys = cache.snapshot().keys
+
+        for (i in 0 until keysCount) {
+            assertEquals(cachedKeys.contains("k$i"), cache.containsKey("k$i"))
+        }
+    }
+
+    @Test
+    fun size_isAccountedInBytes() {
+        // 64 bytes of overhead + 2 bytes per char
+        val cache = createCache(3 * (64 + 2 + 200))
+
+        cache.put("a", "x".repeat(100))
+        cache.put("b", "x".repeat(100))
+        cache.put("c", "x".repeat(100))
+
+        assertEquals(3 * (64 + 2 + 200), cache.size)
+        assertEquals(0, cache.evictionCount)
+
+        // the least recently used entry is evicted
+        cache.get("a")
+        cache.put("d", "x".repeat(100))
+
+        assertEquals(1, cache.evictionCount)
+        assertTrue(cache.containsKey("a"))
+        assertFalse(cache.containsKey("b"))
+    }
+
+    @Test
+    fun trimMemory_releasesTheEntries() {
+        val cache = createCache(4 * (64 + 2 + 200))
+
+        for (key in listOf("a", "b", "c", "d")) {
+            cache.put(key, "x".repeat(100))
+        }
+
+        cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW)
+        assertEquals(2 * (64 + 2 + 200), cache.size)
+
+        cache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE)
+        assertEquals(0, cache.size)
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+class SearchTokenIndexTest {
+
+    private lateinit var index: SearchTokenIndex<String>
+
+    @Before
+    fun setUp() {
+        index = SearchTokenIndex()
+        index.put("@alice:example.org", listOf("alice martin", "alice", "martin", "@alice:example.org"), listOf("alice martin", "@alice:example.org"))
+        index.put("@bob:example.org", listOf("bob marley", "bob", "marley", "@bob:example.org"), listOf("bob marley", "@bob:example.org"))
+        index.put("@albert:example.org", listOf("albert", "@albert:example.org"), listOf("albert", "@albert:example.org"))
+    }
+
+    @Test
+    fun searchByPrefix() {
+        assertEquals(setOf("@alice:example.org", "@albert:example.org"), index.searchByPrefix("al"))
+        assertEquals(setOf("@alice:example.org", "@bob:example.org"), index.searchByPrefix("mar"))
+        assertEquals(setOf("@bob:example.org"), index.searchByPrefix("@b"))
+        assertEquals(setOf("@alice:example.org"), index.searchByPrefix("alice martin"))
+        assertTrue(index.searchByPrefix("z").isEmpty())
+
+        // an empty prefix matches nothing
+        assertTrue(index.searchByPrefix("").isEmpty())
+    }
+
+    @Test
+    fun searchBySubstring() {
+        assertEquals(setOf("@alice:example.org", "@bob:example.org"), index.searchBySubstring("mar"))
+        assertEquals(setOf("@alice:example.org"), index.searchBySubstring("ce mar"))
+        assertEquals(setOf("@alice:example.org", "@bob:example.org", "@albert:example.org"), index.searchBySubstring("example"))
+
+        // the trigrams give candidates which are checked with the full texts
+        assertTrue(index.searchBySubstring("marlice").isEmpty())
+
+        // the short patterns are checked on all the texts
+        assertEquals(setOf("@bob:example.org"), index.searchBySubstring("ob"))
+        assertTrue(index.searchBySubstring("").isEmpty())
+    }
+
+    @Test
+    fun updateAndRemove() {
+        // the display name has been updated
+        index.put("@bob:example.org", listOf("robert", "@bob:example.org"), listOf("robert", "@bob:example.org"))
+
+        assertEquals(3, index.size())
+        assertTrue(index.searchByPrefix("bob").isEmpty())
+        assertTrue(index.searchBySubstring("marley").isEmpty())
+        assertEquals(setOf("@bob:example.org"), index.searchByPrefix("rob"))
+        assertEquals(setOf("@bob:example.org"), index.searchBySubstring("obert"))
+
+        index.remove("@alice:example.org")
+
+        assertFalse(index.contains("@alice:example.org"))
+        assertEquals(setOf("@albert:example.org"), index.searchByPrefix("al"))
+        assertTrue(index.searchBySubstring("alice").isEmpty())
+
+        index.clear()
+
+        assertEquals(0, index.size())
+        assertTrue(index.searchByPrefix("a").isEmpty())
+    }
+
+    @Test
+    fun searchByPrefix_largeIndex() {
+        val largeIndex = SearchTokenIndex<Int>()
+
+        for (i in 0 until 20000) {
+            val name = "user$i name$i"
+            largeIndex.put(i, listOf(name, "user$i", "name$i", "@user$i:example.org"), listOf(name))
+        }
+
+        // warm up
+        largeIndex.searchByPrefix("user1999")
+
+        val start = System.nanoTime()
+        val result = largeIndex.searchByPrefix("user1999")
+        val durationMs = (System.nanoTime() - start) / 1_000_000.0
+
+        assertEquals(setOf(1999, 19990, 19991, 19992, 19993, 19994, 19995, 19996, 19997, 19998, 19999), result)
+        assertTrue("prefix query took $durationMs ms", durationMs < 5)
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.Random
+import java.util.logging.Logger
+
+class TimestampIndexTest {
+
+    private class Row(val ts: Long)
+
+    @Test
+    fun timestampIndex_empty() {
+        val index = TimestampIndex<Row>()
+
+        assertNull(index.higher(0))
+        assertNull(index.lower(0))
+    }
+
+    @Test
+    fun timestampIndex_closest() {
+        val index = TimestampIndex<Row>()
+        val rows = listOf(Row(30), Row(10), Row(20))
+
+        rows.forEach { index.add(it.ts, it) }
+
+        assertEquals(rows[1], index.higher(5))
+        assertEquals(rows[2], index.higher(10))
+        assertEquals(rows[0], index.higher(25))
+        assertNull(index.higher(30))
+
+        assertNull(index.lower(10))
+        assertEquals(rows[1], index.lower(11))
+        assertEquals(rows[2], index.lower(30))
+        assertEquals(rows[0], index.lower(100))
+    }
+
+    @Test
+    fun timestampIndex_remove() {
+        val index = TimestampIndex<Row>()
+        val first = Row(10)
+        val second = Row(10)
+        val third = Row(20)
+
+        index.add(first.ts, first)
+        index.add(second.ts, second)
+        index.add(third.ts, third)
+
+        assertEquals(first, index.higher(5))
+        assertTrue(index.remove(first.ts, first))
+        assertEquals(second, index.higher(5))
+
+        // the item is only searched with its indexation timestamp
+        assertFalse(index.remove(42, third))
+        assertFalse(index.remove(third.ts, Row(third.ts)))
+        assertTrue(index.remove(third.ts, third))
+        assertNull(index.higher(10))
+        assertEquals(1, index.size())
+
+        index.clear()
+        assertEquals(0, index.size())
+        assertNull(index.lower(100))
+    }
+
+    @Test
+    fun timestampIndex_matchesLinearScan() {
+        val random = Random(42)
+        val index = TimestampIndex<Row>()
+        val rows = ArrayList<Row>()
+
+        for (i in 0 until 2000) {
+            val row = Row(random.nextInt(5000).toLong())
+            rows.add(row)
+            index.add(row.ts, row)
+        }
+
+        for (i in 0 until 1000) {
+            val ts = random.nextInt(5200).toLong() - 100
+            assertEquals(linearHigher(rows, ts)?.ts, index.higher(ts)?.ts)
+            assertEquals(linearLower(rows, ts)?.ts, index.lower(ts)?.ts)
+        }
+    }
+
+    /**
+     * Micro benchmark: compare the index lookups with the linear scan previously done by VectorMessagesAdapter.
+     * The durations are reported in the logs.
+     */
+    @Ignore("benchmark, run it manually")
+    @Test
+    fun timestampIndex_benchmark() {
+        for (count in listOf(10_000, 50_000)) {
+            val random = Random(count.toLong())
+            val index = TimestampIndex<Row>()
+            val rows = HashMap<Int, Row>()
+
+            for (i in 0 until count) {
+                val row = Row(random.nextInt(count * 10).toLong())
+                rows[i] = row
+                index.add(row.ts, row)
+            }
+
+            val lookups = 1000
+            val timestamps = LongArray(lookups) { random.nextInt(count * 10).toLong() }
+
+            var start = System.nanoTime()
+            for (ts in timestamps) {
+                linearHigher(ArrayList(rows.values), ts)
+            }
+            val linearDuration = System.nanoTime() - start
+
+            start = System.nanoTime()
+            for (ts in timestamps) {
+                index.higher(ts)
+            }
+            val indexDuration = System.nanoTime() - start
+
+            Logger.getLogger(javaClass.simpleName).info("## timestampIndex_benchmark() : $count rows, $lookups lookups : " +
+                    "linear scan ${linearDuration / 1000} us, index ${indexDuration / 1000} us")
+        }
+    }
+
+    private fun linearHigher(rows: Collection<Row>, ts: Long): Row? {
+        return rows.filter { it.ts > ts }.minBy { it.ts }
+    }
+
+    private fun linearLower(rows: Collection<Row>, ts: Long): Row? {
+        return rows.filter { it.ts < ts }.maxBy { it.ts }
+    }
+}
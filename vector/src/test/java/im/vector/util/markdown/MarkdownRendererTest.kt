@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 New Vector Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package im.vector.util.markdown
+
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Ignore
+import org.junit.Test
+import java.util.logging.Logger
+
+class MarkdownRendererTest {
+
+    private class GoldenEntry(val markdown: String, val html: String)
+
+    /**
+     * The golden corpus has been rendered by marked 0.3 with the options of the former WebView parser.
+     * The e-mail addresses are encoded with decimal entities, marked picks the entities form randomly.
+     */
+    private val goldenCorpus: List<GoldenEntry> by lazy {
+        val json = javaClass.classLoader!!.getResourceAsStream("markdown/golden_corpus.json").reader().use { it.readText() }
+        Gson().fromJson<List<GoldenEntry>>(json, object : TypeToken<List<GoldenEntry>>() {}.type)
+    }
+
+    @Test
+    fun render_goldenCorpus() {
+        assertTrue(goldenCorpus.isNotEmpty())
+
+        goldenCorpus.forEach {
+            assertEquals("markdown: ${it.markdown}", it.html, MarkdownRenderer.render(it.markdown))
+        }
+    }
+
+    @Test
+    fun render_sanitize() {
+        assertEquals("<p>&lt;script&gt;alert(1)&lt;/script&gt;</p>\n", MarkdownRenderer.render("<script>alert(1)</script>"))
+        assertEquals("<p></p>\n", MarkdownRenderer.render("[xss](javascript:alert%281%29)"))
+        assertEquals("<p></p>\n", MarkdownRenderer.render("[xss](java&#115;cript:alert%281%29)"))
+    }
+
+    @Test
+    fun render_breaks() {
+        assertEquals("<p>line one<br>line two</p>\n", MarkdownRenderer.render("line one\nline two"))
+    }
+
+    /**
+     * The lexers patterns are shared by all the messages, a rendering must not depend on the previous ones.
+     */
+    @Test
+    fun render_isRepeatable() {
+        repeat(3) {
+            goldenCorpus.reversed().forEach {
+                assertEquals("markdown: ${it.markdown}", it.html, MarkdownRenderer.render(it.markdown))
+            }
+        }
+    }
+
+    /**
+     * These texts made the former regex rules backtrack for seconds or overflow the stack.
+     * The timeout only catches a quadratic or worse rendering, it is not a benchmark.
+     */
+    @Test(timeout = 10_000)
+    fun render_pathologicalInlineTexts() {
+        val backticks = "a" + "`".repeat(5000)
+        assertEquals("<p>$backticks</p>\n", MarkdownRenderer.render(backticks))
+
+        val links = "[a](".repeat(1000)
+        assertEquals("<p>$links</p>\n", MarkdownRenderer.render(links))
+
+        assertEquals("<p>" + "&lt;!--".repeat(3000) + "</p>\n", MarkdownRenderer.render("<!--".repeat(3000)))
+        assertEquals("<p>" + "&lt;a ".repeat(3000) + "</p>\n", MarkdownRenderer.render("<a ".repeat(3000)))
+
+        listOf("*", "_").forEach {
+            val html = MarkdownRenderer.render("a" + it.repeat(5000))
+
+            assertTrue(html.startsWith("<p>a<strong><strong>"))
+            assertTrue(html.endsWith("</strong></strong></p>\n"))
+            assertEquals(html.split("<strong>").size, html.split("</strong>").size)
+        }
+    }
+
+    /**
+     * Micro benchmark: per message latency, reported in the logs.
+     * The WebView parser had a 300 ms budget per message, without counting the WebView inflation.
+     */
+    @Ignore("benchmark, run it manually")
+    @Test
+    fun render_benchmark() {
+        val messages = goldenCorpus.map { it.markdown }
+
+        // warm up
+        repeat(20) { messages.forEach { MarkdownRenderer.render(it) } }
+
+        val rounds = 50
+        val start = System.nanoTime()
+        repeat(rounds) { messages.forEach { MarkdownRenderer.render(it) } }
+        val perMessageUs = (System.nanoTime() - start) / 1000 / (rounds * messages.size)
+
+        Logger.getLogger(javaClass.simpleName).info("## render_benchmark() : ${messages.size} messages, $perMessageUs us per message")
+    }
+}